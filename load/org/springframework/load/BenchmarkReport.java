@@ -0,0 +1,127 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.load;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Collects BenchmarkResults and writes them in CSV format, for
+ * comparing the results of different builds.
+ *
+ * <p>Can be run as a standalone program to compare two result files:
+ * <code>java org.springframework.load.BenchmarkReport old.csv new.csv</code>
+ * prints the relative throughput change of each scenario contained in both.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see BenchmarkResult#toCsvLine
+ */
+public class BenchmarkReport {
+
+	private final List results = new ArrayList();
+
+
+	public void addResult(BenchmarkResult result) {
+		this.results.add(result);
+	}
+
+	/**
+	 * Return the collected results as a List of BenchmarkResult objects.
+	 */
+	public List getResults() {
+		return results;
+	}
+
+	/**
+	 * Write all collected results to the given Writer, in CSV format
+	 * with a header line.
+	 */
+	public void writeCsv(Writer writer) {
+		PrintWriter pw = new PrintWriter(writer);
+		pw.println(BenchmarkResult.CSV_HEADER);
+		for (Iterator it = this.results.iterator(); it.hasNext();) {
+			pw.println(((BenchmarkResult) it.next()).toCsvLine());
+		}
+		pw.flush();
+	}
+
+	/**
+	 * Read the throughput per scenario from a CSV file written by
+	 * <code>writeCsv</code>.
+	 * @param reader the Reader to read from
+	 * @return a Map from scenario key to mean operations per second (as Double)
+	 * @see BenchmarkResult#getKey
+	 */
+	public static Map readThroughput(Reader reader) throws IOException {
+		BufferedReader br = new BufferedReader(reader);
+		Map throughput = new HashMap();
+		String line = br.readLine();
+		while ((line = br.readLine()) != null) {
+			String[] columns = StringUtils.commaDelimitedListToStringArray(line);
+			if (columns.length >= 5) {
+				String key = columns[0] + "," + columns[1] + "," + columns[2];
+				throughput.put(key, new Double(columns[4]));
+			}
+		}
+		return throughput;
+	}
+
+	private static Map readThroughput(String fileName) throws IOException {
+		Reader reader = new FileReader(fileName);
+		try {
+			return readThroughput(reader);
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Print the relative throughput change per scenario between two result files.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: java " + BenchmarkReport.class.getName() + " <baseline.csv> <current.csv>");
+			System.exit(1);
+		}
+		Map baseline = readThroughput(args[0]);
+		Map current = readThroughput(args[1]);
+		System.out.println("scenario,baselineOpsPerSecond,currentOpsPerSecond,changePercent");
+		for (Iterator it = current.keySet().iterator(); it.hasNext();) {
+			String key = (String) it.next();
+			Double before = (Double) baseline.get(key);
+			if (before != null && before.doubleValue() > 0) {
+				double after = ((Double) current.get(key)).doubleValue();
+				long change = Math.round((after - before.doubleValue()) * 100 / before.doubleValue());
+				System.out.println(key + "," + Math.round(before.doubleValue()) + "," + Math.round(after) + "," + change);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.load;
+
+/**
+ * Outcome of measuring one benchmark with a given number of threads.
+ *
+ * <p>Throughput is recorded per measurement iteration. The mean latency is
+ * derived from the throughput, since JDK 1.3 offers no timer precise enough
+ * to time individual operations of a few hundred nanoseconds.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see BenchmarkRunner
+ * @see BenchmarkReport
+ */
+public class BenchmarkResult {
+
+	/** Column names of the CSV format written by <code>toCsvLine</code> */
+	public static final String CSV_HEADER =
+			"benchmark,parameters,threads,iterations,opsPerSecond,stdDev,minOpsPerSecond,maxOpsPerSecond,nanosPerOp";
+
+	private final String name;
+
+	private final String parameters;
+
+	private final int threads;
+
+	private final double[] opsPerSecond;
+
+
+	/**
+	 * Create a new BenchmarkResult.
+	 * @param name the name of the benchmark, e.g. "aop.invoke"
+	 * @param parameters the scenario parameters as "key=value" pairs
+	 * separated by semicolons (must not contain commas)
+	 * @param threads the number of concurrent threads
+	 * @param opsPerSecond the throughput of each measurement iteration
+	 */
+	public BenchmarkResult(String name, String parameters, int threads, double[] opsPerSecond) {
+		this.name = name;
+		this.parameters = parameters;
+		this.threads = threads;
+		this.opsPerSecond = opsPerSecond;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getParameters() {
+		return parameters;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Return the key identifying this scenario across benchmark runs.
+	 */
+	public String getKey() {
+		return this.name + "," + this.parameters + "," + this.threads;
+	}
+
+	public int getIterations() {
+		return this.opsPerSecond.length;
+	}
+
+	/**
+	 * Return the mean throughput over all measurement iterations,
+	 * in operations per second (summed over all threads).
+	 */
+	public double getOpsPerSecond() {
+		if (this.opsPerSecond.length == 0) {
+			return 0;
+		}
+		double sum = 0;
+		for (int i = 0; i < this.opsPerSecond.length; i++) {
+			sum += this.opsPerSecond[i];
+		}
+		return sum / this.opsPerSecond.length;
+	}
+
+	/**
+	 * Return the standard deviation of the throughput between iterations.
+	 */
+	public double getStdDev() {
+		if (this.opsPerSecond.length < 2) {
+			return 0;
+		}
+		double mean = getOpsPerSecond();
+		double sum = 0;
+		for (int i = 0; i < this.opsPerSecond.length; i++) {
+			double diff = this.opsPerSecond[i] - mean;
+			sum += diff * diff;
+		}
+		return Math.sqrt(sum / (this.opsPerSecond.length - 1));
+	}
+
+	public double getMinOpsPerSecond() {
+		double min = Double.MAX_VALUE;
+		for (int i = 0; i < this.opsPerSecond.length; i++) {
+			min = Math.min(min, this.opsPerSecond[i]);
+		}
+		return (this.opsPerSecond.length > 0 ? min : 0);
+	}
+
+	public double getMaxOpsPerSecond() {
+		double max = 0;
+		for (int i = 0; i < this.opsPerSecond.length; i++) {
+			max = Math.max(max, this.opsPerSecond[i]);
+		}
+		return max;
+	}
+
+	/**
+	 * Return the mean time a single thread spends on one operation,
+	 * in nanoseconds.
+	 */
+	public double getNanosPerOp() {
+		double ops = getOpsPerSecond();
+		return (ops > 0 ? this.threads * 1000000000.0 / ops : 0);
+	}
+
+	/**
+	 * Render this result as a line in CSV format.
+	 * @see #CSV_HEADER
+	 */
+	public String toCsvLine() {
+		StringBuffer sb = new StringBuffer();
+		sb.append(this.name).append(',');
+		sb.append(this.parameters).append(',');
+		sb.append(this.threads).append(',');
+		sb.append(getIterations()).append(',');
+		sb.append(Math.round(getOpsPerSecond())).append(',');
+		sb.append(Math.round(getStdDev())).append(',');
+		sb.append(Math.round(getMinOpsPerSecond())).append(',');
+		sb.append(Math.round(getMaxOpsPerSecond())).append(',');
+		sb.append(Math.round(getNanosPerOp()));
+		return sb.toString();
+	}
+
+	public String toString() {
+		return this.name + " [" + this.parameters + "] threads=" + this.threads + ": " +
+				Math.round(getOpsPerSecond()) + " ops/s (+/- " + Math.round(getStdDev()) + "), " +
+				Math.round(getNanosPerOp()) + " ns/op";
+	}
+
+}
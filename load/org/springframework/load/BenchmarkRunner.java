@@ -0,0 +1,215 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.load;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Simple harness for throughput benchmarks, running a BenchmarkTask on a
+ * number of threads for a fixed time per iteration. A number of warmup
+ * iterations gives the VM the chance to compile the hot paths before
+ * the measurement iterations start.
+ *
+ * <p>Each worker thread calls the task in a tight loop until the iteration
+ * ends, checking a volatile flag in between; results of the task are
+ * folded into a sink so that the work cannot be optimized away.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see BenchmarkTask
+ * @see BenchmarkResult
+ */
+public class BenchmarkRunner {
+
+	public static final int DEFAULT_WARMUP_ITERATIONS = 3;
+
+	public static final int DEFAULT_MEASUREMENT_ITERATIONS = 5;
+
+	public static final long DEFAULT_ITERATION_MILLIS = 1000;
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private int warmupIterations = DEFAULT_WARMUP_ITERATIONS;
+
+	private int measurementIterations = DEFAULT_MEASUREMENT_ITERATIONS;
+
+	private long iterationMillis = DEFAULT_ITERATION_MILLIS;
+
+	/** Consumes task results, see Worker */
+	private volatile int sink;
+
+
+	/**
+	 * Set the number of iterations to run and discard before measuring.
+	 * Default is 3.
+	 */
+	public void setWarmupIterations(int warmupIterations) {
+		this.warmupIterations = warmupIterations;
+	}
+
+	public int getWarmupIterations() {
+		return warmupIterations;
+	}
+
+	/**
+	 * Set the number of measured iterations. Default is 5.
+	 */
+	public void setMeasurementIterations(int measurementIterations) {
+		this.measurementIterations = measurementIterations;
+	}
+
+	public int getMeasurementIterations() {
+		return measurementIterations;
+	}
+
+	/**
+	 * Set the duration of each iteration in milliseconds. Default is 1000.
+	 */
+	public void setIterationMillis(long iterationMillis) {
+		this.iterationMillis = iterationMillis;
+	}
+
+	public long getIterationMillis() {
+		return iterationMillis;
+	}
+
+	/**
+	 * Measure the given task.
+	 * @param name the name of the benchmark
+	 * @param parameters the scenario parameters, see BenchmarkResult
+	 * @param task the task to execute
+	 * @param threads the number of concurrent threads
+	 * @return the result of the measurement iterations
+	 * @throws Exception if setting up the task or one of its executions failed
+	 */
+	public BenchmarkResult run(String name, String parameters, BenchmarkTask task, int threads)
+			throws Exception {
+		task.setUp();
+		try {
+			for (int i = 0; i < this.warmupIterations; i++) {
+				runIteration(task, threads);
+			}
+			double[] opsPerSecond = new double[this.measurementIterations];
+			for (int i = 0; i < this.measurementIterations; i++) {
+				opsPerSecond[i] = runIteration(task, threads);
+			}
+			BenchmarkResult result = new BenchmarkResult(name, parameters, threads, opsPerSecond);
+			if (logger.isInfoEnabled()) {
+				logger.info(result.toString());
+			}
+			return result;
+		}
+		finally {
+			task.tearDown();
+		}
+	}
+
+	/**
+	 * Run a single iteration on the given number of threads.
+	 * @return the throughput in operations per second
+	 */
+	protected double runIteration(BenchmarkTask task, int threads) throws Exception {
+		Iteration iteration = new Iteration();
+		Worker[] workers = new Worker[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Worker(task, iteration);
+			workers[i].start();
+		}
+		long startTime = 0;
+		synchronized (iteration) {
+			while (iteration.readyCount < threads) {
+				iteration.wait();
+			}
+			startTime = System.currentTimeMillis();
+			iteration.started = true;
+			iteration.notifyAll();
+		}
+		Thread.sleep(this.iterationMillis);
+		iteration.stopped = true;
+		long operations = 0;
+		int sum = 0;
+		for (int i = 0; i < threads; i++) {
+			workers[i].join();
+			if (workers[i].failure != null) {
+				throw workers[i].failure;
+			}
+			operations += workers[i].operations;
+			sum += workers[i].sink;
+		}
+		long elapsed = System.currentTimeMillis() - startTime;
+		this.sink = sum;
+		return (elapsed > 0 ? operations * 1000.0 / elapsed : 0);
+	}
+
+
+	/**
+	 * Start and stop signals shared by the workers of one iteration.
+	 */
+	private static class Iteration {
+
+		private int readyCount = 0;
+
+		private boolean started = false;
+
+		private volatile boolean stopped = false;
+	}
+
+
+	/**
+	 * Thread that executes the task until the iteration is stopped.
+	 */
+	private static class Worker extends Thread {
+
+		private final BenchmarkTask task;
+
+		private final Iteration iteration;
+
+		private long operations;
+
+		private int sink;
+
+		private Exception failure;
+
+		private Worker(BenchmarkTask task, Iteration iteration) {
+			this.task = task;
+			this.iteration = iteration;
+			setDaemon(true);
+		}
+
+		public void run() {
+			try {
+				synchronized (this.iteration) {
+					this.iteration.readyCount++;
+					this.iteration.notifyAll();
+					while (!this.iteration.started) {
+						this.iteration.wait();
+					}
+				}
+				while (!this.iteration.stopped) {
+					this.sink += this.task.execute();
+					this.operations++;
+				}
+			}
+			catch (Exception ex) {
+				this.failure = ex;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.load;
+
+/**
+ * A single operation to be measured by a BenchmarkRunner.
+ *
+ * <p>The same instance is invoked concurrently by all benchmark threads,
+ * so implementations must be thread-safe, just like the AOP proxies or
+ * other framework objects they usually exercise.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see BenchmarkRunner
+ */
+public interface BenchmarkTask {
+
+	/**
+	 * Prepare the fixture, before any warmup iteration.
+	 */
+	void setUp() throws Exception;
+
+	/**
+	 * Perform the operation once.
+	 * @return a value derived from the operation, consumed by the runner
+	 * to prevent the VM from eliminating the work as dead code
+	 */
+	int execute() throws Exception;
+
+	/**
+	 * Release the fixture, after the last measurement iteration.
+	 */
+	void tearDown() throws Exception;
+
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.load.aop;
+
+import java.io.FileWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import org.springframework.aop.TargetSource;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DynamicMethodMatcherPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcutAdvisor;
+import org.springframework.aop.target.AbstractPrototypeBasedTargetSource;
+import org.springframework.aop.target.CommonsPoolTargetSource;
+import org.springframework.aop.target.HotSwappableTargetSource;
+import org.springframework.aop.target.PrototypeTargetSource;
+import org.springframework.aop.target.SingletonTargetSource;
+import org.springframework.aop.target.ThreadLocalTargetSource;
+import org.springframework.beans.ITestBean;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.TestBean;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.load.BenchmarkReport;
+import org.springframework.load.BenchmarkResult;
+import org.springframework.load.BenchmarkRunner;
+import org.springframework.load.BenchmarkTask;
+import org.springframework.util.StringUtils;
+
+/**
+ * Benchmark suite for the AOP proxy machinery: proxy creation cost and
+ * invocation throughput of JDK dynamic proxies and CGLIB proxies.
+ *
+ * <p>Starting from a baseline scenario, one dimension is varied at a time:
+ * number of interceptors (0 to 10), static versus dynamic pointcuts,
+ * the Singleton, Prototype, ThreadLocal, CommonsPool and HotSwappable
+ * target sources, "exposeProxy" on and off, and the number of threads.
+ * Each combination is measured for both proxy types.
+ *
+ * <p>Runs offline as a standalone program; the results are written in
+ * CSV format, to be compared between builds via BenchmarkReport.
+ * Configured through system properties:
+ * <ul>
+ * <li>"benchmark.output": file to write the CSV results to (default: stdout)
+ * <li>"benchmark.threads": comma-separated thread counts (default: "1,2,4,8,16,32")
+ * <li>"benchmark.warmupIterations", "benchmark.measurementIterations",
+ * "benchmark.iterationMillis": see BenchmarkRunner
+ * </ul>
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see org.springframework.load.BenchmarkReport
+ */
+public class AopProxyBenchmark {
+
+	public static final String TARGET_SOURCE_SINGLETON = "singleton";
+
+	public static final String TARGET_SOURCE_PROTOTYPE = "prototype";
+
+	public static final String TARGET_SOURCE_THREAD_LOCAL = "threadLocal";
+
+	public static final String TARGET_SOURCE_COMMONS_POOL = "commonsPool";
+
+	public static final String TARGET_SOURCE_HOT_SWAPPABLE = "hotSwappable";
+
+	private static final String[] TARGET_SOURCES = new String[] {
+		TARGET_SOURCE_SINGLETON, TARGET_SOURCE_PROTOTYPE, TARGET_SOURCE_THREAD_LOCAL,
+		TARGET_SOURCE_COMMONS_POOL, TARGET_SOURCE_HOT_SWAPPABLE};
+
+	private static final int[] INTERCEPTOR_COUNTS = new int[] {0, 1, 2, 5, 10};
+
+	private static final int BASELINE_INTERCEPTORS = 2;
+
+
+	private final BenchmarkRunner runner;
+
+	private final int[] threadCounts;
+
+
+	public AopProxyBenchmark(BenchmarkRunner runner, int[] threadCounts) {
+		this.runner = runner;
+		this.threadCounts = threadCounts;
+	}
+
+	/**
+	 * Build the list of invocation scenarios: the baseline plus
+	 * one-dimensional variations, without duplicates.
+	 * @return a List of Scenario objects
+	 */
+	protected List buildInvocationScenarios() {
+		List scenarios = new ArrayList();
+		Set keys = new HashSet();
+		boolean[] proxyTypes = new boolean[] {false, true};
+		for (int p = 0; p < proxyTypes.length; p++) {
+			boolean cglib = proxyTypes[p];
+			for (int i = 0; i < INTERCEPTOR_COUNTS.length; i++) {
+				addScenario(scenarios, keys, new Scenario(cglib, INTERCEPTOR_COUNTS[i], false, TARGET_SOURCE_SINGLETON, false, 1));
+			}
+			addScenario(scenarios, keys, new Scenario(cglib, BASELINE_INTERCEPTORS, true, TARGET_SOURCE_SINGLETON, false, 1));
+			addScenario(scenarios, keys, new Scenario(cglib, BASELINE_INTERCEPTORS, false, TARGET_SOURCE_SINGLETON, true, 1));
+			for (int t = 0; t < TARGET_SOURCES.length; t++) {
+				for (int n = 0; n < this.threadCounts.length; n++) {
+					addScenario(scenarios, keys,
+							new Scenario(cglib, BASELINE_INTERCEPTORS, false, TARGET_SOURCES[t], false, this.threadCounts[n]));
+				}
+			}
+		}
+		return scenarios;
+	}
+
+	private void addScenario(List scenarios, Set keys, Scenario scenario) {
+		if (keys.add(scenario.getParameters() + "," + scenario.threads)) {
+			scenarios.add(scenario);
+		}
+	}
+
+	/**
+	 * Run all benchmarks, adding the results to the given report.
+	 */
+	public void run(BenchmarkReport report) throws Exception {
+		boolean[] proxyTypes = new boolean[] {false, true};
+		for (int p = 0; p < proxyTypes.length; p++) {
+			for (int i = 0; i < INTERCEPTOR_COUNTS.length; i++) {
+				Scenario scenario = new Scenario(proxyTypes[p], INTERCEPTOR_COUNTS[i], false, TARGET_SOURCE_SINGLETON, false, 1);
+				report.addResult(this.runner.run("aop.create", scenario.getParameters(), new CreationTask(scenario), 1));
+			}
+		}
+		for (Iterator it = buildInvocationScenarios().iterator(); it.hasNext();) {
+			Scenario scenario = (Scenario) it.next();
+			report.addResult(this.runner.run(
+					"aop.invoke", scenario.getParameters(), new InvocationTask(scenario), scenario.threads));
+		}
+	}
+
+
+	/**
+	 * Create a proxy for the given scenario.
+	 */
+	protected static ITestBean createProxy(Scenario scenario, TargetSource targetSource) {
+		ProxyFactory pf = new ProxyFactory();
+		pf.setProxyTargetClass(scenario.cglib);
+		pf.setExposeProxy(scenario.exposeProxy);
+		pf.addInterface(ITestBean.class);
+		pf.setTargetSource(targetSource);
+		for (int i = 0; i < scenario.interceptors; i++) {
+			if (scenario.dynamicPointcut) {
+				DynamicPointcutAdvisor advisor = new DynamicPointcutAdvisor();
+				advisor.setAdvice(new NopInterceptor());
+				pf.addAdvisor(advisor);
+			}
+			else {
+				pf.addAdvisor(new StaticPointcutAdvisor(new NopInterceptor()));
+			}
+		}
+		return (ITestBean) pf.getProxy();
+	}
+
+	/**
+	 * Create the target source for the given scenario.
+	 */
+	protected static TargetSource createTargetSource(Scenario scenario) throws Exception {
+		if (TARGET_SOURCE_SINGLETON.equals(scenario.targetSource)) {
+			return new SingletonTargetSource(new TestBean("benchmark", 42));
+		}
+		if (TARGET_SOURCE_HOT_SWAPPABLE.equals(scenario.targetSource)) {
+			return new HotSwappableTargetSource(new TestBean("benchmark", 42));
+		}
+		AbstractPrototypeBasedTargetSource targetSource = null;
+		if (TARGET_SOURCE_PROTOTYPE.equals(scenario.targetSource)) {
+			targetSource = new PrototypeTargetSource();
+		}
+		else if (TARGET_SOURCE_THREAD_LOCAL.equals(scenario.targetSource)) {
+			targetSource = new ThreadLocalTargetSource();
+		}
+		else if (TARGET_SOURCE_COMMONS_POOL.equals(scenario.targetSource)) {
+			targetSource = new CommonsPoolTargetSource();
+		}
+		else {
+			throw new IllegalArgumentException("Unknown target source [" + scenario.targetSource + "]");
+		}
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		MutablePropertyValues pvs = new MutablePropertyValues();
+		pvs.addPropertyValue("age", new Integer(42));
+		beanFactory.registerBeanDefinition("target", new RootBeanDefinition(TestBean.class, pvs, false));
+		targetSource.setTargetBeanName("target");
+		targetSource.setBeanFactory(beanFactory);
+		targetSource.afterPropertiesSet();
+		return targetSource;
+	}
+
+
+	/**
+	 * Run the benchmark suite from the command line.
+	 */
+	public static void main(String[] args) throws Exception {
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setWarmupIterations(Integer.getInteger("benchmark.warmupIterations",
+				BenchmarkRunner.DEFAULT_WARMUP_ITERATIONS).intValue());
+		runner.setMeasurementIterations(Integer.getInteger("benchmark.measurementIterations",
+				BenchmarkRunner.DEFAULT_MEASUREMENT_ITERATIONS).intValue());
+		runner.setIterationMillis(Long.getLong("benchmark.iterationMillis",
+				BenchmarkRunner.DEFAULT_ITERATION_MILLIS).longValue());
+		String[] threads = StringUtils.commaDelimitedListToStringArray(
+				System.getProperty("benchmark.threads", "1,2,4,8,16,32"));
+		int[] threadCounts = new int[threads.length];
+		for (int i = 0; i < threads.length; i++) {
+			threadCounts[i] = Integer.parseInt(threads[i].trim());
+		}
+
+		BenchmarkReport report = new BenchmarkReport();
+		new AopProxyBenchmark(runner, threadCounts).run(report);
+
+		String output = System.getProperty("benchmark.output");
+		Writer writer = (output != null ? (Writer) new FileWriter(output) : new OutputStreamWriter(System.out));
+		try {
+			report.writeCsv(writer);
+		}
+		finally {
+			if (output != null) {
+				writer.close();
+			}
+		}
+	}
+
+
+	/**
+	 * One combination of benchmark dimensions.
+	 */
+	protected static class Scenario {
+
+		private final boolean cglib;
+
+		private final int interceptors;
+
+		private final boolean dynamicPointcut;
+
+		private final String targetSource;
+
+		private final boolean exposeProxy;
+
+		private final int threads;
+
+		public Scenario(boolean cglib, int interceptors, boolean dynamicPointcut,
+		                String targetSource, boolean exposeProxy, int threads) {
+			this.cglib = cglib;
+			this.interceptors = interceptors;
+			this.dynamicPointcut = dynamicPointcut;
+			this.targetSource = targetSource;
+			this.exposeProxy = exposeProxy;
+			this.threads = threads;
+		}
+
+		public int getThreads() {
+			return threads;
+		}
+
+		public String getParameters() {
+			return "proxy=" + (this.cglib ? "cglib" : "jdk") + ";interceptors=" + this.interceptors +
+					";pointcut=" + (this.dynamicPointcut ? "dynamic" : "static") +
+					";targetSource=" + this.targetSource + ";exposeProxy=" + this.exposeProxy;
+		}
+	}
+
+
+	/**
+	 * Measures the creation of a proxy with a singleton target.
+	 */
+	private static class CreationTask implements BenchmarkTask {
+
+		private final Scenario scenario;
+
+		private TargetSource targetSource;
+
+		private CreationTask(Scenario scenario) {
+			this.scenario = scenario;
+		}
+
+		public void setUp() throws Exception {
+			this.targetSource = createTargetSource(this.scenario);
+		}
+
+		public int execute() {
+			return System.identityHashCode(createProxy(this.scenario, this.targetSource));
+		}
+
+		public void tearDown() {
+		}
+	}
+
+
+	/**
+	 * Measures a simple getter call through a proxy.
+	 */
+	private static class InvocationTask implements BenchmarkTask {
+
+		private final Scenario scenario;
+
+		private TargetSource targetSource;
+
+		private ITestBean proxy;
+
+		private InvocationTask(Scenario scenario) {
+			this.scenario = scenario;
+		}
+
+		public void setUp() throws Exception {
+			this.targetSource = createTargetSource(this.scenario);
+			this.proxy = createProxy(this.scenario, this.targetSource);
+		}
+
+		public int execute() {
+			return this.proxy.getAge();
+		}
+
+		public void tearDown() throws Exception {
+			if (this.targetSource instanceof DisposableBean) {
+				((DisposableBean) this.targetSource).destroy();
+			}
+		}
+	}
+
+
+	/**
+	 * Interceptor that does nothing but proceed, isolating the cost
+	 * of the interception machinery itself.
+	 */
+	private static class NopInterceptor implements MethodInterceptor {
+
+		public Object invoke(MethodInvocation invocation) throws Throwable {
+			return invocation.proceed();
+		}
+	}
+
+
+	private static class StaticPointcutAdvisor extends StaticMethodMatcherPointcutAdvisor {
+
+		private StaticPointcutAdvisor(MethodInterceptor interceptor) {
+			super(interceptor);
+		}
+
+		public boolean matches(Method method, Class targetClass) {
+			return "getAge".equals(method.getName());
+		}
+	}
+
+
+	private static class DynamicPointcutAdvisor extends DynamicMethodMatcherPointcutAdvisor {
+
+		public boolean matches(Method method, Class targetClass, Object[] args) {
+			return "getAge".equals(method.getName());
+		}
+	}
+
+}
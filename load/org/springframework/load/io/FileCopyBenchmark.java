@@ -0,0 +1,275 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.load.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.springframework.load.BenchmarkReport;
+import org.springframework.load.BenchmarkRunner;
+import org.springframework.load.BenchmarkTask;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Benchmark for the copy throughput of FileCopyUtils, comparing the
+ * channel-based transfer with the buffered stream loop that is used
+ * on JDK 1.3, for files from 1 MB to 1 GB.
+ *
+ * <p>Two targets are measured for each file size, copy method and thread
+ * count: another file ("file"), and a plain OutputStream that discards
+ * the content ("stream"), like a servlet response stream. Each operation
+ * copies the whole file once; multiply the throughput with the file size
+ * to get bytes per second. Every thread copies to its own target file.
+ *
+ * <p>Runs offline as a standalone program; the results are written in
+ * CSV format, to be compared between builds via BenchmarkReport.
+ * Configured through system properties:
+ * <ul>
+ * <li>"benchmark.output": file to write the CSV results to (default: stdout)
+ * <li>"benchmark.threads": comma-separated thread counts (default: "1,2")
+ * <li>"benchmark.sizes": comma-separated file sizes in MB (default: "1,16,256,1024")
+ * <li>"benchmark.dir": directory for the test files (default: "java.io.tmpdir")
+ * <li>"benchmark.warmupIterations", "benchmark.measurementIterations",
+ * "benchmark.iterationMillis": see BenchmarkRunner
+ * </ul>
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see org.springframework.util.FileCopyUtils
+ * @see org.springframework.load.BenchmarkReport
+ */
+public class FileCopyBenchmark {
+
+	public static final String METHOD_CHANNEL = "channel";
+
+	public static final String METHOD_STREAM = "stream";
+
+	public static final String TARGET_FILE = "file";
+
+	public static final String TARGET_STREAM = "stream";
+
+	private static final String[] METHODS = new String[] {METHOD_CHANNEL, METHOD_STREAM};
+
+	private static final String[] TARGETS = new String[] {TARGET_FILE, TARGET_STREAM};
+
+	private static final int MB = 1024 * 1024;
+
+
+	private final BenchmarkRunner runner;
+
+	private final int[] threadCounts;
+
+	private final int[] sizesInMb;
+
+	private final File directory;
+
+
+	public FileCopyBenchmark(BenchmarkRunner runner, int[] threadCounts, int[] sizesInMb, File directory) {
+		this.runner = runner;
+		this.threadCounts = threadCounts;
+		this.sizesInMb = sizesInMb;
+		this.directory = directory;
+	}
+
+	/**
+	 * Run all benchmarks, adding the results to the given report.
+	 */
+	public void run(BenchmarkReport report) throws Exception {
+		for (int s = 0; s < this.sizesInMb.length; s++) {
+			// write each source file once, shared by all scenarios of its size
+			File source = createSourceFile(this.sizesInMb[s]);
+			try {
+				for (int t = 0; t < TARGETS.length; t++) {
+					for (int m = 0; m < METHODS.length; m++) {
+						for (int c = 0; c < this.threadCounts.length; c++) {
+							String parameters = "sizeMb=" + this.sizesInMb[s] + ";target=" + TARGETS[t] +
+									";method=" + METHODS[m];
+							report.addResult(this.runner.run("io.copy", parameters,
+									new CopyTask(source, TARGETS[t], METHODS[m], this.directory), this.threadCounts[c]));
+						}
+					}
+				}
+			}
+			finally {
+				source.delete();
+			}
+		}
+	}
+
+	/**
+	 * Create a source file of the given size.
+	 */
+	protected File createSourceFile(int sizeInMb) throws IOException {
+		File file = File.createTempFile("copy-source", ".dat", this.directory);
+		byte[] chunk = new byte[MB];
+		for (int i = 0; i < chunk.length; i++) {
+			chunk[i] = (byte) i;
+		}
+		OutputStream out = new FileOutputStream(file);
+		try {
+			for (int i = 0; i < sizeInMb; i++) {
+				out.write(chunk);
+			}
+		}
+		finally {
+			out.close();
+		}
+		return file;
+	}
+
+
+	/**
+	 * Run the benchmark suite from the command line.
+	 */
+	public static void main(String[] args) throws Exception {
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setWarmupIterations(Integer.getInteger("benchmark.warmupIterations",
+				BenchmarkRunner.DEFAULT_WARMUP_ITERATIONS).intValue());
+		runner.setMeasurementIterations(Integer.getInteger("benchmark.measurementIterations",
+				BenchmarkRunner.DEFAULT_MEASUREMENT_ITERATIONS).intValue());
+		runner.setIterationMillis(Long.getLong("benchmark.iterationMillis",
+				BenchmarkRunner.DEFAULT_ITERATION_MILLIS).longValue());
+		int[] threadCounts = parseIntList(System.getProperty("benchmark.threads", "1,2"));
+		int[] sizesInMb = parseIntList(System.getProperty("benchmark.sizes", "1,16,256,1024"));
+		File directory = new File(System.getProperty("benchmark.dir", System.getProperty("java.io.tmpdir")));
+
+		BenchmarkReport report = new BenchmarkReport();
+		new FileCopyBenchmark(runner, threadCounts, sizesInMb, directory).run(report);
+
+		String output = System.getProperty("benchmark.output");
+		Writer writer = (output != null ? (Writer) new FileWriter(output) : new OutputStreamWriter(System.out));
+		try {
+			report.writeCsv(writer);
+		}
+		finally {
+			if (output != null) {
+				writer.close();
+			}
+		}
+	}
+
+	private static int[] parseIntList(String value) {
+		String[] values = StringUtils.commaDelimitedListToStringArray(value);
+		int[] result = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			result[i] = Integer.parseInt(values[i].trim());
+		}
+		return result;
+	}
+
+
+	/**
+	 * Copies the source file to the current thread's target.
+	 */
+	private static class CopyTask implements BenchmarkTask {
+
+		private final File source;
+
+		private final String target;
+
+		private final String method;
+
+		private final File directory;
+
+		private final ThreadLocal targetFile = new ThreadLocal();
+
+		private final List targetFiles = new ArrayList();
+
+		private CopyTask(File source, String target, String method, File directory) {
+			this.source = source;
+			this.target = target;
+			this.method = method;
+			this.directory = directory;
+		}
+
+		public void setUp() {
+		}
+
+		public int execute() throws IOException {
+			if (TARGET_FILE.equals(this.target)) {
+				File out = getTargetFile();
+				if (METHOD_CHANNEL.equals(this.method)) {
+					FileCopyUtils.copy(this.source, out);
+				}
+				else {
+					FileCopyUtils.copy(new BufferedInputStream(new FileInputStream(this.source)),
+							new BufferedOutputStream(new FileOutputStream(out)));
+				}
+				return (int) out.length();
+			}
+			CountingOutputStream out = new CountingOutputStream();
+			if (METHOD_CHANNEL.equals(this.method)) {
+				FileCopyUtils.copy(this.source, out);
+			}
+			else {
+				FileCopyUtils.copy(new BufferedInputStream(new FileInputStream(this.source)), out);
+			}
+			return (int) out.count;
+		}
+
+		private File getTargetFile() throws IOException {
+			File file = (File) this.targetFile.get();
+			if (file == null) {
+				file = File.createTempFile("copy-target", ".dat", this.directory);
+				this.targetFile.set(file);
+				synchronized (this.targetFiles) {
+					this.targetFiles.add(file);
+				}
+			}
+			return file;
+		}
+
+		public void tearDown() {
+			synchronized (this.targetFiles) {
+				for (Iterator it = this.targetFiles.iterator(); it.hasNext();) {
+					((File) it.next()).delete();
+				}
+				this.targetFiles.clear();
+			}
+		}
+	}
+
+
+	/**
+	 * OutputStream that only counts the bytes written to it.
+	 */
+	private static class CountingOutputStream extends OutputStream {
+
+		private long count;
+
+		public void write(int b) {
+			this.count++;
+		}
+
+		public void write(byte[] b, int off, int len) {
+			this.count += len;
+		}
+	}
+
+}
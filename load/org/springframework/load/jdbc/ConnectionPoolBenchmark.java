@@ -0,0 +1,267 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.load.jdbc;
+
+import java.io.FileWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp.BasicDataSource;
+
+import org.springframework.jdbc.datasource.PoolingDataSource;
+import org.springframework.load.BenchmarkReport;
+import org.springframework.load.BenchmarkRunner;
+import org.springframework.load.BenchmarkTask;
+import org.springframework.util.StringUtils;
+
+/**
+ * Benchmark comparing Spring's PoolingDataSource with Jakarta Commons DBCP's
+ * BasicDataSource on an in-memory HSQLDB database.
+ *
+ * <p>Two operations are measured for each pool and thread count: borrowing
+ * and returning a Connection ("borrow"), isolating the pool overhead, and
+ * additionally executing a single-row query ("query"). Both pools are
+ * configured with the same maximum size, which is smaller than the highest
+ * thread count so that contention on an exhausted pool gets measured too.
+ *
+ * <p>Runs offline as a standalone program; the results are written in
+ * CSV format, to be compared between builds via BenchmarkReport.
+ * Configured through system properties:
+ * <ul>
+ * <li>"benchmark.output": file to write the CSV results to (default: stdout)
+ * <li>"benchmark.threads": comma-separated thread counts (default: "1,2,4,8,16,32")
+ * <li>"benchmark.poolSize": maximum number of Connections per pool (default: 8)
+ * <li>"benchmark.warmupIterations", "benchmark.measurementIterations",
+ * "benchmark.iterationMillis": see BenchmarkRunner
+ * </ul>
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see org.springframework.load.BenchmarkReport
+ */
+public class ConnectionPoolBenchmark {
+
+	public static final String POOL_SPRING = "spring";
+
+	public static final String POOL_DBCP = "dbcp";
+
+	public static final String OPERATION_BORROW = "borrow";
+
+	public static final String OPERATION_QUERY = "query";
+
+	private static final String[] POOLS = new String[] {POOL_SPRING, POOL_DBCP};
+
+	private static final String[] OPERATIONS = new String[] {OPERATION_BORROW, OPERATION_QUERY};
+
+	private static final String DRIVER_CLASS_NAME = "org.hsqldb.jdbcDriver";
+
+	private static final String URL = "jdbc:hsqldb:.";
+
+	private static final String USERNAME = "sa";
+
+	private static final String PASSWORD = "";
+
+	private static final String QUERY = "SELECT id FROM benchmark WHERE id = ?";
+
+
+	private final BenchmarkRunner runner;
+
+	private final int[] threadCounts;
+
+	private final int poolSize;
+
+
+	public ConnectionPoolBenchmark(BenchmarkRunner runner, int[] threadCounts, int poolSize) {
+		this.runner = runner;
+		this.threadCounts = threadCounts;
+		this.poolSize = poolSize;
+	}
+
+	/**
+	 * Run all benchmarks, adding the results to the given report.
+	 */
+	public void run(BenchmarkReport report) throws Exception {
+		// HSQLDB discards an in-memory database once its last connection gets closed
+		Connection schemaConnection = createSchema();
+		try {
+			for (int o = 0; o < OPERATIONS.length; o++) {
+				for (int p = 0; p < POOLS.length; p++) {
+					for (int t = 0; t < this.threadCounts.length; t++) {
+						String parameters = "pool=" + POOLS[p] + ";operation=" + OPERATIONS[o] + ";maxSize=" + this.poolSize;
+						report.addResult(this.runner.run("jdbc.pool", parameters,
+								new PoolTask(POOLS[p], OPERATIONS[o], this.poolSize), this.threadCounts[t]));
+					}
+				}
+			}
+		}
+		finally {
+			schemaConnection.close();
+		}
+	}
+
+	/**
+	 * Create the table queried by the "query" operation.
+	 * @return the Connection used, to be kept open while benchmarking
+	 */
+	protected Connection createSchema() throws Exception {
+		Class.forName(DRIVER_CLASS_NAME);
+		Connection con = DriverManager.getConnection(URL, USERNAME, PASSWORD);
+		Statement stmt = con.createStatement();
+		try {
+			stmt.executeUpdate("DROP TABLE benchmark");
+		}
+		catch (SQLException ex) {
+			// table did not exist yet
+		}
+		stmt.executeUpdate("CREATE TABLE benchmark (id INTEGER PRIMARY KEY, name VARCHAR(50))");
+		stmt.executeUpdate("INSERT INTO benchmark VALUES (1, 'benchmark')");
+		stmt.close();
+		return con;
+	}
+
+	/**
+	 * Create the pool of the given type.
+	 */
+	protected static DataSource createDataSource(String pool, int poolSize) {
+		if (POOL_SPRING.equals(pool)) {
+			PoolingDataSource ds = new PoolingDataSource(DRIVER_CLASS_NAME, URL, USERNAME, PASSWORD);
+			ds.setMinSize(poolSize);
+			ds.setMaxSize(poolSize);
+			ds.afterPropertiesSet();
+			return ds;
+		}
+		if (POOL_DBCP.equals(pool)) {
+			BasicDataSource ds = new BasicDataSource();
+			ds.setDriverClassName(DRIVER_CLASS_NAME);
+			ds.setUrl(URL);
+			ds.setUsername(USERNAME);
+			ds.setPassword(PASSWORD);
+			ds.setMaxActive(poolSize);
+			ds.setMaxIdle(poolSize);
+			return ds;
+		}
+		throw new IllegalArgumentException("Unknown pool [" + pool + "]");
+	}
+
+	/**
+	 * Close the given pool.
+	 */
+	protected static void closeDataSource(DataSource ds) throws SQLException {
+		if (ds instanceof PoolingDataSource) {
+			((PoolingDataSource) ds).destroy();
+		}
+		else if (ds instanceof BasicDataSource) {
+			((BasicDataSource) ds).close();
+		}
+	}
+
+
+	/**
+	 * Run the benchmark suite from the command line.
+	 */
+	public static void main(String[] args) throws Exception {
+		BenchmarkRunner runner = new BenchmarkRunner();
+		runner.setWarmupIterations(Integer.getInteger("benchmark.warmupIterations",
+				BenchmarkRunner.DEFAULT_WARMUP_ITERATIONS).intValue());
+		runner.setMeasurementIterations(Integer.getInteger("benchmark.measurementIterations",
+				BenchmarkRunner.DEFAULT_MEASUREMENT_ITERATIONS).intValue());
+		runner.setIterationMillis(Long.getLong("benchmark.iterationMillis",
+				BenchmarkRunner.DEFAULT_ITERATION_MILLIS).longValue());
+		String[] threads = StringUtils.commaDelimitedListToStringArray(
+				System.getProperty("benchmark.threads", "1,2,4,8,16,32"));
+		int[] threadCounts = new int[threads.length];
+		for (int i = 0; i < threads.length; i++) {
+			threadCounts[i] = Integer.parseInt(threads[i].trim());
+		}
+		int poolSize = Integer.getInteger("benchmark.poolSize", 8).intValue();
+
+		BenchmarkReport report = new BenchmarkReport();
+		new ConnectionPoolBenchmark(runner, threadCounts, poolSize).run(report);
+
+		String output = System.getProperty("benchmark.output");
+		Writer writer = (output != null ? (Writer) new FileWriter(output) : new OutputStreamWriter(System.out));
+		try {
+			report.writeCsv(writer);
+		}
+		finally {
+			if (output != null) {
+				writer.close();
+			}
+		}
+	}
+
+
+	/**
+	 * Borrows a Connection, optionally executes a query, and returns it.
+	 */
+	private static class PoolTask implements BenchmarkTask {
+
+		private final String pool;
+
+		private final String operation;
+
+		private final int poolSize;
+
+		private DataSource dataSource;
+
+		private PoolTask(String pool, String operation, int poolSize) {
+			this.pool = pool;
+			this.operation = operation;
+			this.poolSize = poolSize;
+		}
+
+		public void setUp() {
+			this.dataSource = createDataSource(this.pool, this.poolSize);
+		}
+
+		public int execute() throws SQLException {
+			Connection con = this.dataSource.getConnection();
+			try {
+				if (OPERATION_QUERY.equals(this.operation)) {
+					PreparedStatement ps = con.prepareStatement(QUERY);
+					try {
+						ps.setInt(1, 1);
+						ResultSet rs = ps.executeQuery();
+						int result = (rs.next() ? rs.getInt(1) : 0);
+						rs.close();
+						return result;
+					}
+					finally {
+						ps.close();
+					}
+				}
+				return System.identityHashCode(con);
+			}
+			finally {
+				con.close();
+			}
+		}
+
+		public void tearDown() throws SQLException {
+			closeDataSource(this.dataSource);
+		}
+	}
+
+}
@@ -72,10 +72,13 @@ public abstract class AopContext {
 	 * Make the given proxy available via the currentProxy method. 
 	 * Note that the caller should be careful to return the old value
 	 * before it's done.
+	 * <p>Public to allow interceptors that hand an invocation over to
+	 * another thread to expose the proxy there as well.
 	 * @param proxy the proxy to expose
 	 * @return the old proxy, which may be null if none was bound
+	 * @see org.springframework.aop.interceptor.AsyncExecutionInterceptor
 	 */
-	static Object setCurrentProxy(Object proxy) {
+	public static Object setCurrentProxy(Object proxy) {
 		Object old = currentProxy.get();
 		currentProxy.set(proxy);
 		return old;
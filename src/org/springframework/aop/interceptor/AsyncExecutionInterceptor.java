@@ -0,0 +1,318 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.interceptor;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.aop.TargetSource;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.AopConfigException;
+import org.springframework.aop.framework.AopContext;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.DiscardableTask;
+import org.springframework.core.task.FutureResult;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Interceptor that executes method invocations asynchronously,
+ * by submitting them to a TaskExecutor. Intended for slow
+ * fire-and-forget operations like audit writes and notifications.
+ *
+ * <ul>
+ * <li>Methods with a <code>void</code> return type return immediately.
+ * Exceptions thrown by them get logged, as there is no caller to receive them.
+ * <li>Methods declared to return a FutureResult return a FutureResult
+ * immediately, which will be completed with the value or exception of the
+ * FutureResult that the target method returns.
+ * <li>Other methods are executed synchronously, as their callers
+ * expect a return value.
+ * </ul>
+ *
+ * <p>A ThreadPoolTaskExecutor gives a bounded queue with a configurable
+ * overflow policy. Note that with the "caller runs" policy, the invocation
+ * will be executed synchronously in the calling thread when the queue is full.
+ * If the executor discards an invocation instead, be it due to overflow or
+ * due to shutdown, the returned FutureResult gets completed with a
+ * TaskRejectedException, while a discarded <code>void</code> invocation
+ * gets logged.
+ *
+ * <p>A proxy with a non-static TargetSource (e.g. a pooling or prototype
+ * TargetSource) releases its target as soon as the proxy call returns,
+ * so asynchronous invocations on such proxies are refused with an
+ * AopConfigException. This check requires a proxy that implements Advised,
+ * i.e. a proxy that is not "opaque".
+ *
+ * <p>Transactional resources and synchronizations bound to the calling thread
+ * are deliberately <i>not</i> propagated to the executing thread: the caller's
+ * transaction might have completed (and its resources closed) before the
+ * invocation runs. Instead, any such state found on the worker thread is
+ * cleared before and after the invocation, so that pooled threads never leak
+ * state between invocations. The current AOP proxy, if exposed by the caller's
+ * proxy configuration, is propagated to the executing thread.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see #setTaskExecutor
+ * @see org.springframework.core.task.FutureResult
+ * @see org.springframework.scheduling.pool.ThreadPoolTaskExecutor
+ * @see org.springframework.aop.framework.AopContext
+ * @see org.springframework.transaction.support.TransactionSynchronizationManager
+ */
+public class AsyncExecutionInterceptor implements MethodInterceptor, InitializingBean {
+
+	private static final String TRANSACTION_SYNCHRONIZATION_MANAGER_CLASS_NAME =
+			"org.springframework.transaction.support.TransactionSynchronizationManager";
+
+	private static boolean transactionSupportAvailable;
+
+	static {
+		// Check whether Spring's transaction support is available,
+		// to avoid a runtime dependency of the AOP module on it.
+		try {
+			Class.forName(TRANSACTION_SYNCHRONIZATION_MANAGER_CLASS_NAME);
+			transactionSupportAvailable = true;
+		}
+		catch (ClassNotFoundException ex) {
+			transactionSupportAvailable = false;
+		}
+	}
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private TaskExecutor taskExecutor;
+
+	private boolean propagateAopContext = true;
+
+
+	/**
+	 * Create a new AsyncExecutionInterceptor, to be configured via "taskExecutor".
+	 * @see #setTaskExecutor
+	 */
+	public AsyncExecutionInterceptor() {
+	}
+
+	/**
+	 * Create a new AsyncExecutionInterceptor for the given TaskExecutor.
+	 * @param taskExecutor the TaskExecutor to submit invocations to
+	 */
+	public AsyncExecutionInterceptor(TaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Set the TaskExecutor to submit invocations to.
+	 * @see org.springframework.scheduling.pool.ThreadPoolTaskExecutor
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Return the TaskExecutor that invocations are submitted to.
+	 */
+	public TaskExecutor getTaskExecutor() {
+		return taskExecutor;
+	}
+
+	/**
+	 * Set whether to expose the current AOP proxy of the calling thread
+	 * (if any) to the executing thread, via AopContext. Default is true.
+	 * <p>If false, AopContext will not expose any proxy during asynchronous
+	 * invocations.
+	 * @see org.springframework.aop.framework.AopContext#currentProxy
+	 */
+	public void setPropagateAopContext(boolean propagateAopContext) {
+		this.propagateAopContext = propagateAopContext;
+	}
+
+	public void afterPropertiesSet() {
+		if (this.taskExecutor == null) {
+			throw new IllegalArgumentException("taskExecutor is required");
+		}
+	}
+
+
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		Class returnType = invocation.getMethod().getReturnType();
+		FutureResult futureResult = null;
+		if (FutureResult.class.equals(returnType)) {
+			futureResult = new FutureResult();
+		}
+		else if (!void.class.equals(returnType)) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Executing method '" + invocation.getMethod().getName() +
+						"' synchronously because its return type is neither void nor FutureResult");
+			}
+			return invocation.proceed();
+		}
+
+		checkTargetSource(invocation);
+
+		Object proxy = null;
+		if (this.propagateAopContext) {
+			// determine the current proxy without triggering AopContext's exception
+			proxy = AopContext.setCurrentProxy(null);
+			AopContext.setCurrentProxy(proxy);
+		}
+		this.taskExecutor.execute(new AsyncInvocation(invocation, futureResult, proxy, Thread.currentThread()));
+		return futureResult;
+	}
+
+	/**
+	 * Check that the target of the given invocation will still be valid when
+	 * the invocation runs: JdkDynamicAopProxy and Cglib2AopProxy release the
+	 * target to a non-static TargetSource as soon as the proxy call returns.
+	 * @param invocation the invocation to check
+	 * @throws AopConfigException if the proxy's TargetSource is not static
+	 * @see org.springframework.aop.TargetSource#isStatic
+	 */
+	protected void checkTargetSource(MethodInvocation invocation) throws AopConfigException {
+		if (invocation instanceof ReflectiveMethodInvocation) {
+			Object proxy = ((ReflectiveMethodInvocation) invocation).getProxy();
+			if (proxy instanceof Advised) {
+				TargetSource targetSource = ((Advised) proxy).getTargetSource();
+				if (!targetSource.isStatic()) {
+					throw new AopConfigException("Cannot execute method '" + invocation.getMethod().getName() +
+							"' asynchronously: TargetSource [" + targetSource + "] is not static, " +
+							"so the target would be released before the invocation runs");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Clear any transactional resources and synchronizations bound to the
+	 * current thread, if Spring's transaction support is available.
+	 */
+	protected void clearTransactionState() {
+		if (transactionSupportAvailable) {
+			TransactionStateCleaner.clearTransactionState(logger);
+		}
+	}
+
+
+	/**
+	 * Runnable that performs an intercepted invocation on behalf of the caller.
+	 */
+	private class AsyncInvocation implements DiscardableTask {
+
+		private final MethodInvocation invocation;
+
+		private final FutureResult futureResult;
+
+		private final Object proxy;
+
+		private final Thread callerThread;
+
+		public AsyncInvocation(MethodInvocation invocation, FutureResult futureResult, Object proxy,
+		                       Thread callerThread) {
+			this.invocation = invocation;
+			this.futureResult = futureResult;
+			this.proxy = proxy;
+			this.callerThread = callerThread;
+		}
+
+		public void run() {
+			if (Thread.currentThread() == this.callerThread) {
+				// executed synchronously (e.g. caller-runs overflow policy):
+				// leave the caller's thread state alone
+				proceed();
+				return;
+			}
+			Object oldProxy = AopContext.setCurrentProxy(this.proxy);
+			clearTransactionState();
+			try {
+				proceed();
+			}
+			finally {
+				clearTransactionState();
+				AopContext.setCurrentProxy(oldProxy);
+			}
+		}
+
+		private void proceed() {
+			Method method = this.invocation.getMethod();
+			try {
+				Object result = this.invocation.proceed();
+				if (this.futureResult != null) {
+					this.futureResult.setValue(result instanceof FutureResult ? ((FutureResult) result).get() : result);
+				}
+			}
+			catch (InvocationTargetException ex) {
+				handleException(method, ex.getTargetException());
+			}
+			catch (Throwable ex) {
+				handleException(method, ex);
+			}
+		}
+
+		public void discard(TaskRejectedException reason) {
+			handleException(this.invocation.getMethod(), reason);
+		}
+
+		private void handleException(Method method, Throwable ex) {
+			if (this.futureResult != null) {
+				this.futureResult.setException(ex);
+			}
+			else {
+				logger.error("Asynchronous execution of method '" + method.getDeclaringClass().getName() + "." +
+						method.getName() + "' failed", ex);
+			}
+		}
+
+		public String toString() {
+			return "AsyncInvocation for method '" + this.invocation.getMethod().getName() + "'";
+		}
+	}
+
+
+	/**
+	 * Actual clearing of TransactionSynchronizationManager state.
+	 * In separate inner class to avoid runtime dependency on Spring's transaction support.
+	 */
+	private static abstract class TransactionStateCleaner {
+
+		private static void clearTransactionState(Log logger) {
+			if (TransactionSynchronizationManager.isSynchronizationActive()) {
+				logger.warn("Clearing transaction synchronization left on thread [" +
+						Thread.currentThread().getName() + "]");
+				TransactionSynchronizationManager.clearSynchronization();
+			}
+			Map resources = TransactionSynchronizationManager.getResourceMap();
+			if (!resources.isEmpty()) {
+				Object[] keys = resources.keySet().toArray();
+				for (int i = 0; i < keys.length; i++) {
+					logger.warn("Unbinding transactional resource for key [" + keys[i] + "] left on thread [" +
+							Thread.currentThread().getName() + "]");
+					TransactionSynchronizationManager.unbindResource(keys[i]);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.interceptor;
+
+import java.lang.reflect.Method;
+
+/**
+ * Strategy interface for generating cache keys for method invocations.
+ * Used by MethodCacheInterceptor.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see MethodCacheInterceptor#setKeyGenerator
+ * @see DefaultCacheKeyGenerator
+ */
+public interface CacheKeyGenerator {
+
+	/**
+	 * Generate a cache key for an invocation of the given method with
+	 * the given arguments. Keys for equal method and arguments must be
+	 * equal and have the same hash code.
+	 * @param method the invoked method
+	 * @param args the invocation arguments (may be null)
+	 * @return the cache key (never null)
+	 */
+	Object generateKey(Method method, Object[] args);
+
+}
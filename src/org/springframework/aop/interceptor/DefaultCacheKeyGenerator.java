@@ -0,0 +1,196 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.interceptor;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Default CacheKeyGenerator implementation, creating keys that consist of
+ * the declaring class, name and parameter types of the invoked method plus
+ * the invocation arguments. Arguments are compared via <code>equals</code>;
+ * primitive and Object arrays are compared by content.
+ *
+ * <p>The generated keys are serializable if all arguments are,
+ * which is a requirement for some cache stores (like EHCache).
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class DefaultCacheKeyGenerator implements CacheKeyGenerator, Serializable {
+
+	public Object generateKey(Method method, Object[] args) {
+		return new MethodCacheKey(method, args);
+	}
+
+
+	/**
+	 * Cache key for a method invocation. Does not hold on to the Method
+	 * object itself, to remain serializable.
+	 */
+	private static class MethodCacheKey implements Serializable {
+
+		private final Class declaringClass;
+
+		private final String methodName;
+
+		private final Class[] parameterTypes;
+
+		private final Object[] args;
+
+		private final int hashCode;
+
+		public MethodCacheKey(Method method, Object[] args) {
+			this.declaringClass = method.getDeclaringClass();
+			this.methodName = method.getName();
+			this.parameterTypes = method.getParameterTypes();
+			// copy the arguments, as the caller may modify its array afterwards
+			this.args = (args != null ? (Object[]) copyArgument(args) : new Object[0]);
+			int hash = this.declaringClass.hashCode() * 29 + this.methodName.hashCode();
+			for (int i = 0; i < this.args.length; i++) {
+				hash = hash * 29 + argumentHashCode(this.args[i]);
+			}
+			this.hashCode = hash;
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof MethodCacheKey)) {
+				return false;
+			}
+			MethodCacheKey otherKey = (MethodCacheKey) other;
+			if (this.hashCode != otherKey.hashCode || this.declaringClass != otherKey.declaringClass ||
+					!this.methodName.equals(otherKey.methodName) ||
+					!Arrays.equals(this.parameterTypes, otherKey.parameterTypes) ||
+					this.args.length != otherKey.args.length) {
+				return false;
+			}
+			for (int i = 0; i < this.args.length; i++) {
+				if (!argumentEquals(this.args[i], otherKey.args[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public int hashCode() {
+			return hashCode;
+		}
+
+		public String toString() {
+			StringBuffer sb = new StringBuffer(this.declaringClass.getName());
+			sb.append('.').append(this.methodName).append('(');
+			for (int i = 0; i < this.args.length; i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				sb.append(this.args[i]);
+			}
+			sb.append(')');
+			return sb.toString();
+		}
+
+		/**
+		 * Copy array arguments (recursively for Object arrays), leaving all
+		 * other arguments as-is. Arrays are compared by content, so they must
+		 * not change while the key is in use.
+		 */
+		private static Object copyArgument(Object arg) {
+			if (arg instanceof Object[]) {
+				Object[] array = (Object[]) ((Object[]) arg).clone();
+				for (int i = 0; i < array.length; i++) {
+					array[i] = copyArgument(array[i]);
+				}
+				return array;
+			}
+			if (arg != null && arg.getClass().isArray()) {
+				int length = Array.getLength(arg);
+				Object array = Array.newInstance(arg.getClass().getComponentType(), length);
+				System.arraycopy(arg, 0, array, 0, length);
+				return array;
+			}
+			return arg;
+		}
+
+		private static int argumentHashCode(Object arg) {
+			if (arg == null) {
+				return 0;
+			}
+			if (arg instanceof Object[]) {
+				Object[] array = (Object[]) arg;
+				int hash = array.length;
+				for (int i = 0; i < array.length; i++) {
+					hash = hash * 29 + argumentHashCode(array[i]);
+				}
+				return hash;
+			}
+			if (arg.getClass().isArray()) {
+				// primitive array: content equality, cheap hash
+				return arg.getClass().hashCode() + Array.getLength(arg);
+			}
+			return arg.hashCode();
+		}
+
+		private static boolean argumentEquals(Object arg1, Object arg2) {
+			if (arg1 instanceof Object[] && arg2 instanceof Object[]) {
+				Object[] array1 = (Object[]) arg1;
+				Object[] array2 = (Object[]) arg2;
+				if (array1.length != array2.length) {
+					return false;
+				}
+				for (int i = 0; i < array1.length; i++) {
+					if (!argumentEquals(array1[i], array2[i])) {
+						return false;
+					}
+				}
+				return true;
+			}
+			if (arg1 instanceof int[] && arg2 instanceof int[]) {
+				return Arrays.equals((int[]) arg1, (int[]) arg2);
+			}
+			if (arg1 instanceof long[] && arg2 instanceof long[]) {
+				return Arrays.equals((long[]) arg1, (long[]) arg2);
+			}
+			if (arg1 instanceof byte[] && arg2 instanceof byte[]) {
+				return Arrays.equals((byte[]) arg1, (byte[]) arg2);
+			}
+			if (arg1 instanceof char[] && arg2 instanceof char[]) {
+				return Arrays.equals((char[]) arg1, (char[]) arg2);
+			}
+			if (arg1 instanceof short[] && arg2 instanceof short[]) {
+				return Arrays.equals((short[]) arg1, (short[]) arg2);
+			}
+			if (arg1 instanceof boolean[] && arg2 instanceof boolean[]) {
+				return Arrays.equals((boolean[]) arg1, (boolean[]) arg2);
+			}
+			if (arg1 instanceof double[] && arg2 instanceof double[]) {
+				return Arrays.equals((double[]) arg1, (double[]) arg2);
+			}
+			if (arg1 instanceof float[] && arg2 instanceof float[]) {
+				return Arrays.equals((float[]) arg1, (float[]) arg2);
+			}
+			return ObjectUtils.nullSafeEquals(arg1, arg2);
+		}
+	}
+
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.interceptor;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Interceptor that coalesces concurrent invocations with equal method and
+ * arguments: while one thread ("the leader") invokes the target, other
+ * threads requesting the same call wait for and share its result or
+ * exception instead of invoking the target themselves.
+ *
+ * <p>Useful for expensive idempotent methods, like DAO lookups or remote
+ * calls, that many threads tend to invoke at the same time, for example
+ * when a popular cache entry has just expired. Only apply this interceptor
+ * to methods that are idempotent and whose return values may be shared
+ * between threads.
+ *
+ * <p>Invocation keys are generated by a CacheKeyGenerator from method and
+ * arguments, combined with the identity of the target instance: only calls
+ * on the same target object get coalesced, so one interceptor instance can
+ * safely be shared between beans or used with pooled or thread-bound targets.
+ *
+ * <p>Waiting threads give up after "waitTimeout" milliseconds and then
+ * invoke the target themselves. Waiting threads that get interrupted
+ * invoke the target themselves as well, with their interrupt flag set.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see #setWaitTimeout
+ * @see #getCoalescingRatio
+ * @see MethodCacheInterceptor
+ */
+public class InvocationCoalescingInterceptor implements MethodInterceptor, Serializable {
+
+	/**
+	 * Static to avoid serializing the logger
+	 */
+	protected static final Log logger = LogFactory.getLog(InvocationCoalescingInterceptor.class);
+
+	private CacheKeyGenerator keyGenerator = new DefaultCacheKeyGenerator();
+
+	private long waitTimeout = 30000;
+
+	/** Map from invocation key to InFlightInvocation, guarded by itself */
+	private transient Map inFlightInvocations = new HashMap();
+
+	private transient long invocationCount;
+
+	private transient long coalescedCount;
+
+	private transient long timeoutCount;
+
+
+	/**
+	 * Set the strategy for generating keys from method and arguments:
+	 * invocations with equal keys get coalesced.
+	 * Default is a DefaultCacheKeyGenerator.
+	 */
+	public void setKeyGenerator(CacheKeyGenerator keyGenerator) {
+		this.keyGenerator = keyGenerator;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds that a thread waits for the result
+	 * of an equal invocation in progress. After that, the thread will invoke
+	 * the target itself. Default is 30000 (30 seconds); 0 means no timeout.
+	 */
+	public void setWaitTimeout(long waitTimeout) {
+		this.waitTimeout = waitTimeout;
+	}
+
+	/**
+	 * Return the wait timeout in milliseconds.
+	 */
+	public long getWaitTimeout() {
+		return waitTimeout;
+	}
+
+
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		Object key = new InvocationKey(invocation.getThis(),
+				this.keyGenerator.generateKey(invocation.getMethod(), invocation.getArguments()));
+		InFlightInvocation inFlight = null;
+		boolean leader = false;
+		synchronized (this.inFlightInvocations) {
+			this.invocationCount++;
+			inFlight = (InFlightInvocation) this.inFlightInvocations.get(key);
+			if (inFlight == null) {
+				inFlight = new InFlightInvocation();
+				this.inFlightInvocations.put(key, inFlight);
+				leader = true;
+			}
+		}
+
+		if (leader) {
+			try {
+				Object result = invocation.proceed();
+				inFlight.complete(result, null);
+				return result;
+			}
+			catch (Throwable ex) {
+				inFlight.complete(null, ex);
+				throw ex;
+			}
+			finally {
+				synchronized (this.inFlightInvocations) {
+					this.inFlightInvocations.remove(key);
+				}
+			}
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Waiting for result of equal invocation in progress: " + key);
+		}
+		boolean completed = false;
+		try {
+			completed = inFlight.await(this.waitTimeout);
+		}
+		catch (InterruptedException ex) {
+			// preserve the interrupt for the caller, but still serve this call
+			Thread.currentThread().interrupt();
+			return invocation.proceed();
+		}
+		if (completed) {
+			synchronized (this.inFlightInvocations) {
+				this.coalescedCount++;
+			}
+			return inFlight.getResult();
+		}
+		else {
+			if (logger.isInfoEnabled()) {
+				logger.info("Timed out after " + this.waitTimeout + " ms waiting for result of equal invocation " +
+						"in progress - invoking target directly: " + key);
+			}
+			synchronized (this.inFlightInvocations) {
+				this.timeoutCount++;
+			}
+			return invocation.proceed();
+		}
+	}
+
+
+	/**
+	 * Return the total number of invocations that went through this interceptor.
+	 */
+	public long getInvocationCount() {
+		synchronized (this.inFlightInvocations) {
+			return invocationCount;
+		}
+	}
+
+	/**
+	 * Return the number of invocations that shared the outcome
+	 * of an equal invocation instead of invoking the target.
+	 */
+	public long getCoalescedCount() {
+		synchronized (this.inFlightInvocations) {
+			return coalescedCount;
+		}
+	}
+
+	/**
+	 * Return the number of invocations that timed out waiting for
+	 * an equal invocation and invoked the target themselves.
+	 */
+	public long getTimeoutCount() {
+		synchronized (this.inFlightInvocations) {
+			return timeoutCount;
+		}
+	}
+
+	/**
+	 * Return the fraction of invocations that were coalesced,
+	 * between 0.0 and 1.0.
+	 */
+	public double getCoalescingRatio() {
+		synchronized (this.inFlightInvocations) {
+			return (this.invocationCount > 0 ? (double) this.coalescedCount / this.invocationCount : 0.0);
+		}
+	}
+
+	/**
+	 * Return the number of distinct invocations currently in progress.
+	 */
+	public int getInFlightCount() {
+		synchronized (this.inFlightInvocations) {
+			return this.inFlightInvocations.size();
+		}
+	}
+
+	/**
+	 * Reset the invocation, coalescing and timeout counters.
+	 */
+	public void resetCounters() {
+		synchronized (this.inFlightInvocations) {
+			this.invocationCount = 0;
+			this.coalescedCount = 0;
+			this.timeoutCount = 0;
+		}
+	}
+
+	/**
+	 * Initialize transient state after deserialization.
+	 */
+	private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+		ois.defaultReadObject();
+		this.inFlightInvocations = new HashMap();
+	}
+
+
+	/**
+	 * Key for an invocation: the key generated from method and arguments,
+	 * plus the identity of the target instance.
+	 */
+	private static class InvocationKey {
+
+		private final Object target;
+
+		private final Object key;
+
+		private InvocationKey(Object target, Object key) {
+			this.target = target;
+			this.key = key;
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof InvocationKey)) {
+				return false;
+			}
+			InvocationKey otherKey = (InvocationKey) other;
+			return (this.target == otherKey.target && this.key.equals(otherKey.key));
+		}
+
+		public int hashCode() {
+			return System.identityHashCode(this.target) * 29 + this.key.hashCode();
+		}
+
+		public String toString() {
+			return this.key.toString();
+		}
+	}
+
+
+	/**
+	 * Outcome of an invocation in progress, shared with waiting threads.
+	 */
+	private static class InFlightInvocation {
+
+		private boolean done;
+
+		private Object result;
+
+		private Throwable exception;
+
+		public synchronized void complete(Object result, Throwable exception) {
+			this.result = result;
+			this.exception = exception;
+			this.done = true;
+			notifyAll();
+		}
+
+		/**
+		 * Wait for the invocation to complete.
+		 * @param timeout the maximum time to wait in milliseconds, or 0 for no timeout
+		 * @return whether the invocation completed in time
+		 * @throws InterruptedException if the waiting thread got interrupted
+		 */
+		public synchronized boolean await(long timeout) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + timeout;
+			while (!this.done) {
+				long waitTime = (timeout > 0 ? deadline - System.currentTimeMillis() : 0);
+				if (timeout > 0 && waitTime <= 0) {
+					return false;
+				}
+				wait(waitTime);
+			}
+			return true;
+		}
+
+		public synchronized Object getResult() throws Throwable {
+			if (this.exception != null) {
+				throw this.exception;
+			}
+			return this.result;
+		}
+	}
+
+}
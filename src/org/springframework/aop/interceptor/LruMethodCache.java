@@ -0,0 +1,249 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.interceptor;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-memory MethodCache that evicts the least recently used
+ * entries once the maximum size has been reached.
+ *
+ * <p>The cache is split into a number of segments, each with its own
+ * monitor and its own share of the maximum size, so that concurrent
+ * callers with different keys rarely contend for the same lock.
+ * Does not depend on JDK 1.4's LinkedHashMap.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see #setMaxSize
+ * @see #setSegmentCount
+ */
+public class LruMethodCache implements MethodCache, Serializable {
+
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+	public static final int DEFAULT_SEGMENT_COUNT = 16;
+
+	private int maxSize = DEFAULT_MAX_SIZE;
+
+	private int segmentCount = DEFAULT_SEGMENT_COUNT;
+
+	/** Cached contents are not serialized */
+	private transient Segment[] segments;
+
+
+	/**
+	 * Create a new LruMethodCache with default settings.
+	 */
+	public LruMethodCache() {
+		initSegments();
+	}
+
+	/**
+	 * Create a new LruMethodCache with the given maximum size.
+	 * @param maxSize the maximum number of cached entries
+	 */
+	public LruMethodCache(int maxSize) {
+		setMaxSize(maxSize);
+	}
+
+	/**
+	 * Set the maximum number of cached entries. Default is 1000.
+	 * <p>The size is distributed evenly over the segments, so the least
+	 * recently used entry of the affected segment is evicted.
+	 */
+	public void setMaxSize(int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be at least 1");
+		}
+		this.maxSize = maxSize;
+		initSegments();
+	}
+
+	/**
+	 * Return the maximum number of cached entries.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Set the number of independently locked segments. Default is 16;
+	 * reduced if the maximum size is smaller than the segment count.
+	 */
+	public void setSegmentCount(int segmentCount) {
+		if (segmentCount < 1) {
+			throw new IllegalArgumentException("segmentCount must be at least 1");
+		}
+		this.segmentCount = segmentCount;
+		initSegments();
+	}
+
+	private void initSegments() {
+		int count = Math.min(this.segmentCount, this.maxSize);
+		Segment[] newSegments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			// distribute the remainder over the first segments
+			int capacity = this.maxSize / count + (i < this.maxSize % count ? 1 : 0);
+			newSegments[i] = new Segment(capacity);
+		}
+		this.segments = newSegments;
+	}
+
+	private Segment segmentFor(Object key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return this.segments[(hash & 0x7FFFFFFF) % this.segments.length];
+	}
+
+
+	public Object get(Object key) {
+		return segmentFor(key).get(key);
+	}
+
+	public void put(Object key, Object value) {
+		segmentFor(key).put(key, value);
+	}
+
+	public void remove(Object key) {
+		segmentFor(key).remove(key);
+	}
+
+	public void clear() {
+		for (int i = 0; i < this.segments.length; i++) {
+			this.segments[i].clear();
+		}
+	}
+
+	/**
+	 * Return the current number of cached entries.
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < this.segments.length; i++) {
+			size += this.segments[i].size();
+		}
+		return size;
+	}
+
+	/**
+	 * Start with an empty cache after deserialization.
+	 */
+	private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+		ois.defaultReadObject();
+		initSegments();
+	}
+
+
+	/**
+	 * LRU map for one segment: a HashMap for lookup plus a doubly linked
+	 * list in access order, with the most recently used entry at the head.
+	 */
+	private static class Segment {
+
+		private final int capacity;
+
+		private final Map entries = new HashMap();
+
+		private final Entry header = new Entry(null, null);
+
+		public Segment(int capacity) {
+			this.capacity = capacity;
+			this.header.before = this.header;
+			this.header.after = this.header;
+		}
+
+		public synchronized Object get(Object key) {
+			Entry entry = (Entry) this.entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			entry.unlink();
+			entry.linkAfter(this.header);
+			return entry.value;
+		}
+
+		public synchronized void put(Object key, Object value) {
+			Entry entry = (Entry) this.entries.get(key);
+			if (entry != null) {
+				entry.value = value;
+				entry.unlink();
+			}
+			else {
+				if (this.entries.size() >= this.capacity) {
+					Entry eldest = this.header.before;
+					eldest.unlink();
+					this.entries.remove(eldest.key);
+				}
+				entry = new Entry(key, value);
+				this.entries.put(key, entry);
+			}
+			entry.linkAfter(this.header);
+		}
+
+		public synchronized void remove(Object key) {
+			Entry entry = (Entry) this.entries.remove(key);
+			if (entry != null) {
+				entry.unlink();
+			}
+		}
+
+		public synchronized void clear() {
+			this.entries.clear();
+			this.header.before = this.header;
+			this.header.after = this.header;
+		}
+
+		public synchronized int size() {
+			return this.entries.size();
+		}
+	}
+
+
+	private static class Entry {
+
+		private final Object key;
+
+		private Object value;
+
+		private Entry before;
+
+		private Entry after;
+
+		public Entry(Object key, Object value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		private void unlink() {
+			this.before.after = this.after;
+			this.after.before = this.before;
+		}
+
+		private void linkAfter(Entry existing) {
+			this.after = existing.after;
+			this.before = existing;
+			existing.after.before = this;
+			existing.after = this;
+		}
+	}
+
+}
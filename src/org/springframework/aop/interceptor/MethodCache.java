@@ -0,0 +1,63 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.interceptor;
+
+/**
+ * Strategy interface for the store behind a MethodCacheInterceptor.
+ * Keys are generated by a CacheKeyGenerator; values are
+ * MethodCacheInterceptor.CachedResult entries created by the interceptor.
+ *
+ * <p>Implementations must be thread-safe, as they will be accessed
+ * concurrently by all callers of the advised methods.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see MethodCacheInterceptor
+ * @see MethodCacheInterceptor.CachedResult
+ * @see LruMethodCache
+ * @see org.springframework.cache.ehcache.EhCacheMethodCache
+ */
+public interface MethodCache {
+
+	/**
+	 * Return the value cached for the given key.
+	 * @param key the cache key
+	 * @return the cached value, or null if none found
+	 */
+	Object get(Object key);
+
+	/**
+	 * Cache the given value for the given key.
+	 * Implementations may silently decline to cache values that they
+	 * cannot store, for example non-serializable values.
+	 * @param key the cache key
+	 * @param value the value to cache (never null)
+	 */
+	void put(Object key, Object value);
+
+	/**
+	 * Remove the value cached for the given key, if any.
+	 * @param key the cache key
+	 */
+	void remove(Object key);
+
+	/**
+	 * Remove all cached values.
+	 */
+	void clear();
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.interceptor;
+
+import java.lang.reflect.Method;
+
+import org.springframework.aop.support.StaticMethodMatcherPointcutAdvisor;
+
+/**
+ * Advisor that applies a MethodCacheInterceptor to the cached and
+ * evicting methods only, as determined by the interceptor's method names.
+ *
+ * <p>Because the AOP framework caches advice calculations, this is normally
+ * faster than just letting the MethodCacheInterceptor run and find out
+ * itself that it has no work to do.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see MethodCacheInterceptor#setCachedMethodNames
+ * @see MethodCacheInterceptor#setEvictingMethodNames
+ */
+public class MethodCacheAdvisor extends StaticMethodMatcherPointcutAdvisor {
+
+	private final MethodCacheInterceptor methodCacheInterceptor;
+
+	public MethodCacheAdvisor(MethodCacheInterceptor mci) {
+		super(mci);
+		this.methodCacheInterceptor = mci;
+	}
+
+	public boolean matches(Method m, Class targetClass) {
+		return (this.methodCacheInterceptor.isCachedMethod(m) || this.methodCacheInterceptor.isEvictingMethod(m));
+	}
+
+}
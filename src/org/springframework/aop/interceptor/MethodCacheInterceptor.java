@@ -0,0 +1,410 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.interceptor;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Interceptor that caches the results of method invocations, keyed by
+ * method and arguments. Intended for read-only lookups like reference data
+ * DAOs, replacing hand-written caching decorators.
+ *
+ * <p>Which methods are cached is determined by "cachedMethodNames", matched
+ * like in NameMatchTransactionAttributeSource (exact names or "xxx*"/"*xxx"
+ * patterns); if none are specified, all intercepted methods are cached.
+ * Invocations of "evictingMethodNames" (the "write" methods of the target)
+ * clear the entire cache. Entries expire after "timeToLive" milliseconds.
+ *
+ * <p>Use a MethodCacheAdvisor to apply this interceptor to the cached and
+ * evicting methods only, or a RegexpMethodPointcutAdvisor to select the
+ * methods via regular expressions.
+ *
+ * <p>The cache store is pluggable: by default, a bounded in-memory
+ * LruMethodCache is used. EhCacheMethodCache adapts an EHCache Cache.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see MethodCacheAdvisor
+ * @see LruMethodCache
+ * @see org.springframework.cache.ehcache.EhCacheMethodCache
+ * @see org.springframework.aop.support.RegexpMethodPointcutAdvisor
+ * @see org.springframework.transaction.interceptor.NameMatchTransactionAttributeSource
+ */
+public class MethodCacheInterceptor implements MethodInterceptor, Serializable {
+
+	/**
+	 * Static to avoid serializing the logger
+	 */
+	protected static final Log logger = LogFactory.getLog(MethodCacheInterceptor.class);
+
+	private static final Integer PASS_THROUGH = new Integer(0);
+
+	private static final Integer CACHE = new Integer(1);
+
+	private static final Integer EVICT = new Integer(2);
+
+	/** Number of hit/miss counter stripes, a power of two */
+	private static final int COUNTER_STRIPES = 4;
+
+
+	private MethodCache cache = new LruMethodCache();
+
+	private CacheKeyGenerator keyGenerator = new DefaultCacheKeyGenerator();
+
+	private long timeToLive = -1;
+
+	private String[] cachedMethodNames;
+
+	private String[] evictingMethodNames;
+
+	/**
+	 * Map from Method to PASS_THROUGH, CACHE or EVICT. Copied on write,
+	 * so that the lookup on each call does not need to synchronize.
+	 */
+	private transient volatile Map methodActions = new HashMap();
+
+	private transient Object counterMonitor = new Object();
+
+	/** Hit and miss counters, striped by thread to avoid a global lock per call */
+	private transient Counter[] counters = createCounters();
+
+	private transient long evictionCount;
+
+	/**
+	 * Incremented whenever the cache gets cleared, so that results computed
+	 * concurrently with an eviction do not get cached afterwards.
+	 */
+	private transient volatile int generation;
+
+
+	/**
+	 * Set the cache store to use. Default is a LruMethodCache
+	 * with a maximum size of 1000 entries.
+	 * @see LruMethodCache
+	 * @see org.springframework.cache.ehcache.EhCacheMethodCache
+	 */
+	public void setCache(MethodCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Return the cache store in use.
+	 */
+	public MethodCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Set the strategy for generating cache keys from method and arguments.
+	 * Default is a DefaultCacheKeyGenerator.
+	 */
+	public void setKeyGenerator(CacheKeyGenerator keyGenerator) {
+		this.keyGenerator = keyGenerator;
+	}
+
+	/**
+	 * Set the time in milliseconds that a cached result remains valid.
+	 * Default is -1: cached results do not expire (but may still be evicted
+	 * by the cache store, for example when reaching its maximum size).
+	 */
+	public void setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Set the names of the methods whose results should be cached.
+	 * Method names can start or end with "*" for matching multiple methods.
+	 * Default is to cache all intercepted methods except evicting ones.
+	 */
+	public void setCachedMethodNames(String[] cachedMethodNames) {
+		this.cachedMethodNames = cachedMethodNames;
+		this.methodActions = new HashMap();
+	}
+
+	/**
+	 * Set the names of the methods that modify the data served by the cached
+	 * methods: every invocation of such a method clears the cache.
+	 * Method names can start or end with "*" for matching multiple methods.
+	 */
+	public void setEvictingMethodNames(String[] evictingMethodNames) {
+		this.evictingMethodNames = evictingMethodNames;
+		this.methodActions = new HashMap();
+	}
+
+
+	/**
+	 * Return whether the given method is one whose results get cached.
+	 */
+	public boolean isCachedMethod(Method method) {
+		return (getMethodAction(method) == CACHE);
+	}
+
+	/**
+	 * Return whether the given method is one that clears the cache.
+	 */
+	public boolean isEvictingMethod(Method method) {
+		return (getMethodAction(method) == EVICT);
+	}
+
+	private Integer getMethodAction(Method method) {
+		Integer action = (Integer) this.methodActions.get(method);
+		if (action == null) {
+			String methodName = method.getName();
+			if (matchesAny(methodName, this.evictingMethodNames)) {
+				action = EVICT;
+			}
+			else if (this.cachedMethodNames == null || matchesAny(methodName, this.cachedMethodNames)) {
+				action = CACHE;
+			}
+			else {
+				action = PASS_THROUGH;
+			}
+			synchronized (this.counterMonitor) {
+				Map newActions = new HashMap(this.methodActions);
+				newActions.put(method, action);
+				this.methodActions = newActions;
+			}
+		}
+		return action;
+	}
+
+	private boolean matchesAny(String methodName, String[] mappedNames) {
+		if (mappedNames != null) {
+			for (int i = 0; i < mappedNames.length; i++) {
+				if (mappedNames[i].equals(methodName) || isMatch(methodName, mappedNames[i])) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return if the given method name matches the mapped name.
+	 * The default implementation checks for "xxx*" and "*xxx" matches.
+	 * Can be overridden in subclasses.
+	 * @param methodName the method name of the class
+	 * @param mappedName the name in the descriptor
+	 * @return if the names match
+	 */
+	protected boolean isMatch(String methodName, String mappedName) {
+		return (mappedName.endsWith("*") && methodName.startsWith(mappedName.substring(0, mappedName.length() - 1))) ||
+				(mappedName.startsWith("*") && methodName.endsWith(mappedName.substring(1, mappedName.length())));
+	}
+
+
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		Method method = invocation.getMethod();
+		Integer action = getMethodAction(method);
+		if (action == CACHE) {
+			return invokeCached(invocation);
+		}
+		else if (action == EVICT) {
+			try {
+				return invocation.proceed();
+			}
+			finally {
+				// evict even in case of failure, as the data might have been partially modified
+				if (logger.isDebugEnabled()) {
+					logger.debug("Clearing method cache after invocation of method '" + method.getName() + "'");
+				}
+				clearCache();
+				synchronized (this.counterMonitor) {
+					this.evictionCount++;
+				}
+			}
+		}
+		else {
+			return invocation.proceed();
+		}
+	}
+
+	/**
+	 * Return the cached result for the given invocation, if not expired,
+	 * or proceed with the invocation and cache its result.
+	 * Exceptions thrown by the target method are not cached.
+	 */
+	protected Object invokeCached(MethodInvocation invocation) throws Throwable {
+		int generation = this.generation;
+		Object key = this.keyGenerator.generateKey(invocation.getMethod(), invocation.getArguments());
+		Counter counter = this.counters[System.identityHashCode(Thread.currentThread()) & (COUNTER_STRIPES - 1)];
+		CachedResult cachedResult = (CachedResult) this.cache.get(key);
+		if (cachedResult != null) {
+			if (this.timeToLive < 0 || System.currentTimeMillis() - cachedResult.timestamp < this.timeToLive) {
+				synchronized (counter) {
+					counter.hitCount++;
+				}
+				return cachedResult.value;
+			}
+			this.cache.remove(key);
+		}
+		synchronized (counter) {
+			counter.missCount++;
+		}
+		Object result = invocation.proceed();
+		if (this.generation == generation) {
+			this.cache.put(key, new CachedResult(result, System.currentTimeMillis()));
+			if (this.generation != generation) {
+				// cleared while putting: the result may already be stale
+				this.cache.remove(key);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Clear the cache store. Use this rather than clearing the MethodCache
+	 * directly, so that invocations in progress do not re-insert results
+	 * that were computed before the cache was cleared.
+	 */
+	public void clearCache() {
+		synchronized (this.counterMonitor) {
+			this.generation++;
+		}
+		this.cache.clear();
+	}
+
+
+	/**
+	 * Return the number of invocations that were served from the cache.
+	 */
+	public long getHitCount() {
+		long hitCount = 0;
+		for (int i = 0; i < this.counters.length; i++) {
+			synchronized (this.counters[i]) {
+				hitCount += this.counters[i].hitCount;
+			}
+		}
+		return hitCount;
+	}
+
+	/**
+	 * Return the number of invocations of cached methods that had to
+	 * proceed to the target.
+	 */
+	public long getMissCount() {
+		long missCount = 0;
+		for (int i = 0; i < this.counters.length; i++) {
+			synchronized (this.counters[i]) {
+				missCount += this.counters[i].missCount;
+			}
+		}
+		return missCount;
+	}
+
+	/**
+	 * Return the number of times that the cache was cleared
+	 * by an evicting method.
+	 */
+	public long getEvictionCount() {
+		synchronized (this.counterMonitor) {
+			return evictionCount;
+		}
+	}
+
+	/**
+	 * Return the fraction of invocations of cached methods that were
+	 * served from the cache, between 0.0 and 1.0.
+	 */
+	public double getHitRatio() {
+		long hitCount = getHitCount();
+		long total = hitCount + getMissCount();
+		return (total > 0 ? (double) hitCount / total : 0.0);
+	}
+
+	/**
+	 * Reset the hit, miss and eviction counters.
+	 */
+	public void resetCounters() {
+		for (int i = 0; i < this.counters.length; i++) {
+			synchronized (this.counters[i]) {
+				this.counters[i].hitCount = 0;
+				this.counters[i].missCount = 0;
+			}
+		}
+		synchronized (this.counterMonitor) {
+			this.evictionCount = 0;
+		}
+	}
+
+	private static Counter[] createCounters() {
+		Counter[] counters = new Counter[COUNTER_STRIPES];
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new Counter();
+		}
+		return counters;
+	}
+
+	/**
+	 * Initialize transient state after deserialization.
+	 */
+	private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+		ois.defaultReadObject();
+		this.methodActions = new HashMap();
+		this.counterMonitor = new Object();
+		this.counters = createCounters();
+	}
+
+
+	/**
+	 * Hit and miss counters for one stripe, guarded by the stripe's own monitor.
+	 */
+	private static class Counter {
+
+		private long hitCount;
+
+		private long missCount;
+	}
+
+
+	/**
+	 * Holder for a cached method result (possibly null),
+	 * along with the time that it was cached.
+	 * <p>This is the type of the values that the interceptor passes to
+	 * its MethodCache, exposing the method result to cache stores that
+	 * need to check it, for example for serializability.
+	 */
+	public static class CachedResult implements Serializable {
+
+		private final Object value;
+
+		private final long timestamp;
+
+		private CachedResult(Object value, long timestamp) {
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+
+		/**
+		 * Return the cached method result (possibly null).
+		 */
+		public Object getValue() {
+			return this.value;
+		}
+	}
+
+}
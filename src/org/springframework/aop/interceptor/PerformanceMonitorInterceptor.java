@@ -16,12 +16,19 @@
 
 package org.springframework.aop.interceptor;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.util.LatencyHistogram;
 import org.springframework.util.StopWatch;
 
 /**
@@ -31,8 +38,17 @@ import org.springframework.util.StopWatch;
  * <p>Presently logs information using Commons Logging, at "info" level.
  * Could make this much more sophisticated, storing information etc.
  *
+ * <p>Alternatively, the "collectStatistics" mode records per-method response
+ * times into fixed-memory histograms instead of logging each call. Statistics
+ * (count, mean, percentiles, max and error count) can be retrieved through
+ * <code>getStatistics</code>, and are reset on the configured interval.
+ * In that mode, only calls exceeding the "slowCallThreshold" get logged.
+ *
  * @author Rod Johnson
  * @author Dmitriy Kopylenko
+ * @see #setCollectStatistics
+ * @see #getStatistics()
+ * @see org.springframework.util.LatencyHistogram
  */
 public class PerformanceMonitorInterceptor implements MethodInterceptor, Serializable {
 
@@ -41,7 +57,88 @@ public class PerformanceMonitorInterceptor implements MethodInterceptor, Seriali
 	 */
 	protected static final Log logger = LogFactory.getLog(PerformanceMonitorInterceptor.class);
 
+	private boolean collectStatistics = false;
+
+	private long slowCallThresholdMillis = -1;
+
+	private long resetIntervalMillis = -1;
+
+	private int stripeCount = LatencyHistogram.DEFAULT_STRIPE_COUNT;
+
+	/**
+	 * Map from Method to LatencyHistogram. Copied on write,
+	 * so that the lookup on each call does not need to synchronize.
+	 */
+	private transient volatile Map histograms = new HashMap();
+
+	private transient volatile long lastResetMillis = System.currentTimeMillis();
+
+	private transient Object histogramMonitor = new Object();
+
+
+	/**
+	 * Set whether to record per-method statistics instead of logging
+	 * a StopWatch summary for every call. Default is false.
+	 * @see #getStatistics()
+	 */
+	public void setCollectStatistics(boolean collectStatistics) {
+		this.collectStatistics = collectStatistics;
+	}
+
+	/**
+	 * Return whether per-method statistics are recorded.
+	 */
+	public boolean isCollectStatistics() {
+		return collectStatistics;
+	}
+
+	/**
+	 * Set the response time in milliseconds from which a call will be logged
+	 * at "warn" level when collecting statistics. Default is -1: no logging.
+	 */
+	public void setSlowCallThresholdMillis(long slowCallThresholdMillis) {
+		this.slowCallThresholdMillis = slowCallThresholdMillis;
+	}
+
+	/**
+	 * Return the slow call threshold in milliseconds.
+	 */
+	public long getSlowCallThresholdMillis() {
+		return slowCallThresholdMillis;
+	}
+
+	/**
+	 * Set the interval in milliseconds after which the collected statistics
+	 * will be discarded, to start a new measurement period. Default is -1:
+	 * statistics are kept until <code>resetStatistics</code> is called.
+	 * @see #resetStatistics
+	 */
+	public void setResetIntervalMillis(long resetIntervalMillis) {
+		this.resetIntervalMillis = resetIntervalMillis;
+	}
+
+	/**
+	 * Return the reset interval in milliseconds.
+	 */
+	public long getResetIntervalMillis() {
+		return resetIntervalMillis;
+	}
+
+	/**
+	 * Set the number of independently locked stripes per histogram.
+	 * Higher values reduce contention between concurrent callers of the same
+	 * method, at the expense of memory. Default is 4.
+	 */
+	public void setStripeCount(int stripeCount) {
+		this.stripeCount = stripeCount;
+	}
+
+
 	public Object invoke(MethodInvocation invocation) throws Throwable {
+		if (this.collectStatistics) {
+			return invokeWithStatistics(invocation);
+		}
+
 		String name = invocation.getMethod().getDeclaringClass().getName() + "." + invocation.getMethod().getName();
 		logger.debug("Begin performance monitoring of method '" + name + "'");
 
@@ -56,4 +153,111 @@ public class PerformanceMonitorInterceptor implements MethodInterceptor, Seriali
 		return rval;
 	}
 
+	/**
+	 * Record the response time of the given invocation in the histogram
+	 * for its method, logging it only if it exceeds the slow call threshold.
+	 */
+	protected Object invokeWithStatistics(MethodInvocation invocation) throws Throwable {
+		long startMillis = System.currentTimeMillis();
+		boolean failed = true;
+		try {
+			Object rval = invocation.proceed();
+			failed = false;
+			return rval;
+		}
+		finally {
+			long endMillis = System.currentTimeMillis();
+			long elapsed = endMillis - startMillis;
+			if (this.resetIntervalMillis > 0 && endMillis - this.lastResetMillis >= this.resetIntervalMillis) {
+				resetStatisticsIfDue(endMillis);
+			}
+			getHistogram(invocation.getMethod()).record(elapsed, failed);
+			if (this.slowCallThresholdMillis >= 0 && elapsed >= this.slowCallThresholdMillis &&
+					logger.isWarnEnabled()) {
+				Method method = invocation.getMethod();
+				logger.warn("Slow call to method '" + method.getDeclaringClass().getName() + "." +
+						method.getName() + "' took " + elapsed + " ms" + (failed ? " (failed)" : ""));
+			}
+		}
+	}
+
+	/**
+	 * Return the histogram for the given method, creating it if necessary.
+	 */
+	private LatencyHistogram getHistogram(Method method) {
+		LatencyHistogram histogram = (LatencyHistogram) this.histograms.get(method);
+		if (histogram == null) {
+			synchronized (this.histogramMonitor) {
+				histogram = (LatencyHistogram) this.histograms.get(method);
+				if (histogram == null) {
+					histogram = new LatencyHistogram(this.stripeCount);
+					Map newHistograms = new HashMap(this.histograms);
+					newHistograms.put(method, histogram);
+					this.histograms = newHistograms;
+				}
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Return statistics for all methods invoked so far in the current
+	 * measurement period.
+	 * @return Map with Method keys and LatencyHistogram.Snapshot values
+	 * @see org.springframework.util.LatencyHistogram.Snapshot
+	 */
+	public Map getStatistics() {
+		Map currentHistograms = this.histograms;
+		Map statistics = new HashMap(currentHistograms.size());
+		for (Iterator it = currentHistograms.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			statistics.put(entry.getKey(), ((LatencyHistogram) entry.getValue()).getSnapshot());
+		}
+		return statistics;
+	}
+
+	/**
+	 * Return statistics for the given method in the current measurement period.
+	 * @param method the method to return statistics for
+	 * @return the statistics snapshot, or null if the method hasn't been invoked
+	 */
+	public LatencyHistogram.Snapshot getStatistics(Method method) {
+		LatencyHistogram histogram = (LatencyHistogram) this.histograms.get(method);
+		return (histogram != null ? histogram.getSnapshot() : null);
+	}
+
+	/**
+	 * Discard all collected statistics, starting a new measurement period.
+	 */
+	public void resetStatistics() {
+		synchronized (this.histogramMonitor) {
+			this.histograms = new HashMap();
+			this.lastResetMillis = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Reset the statistics if the reset interval has elapsed, re-checking
+	 * under the lock so that concurrent callers only reset once and an
+	 * explicit <code>resetStatistics</code> call in between is respected.
+	 */
+	private void resetStatisticsIfDue(long nowMillis) {
+		synchronized (this.histogramMonitor) {
+			if (nowMillis - this.lastResetMillis >= this.resetIntervalMillis) {
+				this.histograms = new HashMap();
+				this.lastResetMillis = nowMillis;
+			}
+		}
+	}
+
+	/**
+	 * Initialize the transient statistics state after deserialization.
+	 */
+	private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+		ois.defaultReadObject();
+		this.histograms = new HashMap();
+		this.lastResetMillis = System.currentTimeMillis();
+		this.histogramMonitor = new Object();
+	}
+
 }
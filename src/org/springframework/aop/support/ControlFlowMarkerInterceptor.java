@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.support;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Interceptor that marks the control flow of the methods it is applied to:
+ * it keeps a per-thread count of the invocations currently in progress,
+ * so that <code>isActive</code> can tell in constant time whether the
+ * current thread is executing below such a method.
+ *
+ * <p>Used by ThreadLocalControlFlowPointcut, but can also be used
+ * standalone to detect reentrant calls.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see ThreadLocalControlFlowPointcut
+ */
+public class ControlFlowMarkerInterceptor implements MethodInterceptor, Serializable {
+
+	/** Holds an int[1] with the current depth for each thread */
+	private transient ThreadLocal depthHolder = new ThreadLocal();
+
+
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		int[] depth = obtainDepth();
+		depth[0]++;
+		try {
+			return invocation.proceed();
+		}
+		finally {
+			depth[0]--;
+		}
+	}
+
+	/**
+	 * Return whether the current thread is currently executing
+	 * a method intercepted by this interceptor.
+	 */
+	public boolean isActive() {
+		int[] depth = (int[]) this.depthHolder.get();
+		return (depth != null && depth[0] > 0);
+	}
+
+	/**
+	 * Return the number of nested invocations of intercepted methods
+	 * that the current thread is executing.
+	 */
+	public int getDepth() {
+		int[] depth = (int[]) this.depthHolder.get();
+		return (depth != null ? depth[0] : 0);
+	}
+
+	private int[] obtainDepth() {
+		int[] depth = (int[]) this.depthHolder.get();
+		if (depth == null) {
+			depth = new int[1];
+			this.depthHolder.set(depth);
+		}
+		return depth;
+	}
+
+	/**
+	 * Initialize the thread-bound state after deserialization.
+	 */
+	private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+		ois.defaultReadObject();
+		this.depthHolder = new ThreadLocal();
+	}
+
+}
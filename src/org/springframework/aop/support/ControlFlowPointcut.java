@@ -29,7 +29,10 @@ import org.springframework.core.ControlFlowFactory;
  * Pointcut and method matcher for use in simple <b>cflow</b>-style pointcut.
  * Note that evaluating such pointcuts is 10-15 times slower than evaluating
  * normal pointcuts, but they are useful in some cases.
+ * ThreadLocalControlFlowPointcut avoids that cost if the class
+ * that defines the control flow can be advised as well.
  * @see org.springframework.core.ControlFlow
+ * @see ThreadLocalControlFlowPointcut
  * @author Rod Johnson
  */
 public class ControlFlowPointcut implements Pointcut, ClassFilter, MethodMatcher, Serializable {
@@ -77,6 +80,18 @@ public class ControlFlowPointcut implements Pointcut, ClassFilter, MethodMatcher
 
 	public boolean matches(Method m, Class targetClass, Object[] args) {
 		++evaluations;
+		return isInControlFlow();
+	}
+
+	/**
+	 * Determine whether the current thread is in the control flow of
+	 * the given class (and method, if specified).
+	 * <p>The default implementation analyzes the current stack trace.
+	 * Can be overridden in subclasses that track the control flow in
+	 * a cheaper way.
+	 * @see ThreadLocalControlFlowPointcut
+	 */
+	protected boolean isInControlFlow() {
 		ControlFlow cflow = ControlFlowFactory.createControlFlow();
 		return (methodName != null) ? cflow.under(clazz, methodName) : cflow.under(clazz);
 	}
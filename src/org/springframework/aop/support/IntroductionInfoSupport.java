@@ -19,8 +19,11 @@ package org.springframework.aop.support;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import org.aopalliance.aop.AspectException;
@@ -37,7 +40,13 @@ import org.springframework.aop.IntroductionInfo;
  * It also allows subclasses to conveniently add all interfaces
  * from a given object, and to suppress interfaces that should
  * not be added.
+ *
+ * <p>Whether a given method is on an introduced interface is determined
+ * once per Method and remembered, so that calls passing through an
+ * introduction only cost a single map lookup.
+ *
  * @author Rod Johnson
+ * @author Juergen Hoeller
  */
 public class IntroductionInfoSupport implements IntroductionInfo, Serializable {
 
@@ -46,6 +55,12 @@ public class IntroductionInfoSupport implements IntroductionInfo, Serializable {
 	/** Set of Class */
 	protected Set publishedInterfaces = new HashSet();
 
+	/**
+	 * Copy-on-write cache from Method to Boolean, indicating whether
+	 * the method is on an introduced interface. Read without locking.
+	 */
+	private transient volatile Map rememberedMethods = new HashMap();
+
 	/**
 	 * Suppress the specified interface, which will have
 	 * been autodetected due to its implementation by
@@ -55,6 +70,7 @@ public class IntroductionInfoSupport implements IntroductionInfo, Serializable {
 	 */
 	public void suppressInterface(Class intf) {
 		this.publishedInterfaces.remove(intf);
+		resetRememberedMethods();
 	}
 
 	public Class[] getInterfaces() {
@@ -77,15 +93,38 @@ public class IntroductionInfoSupport implements IntroductionInfo, Serializable {
 	
 	protected void implementInterfacesOnObject(Object delegate) {
 		this.publishedInterfaces.addAll(AopUtils.getAllInterfacesAsList(delegate));
+		resetRememberedMethods();
 	}
 
 	/**
 	 * Is this method on an introduced interface?
+	 * <p>The result is remembered per Method: subclasses overriding
+	 * <code>implementsInterface</code> must return stable results.
 	 * @param mi method invocation
 	 * @return whether the method is on an introduced interface
 	 */
 	protected final boolean isMethodOnIntroducedInterface(MethodInvocation mi) {
-		return implementsInterface(mi.getMethod().getDeclaringClass());
+		Method method = mi.getMethod();
+		Boolean rememberedResult = (Boolean) this.rememberedMethods.get(method);
+		if (rememberedResult != null) {
+			return rememberedResult.booleanValue();
+		}
+		// Work it out and remember it.
+		boolean result = implementsInterface(method.getDeclaringClass());
+		synchronized (this) {
+			Map methods = new HashMap(this.rememberedMethods);
+			methods.put(method, (result ? Boolean.TRUE : Boolean.FALSE));
+			this.rememberedMethods = methods;
+		}
+		return result;
+	}
+
+	/**
+	 * Forget the remembered per-method results, to be called
+	 * whenever the set of published interfaces changes.
+	 */
+	private synchronized void resetRememberedMethods() {
+		this.rememberedMethods = new HashMap();
 	}
 
 	/**
@@ -105,6 +144,7 @@ public class IntroductionInfoSupport implements IntroductionInfo, Serializable {
 		
 		// Initialize transient fields
 		this.logger = LogFactory.getLog(getClass());
+		this.rememberedMethods = new HashMap();
 	}
 
 }
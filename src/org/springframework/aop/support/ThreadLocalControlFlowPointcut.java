@@ -0,0 +1,118 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.support;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.ClassFilter;
+
+/**
+ * ControlFlowPointcut that tracks the control flow via a thread-bound
+ * counter instead of analyzing the stack trace, making the evaluation of
+ * the pointcut a constant-time check rather than a stack walk.
+ *
+ * <p>Requires the class that defines the control flow to be advised with
+ * the marker advisor returned by <code>getMarkerAdvisor</code>: only
+ * invocations through such a proxy enter the control flow. Calls that
+ * bypass the proxy, like direct calls on the target instance, are not
+ * detected, in contrast to the stack-based ControlFlowPointcut.
+ *
+ * <pre>
+ * ThreadLocalControlFlowPointcut cflow = new ThreadLocalControlFlowPointcut(MyService.class, "process");
+ * serviceProxyFactory.addAdvisor(cflow.getMarkerAdvisor());
+ * daoProxyFactory.addAdvisor(new DefaultPointcutAdvisor(cflow, daoInterceptor));</pre>
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see #getMarkerAdvisor
+ * @see ControlFlowMarkerInterceptor
+ */
+public class ThreadLocalControlFlowPointcut extends ControlFlowPointcut {
+
+	private final ControlFlowMarkerInterceptor marker = new ControlFlowMarkerInterceptor();
+
+	private final Advisor markerAdvisor;
+
+
+	/**
+	 * Construct a new pointcut that matches all calls below the
+	 * advised methods of the given class.
+	 * @param clazz the class that defines the control flow
+	 */
+	public ThreadLocalControlFlowPointcut(Class clazz) {
+		this(clazz, null);
+	}
+
+	/**
+	 * Construct a new pointcut that matches all calls below the
+	 * given method in the given class. If the method name is null,
+	 * matches all control flows below that class.
+	 * @param clazz the class that defines the control flow
+	 * @param methodName the name of the method that defines the control flow
+	 */
+	public ThreadLocalControlFlowPointcut(Class clazz, String methodName) {
+		super(clazz, methodName);
+		this.markerAdvisor = new DefaultPointcutAdvisor(new MarkerPointcut(clazz, methodName), this.marker);
+	}
+
+	/**
+	 * Return the advisor to apply to the class that defines the control flow.
+	 * Marks the control flow for this pointcut while one of the matching
+	 * methods is executing.
+	 */
+	public Advisor getMarkerAdvisor() {
+		return markerAdvisor;
+	}
+
+	/**
+	 * Checks the thread-bound marker instead of the stack trace.
+	 */
+	protected boolean isInControlFlow() {
+		return this.marker.isActive();
+	}
+
+
+	/**
+	 * Pointcut for the methods that define the control flow.
+	 */
+	private static class MarkerPointcut extends StaticMethodMatcherPointcut implements ClassFilter, Serializable {
+
+		private final Class clazz;
+
+		private final String methodName;
+
+		public MarkerPointcut(Class clazz, String methodName) {
+			this.clazz = clazz;
+			this.methodName = methodName;
+		}
+
+		public boolean matches(Class targetClass) {
+			return (targetClass != null && this.clazz.isAssignableFrom(targetClass));
+		}
+
+		public boolean matches(Method m, Class targetClass) {
+			return (this.methodName == null || this.methodName.equals(m.getName()));
+		}
+
+		public ClassFilter getClassFilter() {
+			return this;
+		}
+	}
+
+}
@@ -16,7 +16,12 @@
 
 package org.springframework.aop.target;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 
 import org.springframework.aop.TargetSource;
 
@@ -26,16 +31,48 @@ import org.springframework.aop.TargetSource;
  *
  * <p>If configuring an object of this class in a Spring IoC container,
  * use constructor injection.
- * 
+ *
+ * <p>The target is held in a volatile field, so obtaining it for an
+ * invocation does not require any locking; swaps are serialized among
+ * each other. Registered TargetSwapListeners are notified after each swap.
+ *
+ * <p>If "trackInvocations" is switched on, the number of invocations
+ * in progress is counted per target. Once a target has been swapped out,
+ * it will not be handed out to new invocations anymore, and the caller of
+ * <code>swap</code> can use <code>waitForDrain</code> to block until all
+ * calls against the old target have completed before disposing it.
+ * This relies on the AOP proxy calling <code>releaseTarget</code> after
+ * each invocation, which it does since this TargetSource is not static.
+ * Tracking costs a short monitor per invocation, spread over a number of
+ * stripes to keep contention low.
+ *
  * <p>This TargetSource is serializable if the target is
- * at the time of serialization.
+ * at the time of serialization. Listeners and in-flight counts
+ * are not serialized.
  *
  * @author Rod Johnson
+ * @author Juergen Hoeller
+ * @see TargetSwapListener
  */
 public class HotSwappableTargetSource implements TargetSource, Serializable {
 
+	private static final int STRIPE_COUNT = 4;
+
+
 	/** Target cached and invoked using reflection */
-	protected Object target;
+	protected volatile Object target;
+
+	private boolean trackInvocations = false;
+
+	/** Tracking state for the current target, or null if not tracking */
+	private transient volatile TargetHolder currentHolder;
+
+	/** Swapped-out targets that still have invocations in progress */
+	private transient List drainingHolders = new LinkedList();
+
+	/** Copy-on-write list of TargetSwapListeners */
+	private transient volatile List swapListeners = new LinkedList();
+
 
 	/**
 	 * Create a new HotSwappableTargetSource with the initial target.
@@ -44,7 +81,57 @@ public class HotSwappableTargetSource implements TargetSource, Serializable {
 	public HotSwappableTargetSource(Object initialTarget) {
 		this.target = initialTarget;
 	}
-	
+
+	/**
+	 * Set whether to count the invocations in progress per target,
+	 * allowing callers to wait for a swapped-out target to drain.
+	 * Default is false.
+	 * <p>Needs to be set before the first invocation; switching it
+	 * while calls are in progress leads to inaccurate counts.
+	 * @see #waitForDrain
+	 * @see #getInFlightCount
+	 */
+	public synchronized void setTrackInvocations(boolean trackInvocations) {
+		this.trackInvocations = trackInvocations;
+		this.currentHolder = (trackInvocations ? new TargetHolder(this.target) : null);
+		synchronized (this.drainingHolders) {
+			this.drainingHolders.clear();
+		}
+	}
+
+	/**
+	 * Return whether invocations in progress are counted per target.
+	 */
+	public boolean isTrackInvocations() {
+		return trackInvocations;
+	}
+
+	/**
+	 * Register a listener to be notified after each swap.
+	 */
+	public synchronized void addSwapListener(TargetSwapListener listener) {
+		List listeners = new LinkedList(this.swapListeners);
+		listeners.add(listener);
+		this.swapListeners = listeners;
+	}
+
+	/**
+	 * Remove the given swap listener, if registered.
+	 */
+	public synchronized void removeSwapListener(TargetSwapListener listener) {
+		List listeners = new LinkedList(this.swapListeners);
+		listeners.remove(listener);
+		this.swapListeners = listeners;
+	}
+
+	/**
+	 * Set the list of TargetSwapListeners, replacing any registered so far.
+	 * Convenient for configuration via bean properties.
+	 */
+	public synchronized void setSwapListeners(List swapListeners) {
+		this.swapListeners = new LinkedList(swapListeners);
+	}
+
 	public Class getTargetClass() {
 		return target.getClass();
 	}
@@ -57,36 +144,190 @@ public class HotSwappableTargetSource implements TargetSource, Serializable {
 	}
 
 	/**
-	 * Synchronization around something that takes so little time is fine
+	 * Return the current target: a plain volatile read unless
+	 * invocation tracking is switched on.
 	 * @see org.springframework.aop.TargetSource#getTarget()
 	 */
-	public synchronized Object getTarget() {
-		return this.target;
+	public Object getTarget() {
+		TargetHolder holder = this.currentHolder;
+		if (holder == null) {
+			return this.target;
+		}
+		// A holder that got swapped out between our read and our increment
+		// refuses the acquisition; simply retry with the new current holder.
+		while (!holder.acquire()) {
+			holder = this.currentHolder;
+		}
+		return holder.target;
 	}
 
 	/**
+	 * Count the invocation on the given target as completed,
+	 * if invocation tracking is switched on.
 	 * @see org.springframework.aop.TargetSource#releaseTarget(java.lang.Object)
 	 */
 	public void releaseTarget(Object o) {
-		// No implementation needed
+		TargetHolder holder = this.currentHolder;
+		if (holder == null) {
+			return;
+		}
+		if (holder.target == o) {
+			if (holder.release() <= 0 && this.currentHolder != holder) {
+				// A concurrent swap retired the holder after we read it,
+				// so it might be waiting in the draining list for this release.
+				synchronized (this.drainingHolders) {
+					if (this.currentHolder != holder && holder.getCount() <= 0) {
+						this.drainingHolders.remove(holder);
+					}
+				}
+			}
+			return;
+		}
+		synchronized (this.drainingHolders) {
+			// Re-check under the lock: a concurrent swap may have revived the holder.
+			holder = this.currentHolder;
+			if (holder != null && holder.target == o) {
+				holder.release();
+				return;
+			}
+			for (Iterator it = this.drainingHolders.iterator(); it.hasNext();) {
+				TargetHolder draining = (TargetHolder) it.next();
+				if (draining.target == o) {
+					if (draining.release() <= 0) {
+						it.remove();
+					}
+					return;
+				}
+			}
+		}
 	}
 
 	/**
 	 * Swap the target, returning the old target.
+	 * <p>If invocation tracking is switched on, the old target will not be
+	 * handed out to any further invocations once this method returns.
 	 * @param newTarget new target
 	 * @return the old target
 	 * @throws IllegalArgumentException if the new target is invalid
+	 * @see #waitForDrain
 	 */
-	public synchronized Object swap(Object newTarget) throws IllegalArgumentException {
+	public Object swap(Object newTarget) throws IllegalArgumentException {
 		if (newTarget == null) {
 			throw new IllegalArgumentException("Cannot swap to null");
 		}
 		// TODO type checks
-		Object old = this.target;
-		this.target = newTarget;
+		Object old = null;
+		List listeners = null;
+		synchronized (this) {
+			old = this.target;
+			TargetHolder oldHolder = this.currentHolder;
+			if (oldHolder != null && old != newTarget) {
+				TargetHolder newHolder = null;
+				synchronized (this.drainingHolders) {
+					// Swapping back to a target that has not drained yet:
+					// revive its holder to keep the counts consistent.
+					for (Iterator it = this.drainingHolders.iterator(); it.hasNext();) {
+						TargetHolder draining = (TargetHolder) it.next();
+						if (draining.target == newTarget) {
+							it.remove();
+							draining.setRetired(false);
+							newHolder = draining;
+							break;
+						}
+					}
+					if (newHolder == null) {
+						newHolder = new TargetHolder(newTarget);
+					}
+					this.target = newTarget;
+					this.currentHolder = newHolder;
+					if (oldHolder.setRetired(true) > 0) {
+						this.drainingHolders.add(oldHolder);
+					}
+				}
+			}
+			else {
+				this.target = newTarget;
+			}
+			listeners = this.swapListeners;
+		}
+		for (Iterator it = listeners.iterator(); it.hasNext();) {
+			((TargetSwapListener) it.next()).targetSwapped(this, old, newTarget);
+		}
 		return old;
 	}
 
+	/**
+	 * Return the number of invocations in progress on the given target.
+	 * @param target the target object, compared by identity
+	 * @return the number of invocations, or 0 if the target is unknown
+	 * @throws IllegalStateException if invocation tracking is switched off
+	 */
+	public int getInFlightCount(Object target) throws IllegalStateException {
+		TargetHolder holder = this.currentHolder;
+		if (holder == null) {
+			throw new IllegalStateException("Invocation tracking is not active");
+		}
+		if (holder.target == target) {
+			return holder.getCount();
+		}
+		holder = findDrainingHolder(target);
+		return (holder != null ? holder.getCount() : 0);
+	}
+
+	/**
+	 * Wait for all invocations on the given swapped-out target to complete,
+	 * for example before closing an old DataSource.
+	 * @param oldTarget the target returned by a previous <code>swap</code> call
+	 * @param timeout the maximum number of milliseconds to wait,
+	 * or 0 for no timeout
+	 * @return whether the target has drained, or false if the timeout elapsed
+	 * @throws IllegalStateException if invocation tracking is switched off
+	 * @throws IllegalArgumentException if the given object is the current target
+	 * @throws InterruptedException if the current thread was interrupted
+	 * while waiting
+	 */
+	public boolean waitForDrain(Object oldTarget, long timeout)
+			throws IllegalStateException, IllegalArgumentException, InterruptedException {
+		TargetHolder current = this.currentHolder;
+		if (current == null) {
+			throw new IllegalStateException("Invocation tracking is not active");
+		}
+		if (current.target == oldTarget) {
+			throw new IllegalArgumentException("Cannot wait for the current target to drain");
+		}
+		TargetHolder holder = findDrainingHolder(oldTarget);
+		if (holder == null) {
+			return true;
+		}
+		return holder.waitForDrain(timeout);
+	}
+
+	/**
+	 * Return the number of swapped-out targets that still have
+	 * invocations in progress.
+	 * @throws IllegalStateException if invocation tracking is switched off
+	 */
+	public int getDrainingTargetCount() throws IllegalStateException {
+		if (this.currentHolder == null) {
+			throw new IllegalStateException("Invocation tracking is not active");
+		}
+		synchronized (this.drainingHolders) {
+			return this.drainingHolders.size();
+		}
+	}
+
+	private TargetHolder findDrainingHolder(Object target) {
+		synchronized (this.drainingHolders) {
+			for (Iterator it = this.drainingHolders.iterator(); it.hasNext();) {
+				TargetHolder draining = (TargetHolder) it.next();
+				if (draining.target == target) {
+					return draining;
+				}
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Two invoker interceptors are equal if they have the same target or
 	 * if the targets are equal.
@@ -104,4 +345,125 @@ public class HotSwappableTargetSource implements TargetSource, Serializable {
 		 	((target != null) ? "targetClass=" + target.getClass() : "UNITIALIZED");
 	}
 
+
+	//---------------------------------------------------------------------
+	// Serialization support
+	//---------------------------------------------------------------------
+
+	private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+		ois.defaultReadObject();
+		this.drainingHolders = new LinkedList();
+		this.swapListeners = new LinkedList();
+		if (this.trackInvocations) {
+			this.currentHolder = new TargetHolder(this.target);
+		}
+	}
+
+
+	/**
+	 * Invocation counts for one target. Counts are spread over a number of
+	 * independently locked stripes; the retired flag is only changed while
+	 * holding all stripe locks, so no invocation can slip in after a swap.
+	 */
+	private static class TargetHolder {
+
+		private final Object target;
+
+		private final int[] counts = new int[STRIPE_COUNT];
+
+		private final Object[] locks = new Object[STRIPE_COUNT];
+
+		private boolean retired = false;
+
+		private TargetHolder(Object target) {
+			this.target = target;
+			for (int i = 0; i < STRIPE_COUNT; i++) {
+				this.locks[i] = new Object();
+			}
+		}
+
+		private int stripeIndex() {
+			return System.identityHashCode(Thread.currentThread()) & (STRIPE_COUNT - 1);
+		}
+
+		private boolean acquire() {
+			int index = stripeIndex();
+			synchronized (this.locks[index]) {
+				if (this.retired) {
+					return false;
+				}
+				this.counts[index]++;
+				return true;
+			}
+		}
+
+		/**
+		 * Decrement the count, waking up drain waiters once a
+		 * retired target reaches zero. Returns the remaining count.
+		 */
+		private int release() {
+			int index = stripeIndex();
+			synchronized (this.locks[index]) {
+				// may go negative if released on a different thread: only the sum matters
+				this.counts[index]--;
+			}
+			int remaining = getCount();
+			if (remaining <= 0) {
+				synchronized (this) {
+					notifyAll();
+				}
+			}
+			return remaining;
+		}
+
+		/**
+		 * Change the retired flag under all stripe locks, returning the
+		 * number of invocations in progress at that point.
+		 */
+		private int setRetired(boolean retired) {
+			return lockAndSet(0, retired);
+		}
+
+		private int lockAndSet(int index, boolean retired) {
+			synchronized (this.locks[index]) {
+				if (index < STRIPE_COUNT - 1) {
+					return lockAndSet(index + 1, retired);
+				}
+				this.retired = retired;
+				int sum = 0;
+				for (int i = 0; i < STRIPE_COUNT; i++) {
+					sum += this.counts[i];
+				}
+				return sum;
+			}
+		}
+
+		private int getCount() {
+			int sum = 0;
+			for (int i = 0; i < STRIPE_COUNT; i++) {
+				synchronized (this.locks[i]) {
+					sum += this.counts[i];
+				}
+			}
+			return sum;
+		}
+
+		private synchronized boolean waitForDrain(long timeout) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + timeout;
+			while (getCount() > 0) {
+				if (timeout > 0) {
+					long remaining = deadline - System.currentTimeMillis();
+					if (remaining <= 0) {
+						return false;
+					}
+					wait(remaining);
+				}
+				else {
+					wait();
+				}
+			}
+			return true;
+		}
+	}
+
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.target;
+
+import java.util.EventListener;
+
+/**
+ * Callback interface for objects that want to be notified when
+ * a HotSwappableTargetSource switches to a new target.
+ *
+ * <p>Typical uses are refreshing derived state or logging configuration
+ * changes. To dispose of the old target safely, enable invocation tracking
+ * on the target source and wait for the old target to drain first.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see HotSwappableTargetSource#addSwapListener
+ * @see HotSwappableTargetSource#waitForDrain
+ */
+public interface TargetSwapListener extends EventListener {
+
+	/**
+	 * Invoked after the target has been swapped. Calls that were already
+	 * in progress may still be running against the old target.
+	 * @param targetSource the target source that performed the swap
+	 * @param oldTarget the previous target
+	 * @param newTarget the new target
+	 */
+	void targetSwapped(HotSwappableTargetSource targetSource, Object oldTarget, Object newTarget);
+
+}
@@ -235,6 +235,19 @@ public abstract class BeanUtils {
 		    (targetType.equals(double.class) && valueType.equals(Double.class));
 	}
 
+	/**
+	 * Retrieve the JavaBeans PropertyDescriptors of the given class,
+	 * using the same static introspection cache as BeanWrapperImpl.
+	 * <p>Write and read methods of non-public declaring classes
+	 * have already been made accessible.
+	 * @param clazz the class to introspect
+	 * @return the PropertyDescriptors of the class
+	 * @throws BeansException if introspection failed
+	 */
+	public static PropertyDescriptor[] getPropertyDescriptors(Class clazz) throws BeansException {
+		return CachedIntrospectionResults.forClass(clazz).getBeanInfo().getPropertyDescriptors();
+	}
+
 	/**
 	 * Check if the given class represents a "simple" property,
 	 * i.e. a primitive, a String, a Class, or a corresponding array.
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.cache.ehcache;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import org.aopalliance.aop.AspectException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.aop.interceptor.MethodCache;
+import org.springframework.aop.interceptor.MethodCacheInterceptor;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * MethodCache implementation that stores method results in an EHCache
+ * Cache, for use with a MethodCacheInterceptor. The Cache can be set up
+ * via EhCacheFactoryBean, which also defines the cache region's size and
+ * expiration policy.
+ *
+ * <p>EHCache requires serializable keys: invocations with non-serializable
+ * keys (for example due to non-serializable arguments) are simply not
+ * cached. As the cache region may overflow to disk, method results
+ * that are not serializable do not get cached either.
+ *
+ * <p>Serializable along with a MethodCacheInterceptor: only the name of the
+ * cache region gets serialized, and resolved against the singleton EHCache
+ * CacheManager on deserialization.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see EhCacheFactoryBean
+ * @see org.springframework.aop.interceptor.MethodCacheInterceptor#setCache
+ */
+public class EhCacheMethodCache implements MethodCache, InitializingBean, Serializable {
+
+	/**
+	 * Static to avoid serializing the logger
+	 */
+	protected static final Log logger = LogFactory.getLog(EhCacheMethodCache.class);
+
+	private transient Cache cache;
+
+	private String cacheName;
+
+
+	/**
+	 * Create a new EhCacheMethodCache, to be configured via "cache".
+	 * @see #setCache
+	 */
+	public EhCacheMethodCache() {
+	}
+
+	/**
+	 * Create a new EhCacheMethodCache for the given Cache.
+	 * @param cache the EHCache Cache to store method results in
+	 */
+	public EhCacheMethodCache(Cache cache) {
+		setCache(cache);
+	}
+
+	/**
+	 * Set the EHCache Cache to store method results in.
+	 * @see EhCacheFactoryBean
+	 */
+	public void setCache(Cache cache) {
+		this.cache = cache;
+		this.cacheName = (cache != null ? cache.getName() : null);
+	}
+
+	/**
+	 * Return the EHCache Cache that method results are stored in.
+	 */
+	public Cache getCache() {
+		return cache;
+	}
+
+	public void afterPropertiesSet() {
+		if (this.cache == null) {
+			throw new IllegalArgumentException("cache is required");
+		}
+	}
+
+
+	public Object get(Object key) {
+		if (!(key instanceof Serializable)) {
+			return null;
+		}
+		try {
+			Element element = this.cache.get((Serializable) key);
+			return (element != null ? element.getValue() : null);
+		}
+		catch (CacheException ex) {
+			throw new AspectException("Could not read from EHCache cache region '" + this.cache.getName() + "'", ex);
+		}
+	}
+
+	public void put(Object key, Object value) {
+		if (!(key instanceof Serializable) || !isSerializableResult(value)) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Not caching non-serializable key [" + key + "] or value in EHCache cache region '" +
+						this.cache.getName() + "'");
+			}
+			return;
+		}
+		this.cache.put(new Element((Serializable) key, (Serializable) value));
+	}
+
+	/**
+	 * Check whether the given cache value, including the method result
+	 * wrapped by a MethodCacheInterceptor.CachedResult, is serializable.
+	 * A null method result counts as serializable.
+	 */
+	private boolean isSerializableResult(Object value) {
+		if (value instanceof MethodCacheInterceptor.CachedResult) {
+			Object result = ((MethodCacheInterceptor.CachedResult) value).getValue();
+			return (result == null || result instanceof Serializable);
+		}
+		return (value instanceof Serializable);
+	}
+
+	public void remove(Object key) {
+		if (key instanceof Serializable) {
+			this.cache.remove((Serializable) key);
+		}
+	}
+
+	public void clear() {
+		try {
+			this.cache.removeAll();
+		}
+		catch (IOException ex) {
+			throw new AspectException("Could not clear EHCache cache region '" + this.cache.getName() + "'", ex);
+		}
+	}
+
+
+	/**
+	 * Resolve the cache region by name after deserialization.
+	 */
+	private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+		ois.defaultReadObject();
+		if (this.cacheName != null) {
+			try {
+				this.cache = CacheManager.getInstance().getCache(this.cacheName);
+			}
+			catch (CacheException ex) {
+				throw new InvalidObjectException("Could not access EHCache CacheManager: " + ex.getMessage());
+			}
+			if (this.cache == null) {
+				throw new InvalidObjectException("EHCache cache region '" + this.cacheName + "' not found");
+			}
+		}
+	}
+
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.context.event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.Constants;
+import org.springframework.core.task.DiscardableTask;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.pool.ThreadPoolTaskExecutor;
+
+/**
+ * ApplicationEventMulticaster implementation that only passes events to
+ * interested listeners and notifies them asynchronously via a TaskExecutor.
+ *
+ * <p>Listeners implementing SmartApplicationListener only receive the event
+ * types they support; plain ApplicationListeners receive all events. The
+ * matching listeners are determined once per concrete event class and
+ * remembered, so publishing an event nobody is interested in is cheap.
+ *
+ * <p>Each listener has its own bounded queue of pending events, which is
+ * processed by at most one thread at a time: a listener sees events in the
+ * order they were published, while different listeners are notified
+ * concurrently. The "overflowPolicy" determines what happens when a
+ * listener's queue is full. Events published by a listener while being
+ * notified never block: with a single notification thread, the listener
+ * whose queue is full might never be notified otherwise. Such events are
+ * queued beyond the capacity instead. Listeners implementing the
+ * SynchronousApplicationListener marker are invoked in the publishing thread.
+ *
+ * <p>Exceptions thrown by asynchronous listeners cannot be propagated to the
+ * publisher; they are logged instead. Listeners may be added and removed
+ * at runtime.
+ *
+ * <p>To use this multicaster in an application context, define it as bean
+ * with the name "applicationEventMulticaster". If no TaskExecutor is
+ * specified, a private ThreadPoolTaskExecutor is created on initialization
+ * and shut down on destruction.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see SmartApplicationListener
+ * @see SynchronousApplicationListener
+ * @see org.springframework.context.support.AbstractApplicationContext#APPLICATION_EVENT_MULTICASTER_BEAN_NAME
+ */
+public class AsyncApplicationEventMulticaster
+		implements ApplicationEventMulticaster, InitializingBean, DisposableBean {
+
+	/** Block the publisher until the listener's queue has room again */
+	public static final int OVERFLOW_BLOCK = 0;
+
+	/** Throw a TaskRejectedException to the publisher */
+	public static final int OVERFLOW_ABORT = 1;
+
+	/** Drop the oldest pending event for the listener */
+	public static final int OVERFLOW_DISCARD_OLDEST = 2;
+
+	/** Drop the new event for the listener */
+	public static final int OVERFLOW_DISCARD = 3;
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+	private static final Constants constants = new Constants(AsyncApplicationEventMulticaster.class);
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private TaskExecutor taskExecutor;
+
+	private boolean internalTaskExecutor = false;
+
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+	private int overflowPolicy = OVERFLOW_BLOCK;
+
+	/** Copy-on-write list of ListenerEntry objects */
+	private volatile List listenerEntries = new ArrayList();
+
+	/** Copy-on-write cache from event Class to ListenerEntry array */
+	private volatile Map listenerIndex = new HashMap();
+
+	private long discardedEventCount = 0;
+
+	/** ListenerEntry that the current thread is notifying, if any */
+	private final ThreadLocal currentEntry = new ThreadLocal();
+
+
+	/**
+	 * Set the TaskExecutor to notify listeners with.
+	 * Default is a private ThreadPoolTaskExecutor with a single thread.
+	 * @see org.springframework.scheduling.pool.ThreadPoolTaskExecutor
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Set the maximum number of pending events per listener.
+	 * Default is 1000.
+	 * @see #setOverflowPolicy
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("queueCapacity must be at least 1");
+		}
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Return the maximum number of pending events per listener.
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Set the policy to apply when a listener's queue has reached its capacity.
+	 * Default is OVERFLOW_BLOCK, which never loses events. Events published
+	 * by listeners are never blocked but queued beyond the capacity.
+	 * @see #OVERFLOW_BLOCK
+	 * @see #OVERFLOW_ABORT
+	 * @see #OVERFLOW_DISCARD_OLDEST
+	 * @see #OVERFLOW_DISCARD
+	 */
+	public void setOverflowPolicy(int overflowPolicy) {
+		if (!constants.getValues("OVERFLOW_").contains(new Integer(overflowPolicy))) {
+			throw new IllegalArgumentException("Only values of overflow constants allowed");
+		}
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Set the overflow policy by the name of the corresponding constant
+	 * in this class, e.g. "OVERFLOW_DISCARD_OLDEST".
+	 * @param constantName name of the constant
+	 * @see #setOverflowPolicy
+	 */
+	public void setOverflowPolicyName(String constantName) {
+		if (constantName == null || !constantName.startsWith("OVERFLOW_")) {
+			throw new IllegalArgumentException("Only overflow constants allowed");
+		}
+		setOverflowPolicy(constants.asNumber(constantName).intValue());
+	}
+
+	/**
+	 * Return the policy to apply when a listener's queue has reached its capacity.
+	 */
+	public int getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * Create the default TaskExecutor if none has been specified.
+	 */
+	public void afterPropertiesSet() {
+		if (this.taskExecutor == null) {
+			ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+			executor.setThreadNamePrefix("applicationEventMulticaster-");
+			executor.setDaemon(true);
+			executor.setWaitForTasksToCompleteOnShutdown(true);
+			executor.initialize();
+			this.taskExecutor = executor;
+			this.internalTaskExecutor = true;
+		}
+	}
+
+
+	public synchronized void addApplicationListener(ApplicationListener listener) {
+		for (Iterator it = this.listenerEntries.iterator(); it.hasNext();) {
+			if (((ListenerEntry) it.next()).listener.equals(listener)) {
+				return;
+			}
+		}
+		List entries = new ArrayList(this.listenerEntries);
+		entries.add(new ListenerEntry(listener));
+		this.listenerEntries = entries;
+		this.listenerIndex = new HashMap();
+	}
+
+	public synchronized void removeApplicationListener(ApplicationListener listener) {
+		List entries = new ArrayList(this.listenerEntries);
+		for (Iterator it = entries.iterator(); it.hasNext();) {
+			if (((ListenerEntry) it.next()).listener.equals(listener)) {
+				it.remove();
+			}
+		}
+		this.listenerEntries = entries;
+		this.listenerIndex = new HashMap();
+	}
+
+	public synchronized void removeAllListeners() {
+		this.listenerEntries = new ArrayList();
+		this.listenerIndex = new HashMap();
+	}
+
+	public void multicastEvent(ApplicationEvent event) {
+		ListenerEntry[] entries = getListenerEntries(event.getClass());
+		for (int i = 0; i < entries.length; i++) {
+			if (entries[i].synchronous) {
+				entries[i].listener.onApplicationEvent(event);
+			}
+			else {
+				entries[i].publish(event);
+			}
+		}
+	}
+
+	/**
+	 * Return the listeners interested in the given event class,
+	 * determining them on first access.
+	 */
+	private ListenerEntry[] getListenerEntries(Class eventClass) {
+		ListenerEntry[] entries = (ListenerEntry[]) this.listenerIndex.get(eventClass);
+		if (entries != null) {
+			return entries;
+		}
+		synchronized (this) {
+			List matching = new ArrayList();
+			for (Iterator it = this.listenerEntries.iterator(); it.hasNext();) {
+				ListenerEntry entry = (ListenerEntry) it.next();
+				if (!(entry.listener instanceof SmartApplicationListener) ||
+						((SmartApplicationListener) entry.listener).supportsEventType(eventClass)) {
+					matching.add(entry);
+				}
+			}
+			entries = (ListenerEntry[]) matching.toArray(new ListenerEntry[matching.size()]);
+			Map index = new HashMap(this.listenerIndex);
+			index.put(eventClass, entries);
+			this.listenerIndex = index;
+			return entries;
+		}
+	}
+
+	/**
+	 * Return the number of events dropped because of a full listener queue.
+	 */
+	public synchronized long getDiscardedEventCount() {
+		return discardedEventCount;
+	}
+
+	private synchronized void incrementDiscardedEventCount() {
+		this.discardedEventCount++;
+	}
+
+	/**
+	 * Shut down the private TaskExecutor, if any, after delivering
+	 * all pending events.
+	 */
+	public void destroy() {
+		if (this.internalTaskExecutor) {
+			((ThreadPoolTaskExecutor) this.taskExecutor).destroy();
+		}
+	}
+
+
+	/**
+	 * Holds a listener and its queue of pending events. Serves as the task
+	 * that notifies the listener: it is submitted to the TaskExecutor
+	 * whenever events arrive while no notification is in progress.
+	 * If the TaskExecutor rejects or discards the task, the listener
+	 * gets notified in the calling or discarding thread instead.
+	 */
+	private class ListenerEntry implements DiscardableTask {
+
+		private final ApplicationListener listener;
+
+		private final boolean synchronous;
+
+		private final LinkedList queue = new LinkedList();
+
+		private boolean scheduled = false;
+
+		private ListenerEntry(ApplicationListener listener) {
+			this.listener = listener;
+			this.synchronous = (listener instanceof SynchronousApplicationListener);
+		}
+
+		private void publish(ApplicationEvent event) {
+			synchronized (this) {
+				// A listener publishing an event to itself must not wait for itself.
+				if (currentEntry.get() != this) {
+					if (!makeRoom(event)) {
+						return;
+					}
+				}
+				this.queue.addLast(event);
+				if (this.scheduled) {
+					return;
+				}
+				this.scheduled = true;
+			}
+			if (taskExecutor == null) {
+				throw new IllegalStateException("AsyncApplicationEventMulticaster not initialized");
+			}
+			try {
+				taskExecutor.execute(this);
+			}
+			catch (TaskRejectedException ex) {
+				// Executor saturated: notify the listener in the calling thread.
+				if (logger.isDebugEnabled()) {
+					logger.debug("TaskExecutor rejected notification of listener [" + this.listener +
+							"]: notifying in calling thread", ex);
+				}
+				run();
+			}
+		}
+
+		/**
+		 * Apply the overflow policy if the queue is full.
+		 * @return whether the event should be added to the queue
+		 */
+		private boolean makeRoom(ApplicationEvent event) {
+			if (this.queue.size() < queueCapacity) {
+				return true;
+			}
+			switch (overflowPolicy) {
+				case OVERFLOW_ABORT:
+					throw new TaskRejectedException("Event queue for listener [" + this.listener +
+							"] has reached its capacity of " + queueCapacity + " events");
+				case OVERFLOW_DISCARD_OLDEST:
+					Object discarded = this.queue.removeFirst();
+					incrementDiscardedEventCount();
+					if (logger.isDebugEnabled()) {
+						logger.debug("Discarding oldest pending event [" + discarded + "] for listener [" +
+								this.listener + "]");
+					}
+					return true;
+				case OVERFLOW_DISCARD:
+					incrementDiscardedEventCount();
+					if (logger.isDebugEnabled()) {
+						logger.debug("Discarding event [" + event + "] for listener [" + this.listener +
+								"] because its queue is full");
+					}
+					return false;
+				default:
+					if (currentEntry.get() != null) {
+						// Published by a listener: the listener whose queue is full may be
+						// waiting for this very thread, e.g. with a single-threaded executor.
+						return true;
+					}
+					while (this.queue.size() >= queueCapacity) {
+						try {
+							wait();
+						}
+						catch (InterruptedException ex) {
+							Thread.currentThread().interrupt();
+							throw new TaskRejectedException("Interrupted while waiting for room in event queue of listener [" +
+									this.listener + "]", ex);
+						}
+					}
+					return true;
+			}
+		}
+
+		/**
+		 * Notify the listener of all pending events, in order.
+		 */
+		public void run() {
+			// may be nested if the executor rejected a notification published by a listener
+			Object outerEntry = currentEntry.get();
+			currentEntry.set(this);
+			try {
+				while (true) {
+					ApplicationEvent event = null;
+					synchronized (this) {
+						if (this.queue.isEmpty()) {
+							this.scheduled = false;
+							return;
+						}
+						event = (ApplicationEvent) this.queue.removeFirst();
+						notifyAll();
+					}
+					try {
+						this.listener.onApplicationEvent(event);
+					}
+					catch (Throwable ex) {
+						logger.error("Listener [" + this.listener + "] threw exception on event [" + event + "]", ex);
+					}
+				}
+			}
+			finally {
+				currentEntry.set(outerEntry);
+			}
+		}
+
+		/**
+		 * Notify the listener in the discarding thread: the pending events
+		 * would never be delivered otherwise, since the entry stays scheduled.
+		 */
+		public void discard(TaskRejectedException reason) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("TaskExecutor discarded notification of listener [" + this.listener +
+						"]: notifying in discarding thread", reason);
+			}
+			run();
+		}
+	}
+
+}
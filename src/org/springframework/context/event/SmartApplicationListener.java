@@ -0,0 +1,45 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.context.event;
+
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Extended variant of the standard ApplicationListener interface,
+ * declaring which event types the listener is interested in.
+ *
+ * <p>Multicasters that understand this interface, like
+ * AsyncApplicationEventMulticaster, will only pass matching events
+ * to the listener, sparing the cost of dispatching (for example) every
+ * RequestHandledEvent to a listener that only cares about context refreshes.
+ * Other multicasters simply pass all events, so implementations should
+ * still ignore events that they do not support.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see AsyncApplicationEventMulticaster
+ */
+public interface SmartApplicationListener extends ApplicationListener {
+
+	/**
+	 * Determine whether this listener actually supports the given event type.
+	 * <p>Called once per concrete event class: the result must not change.
+	 * @param eventType the concrete ApplicationEvent class
+	 */
+	boolean supportsEventType(Class eventType);
+
+}
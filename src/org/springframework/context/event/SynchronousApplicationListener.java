@@ -0,0 +1,36 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.context.event;
+
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Marker interface for application listeners that need to be invoked
+ * in the thread that publishes the event, for example because they
+ * participate in the publisher's transaction or need to veto further
+ * processing by throwing an exception.
+ *
+ * <p>Respected by AsyncApplicationEventMulticaster, which invokes such
+ * listeners inline instead of dispatching to its TaskExecutor.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see AsyncApplicationEventMulticaster
+ */
+public interface SynchronousApplicationListener extends ApplicationListener {
+
+}
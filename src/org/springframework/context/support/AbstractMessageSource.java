@@ -154,11 +154,24 @@ public abstract class AbstractMessageSource implements HierarchicalMessageSource
 		if (locale == null) {
 			locale = Locale.getDefault();
 		}
-		MessageFormat messageFormat = resolveCode(code, locale);
-		if (messageFormat != null) {
-			return messageFormat.format(resolveArguments(args, locale));
+		if (args == null || args.length == 0) {
+			// Optimized resolution: no arguments to apply,
+			// therefore no MessageFormat needs to be involved.
+			String message = resolveCodeWithoutArguments(code, locale);
+			if (message != null) {
+				return message;
+			}
+		}
+		else {
+			MessageFormat messageFormat = resolveCode(code, locale);
+			if (messageFormat != null) {
+				// MessageFormat is not thread-safe: format a copy, leaving the
+				// shared instance untouched, rather than locking the instance.
+				MessageFormat formatToUse = (MessageFormat) messageFormat.clone();
+				return formatToUse.format(resolveArguments(args, locale));
+			}
 		}
-		else if (this.parentMessageSource != null) {
+		if (this.parentMessageSource != null) {
 			if (this.parentMessageSource instanceof AbstractMessageSource) {
 				// Call internal method to avoid getting the default code back
 				// in case of "useCodeAsDefaultMessage" being activated.
@@ -218,6 +231,25 @@ public abstract class AbstractMessageSource implements HierarchicalMessageSource
 	}
 
 
+	/**
+	 * Subclasses can override this method to resolve a message without
+	 * arguments in an optimized fashion, for example returning a message
+	 * String that has been formatted once and cached.
+	 * <p>The default implementation formats the MessageFormat returned
+	 * by <code>resolveCode</code> with an empty argument array.
+	 * @param code the code of the message to resolve
+	 * @param locale the Locale to resolve the code for
+	 * @return the message String, or null if not found
+	 * @see #resolveCode
+	 */
+	protected String resolveCodeWithoutArguments(String code, Locale locale) {
+		MessageFormat messageFormat = resolveCode(code, locale);
+		if (messageFormat != null) {
+			return ((MessageFormat) messageFormat.clone()).format(new Object[0]);
+		}
+		return null;
+	}
+
 	/**
 	 * Subclasses must implement this method to resolve a message.
 	 * <p>Returns a MessageFormat instance rather than a message String,
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.context.support;
+
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Cache of resolved messages per message code and Locale, as used by
+ * ResourceBundleMessageSource and ReloadableResourceBundleMessageSource.
+ *
+ * <p>Lookups do not acquire any lock: entries are kept in a number of
+ * copy-on-write segments, so that adding an entry only copies a fraction
+ * of the cache. Codes that could not be resolved are cached as well,
+ * making the fallback to parent MessageSources cheap.
+ *
+ * <p>Every <code>clear</code> call starts a new generation; entries resolved
+ * against the previous state of the underlying resources are dropped
+ * instead of being added after the fact.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+final class MessageLookupCache {
+
+	/** Cache entry for codes that could not be resolved */
+	public static final ResolvedMessage NOT_FOUND = new ResolvedMessage(null);
+
+	private static final int SEGMENT_COUNT = 16;
+
+
+	private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+	private volatile int generation = 0;
+
+
+	public MessageLookupCache() {
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			this.segments[i] = new Segment();
+		}
+	}
+
+	/**
+	 * Return the cached entry for the given key, or null if none.
+	 */
+	public ResolvedMessage get(MessageKey key) {
+		return (ResolvedMessage) this.segments[segmentIndex(key)].entries.get(key);
+	}
+
+	/**
+	 * Return the current generation, to be passed to <code>put</code>
+	 * after resolving a message.
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Add an entry, unless the cache has been cleared since the given
+	 * generation was obtained.
+	 */
+	public void put(MessageKey key, ResolvedMessage message, int generation) {
+		Segment segment = this.segments[segmentIndex(key)];
+		synchronized (this) {
+			if (generation != this.generation) {
+				return;
+			}
+			Map entries = new HashMap(segment.entries);
+			entries.put(key, message);
+			segment.entries = entries;
+		}
+	}
+
+	/**
+	 * Remove all entries and start a new generation.
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			this.segments[i].entries = new HashMap();
+		}
+		this.generation++;
+	}
+
+	private int segmentIndex(MessageKey key) {
+		int hash = key.hashCode();
+		return ((hash >>> 16) ^ hash) & (SEGMENT_COUNT - 1);
+	}
+
+
+	/**
+	 * Holder for the current entry Map of one segment.
+	 */
+	private static final class Segment {
+
+		private volatile Map entries = new HashMap();
+	}
+
+
+	/**
+	 * Cache key: message code and Locale.
+	 */
+	public static final class MessageKey {
+
+		private final String code;
+
+		private final Locale locale;
+
+		public MessageKey(String code, Locale locale) {
+			this.code = code;
+			this.locale = locale;
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof MessageKey)) {
+				return false;
+			}
+			MessageKey otherKey = (MessageKey) other;
+			return (this.code.equals(otherKey.code) && this.locale.equals(otherKey.locale));
+		}
+
+		public int hashCode() {
+			return this.code.hashCode() * 29 + this.locale.hashCode();
+		}
+	}
+
+
+	/**
+	 * A resolved message: the MessageFormat for formatting with arguments,
+	 * plus the message pre-formatted without arguments.
+	 */
+	public static final class ResolvedMessage {
+
+		private final MessageFormat messageFormat;
+
+		private final String message;
+
+		public ResolvedMessage(MessageFormat messageFormat) {
+			this.messageFormat = messageFormat;
+			if (messageFormat != null) {
+				// MessageFormat is not thread-safe: format a copy, leaving the shared instance untouched.
+				this.message = ((MessageFormat) messageFormat.clone()).format(new Object[0]);
+			}
+			else {
+				this.message = null;
+			}
+		}
+
+		public MessageFormat getMessageFormat() {
+			return messageFormat;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+	}
+
+}
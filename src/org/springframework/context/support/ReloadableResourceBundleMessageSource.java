@@ -22,6 +22,7 @@ import java.io.InputStreamReader;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -31,6 +32,8 @@ import org.springframework.context.ResourceLoaderAware;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.util.DefaultPropertiesPersister;
 import org.springframework.util.PropertiesPersister;
 import org.springframework.util.StringUtils;
@@ -58,7 +61,16 @@ import org.springframework.util.StringUtils;
  * <p>This MessageSource can easily be used outside an ApplicationContext: It uses
  * a DefaultResourceLoader as default, getting overridden with the ApplicationContext
  * if running in a context. It does not have any other specific dependencies.
- * 
+ *
+ * <p>Resolved messages are cached per code and Locale, covering the whole
+ * chain of basenames and locale-specific files, including codes that could
+ * not be found. Cache lookups do not acquire any lock, and messages without
+ * arguments are served as pre-formatted Strings. With "cacheSeconds" set,
+ * the properties files are re-validated periodically by a single thread,
+ * while other readers keep using the current cache contents. That thread
+ * is the "refreshExecutor"'s if specified, else the reader that happens to
+ * trigger the refresh, which then waits for the reload itself.
+ *
  * @author Thomas Achleitner
  * @author Juergen Hoeller
  * @see #setCacheSeconds
@@ -88,11 +100,24 @@ public class ReloadableResourceBundleMessageSource extends AbstractMessageSource
 
 	private long cacheMillis = -1;
 
-	/** Cache to hold filename lists per Locale */
-	private final Map cachedFilenames = new HashMap();
+	private TaskExecutor refreshExecutor;
+
+	/** Copy-on-write cache to hold filename lists per Locale */
+	private volatile Map cachedFilenames = new HashMap();
+
+	/** Copy-on-write cache to hold already loaded properties per filename */
+	private volatile Map cachedProperties = new HashMap();
 
-	/** Cache to hold already loaded properties per filename */
-	private final Map cachedProperties = new HashMap();
+	/** Cache to hold resolved messages per code and Locale */
+	private final MessageLookupCache cachedMessages = new MessageLookupCache();
+
+	/** Monitor for changes to the filename and properties caches */
+	private final Object cacheMonitor = new Object();
+
+	/** Time of the next re-validation of the properties files */
+	private volatile long nextRefreshTime = 0;
+
+	private boolean refreshInProgress = false;
 
 	private PropertiesPersister propertiesPersister = new DefaultPropertiesPersister();
 
@@ -126,6 +151,7 @@ public class ReloadableResourceBundleMessageSource extends AbstractMessageSource
 	 */
 	public void setBasenames(String[] basenames) {
 		this.basenames = basenames;
+		this.cachedMessages.clear();
 	}
 
 	/**
@@ -179,11 +205,29 @@ public class ReloadableResourceBundleMessageSource extends AbstractMessageSource
 	 * <li>A value of "0" will check the last-modified timestamp of the file on
 	 * every message access. <b>Do not use this in a production environment!</b>
 	 * </ul>
+	 * <p>With a positive number, the first message access after the interval
+	 * has elapsed triggers the re-validation of all loaded files, executed by
+	 * the "refreshExecutor" if specified. Else the accessing thread performs
+	 * the refresh inline, before resolving its own message. In both cases,
+	 * concurrent message accesses are not blocked by the refresh.
+	 * @see #setRefreshExecutor
 	 */
 	public void setCacheSeconds(int cacheSeconds) {
 		this.cacheMillis = cacheSeconds * 1000;
 	}
 
+	/**
+	 * Set the TaskExecutor to re-validate the properties files with, once the
+	 * "cacheSeconds" interval has elapsed. Default is none, letting the first
+	 * thread that accesses a message after the interval perform the refresh
+	 * inline. Specify an executor to keep that reload off all reader threads.
+	 * @see #setCacheSeconds
+	 * @see org.springframework.scheduling.pool.ThreadPoolTaskExecutor
+	 */
+	public void setRefreshExecutor(TaskExecutor refreshExecutor) {
+		this.refreshExecutor = refreshExecutor;
+	}
+
 	/**
 	 * Set the PropertiesPersister to use for parsing properties files.
 	 * The default is DefaultPropertiesPersister.
@@ -205,6 +249,36 @@ public class ReloadableResourceBundleMessageSource extends AbstractMessageSource
 
 
 	protected MessageFormat resolveCode(String code, Locale locale) {
+		return getResolvedMessage(code, locale).getMessageFormat();
+	}
+
+	protected String resolveCodeWithoutArguments(String code, Locale locale) {
+		return getResolvedMessage(code, locale).getMessage();
+	}
+
+	/**
+	 * Return the cached resolution result for the given code and Locale,
+	 * checking all files for all basenames on first access.
+	 */
+	private MessageLookupCache.ResolvedMessage getResolvedMessage(String code, Locale locale) {
+		checkRefresh();
+		MessageLookupCache.MessageKey key = new MessageLookupCache.MessageKey(code, locale);
+		MessageLookupCache.ResolvedMessage resolved = this.cachedMessages.get(key);
+		if (resolved == null) {
+			int generation = this.cachedMessages.getGeneration();
+			MessageFormat messageFormat = resolveCodeInFiles(code, locale);
+			resolved = (messageFormat != null ?
+					new MessageLookupCache.ResolvedMessage(messageFormat) : MessageLookupCache.NOT_FOUND);
+			this.cachedMessages.put(key, resolved, generation);
+		}
+		return resolved;
+	}
+
+	/**
+	 * Resolve the given code by checking the files for all basenames,
+	 * in the order given by the locale fallback chain.
+	 */
+	private MessageFormat resolveCodeInFiles(String code, Locale locale) {
 		for (int i = 0; i < this.basenames.length; i++) {
 			List filenames = calculateAllFilenames(this.basenames[i], locale);
 			for (int j = 0; j < filenames.size(); j++) {
@@ -221,6 +295,90 @@ public class ReloadableResourceBundleMessageSource extends AbstractMessageSource
 		return null;
 	}
 
+	/**
+	 * Trigger the re-validation of all loaded properties files
+	 * if the "cacheSeconds" interval has elapsed.
+	 */
+	private void checkRefresh() {
+		if (this.cacheMillis < 0 || System.currentTimeMillis() < this.nextRefreshTime) {
+			return;
+		}
+		if (this.cacheMillis == 0) {
+			// check on every access: synchronous refresh
+			refreshAllProperties();
+			return;
+		}
+		synchronized (this.cacheMonitor) {
+			if (this.refreshInProgress || System.currentTimeMillis() < this.nextRefreshTime) {
+				return;
+			}
+			this.refreshInProgress = true;
+		}
+		Runnable refreshTask = new Runnable() {
+			public void run() {
+				try {
+					refreshAllProperties();
+				}
+				finally {
+					synchronized (cacheMonitor) {
+						nextRefreshTime = System.currentTimeMillis() + cacheMillis;
+						refreshInProgress = false;
+					}
+				}
+			}
+		};
+		if (this.refreshExecutor != null) {
+			try {
+				this.refreshExecutor.execute(refreshTask);
+				return;
+			}
+			catch (TaskRejectedException ex) {
+				logger.debug("Refresh executor rejected properties refresh - refreshing in calling thread", ex);
+			}
+		}
+		refreshTask.run();
+	}
+
+	/**
+	 * Re-validate all loaded properties files, clearing the message cache
+	 * if any of them has changed. The files are reloaded without holding
+	 * the cache monitor; the results are published in a single swap.
+	 */
+	private void refreshAllProperties() {
+		Map snapshot = this.cachedProperties;
+		Map refreshed = new HashMap();
+		boolean changed = false;
+		for (Iterator it = snapshot.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			PropertiesHolder oldHolder = (PropertiesHolder) entry.getValue();
+			PropertiesHolder newHolder = loadProperties((String) entry.getKey(), oldHolder);
+			if (newHolder != oldHolder) {
+				refreshed.put(entry.getKey(), newHolder);
+				if (newHolder.getProperties() != null || oldHolder.getProperties() != null) {
+					changed = true;
+				}
+			}
+		}
+		if (refreshed.isEmpty()) {
+			return;
+		}
+		synchronized (this.cacheMonitor) {
+			// copy-on-write: readers never see a Map that is being modified
+			Map newProperties = new HashMap(this.cachedProperties);
+			for (Iterator it = refreshed.entrySet().iterator(); it.hasNext();) {
+				Map.Entry entry = (Map.Entry) it.next();
+				// skip entries that have been cleared or replaced in the meantime
+				if (newProperties.get(entry.getKey()) == snapshot.get(entry.getKey())) {
+					newProperties.put(entry.getKey(), entry.getValue());
+				}
+			}
+			this.cachedProperties = newProperties;
+			if (changed) {
+				this.cachedMessages.clear();
+			}
+		}
+	}
+
 	/**
 	 * Calculate all filenames for the given bundle basename and Locale.
 	 * Will calculate filenames for the given Locale, the system Locale
@@ -232,30 +390,32 @@ public class ReloadableResourceBundleMessageSource extends AbstractMessageSource
 	 * @see #calculateFilenamesForLocale
 	 */
 	protected List calculateAllFilenames(String basename, Locale locale) {
-		synchronized (this.cachedFilenames) {
-			Map localeMap = (Map) this.cachedFilenames.get(basename);
-			if (localeMap != null) {
-				List filenames = (List) localeMap.get(locale);
-				if (filenames != null) {
-					return filenames;
-				}
-			}
-			List filenames = new ArrayList(7);
-			filenames.addAll(calculateFilenamesForLocale(basename, locale));
-			if (this.fallbackToSystemLocale && !locale.equals(Locale.getDefault())) {
-				filenames.addAll(calculateFilenamesForLocale(basename, Locale.getDefault()));
+		Map localeMap = (Map) this.cachedFilenames.get(basename);
+		if (localeMap != null) {
+			List filenames = (List) localeMap.get(locale);
+			if (filenames != null) {
+				return filenames;
 			}
-			filenames.add(basename);
-			if (localeMap != null) {
-				localeMap.put(locale, filenames);
-			}
-			else {
-				localeMap = new HashMap();
-				localeMap.put(locale, filenames);
-				this.cachedFilenames.put(basename, localeMap);
+		}
+		List filenames = new ArrayList(7);
+		filenames.addAll(calculateFilenamesForLocale(basename, locale));
+		if (this.fallbackToSystemLocale && !locale.equals(Locale.getDefault())) {
+			filenames.addAll(calculateFilenamesForLocale(basename, Locale.getDefault()));
+		}
+		filenames.add(basename);
+		synchronized (this.cacheMonitor) {
+			// copy-on-write: readers never see a Map that is being modified
+			Map newLocaleMap = new HashMap();
+			Map currentLocaleMap = (Map) this.cachedFilenames.get(basename);
+			if (currentLocaleMap != null) {
+				newLocaleMap.putAll(currentLocaleMap);
 			}
-			return filenames;
+			newLocaleMap.put(locale, filenames);
+			Map newFilenames = new HashMap(this.cachedFilenames);
+			newFilenames.put(basename, newLocaleMap);
+			this.cachedFilenames = newFilenames;
 		}
+		return filenames;
 	}
 
 	/**
@@ -294,28 +454,49 @@ public class ReloadableResourceBundleMessageSource extends AbstractMessageSource
 
 	/**
 	 * Get PropertiesHolder for the given filename, either from the cache
-	 * or freshly loaded.
+	 * or freshly loaded. Cached holders are re-validated by the periodic
+	 * refresh according to "cacheSeconds".
 	 */
 	protected PropertiesHolder getProperties(String filename) {
-		synchronized (this.cachedProperties) {
-			PropertiesHolder propHolder = (PropertiesHolder) this.cachedProperties.get(filename);
-			if (propHolder != null &&
-					(propHolder.getRefreshTimestamp() < 0 ||
-					 propHolder.getRefreshTimestamp() > System.currentTimeMillis() - this.cacheMillis)) {
-				return propHolder;
-			}
-			else {
-				return refreshProperties(filename, propHolder);
-			}
+		PropertiesHolder propHolder = (PropertiesHolder) this.cachedProperties.get(filename);
+		if (propHolder != null) {
+			return propHolder;
 		}
+		return refreshProperties(filename, null);
 	}
 
 	/**
 	 * Refresh the PropertiesHolder for the given bundle filename.
 	 * The holder can be null if not cached before, or a timed-out cache entry
 	 * (potentially getting re-validated against the current last-modified timestamp).
+	 * <p>Loads the file without holding the cache monitor. If another thread
+	 * has cached a holder for a file that was not cached before, that holder
+	 * is returned instead.
 	 */
 	protected PropertiesHolder refreshProperties(String filename, PropertiesHolder propHolder) {
+		PropertiesHolder newHolder = loadProperties(filename, propHolder);
+		synchronized (this.cacheMonitor) {
+			PropertiesHolder cachedHolder = (PropertiesHolder) this.cachedProperties.get(filename);
+			if (propHolder == null && cachedHolder != null) {
+				return cachedHolder;
+			}
+			if (cachedHolder != newHolder) {
+				// copy-on-write: readers never see a Map that is being modified
+				Map newProperties = new HashMap(this.cachedProperties);
+				newProperties.put(filename, newHolder);
+				this.cachedProperties = newProperties;
+			}
+		}
+		return newHolder;
+	}
+
+	/**
+	 * Load the properties file for the given bundle filename, or re-validate
+	 * the given holder against the file's last-modified timestamp, without
+	 * caching the result.
+	 * @return the given holder if still valid, else a new holder
+	 */
+	private PropertiesHolder loadProperties(String filename, PropertiesHolder propHolder) {
 		long refreshTimestamp = (this.cacheMillis < 0) ? -1 : System.currentTimeMillis();
 		Resource resource = this.resourceLoader.getResource(filename + PROPERTIES_SUFFIX);
 		try {
@@ -371,7 +552,6 @@ public class ReloadableResourceBundleMessageSource extends AbstractMessageSource
 			propHolder = new PropertiesHolder();
 		}
 		propHolder.setRefreshTimestamp(refreshTimestamp);
-		this.cachedProperties.put(filename, propHolder);
 		return propHolder;
 	}
 
@@ -381,8 +561,9 @@ public class ReloadableResourceBundleMessageSource extends AbstractMessageSource
 	 */
 	public void clearCache() {
 		logger.info("Clearing resource bundle cache");
-		synchronized (this.cachedProperties) {
-			this.cachedProperties.clear();
+		synchronized (this.cacheMonitor) {
+			this.cachedProperties = new HashMap();
+			this.cachedMessages.clear();
 		}
 	}
 
@@ -16,12 +16,15 @@
 
 package org.springframework.context.support;
 
+import java.lang.ref.WeakReference;
 import java.text.MessageFormat;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.WeakHashMap;
 
 import org.springframework.util.StringUtils;
 
@@ -34,6 +37,13 @@ import org.springframework.util.StringUtils;
  * As this MessageSource relies on ResourceBundle, it faces the same limitation.
  * Consider ReloadableResourceBundleMessageSource for an alternative.
  *
+ * <p>Resolved messages are cached per code, Locale and ClassLoader,
+ * including codes that could not be found. Thread context ClassLoaders
+ * are only referenced weakly, so that they can be garbage-collected after
+ * a redeployment. Cache lookups do not acquire any lock as long as the
+ * ClassLoader does not change, and messages without arguments are served
+ * as pre-formatted Strings.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @see #setBasenames
@@ -53,6 +63,18 @@ public class ResourceBundleMessageSource extends AbstractMessageSource {
 	 */
 	private final Map cachedMessageFormats = new HashMap();
 
+	/** Cache to hold resolved messages per code and Locale, for the specified ClassLoader */
+	private final MessageLookupCache cachedMessages = new MessageLookupCache();
+
+	/**
+	 * Caches to hold resolved messages per thread context ClassLoader,
+	 * with weak keys. Also the monitor for switching the last used cache.
+	 */
+	private final Map cachedMessagesByClassLoader = new WeakHashMap();
+
+	/** Last used thread context ClassLoader and its cache */
+	private volatile ClassLoaderMessages lastClassLoaderMessages;
+
 
 	/**
 	 * Set a single basename, following ResourceBundle conventions:
@@ -81,6 +103,7 @@ public class ResourceBundleMessageSource extends AbstractMessageSource {
 	 */
 	public void setBasenames(String[] basenames)  {
 		this.basenames = basenames;
+		clearCachedMessages();
 	}
 
 	/**
@@ -90,15 +113,74 @@ public class ResourceBundleMessageSource extends AbstractMessageSource {
 	 */
 	public void setClassLoader(ClassLoader classLoader) {
 		this.classLoader = classLoader;
+		clearCachedMessages();
+	}
+
+	/**
+	 * Clear the resolved messages for all ClassLoaders.
+	 */
+	private void clearCachedMessages() {
+		this.cachedMessages.clear();
+		synchronized (this.cachedMessagesByClassLoader) {
+			for (Iterator it = this.cachedMessagesByClassLoader.values().iterator(); it.hasNext();) {
+				((MessageLookupCache) it.next()).clear();
+			}
+		}
 	}
 
 
 	protected final MessageFormat resolveCode(String code, Locale locale) {
-		MessageFormat messageFormat = null;
-		for (int i = 0; messageFormat == null && i < this.basenames.length; i++) {
-			messageFormat = resolve(this.basenames[i], code, locale);
+		return getResolvedMessage(code, locale).getMessageFormat();
+	}
+
+	protected final String resolveCodeWithoutArguments(String code, Locale locale) {
+		return getResolvedMessage(code, locale).getMessage();
+	}
+
+	/**
+	 * Return the cached resolution result for the given code and Locale,
+	 * checking the bundles for all basenames on first access.
+	 */
+	private MessageLookupCache.ResolvedMessage getResolvedMessage(String code, Locale locale) {
+		MessageLookupCache cache = getMessageLookupCache();
+		MessageLookupCache.MessageKey key = new MessageLookupCache.MessageKey(code, locale);
+		MessageLookupCache.ResolvedMessage resolved = cache.get(key);
+		if (resolved == null) {
+			int generation = cache.getGeneration();
+			MessageFormat messageFormat = null;
+			for (int i = 0; messageFormat == null && i < this.basenames.length; i++) {
+				messageFormat = resolve(this.basenames[i], code, locale);
+			}
+			resolved = (messageFormat != null ?
+					new MessageLookupCache.ResolvedMessage(messageFormat) : MessageLookupCache.NOT_FOUND);
+			cache.put(key, resolved, generation);
+		}
+		return resolved;
+	}
+
+	/**
+	 * Return the message cache for the ClassLoader that bundles
+	 * are loaded with by the current thread.
+	 */
+	private MessageLookupCache getMessageLookupCache() {
+		if (this.classLoader != null) {
+			return this.cachedMessages;
+		}
+		// no class loader specified -> use cache for thread context class loader
+		ClassLoader cl = Thread.currentThread().getContextClassLoader();
+		ClassLoaderMessages last = this.lastClassLoaderMessages;
+		if (last != null && last.classLoader.get() == cl) {
+			return last.cache;
+		}
+		synchronized (this.cachedMessagesByClassLoader) {
+			MessageLookupCache cache = (MessageLookupCache) this.cachedMessagesByClassLoader.get(cl);
+			if (cache == null) {
+				cache = new MessageLookupCache();
+				this.cachedMessagesByClassLoader.put(cl, cache);
+			}
+			this.lastClassLoaderMessages = new ClassLoaderMessages(cl, cache);
+			return cache;
 		}
-		return messageFormat;
 	}
 
 	/**
@@ -181,4 +263,20 @@ public class ResourceBundleMessageSource extends AbstractMessageSource {
 		return getClass().getName() + ": basenames=[" + StringUtils.arrayToCommaDelimitedString(this.basenames) + "]";
 	}
 
+
+	/**
+	 * Thread context ClassLoader, referenced weakly, and its message cache.
+	 */
+	private static class ClassLoaderMessages {
+
+		private final WeakReference classLoader;
+
+		private final MessageLookupCache cache;
+
+		private ClassLoaderMessages(ClassLoader classLoader, MessageLookupCache cache) {
+			this.classLoader = new WeakReference(classLoader);
+			this.cache = cache;
+		}
+	}
+
 }
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.core.io.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.CollectionFactory;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * ResourceLoader decorator that caches the existence, last-modified
+ * timestamp and - for small resources - the content of the resources
+ * that it returns, per location.
+ *
+ * <p>Cached state is revalidated against the target resource at most once
+ * per check interval, instead of hitting the class loader, the servlet
+ * container or the file system on every access. Non-existing resources are
+ * cached too, which avoids repeated lookups for locale-specific variants
+ * that are not there. Content gets dropped on revalidation if the resource
+ * has been modified, or if its last-modified timestamp cannot be determined.
+ *
+ * <p>Intended for resources that are read repeatedly at runtime, like
+ * templates: for example, pass an instance wrapping the application context
+ * to FreeMarkerConfigurationFactory's or VelocityEngineFactory's
+ * "resourceLoader" property.
+ *
+ * <p>Resources that the target loader returns as open streams, like
+ * InputStreamResource, are passed through as-is.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see #setCheckInterval
+ * @see #setMaxContentSize
+ * @see #setCacheLimit
+ * @see org.springframework.ui.freemarker.FreeMarkerConfigurationFactory#setResourceLoader
+ * @see org.springframework.ui.velocity.VelocityEngineFactory#setResourceLoader
+ */
+public class CachingResourceLoader implements ResourceLoader {
+
+	public static final long DEFAULT_CHECK_INTERVAL = 5000;
+
+	public static final int DEFAULT_MAX_CONTENT_SIZE = 64 * 1024;
+
+	public static final int DEFAULT_CACHE_LIMIT = 256;
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final ResourceLoader targetResourceLoader;
+
+	private long checkInterval = DEFAULT_CHECK_INTERVAL;
+
+	private int maxContentSize = DEFAULT_MAX_CONTENT_SIZE;
+
+	private int cacheLimit = DEFAULT_CACHE_LIMIT;
+
+	/** Map from location String to CacheEntry, in insertion order if possible */
+	private final Map cache = CollectionFactory.createLinkedMapIfPossible(16);
+
+
+	/**
+	 * Create a new CachingResourceLoader for the given target.
+	 * @param targetResourceLoader the ResourceLoader to obtain the actual
+	 * resources from, for example an ApplicationContext
+	 */
+	public CachingResourceLoader(ResourceLoader targetResourceLoader) {
+		if (targetResourceLoader == null) {
+			throw new IllegalArgumentException("targetResourceLoader is required");
+		}
+		this.targetResourceLoader = targetResourceLoader;
+	}
+
+	/**
+	 * Return the ResourceLoader that this loader delegates to.
+	 */
+	public ResourceLoader getTargetResourceLoader() {
+		return targetResourceLoader;
+	}
+
+	/**
+	 * Set the interval in milliseconds after which cached state gets
+	 * revalidated against the target resource. Default is 5 seconds.
+	 * <p>Specify 0 to revalidate on every access, which still saves
+	 * rereading unmodified content; specify -1 to never revalidate.
+	 */
+	public void setCheckInterval(long checkInterval) {
+		this.checkInterval = checkInterval;
+	}
+
+	/**
+	 * Return the interval after which cached state gets revalidated.
+	 */
+	public long getCheckInterval() {
+		return checkInterval;
+	}
+
+	/**
+	 * Set the maximum size in bytes of resource content to keep in memory.
+	 * Larger resources are always read from the target resource.
+	 * Default is 64 KB; specify 0 to cache metadata only.
+	 */
+	public void setMaxContentSize(int maxContentSize) {
+		this.maxContentSize = maxContentSize;
+	}
+
+	/**
+	 * Return the maximum size of resource content to keep in memory.
+	 */
+	public int getMaxContentSize() {
+		return maxContentSize;
+	}
+
+	/**
+	 * Set the maximum number of locations to cache. Default is 256.
+	 * When exceeded, the oldest entry gets evicted.
+	 */
+	public void setCacheLimit(int cacheLimit) {
+		this.cacheLimit = cacheLimit;
+	}
+
+	/**
+	 * Return the maximum number of locations to cache.
+	 */
+	public int getCacheLimit() {
+		return cacheLimit;
+	}
+
+	/**
+	 * Return the number of currently cached locations.
+	 */
+	public int getCacheSize() {
+		synchronized (this.cache) {
+			return this.cache.size();
+		}
+	}
+
+	/**
+	 * Remove all cached state, for example after redeploying templates.
+	 */
+	public void clearCache() {
+		synchronized (this.cache) {
+			this.cache.clear();
+		}
+	}
+
+
+	public Resource getResource(String location) {
+		CacheEntry entry = null;
+		synchronized (this.cache) {
+			entry = (CacheEntry) this.cache.get(location);
+			if (entry == null) {
+				Resource resource = this.targetResourceLoader.getResource(location);
+				if (resource.isOpen()) {
+					// can't be read repeatedly anyway
+					return resource;
+				}
+				entry = new CacheEntry(resource);
+				this.cache.put(location, entry);
+				if (this.cache.size() > this.cacheLimit) {
+					Iterator it = this.cache.keySet().iterator();
+					it.next();
+					it.remove();
+				}
+			}
+		}
+		return new CachedResource(entry);
+	}
+
+	/**
+	 * Determine the last-modified timestamp of the given resource,
+	 * via its file if available, else via a connection to its URL.
+	 * @param resource the resource to check
+	 * @return the timestamp, or -1 if it cannot be determined
+	 */
+	protected long getLastModified(Resource resource) {
+		try {
+			File file = resource.getFile();
+			long lastModified = file.lastModified();
+			return (lastModified > 0 ? lastModified : -1);
+		}
+		catch (IOException ex) {
+			// not a file -> try URL connection
+		}
+		try {
+			URL url = resource.getURL();
+			long lastModified = url.openConnection().getLastModified();
+			return (lastModified > 0 ? lastModified : -1);
+		}
+		catch (IOException ex) {
+			return -1;
+		}
+	}
+
+
+	/**
+	 * Cached state for a single location.
+	 * All fields are guarded by the entry's own monitor.
+	 */
+	private class CacheEntry {
+
+		private final Resource resource;
+
+		private long lastChecked = -1;
+
+		private boolean exists;
+
+		private long lastModified;
+
+		private byte[] content;
+
+		/** Incremented whenever cached content gets dropped */
+		private int generation = 0;
+
+		private CacheEntry(Resource resource) {
+			this.resource = resource;
+		}
+
+		/**
+		 * Revalidate the cached state if the check interval has elapsed.
+		 */
+		private synchronized void validate() {
+			long now = System.currentTimeMillis();
+			if (this.lastChecked != -1 && (checkInterval < 0 || now - this.lastChecked < checkInterval)) {
+				return;
+			}
+			boolean exists = this.resource.exists();
+			long lastModified = (exists ? getLastModified(this.resource) : -1);
+			if (exists != this.exists || lastModified != this.lastModified || lastModified == -1) {
+				if (this.content != null && logger.isDebugEnabled()) {
+					logger.debug("Dropping cached content of " + this.resource.getDescription());
+				}
+				this.content = null;
+				this.generation++;
+			}
+			this.exists = exists;
+			this.lastModified = lastModified;
+			this.lastChecked = now;
+		}
+
+		private synchronized boolean exists() {
+			validate();
+			return this.exists;
+		}
+
+		private synchronized byte[] getContent() throws FileNotFoundException {
+			validate();
+			if (!this.exists) {
+				throw new FileNotFoundException(this.resource.getDescription() + " does not exist");
+			}
+			return this.content;
+		}
+
+		private synchronized int getGeneration() {
+			return this.generation;
+		}
+
+		/**
+		 * Keep the given content, unless the cached state has changed since
+		 * the given generation and last-modified timestamp were obtained.
+		 */
+		private synchronized void setContent(byte[] content, int generation, long lastModified) {
+			if (generation == this.generation && lastModified == this.lastModified) {
+				this.content = content;
+			}
+		}
+
+		/**
+		 * Open the target resource, keeping its content if small enough.
+		 */
+		private InputStream readContent() throws IOException {
+			// determine the state that the content will be read from before reading it,
+			// so that content of a concurrently modified resource does not get cached
+			int generation = getGeneration();
+			long lastModified = getLastModified(this.resource);
+			// reading one more byte than the maximum tells content that is too large
+			int readLimit = (maxContentSize < Integer.MAX_VALUE ? maxContentSize + 1 : Integer.MAX_VALUE);
+			InputStream is = this.resource.getInputStream();
+			boolean handedOut = false;
+			try {
+				byte[] buffer = new byte[Math.min(readLimit, 4096)];
+				int length = 0;
+				int nrOfBytes = 0;
+				while (length < readLimit && (nrOfBytes = is.read(buffer, length, buffer.length - length)) != -1) {
+					length += nrOfBytes;
+					if (length == buffer.length && length < readLimit) {
+						byte[] newBuffer = new byte[(int) Math.min(buffer.length * 2L, readLimit)];
+						System.arraycopy(buffer, 0, newBuffer, 0, length);
+						buffer = newBuffer;
+					}
+				}
+				if (length > maxContentSize) {
+					// too large to cache: hand out the bytes read so far plus the rest
+					handedOut = true;
+					return new SequenceInputStream(new ByteArrayInputStream(buffer, 0, length), is);
+				}
+				byte[] content = new byte[length];
+				System.arraycopy(buffer, 0, content, 0, length);
+				setContent(content, generation, lastModified);
+				return new ByteArrayInputStream(content);
+			}
+			finally {
+				if (!handedOut) {
+					try {
+						is.close();
+					}
+					catch (IOException ex) {
+						logger.warn("Could not close InputStream of " + this.resource.getDescription(), ex);
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Resource handle backed by a CacheEntry, delegating everything but
+	 * existence checks and content access to the target resource.
+	 */
+	private static class CachedResource extends AbstractResource {
+
+		private final CacheEntry entry;
+
+		private CachedResource(CacheEntry entry) {
+			this.entry = entry;
+		}
+
+		public boolean exists() {
+			return this.entry.exists();
+		}
+
+		public InputStream getInputStream() throws IOException {
+			byte[] content = this.entry.getContent();
+			if (content != null) {
+				return new ByteArrayInputStream(content);
+			}
+			return this.entry.readContent();
+		}
+
+		public URL getURL() throws IOException {
+			return this.entry.resource.getURL();
+		}
+
+		public File getFile() throws IOException {
+			return this.entry.resource.getFile();
+		}
+
+		public Resource createRelative(String relativePath) throws IOException {
+			return this.entry.resource.createRelative(relativePath);
+		}
+
+		public String getFilename() {
+			return this.entry.resource.getFilename();
+		}
+
+		public String getDescription() {
+			return this.entry.resource.getDescription();
+		}
+	}
+
+}
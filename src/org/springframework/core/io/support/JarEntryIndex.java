@@ -0,0 +1,178 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+/**
+ * Sorted, in-memory list of the entry names of a jar file, allowing for
+ * quick retrieval of all entries below a given path prefix.
+ *
+ * <p>Indexes are cached in a VM-wide registry keyed by the absolute path of
+ * the jar file, and validated against its last-modified timestamp and
+ * length: each jar gets opened once, no matter how many class loaders
+ * or application contexts scan it. The registry holds at most
+ * MAX_CACHED_INDEXES indexes, evicting the least recently used one
+ * when full.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see PathMatchingResourcePatternResolver
+ */
+public final class JarEntryIndex {
+
+	/** Maximum number of indexes kept in the VM-wide registry */
+	public static final int MAX_CACHED_INDEXES = 256;
+
+	/** Map from absolute jar file path to JarEntryIndex */
+	private static final Map indexCache = new HashMap();
+
+	/** Access counter for least-recently-used eviction, guarded by indexCache */
+	private static long accessCounter = 0;
+
+
+	/**
+	 * Return the index for the given jar file, building it
+	 * if not cached yet or if the file has changed.
+	 * @param jarFile the jar file to index
+	 * @return the index
+	 * @throws IOException if the jar file could not be read
+	 */
+	public static JarEntryIndex forJarFile(File jarFile) throws IOException {
+		String key = jarFile.getAbsolutePath();
+		long lastModified = jarFile.lastModified();
+		long length = jarFile.length();
+		synchronized (indexCache) {
+			JarEntryIndex index = (JarEntryIndex) indexCache.get(key);
+			if (index != null && index.lastModified == lastModified && index.length == length) {
+				index.lastAccess = ++accessCounter;
+				return index;
+			}
+		}
+		// Build outside of the lock: reading a large jar may take a while.
+		JarEntryIndex index = new JarEntryIndex(jarFile, lastModified, length);
+		synchronized (indexCache) {
+			index.lastAccess = ++accessCounter;
+			indexCache.put(key, index);
+			if (indexCache.size() > MAX_CACHED_INDEXES) {
+				evictLeastRecentlyUsed();
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Remove the least recently used index. A linear scan is fine
+	 * for the small number of cached indexes. Called with the lock held.
+	 */
+	private static void evictLeastRecentlyUsed() {
+		Object eldestKey = null;
+		long eldestAccess = Long.MAX_VALUE;
+		for (Iterator it = indexCache.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			long access = ((JarEntryIndex) entry.getValue()).lastAccess;
+			if (access < eldestAccess) {
+				eldestKey = entry.getKey();
+				eldestAccess = access;
+			}
+		}
+		indexCache.remove(eldestKey);
+	}
+
+	/**
+	 * Return the number of cached indexes.
+	 */
+	public static int getCacheSize() {
+		synchronized (indexCache) {
+			return indexCache.size();
+		}
+	}
+
+	/**
+	 * Remove all cached indexes, for example after redeploying libraries
+	 * whose timestamps were preserved.
+	 */
+	public static void clearCache() {
+		synchronized (indexCache) {
+			indexCache.clear();
+		}
+	}
+
+
+	private final long lastModified;
+
+	private final long length;
+
+	private final String[] entryNames;
+
+	/** Guarded by indexCache */
+	private long lastAccess;
+
+
+	private JarEntryIndex(File file, long lastModified, long length) throws IOException {
+		this.lastModified = lastModified;
+		this.length = length;
+		JarFile jarFile = new JarFile(file);
+		try {
+			List names = new ArrayList();
+			for (Enumeration entries = jarFile.entries(); entries.hasMoreElements();) {
+				names.add(((ZipEntry) entries.nextElement()).getName());
+			}
+			this.entryNames = (String[]) names.toArray(new String[names.size()]);
+			Arrays.sort(this.entryNames);
+		}
+		finally {
+			jarFile.close();
+		}
+	}
+
+	/**
+	 * Return the names of all entries in the jar file, in sorted order.
+	 */
+	public String[] getEntryNames() {
+		return entryNames;
+	}
+
+	/**
+	 * Return the names of all entries that start with the given prefix,
+	 * in sorted order. Uses binary search to find the first candidate.
+	 * @param prefix the path prefix, e.g. "META-INF/"
+	 * @return the List of matching entry names
+	 */
+	public List getEntryNamesWithPrefix(String prefix) {
+		int start = Arrays.binarySearch(this.entryNames, prefix);
+		if (start < 0) {
+			start = -start - 1;
+		}
+		List result = new ArrayList();
+		for (int i = start; i < this.entryNames.length && this.entryNames[i].startsWith(prefix); i++) {
+			result.add(this.entryNames[i]);
+		}
+		return result;
+	}
+
+}
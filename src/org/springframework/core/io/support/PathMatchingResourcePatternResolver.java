@@ -16,13 +16,18 @@
 
 package org.springframework.core.io.support;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.net.JarURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -32,6 +37,7 @@ import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.UrlResource;
+import org.springframework.util.CompiledPathPattern;
 import org.springframework.util.PathMatcher;
 import org.springframework.util.StringUtils;
 
@@ -44,15 +50,22 @@ import org.springframework.util.StringUtils;
  * relative file paths like "/WEB-INF/context.xml"), or Ant-style patterns
  * like "/WEB-INF/*-context.xml".
  *
- * <p>In the pattern case, the locations have to be resolvable to java.io.File,
- * to allow for searching though the specified directory tree. In particular,
- * this will neither work with WAR files that are not expanded nor with class
- * path resources in a JAR file.
+ * <p>In the pattern case, the location is split into a literal root directory
+ * and a pattern relative to it. If the root directory resolves to a JAR entry,
+ * the JAR's sorted entry list is searched below the root path, via a cached
+ * JarEntryIndex; else the root has to be resolvable to java.io.File, to allow
+ * for searching through the directory tree below it. Only the root directory
+ * gets walked, so the more literal the leading path segments of a pattern,
+ * the cheaper the search. WAR files that are not expanded are not supported.
  *
  * <p>There is special support for retrieving multiple class path resources with
  * the same name, via the "classpath*" prefix. For example, "classpath*:/beans.xml"
  * will find all beans.xml files in the class path, be it in "classes" directories
  * or in JAR files. This is particularly useful for auto-detecting config files.
+ * The prefix can be combined with a pattern: "classpath*:META-INF/*-beans.xml"
+ * will search every class path root that contains a "META-INF" directory.
+ * Note that this relies on <code>ClassLoader.getResources</code> for the root
+ * directory, which will not find JAR files that lack directory entries.
  *
  * <p>If neither given a PathMatcher pattern nor a "classpath*:" location, this
  * resolver will return a single resource via the underlying ResourceLoader.
@@ -60,6 +73,7 @@ import org.springframework.util.StringUtils;
  * @author Juergen Hoeller
  * @since 01.05.2004
  * @see #CLASSPATH_URL_PREFIX
+ * @see JarEntryIndex
  * @see org.springframework.util.PathMatcher
  * @see org.springframework.core.io.ResourceLoader#getResource
  */
@@ -139,10 +153,19 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 
 	public Resource[] getResources(String locationPattern) throws IOException {
 		if (locationPattern.startsWith(CLASSPATH_URL_PREFIX)) {
+			String location = locationPattern.substring(CLASSPATH_URL_PREFIX.length());
+			if (PathMatcher.isPattern(location)) {
+				// a class path resource pattern, to be searched in all class path roots
+				return findPathMatchingResources(locationPattern);
+			}
 			// a class path resource (multiple resources for same name possible)
-			return findAllClassPathResources(locationPattern.substring(CLASSPATH_URL_PREFIX.length()));
+			return findAllClassPathResources(location);
 		}
 		else if (PathMatcher.isPattern(locationPattern)) {
+			if (isJarResource(this.resourceLoader.getResource(determineRootDir(locationPattern)))) {
+				// a pattern within a JAR file
+				return findPathMatchingResources(locationPattern);
+			}
 			// a file pattern
 			return findPathMatchingFileResources(locationPattern);
 		}
@@ -178,6 +201,188 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 		return (Resource[]) result.toArray(new Resource[result.size()]);
 	}
 
+	/**
+	 * Find all resources that match the given location pattern, searching
+	 * JAR files via their entry index and directories via the file system.
+	 * <p>The root directory gets resolved via <code>getResources</code>,
+	 * so a "classpath*:" pattern will search all class path roots that
+	 * contain the root directory.
+	 * @param locationPattern the location pattern to match
+	 * @return the result as Resource array
+	 * @throws IOException in case of I/O errors
+	 * @see #determineRootDir
+	 * @see #doFindPathMatchingJarResources
+	 * @see #retrieveMatchingFiles
+	 */
+	protected Resource[] findPathMatchingResources(String locationPattern) throws IOException {
+		String prefix = "";
+		String location = locationPattern;
+		if (locationPattern.startsWith(CLASSPATH_URL_PREFIX)) {
+			// the prefix itself contains an asterisk: not part of the pattern
+			prefix = CLASSPATH_URL_PREFIX;
+			location = locationPattern.substring(CLASSPATH_URL_PREFIX.length());
+		}
+		String rootDirPath = determineRootDir(location);
+		String subPattern = location.substring(rootDirPath.length());
+		if (subPattern.startsWith("/")) {
+			subPattern = subPattern.substring(1);
+		}
+		if (rootDirPath.length() > 0 && !rootDirPath.endsWith("/")) {
+			// resolve relative resources within the root directory, not next to it
+			rootDirPath += "/";
+		}
+		rootDirPath = prefix + rootDirPath;
+		Resource[] rootDirResources = getResources(rootDirPath);
+		List result = new ArrayList();
+		for (int i = 0; i < rootDirResources.length; i++) {
+			Resource rootDirResource = rootDirResources[i];
+			if (isJarResource(rootDirResource)) {
+				result.addAll(doFindPathMatchingJarResources(rootDirResource, subPattern));
+			}
+			else {
+				File rootDir = rootDirResource.getFile().getAbsoluteFile();
+				if (logger.isDebugEnabled()) {
+					logger.debug("Looking for matching resources in directory tree [" + rootDir.getPath() + "]");
+				}
+				List matchingFiles = retrieveMatchingFiles(rootDir, subPattern);
+				for (Iterator it = matchingFiles.iterator(); it.hasNext();) {
+					File file = (File) it.next();
+					result.add(new FileSystemResource(file));
+				}
+			}
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Resolved location pattern [" + locationPattern + "] to resources " + result);
+		}
+		return (Resource[]) result.toArray(new Resource[result.size()]);
+	}
+
+	/**
+	 * Return whether the given resource points into a JAR file,
+	 * i.e. has a URL with protocol "jar".
+	 * @param resource the resource to check
+	 * @return whether the resource is a JAR entry
+	 */
+	protected boolean isJarResource(Resource resource) {
+		try {
+			return "jar".equals(resource.getURL().getProtocol());
+		}
+		catch (IOException ex) {
+			// not resolvable as URL, e.g. a ServletContextResource in an unexpanded WAR
+			return false;
+		}
+	}
+
+	/**
+	 * Find all resources in the JAR file that the given root directory resource
+	 * points into, matching the given pattern relative to the root directory.
+	 * <p>For local JAR files, only the entries below the root directory get
+	 * checked, as determined via the JAR's cached JarEntryIndex. Other JAR
+	 * files get opened and fully scanned on each call.
+	 * @param rootDirResource the root directory as Resource
+	 * @param subPattern the sub pattern to match, relative to the root directory
+	 * @return the List of matching Resource instances
+	 * @throws IOException in case of I/O errors
+	 * @see JarEntryIndex
+	 * @see java.net.JarURLConnection
+	 */
+	protected List doFindPathMatchingJarResources(Resource rootDirResource, String subPattern)
+			throws IOException {
+
+		URLConnection con = rootDirResource.getURL().openConnection();
+		if (!(con instanceof JarURLConnection)) {
+			throw new IOException("Cannot search for matching resources in [" + rootDirResource.getDescription() +
+					"]: no JarURLConnection");
+		}
+		JarURLConnection jarCon = (JarURLConnection) con;
+		String rootEntryPath = (jarCon.getEntryName() != null ? jarCon.getEntryName() : "");
+		if (rootEntryPath.length() > 0 && !rootEntryPath.endsWith("/")) {
+			rootEntryPath += "/";
+		}
+		URL jarFileUrl = jarCon.getJarFileURL();
+		List entryNames = null;
+		if ("file".equals(jarFileUrl.getProtocol())) {
+			File jarFile = new File(decodeFileUrlPath(jarFileUrl.getFile()));
+			if (logger.isDebugEnabled()) {
+				logger.debug("Looking for matching resources in indexed jar file [" + jarFile.getPath() + "]");
+			}
+			entryNames = JarEntryIndex.forJarFile(jarFile).getEntryNamesWithPrefix(rootEntryPath);
+		}
+		else {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Looking for matching resources in jar file [" + jarFileUrl + "]");
+			}
+			entryNames = new ArrayList();
+			JarFile jarFile = jarCon.getJarFile();
+			try {
+				for (Enumeration entries = jarFile.entries(); entries.hasMoreElements();) {
+					String entryName = ((ZipEntry) entries.nextElement()).getName();
+					if (entryName.startsWith(rootEntryPath)) {
+						entryNames.add(entryName);
+					}
+				}
+			}
+			finally {
+				if (!jarCon.getUseCaches()) {
+					jarFile.close();
+				}
+			}
+		}
+		CompiledPathPattern compiledPattern = new CompiledPathPattern(subPattern);
+		List result = new ArrayList();
+		for (Iterator it = entryNames.iterator(); it.hasNext();) {
+			String relativePath = ((String) it.next()).substring(rootEntryPath.length());
+			if (relativePath.length() > 0 && compiledPattern.matches(relativePath)) {
+				result.add(rootDirResource.createRelative(relativePath));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Decode the %XX escapes in the given path of a "file:" URL, interpreting
+	 * the escaped bytes as UTF-8. In contrast to URLDecoder, '+' characters
+	 * are left as-is: they are not space placeholders in URL paths.
+	 * @param path the path of the file URL
+	 * @return the decoded file path
+	 * @throws IOException if the path contains a malformed escape
+	 */
+	protected String decodeFileUrlPath(String path) throws IOException {
+		if (path.indexOf('%') == -1) {
+			return path;
+		}
+		StringBuffer sb = new StringBuffer(path.length());
+		ByteArrayOutputStream escapedBytes = new ByteArrayOutputStream();
+		int i = 0;
+		while (i < path.length()) {
+			char c = path.charAt(i);
+			if (c == '%') {
+				if (i + 2 >= path.length()) {
+					throw new IOException("Incomplete escape sequence in file URL path [" + path + "]");
+				}
+				int hi = Character.digit(path.charAt(i + 1), 16);
+				int lo = Character.digit(path.charAt(i + 2), 16);
+				if (hi == -1 || lo == -1) {
+					throw new IOException("Invalid escape sequence in file URL path [" + path + "]");
+				}
+				escapedBytes.write((hi << 4) + lo);
+				i += 3;
+			}
+			else {
+				if (escapedBytes.size() > 0) {
+					sb.append(escapedBytes.toString("UTF-8"));
+					escapedBytes.reset();
+				}
+				sb.append(c);
+				i++;
+			}
+		}
+		if (escapedBytes.size() > 0) {
+			sb.append(escapedBytes.toString("UTF-8"));
+		}
+		return sb.toString();
+	}
+
 	/**
 	 * Find all file resources that match the given location pattern
 	 * via the Ant-style PathMatcher utility.
@@ -270,14 +475,16 @@ public class PathMatchingResourcePatternResolver implements ResourcePatternResol
 			throw new IOException("Could not retrieve contents of directory [" + dir.getAbsolutePath() + "]");
 		}
 		boolean dirDepthNotFixed = (fullPattern.indexOf("**") != -1);
+		int patternDepth = StringUtils.countOccurrencesOf(fullPattern, "/");
+		CompiledPathPattern compiledPattern = new CompiledPathPattern(fullPattern);
 		for (int i = 0; i < dirContents.length; i++) {
 			String currPath = StringUtils.replace(dirContents[i].getAbsolutePath(), File.separator, "/");
 			if (dirContents[i].isDirectory() &&
 					(dirDepthNotFixed ||
-					StringUtils.countOccurrencesOf(currPath, "/") < StringUtils.countOccurrencesOf(fullPattern, "/"))) {
+					StringUtils.countOccurrencesOf(currPath, "/") < patternDepth)) {
 				doRetrieveMatchingFiles(fullPattern, dirContents[i], result);
 			}
-			if (PathMatcher.match(fullPattern, currPath)) {
+			if (compiledPattern.matches(currPath)) {
 				result.add(dirContents[i]);
 			}
 		}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.core.io.support;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+import org.springframework.core.io.Resource;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Utility methods for channel-based access to the content of a Resource.
+ * Resources that can be resolved to a file in the file system, like
+ * FileSystemResource or an expanded ServletContextResource, are read
+ * through a FileChannel; all other resources fall back to their
+ * InputStream.
+ *
+ * <p>Requires JDK 1.4, in contrast to the Resource abstraction itself.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see org.springframework.core.io.Resource#getFile
+ * @see org.springframework.core.io.Resource#getInputStream
+ */
+public abstract class ResourceChannelUtils {
+
+	/**
+	 * Open a ReadableByteChannel for the content of the given resource.
+	 * The caller is responsible for closing the channel.
+	 * @param resource the resource to read
+	 * @return the channel (a FileChannel if the resource is a file)
+	 * @throws IOException if the resource could not be opened
+	 */
+	public static ReadableByteChannel getReadableChannel(Resource resource) throws IOException {
+		File file = getFileIfPossible(resource);
+		if (file != null) {
+			return new FileInputStream(file).getChannel();
+		}
+		return Channels.newChannel(resource.getInputStream());
+	}
+
+	/**
+	 * Return the content of the given resource as read-only ByteBuffer.
+	 * <p>Files get memory-mapped, so that their content is paged in on
+	 * demand instead of being copied upfront; the mapping remains valid
+	 * until the buffer is garbage-collected. All other resources are read
+	 * into a heap buffer.
+	 * @param resource the resource to read
+	 * @return the read-only buffer, positioned at the start of the content
+	 * @throws IOException if the resource could not be read, or if a file
+	 * is too large to be mapped into a single buffer
+	 * @see java.nio.channels.FileChannel#map
+	 */
+	public static ByteBuffer getByteBuffer(Resource resource) throws IOException {
+		File file = getFileIfPossible(resource);
+		if (file != null) {
+			FileChannel channel = new FileInputStream(file).getChannel();
+			try {
+				long size = channel.size();
+				if (size > Integer.MAX_VALUE) {
+					throw new IOException("Cannot map " + resource.getDescription() + " into a single buffer: " +
+							"size of " + size + " bytes exceeds maximum buffer size");
+				}
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			}
+			finally {
+				channel.close();
+			}
+		}
+		return ByteBuffer.wrap(FileCopyUtils.copyToByteArray(resource.getInputStream())).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Copy the content of the given resource to the given OutputStream,
+	 * for example a servlet response stream. Closes the stream when done.
+	 * <p>Files are transferred through their channel; all other resources
+	 * are copied through a stream buffer.
+	 * @param resource the resource to copy
+	 * @param out the stream to copy to
+	 * @throws IOException in case of I/O errors
+	 * @see org.springframework.util.FileCopyUtils#copy(java.io.File, java.io.OutputStream)
+	 */
+	public static void copy(Resource resource, OutputStream out) throws IOException {
+		File file = getFileIfPossible(resource);
+		if (file != null) {
+			FileCopyUtils.copy(file, out);
+		}
+		else {
+			FileCopyUtils.copy(resource.getInputStream(), out);
+		}
+	}
+
+	/**
+	 * Resolve the given resource to a readable file, if possible.
+	 * @param resource the resource to resolve
+	 * @return the file, or null if the resource is not available
+	 * as a regular file in the file system
+	 */
+	private static File getFileIfPossible(Resource resource) {
+		if (resource.isOpen()) {
+			return null;
+		}
+		try {
+			File file = resource.getFile();
+			return (file.isFile() ? file : null);
+		}
+		catch (IOException ex) {
+			return null;
+		}
+	}
+
+}
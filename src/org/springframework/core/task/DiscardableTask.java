@@ -0,0 +1,43 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.task;
+
+/**
+ * Extension of the Runnable interface for tasks that need to be notified
+ * when a TaskExecutor drops them without running them, for example to
+ * complete a FutureResult that a caller might be waiting for.
+ *
+ * <p>A TaskExecutor that accepts a task and later drops it, be it due to
+ * queue overflow or due to shutdown, calls <code>discard</code> instead
+ * of <code>run</code> on tasks that implement this interface.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see TaskExecutor#execute
+ * @see org.springframework.scheduling.pool.ThreadPoolTaskExecutor
+ */
+public interface DiscardableTask extends Runnable {
+
+	/**
+	 * Called instead of <code>run</code> when the task has been dropped
+	 * by the TaskExecutor. Invoked at most once, in the thread that dropped
+	 * the task, and never if the task has been run.
+	 * @param reason the reason why the task has been dropped
+	 */
+	void discard(TaskRejectedException reason);
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.core.task;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Handle for the result of a task that completes later, possibly in
+ * another thread. Offers JDK 1.5 Future-like access on any JDK.
+ *
+ * <p>Methods executed asynchronously via AsyncExecutionInterceptor can
+ * declare FutureResult as return type: the target implementation simply
+ * returns a completed FutureResult, while the caller immediately receives
+ * a FutureResult that will be completed once the method has been executed.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see org.springframework.aop.interceptor.AsyncExecutionInterceptor
+ */
+public class FutureResult {
+
+	private boolean done;
+
+	private Object value;
+
+	private Throwable exception;
+
+
+	/**
+	 * Create a new FutureResult, to be completed via <code>setValue</code>
+	 * or <code>setException</code>.
+	 * @see #setValue
+	 * @see #setException
+	 */
+	public FutureResult() {
+	}
+
+	/**
+	 * Create a new FutureResult that is already completed with the given value.
+	 * @param value the result value (may be null)
+	 */
+	public FutureResult(Object value) {
+		this.value = value;
+		this.done = true;
+	}
+
+	/**
+	 * Complete this FutureResult with the given value,
+	 * waking up all threads that are waiting for it.
+	 * @param value the result value (may be null)
+	 * @throws IllegalStateException if already completed
+	 */
+	public synchronized void setValue(Object value) throws IllegalStateException {
+		if (this.done) {
+			throw new IllegalStateException("FutureResult already completed");
+		}
+		this.value = value;
+		this.done = true;
+		notifyAll();
+	}
+
+	/**
+	 * Complete this FutureResult with the given exception,
+	 * waking up all threads that are waiting for it.
+	 * @param exception the exception thrown by the task
+	 * @throws IllegalStateException if already completed
+	 */
+	public synchronized void setException(Throwable exception) throws IllegalStateException {
+		if (this.done) {
+			throw new IllegalStateException("FutureResult already completed");
+		}
+		this.exception = exception;
+		this.done = true;
+		notifyAll();
+	}
+
+	/**
+	 * Return whether the task has completed, either normally or exceptionally.
+	 */
+	public synchronized boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * Wait for the task to complete, and return its result.
+	 * @return the result value (may be null)
+	 * @throws InterruptedException if interrupted while waiting
+	 * @throws InvocationTargetException if the task failed, wrapping its exception
+	 */
+	public synchronized Object get() throws InterruptedException, InvocationTargetException {
+		while (!this.done) {
+			wait();
+		}
+		return getValueOrThrow();
+	}
+
+	/**
+	 * Wait for the task to complete for at most the given time,
+	 * and return its result.
+	 * @param timeout the maximum time to wait in milliseconds
+	 * @return the result value (may be null)
+	 * @throws InterruptedException if interrupted while waiting
+	 * @throws InvocationTargetException if the task failed, wrapping its exception
+	 * @throws IllegalStateException if the task did not complete in time
+	 */
+	public synchronized Object get(long timeout)
+			throws InterruptedException, InvocationTargetException, IllegalStateException {
+		long deadline = System.currentTimeMillis() + timeout;
+		while (!this.done) {
+			long waitTime = deadline - System.currentTimeMillis();
+			if (waitTime <= 0) {
+				throw new IllegalStateException("Task did not complete within " + timeout + " ms");
+			}
+			wait(waitTime);
+		}
+		return getValueOrThrow();
+	}
+
+	private Object getValueOrThrow() throws InvocationTargetException {
+		if (this.exception != null) {
+			throw new InvocationTargetException(this.exception);
+		}
+		return this.value;
+	}
+
+}
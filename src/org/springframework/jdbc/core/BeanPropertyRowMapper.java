@@ -0,0 +1,413 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.core;
+
+import java.beans.PropertyDescriptor;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.FatalBeanException;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.TypeMismatchDataAccessException;
+
+/**
+ * RowMapper implementation that creates an instance of the given bean class
+ * per row, populating its bean properties from the columns of the same name.
+ * Column names are matched case-insensitively and ignoring underscores,
+ * so both "FIRST_NAME" and "FIRSTNAME" map to a "firstName" property.
+ * Columns without a matching writable property are ignored.
+ *
+ * <p>Column-to-property resolution happens once per distinct list of
+ * columns: that is, once per SQL statement in practice. The resulting
+ * mapping plan holds column index, a ResultSet getter that is appropriate
+ * for the property type and the setter method for each mapped column,
+ * so that each row is mapped by invoking typed ResultSet getters by index
+ * and setter methods directly, without name lookups or BeanWrapper.
+ * Plans are cached per RowMapper instance, which is thread-safe and
+ * intended to be reused for all queries returning the given bean class.
+ * The plan for the ResultSet being mapped is remembered per thread, so
+ * that concurrent queries don't look up each other's column lists.
+ *
+ * <p>Primitive properties keep their default value for SQL NULL columns.
+ * Supported property types are String, the primitive types and their
+ * wrappers, BigDecimal, java.util.Date, java.sql.Date/Time/Timestamp and
+ * byte arrays; any other type is populated via <code>getObject</code>.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see org.springframework.beans.BeanUtils#getPropertyDescriptors
+ */
+public class BeanPropertyRowMapper implements RowMapper {
+
+	private static final int TYPE_OBJECT = 0;
+
+	private static final int TYPE_STRING = 1;
+
+	private static final int TYPE_BOOLEAN = 2;
+
+	private static final int TYPE_BYTE = 3;
+
+	private static final int TYPE_SHORT = 4;
+
+	private static final int TYPE_INT = 5;
+
+	private static final int TYPE_LONG = 6;
+
+	private static final int TYPE_FLOAT = 7;
+
+	private static final int TYPE_DOUBLE = 8;
+
+	private static final int TYPE_BIG_DECIMAL = 9;
+
+	private static final int TYPE_TIMESTAMP = 10;
+
+	private static final int TYPE_DATE = 11;
+
+	private static final int TYPE_TIME = 12;
+
+	private static final int TYPE_BYTES = 13;
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final Class mappedClass;
+
+	private final Constructor constructor;
+
+	/** Map from normalized property name to PropertyDescriptor */
+	private final Map mappedProperties = new HashMap();
+
+	/** Map from column list String to MappingPlan, replaced on write */
+	private volatile Map planCache = new HashMap();
+
+	/** The plan used for the most recent ResultSet, per thread */
+	private final ThreadLocal lastBinding = new ThreadLocal();
+
+
+	/**
+	 * Create a new BeanPropertyRowMapper for the given class.
+	 * @param mappedClass the class to create an instance of per row:
+	 * a JavaBean with a no-arg constructor
+	 */
+	public BeanPropertyRowMapper(Class mappedClass) {
+		if (mappedClass == null) {
+			throw new IllegalArgumentException("mappedClass is required");
+		}
+		this.mappedClass = mappedClass;
+		try {
+			this.constructor = mappedClass.getDeclaredConstructor(new Class[0]);
+		}
+		catch (NoSuchMethodException ex) {
+			throw new FatalBeanException("Cannot map rows to class [" + mappedClass.getName() +
+					"]: no default constructor found", ex);
+		}
+		PropertyDescriptor[] pds = BeanUtils.getPropertyDescriptors(mappedClass);
+		for (int i = 0; i < pds.length; i++) {
+			if (pds[i].getWriteMethod() != null) {
+				this.mappedProperties.put(normalizeName(pds[i].getName()), pds[i]);
+			}
+		}
+	}
+
+	/**
+	 * Return the class that rows are mapped to.
+	 */
+	public Class getMappedClass() {
+		return mappedClass;
+	}
+
+
+	public Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+		MappingPlan plan = getMappingPlan(rs, rowNum);
+		Object bean = BeanUtils.instantiateClass(this.constructor, null);
+		Object[] args = new Object[1];
+		for (int i = 0; i < plan.columns.length; i++) {
+			ColumnMapping column = plan.columns[i];
+			args[0] = getColumnValue(rs, column);
+			if (args[0] == null && column.primitive) {
+				// keep the default value of the primitive property
+				continue;
+			}
+			try {
+				column.writeMethod.invoke(bean, args);
+			}
+			catch (IllegalArgumentException ex) {
+				throw new TypeMismatchDataAccessException("Cannot set value of column '" + column.columnName +
+						"' to property '" + column.propertyName + "' of " + this.mappedClass, ex);
+			}
+			catch (IllegalAccessException ex) {
+				throw new DataRetrievalFailureException("Cannot access setter for property '" +
+						column.propertyName + "' of " + this.mappedClass, ex);
+			}
+			catch (InvocationTargetException ex) {
+				throw new DataRetrievalFailureException("Setter for property '" + column.propertyName +
+						"' of " + this.mappedClass + " threw exception", ex.getTargetException());
+			}
+		}
+		return bean;
+	}
+
+	/**
+	 * Return the mapping plan for the given ResultSet: the one of the previous
+	 * row mapped by the current thread if it has been resolved for the same
+	 * ResultSet, else a cached plan
+	 * for the same list of columns, else a newly resolved plan.
+	 */
+	private MappingPlan getMappingPlan(ResultSet rs, int rowNum) throws SQLException {
+		PlanBinding binding = (PlanBinding) this.lastBinding.get();
+		if (rowNum > 0 && binding != null && binding.resultSet.get() == rs) {
+			return binding.plan;
+		}
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int columnCount = rsmd.getColumnCount();
+		String[] columnNames = new String[columnCount];
+		StringBuffer key = new StringBuffer();
+		for (int i = 0; i < columnCount; i++) {
+			columnNames[i] = getColumnName(rsmd, i + 1);
+			key.append(columnNames[i]).append(',');
+		}
+		MappingPlan plan = (MappingPlan) this.planCache.get(key.toString());
+		if (plan == null) {
+			plan = buildMappingPlan(columnNames);
+			synchronized (this) {
+				Map newCache = new HashMap(this.planCache);
+				newCache.put(key.toString(), plan);
+				this.planCache = newCache;
+			}
+		}
+		this.lastBinding.set(new PlanBinding(rs, plan));
+		return plan;
+	}
+
+	/**
+	 * Resolve the given columns to the properties of the mapped class.
+	 */
+	private MappingPlan buildMappingPlan(String[] columnNames) {
+		List columns = new ArrayList(columnNames.length);
+		for (int i = 0; i < columnNames.length; i++) {
+			PropertyDescriptor pd = (PropertyDescriptor) this.mappedProperties.get(normalizeName(columnNames[i]));
+			if (pd != null) {
+				columns.add(new ColumnMapping(i + 1, columnNames[i], pd));
+			}
+			else if (logger.isDebugEnabled()) {
+				logger.debug("No property found for column '" + columnNames[i] + "' in " + this.mappedClass);
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Resolved " + columns.size() + " of " + columnNames.length + " columns to properties of " +
+					this.mappedClass);
+		}
+		return new MappingPlan((ColumnMapping[]) columns.toArray(new ColumnMapping[columns.size()]));
+	}
+
+	/**
+	 * Retrieve the value of the given column via the ResultSet getter
+	 * that corresponds to the property type.
+	 * @return the value, or null for SQL NULL
+	 */
+	private Object getColumnValue(ResultSet rs, ColumnMapping column) throws SQLException {
+		int index = column.columnIndex;
+		Object value = null;
+		switch (column.type) {
+			case TYPE_STRING:
+				return rs.getString(index);
+			case TYPE_BOOLEAN:
+				value = (rs.getBoolean(index) ? Boolean.TRUE : Boolean.FALSE);
+				break;
+			case TYPE_BYTE:
+				value = new Byte(rs.getByte(index));
+				break;
+			case TYPE_SHORT:
+				value = new Short(rs.getShort(index));
+				break;
+			case TYPE_INT:
+				value = new Integer(rs.getInt(index));
+				break;
+			case TYPE_LONG:
+				value = new Long(rs.getLong(index));
+				break;
+			case TYPE_FLOAT:
+				value = new Float(rs.getFloat(index));
+				break;
+			case TYPE_DOUBLE:
+				value = new Double(rs.getDouble(index));
+				break;
+			case TYPE_BIG_DECIMAL:
+				return rs.getBigDecimal(index);
+			case TYPE_TIMESTAMP:
+				return rs.getTimestamp(index);
+			case TYPE_DATE:
+				return rs.getDate(index);
+			case TYPE_TIME:
+				return rs.getTime(index);
+			case TYPE_BYTES:
+				return rs.getBytes(index);
+			default:
+				return rs.getObject(index);
+		}
+		// primitive getters return 0 or false for SQL NULL
+		return (rs.wasNull() ? null : value);
+	}
+
+	/**
+	 * Determine the name of the given column: its label if available,
+	 * else its name.
+	 */
+	private static String getColumnName(ResultSetMetaData rsmd, int columnIndex) throws SQLException {
+		String name = rsmd.getColumnLabel(columnIndex);
+		if (name == null || name.length() == 0) {
+			name = rsmd.getColumnName(columnIndex);
+		}
+		return name;
+	}
+
+	/**
+	 * Normalize the given column or property name for matching:
+	 * lower case, without underscores.
+	 */
+	private static String normalizeName(String name) {
+		StringBuffer sb = new StringBuffer(name.length());
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c != '_') {
+				sb.append(Character.toLowerCase(c));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Determine the getter type to use for the given property type.
+	 */
+	private static int getValueType(Class propertyType) {
+		if (String.class.equals(propertyType)) {
+			return TYPE_STRING;
+		}
+		else if (boolean.class.equals(propertyType) || Boolean.class.equals(propertyType)) {
+			return TYPE_BOOLEAN;
+		}
+		else if (byte.class.equals(propertyType) || Byte.class.equals(propertyType)) {
+			return TYPE_BYTE;
+		}
+		else if (short.class.equals(propertyType) || Short.class.equals(propertyType)) {
+			return TYPE_SHORT;
+		}
+		else if (int.class.equals(propertyType) || Integer.class.equals(propertyType)) {
+			return TYPE_INT;
+		}
+		else if (long.class.equals(propertyType) || Long.class.equals(propertyType)) {
+			return TYPE_LONG;
+		}
+		else if (float.class.equals(propertyType) || Float.class.equals(propertyType)) {
+			return TYPE_FLOAT;
+		}
+		else if (double.class.equals(propertyType) || Double.class.equals(propertyType)) {
+			return TYPE_DOUBLE;
+		}
+		else if (BigDecimal.class.equals(propertyType)) {
+			return TYPE_BIG_DECIMAL;
+		}
+		else if (java.sql.Date.class.equals(propertyType)) {
+			return TYPE_DATE;
+		}
+		else if (java.sql.Time.class.equals(propertyType)) {
+			return TYPE_TIME;
+		}
+		else if (java.sql.Timestamp.class.equals(propertyType) || java.util.Date.class.equals(propertyType)) {
+			return TYPE_TIMESTAMP;
+		}
+		else if (byte[].class.equals(propertyType)) {
+			return TYPE_BYTES;
+		}
+		else {
+			return TYPE_OBJECT;
+		}
+	}
+
+
+	/**
+	 * Resolved mapping of a single column to a bean property.
+	 */
+	private static class ColumnMapping {
+
+		private final int columnIndex;
+
+		private final String columnName;
+
+		private final String propertyName;
+
+		private final Method writeMethod;
+
+		private final int type;
+
+		private final boolean primitive;
+
+		private ColumnMapping(int columnIndex, String columnName, PropertyDescriptor pd) {
+			this.columnIndex = columnIndex;
+			this.columnName = columnName;
+			this.propertyName = pd.getName();
+			this.writeMethod = pd.getWriteMethod();
+			this.type = getValueType(pd.getPropertyType());
+			this.primitive = pd.getPropertyType().isPrimitive();
+		}
+	}
+
+
+	/**
+	 * Resolved mappings for a given list of columns.
+	 */
+	private static class MappingPlan {
+
+		private final ColumnMapping[] columns;
+
+		private MappingPlan(ColumnMapping[] columns) {
+			this.columns = columns;
+		}
+	}
+
+
+	/**
+	 * Association of a plan with the ResultSet it has been resolved for.
+	 * Holds the ResultSet weakly, to not keep it from being garbage-collected.
+	 */
+	private static class PlanBinding {
+
+		private final WeakReference resultSet;
+
+		private final MappingPlan plan;
+
+		private PlanBinding(ResultSet resultSet, MappingPlan plan) {
+			this.resultSet = new WeakReference(resultSet);
+			this.plan = plan;
+		}
+	}
+
+}
@@ -0,0 +1,548 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.core;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Compact, read-only representation of a query result, holding its values
+ * column by column: column names and SQL types are stored once, integer and
+ * floating-point columns in primitive arrays, and all other values in one
+ * array per column. Created by ColumnarResultSetExtractor.
+ *
+ * <p>Implements <code>java.util.List</code> with one read-only
+ * <code>java.util.Map</code> view per row, keyed by column name, so that
+ * it can replace the result of JdbcTemplate's <code>queryForList</code>
+ * methods in existing code. Row views are lightweight objects that are
+ * created on access. Alternatively, values can be read via the typed
+ * accessors without creating views or wrapper objects.
+ *
+ * <p>Like the Maps returned by <code>queryForList</code>, row views hold
+ * each column name only once: if several columns share a name, the key
+ * keeps the position of the first such column but maps to the value of
+ * the last one. The typed accessors still address every column by index.
+ *
+ * <p>Values of integer and floating-point columns are exposed as Integer,
+ * Long, Float and Double, according to the standard JDBC type mapping.
+ *
+ * <p>Row and column indexes are 0-based.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see ColumnarResultSetExtractor
+ * @see JdbcOperations#queryForColumnarResult(String)
+ */
+public class ColumnarResult extends AbstractList implements Serializable {
+
+	private final String[] columnNames;
+
+	private final int[] columnTypes;
+
+	private final Column[] columns;
+
+	private final int rowCount;
+
+	/** Map from column name to Integer index of the last column of that name */
+	private final Map columnIndexes;
+
+	/** Column index of each row view entry, in order of first occurrence */
+	private final int[] entryColumns;
+
+
+	ColumnarResult(String[] columnNames, int[] columnTypes, Column[] columns, int rowCount) {
+		this.columnNames = columnNames;
+		this.columnTypes = columnTypes;
+		this.columns = columns;
+		this.rowCount = rowCount;
+		this.columnIndexes = new HashMap(columnNames.length * 2);
+		int[] firstColumns = new int[columnNames.length];
+		int entryCount = 0;
+		for (int i = 0; i < columnNames.length; i++) {
+			// last column of a given name wins, as with queryForList
+			if (this.columnIndexes.put(columnNames[i], new Integer(i)) == null) {
+				firstColumns[entryCount++] = i;
+			}
+		}
+		this.entryColumns = new int[entryCount];
+		for (int i = 0; i < entryCount; i++) {
+			this.entryColumns[i] = getColumnIndex(columnNames[firstColumns[i]]);
+		}
+	}
+
+	/**
+	 * Return the number of columns.
+	 */
+	public int getColumnCount() {
+		return columnNames.length;
+	}
+
+	/**
+	 * Return the name of the given column, as returned by
+	 * <code>ResultSetMetaData.getColumnName</code>.
+	 */
+	public String getColumnName(int column) {
+		return columnNames[column];
+	}
+
+	/**
+	 * Return the SQL type of the given column, as defined in java.sql.Types.
+	 */
+	public int getColumnType(int column) {
+		return columnTypes[column];
+	}
+
+	/**
+	 * Return the index of the column with the given name, or -1 if none.
+	 * If several columns share the name, the last one is returned.
+	 */
+	public int getColumnIndex(String columnName) {
+		Integer index = (Integer) this.columnIndexes.get(columnName);
+		return (index != null ? index.intValue() : -1);
+	}
+
+	/**
+	 * Return the number of rows.
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Return whether the given value is SQL NULL.
+	 */
+	public boolean isNull(int row, int column) {
+		checkRow(row);
+		return this.columns[column].isNull(row);
+	}
+
+	/**
+	 * Return the given value as int, or 0 if SQL NULL.
+	 * @throws ClassCastException if the value is not numeric
+	 */
+	public int getInt(int row, int column) {
+		checkRow(row);
+		Column col = this.columns[column];
+		if (col instanceof IntColumn) {
+			return ((IntColumn) col).values[row];
+		}
+		Number value = (Number) col.getValue(row);
+		return (value != null ? value.intValue() : 0);
+	}
+
+	/**
+	 * Return the given value as long, or 0 if SQL NULL.
+	 * @throws ClassCastException if the value is not numeric
+	 */
+	public long getLong(int row, int column) {
+		checkRow(row);
+		Column col = this.columns[column];
+		if (col instanceof LongColumn) {
+			return ((LongColumn) col).values[row];
+		}
+		if (col instanceof IntColumn) {
+			return ((IntColumn) col).values[row];
+		}
+		Number value = (Number) col.getValue(row);
+		return (value != null ? value.longValue() : 0);
+	}
+
+	/**
+	 * Return the given value as double, or 0 if SQL NULL.
+	 * @throws ClassCastException if the value is not numeric
+	 */
+	public double getDouble(int row, int column) {
+		checkRow(row);
+		Column col = this.columns[column];
+		if (col instanceof DoubleColumn) {
+			return ((DoubleColumn) col).values[row];
+		}
+		if (col instanceof IntColumn) {
+			return ((IntColumn) col).values[row];
+		}
+		if (col instanceof LongColumn) {
+			return ((LongColumn) col).values[row];
+		}
+		Number value = (Number) col.getValue(row);
+		return (value != null ? value.doubleValue() : 0);
+	}
+
+	/**
+	 * Return the given value as String, or null if SQL NULL.
+	 */
+	public String getString(int row, int column) {
+		checkRow(row);
+		Object value = this.columns[column].getValue(row);
+		return (value != null ? value.toString() : null);
+	}
+
+	/**
+	 * Return the given value as object, or null if SQL NULL.
+	 * Integer and floating-point values get wrapped on each call.
+	 */
+	public Object getObject(int row, int column) {
+		checkRow(row);
+		return this.columns[column].getValue(row);
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= this.rowCount) {
+			throw new IndexOutOfBoundsException("Row index " + row + " out of bounds: row count is " + this.rowCount);
+		}
+	}
+
+
+	//---------------------------------------------------------------------
+	// Implementation of java.util.List
+	//---------------------------------------------------------------------
+
+	/**
+	 * Return a read-only Map view of the given row,
+	 * keyed by column name in column order.
+	 * @see #getColumnIndex
+	 */
+	public Object get(int row) {
+		checkRow(row);
+		return new RowMap(row);
+	}
+
+	public int size() {
+		return rowCount;
+	}
+
+
+	/**
+	 * Read-only view of a single row.
+	 */
+	private class RowMap extends AbstractMap {
+
+		private final int row;
+
+		private RowMap(int row) {
+			this.row = row;
+		}
+
+		public int size() {
+			return entryColumns.length;
+		}
+
+		public boolean containsKey(Object key) {
+			return columnIndexes.containsKey(key);
+		}
+
+		public Object get(Object key) {
+			Integer index = (Integer) columnIndexes.get(key);
+			return (index != null ? columns[index.intValue()].getValue(this.row) : null);
+		}
+
+		public Set keySet() {
+			return new AbstractSet() {
+				public Iterator iterator() {
+					return new Iterator() {
+						private int entry = 0;
+						public boolean hasNext() {
+							return (this.entry < entryColumns.length);
+						}
+						public Object next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							return columnNames[entryColumns[this.entry++]];
+						}
+						public void remove() {
+							throw new UnsupportedOperationException("Row view is read-only");
+						}
+					};
+				}
+				public int size() {
+					return entryColumns.length;
+				}
+				public boolean contains(Object key) {
+					return columnIndexes.containsKey(key);
+				}
+			};
+		}
+
+		public Set entrySet() {
+			return new AbstractSet() {
+				public Iterator iterator() {
+					return new Iterator() {
+						private int entry = 0;
+						public boolean hasNext() {
+							return (this.entry < entryColumns.length);
+						}
+						public Object next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							return new RowEntry(row, entryColumns[this.entry++]);
+						}
+						public void remove() {
+							throw new UnsupportedOperationException("Row view is read-only");
+						}
+					};
+				}
+				public int size() {
+					return entryColumns.length;
+				}
+			};
+		}
+	}
+
+
+	/**
+	 * Read-only entry of a row view.
+	 */
+	private class RowEntry implements Map.Entry {
+
+		private final int row;
+
+		private final int column;
+
+		private RowEntry(int row, int column) {
+			this.row = row;
+			this.column = column;
+		}
+
+		public Object getKey() {
+			return columnNames[this.column];
+		}
+
+		public Object getValue() {
+			return columns[this.column].getValue(this.row);
+		}
+
+		public Object setValue(Object value) {
+			throw new UnsupportedOperationException("Row view is read-only");
+		}
+
+		public boolean equals(Object other) {
+			if (!(other instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry otherEntry = (Map.Entry) other;
+			Object value = getValue();
+			return (getKey().equals(otherEntry.getKey()) &&
+					(value == null ? otherEntry.getValue() == null : value.equals(otherEntry.getValue())));
+		}
+
+		public int hashCode() {
+			Object value = getValue();
+			return getKey().hashCode() ^ (value != null ? value.hashCode() : 0);
+		}
+
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+
+	//---------------------------------------------------------------------
+	// Column storage, filled by ColumnarResultSetExtractor
+	//---------------------------------------------------------------------
+
+	/**
+	 * Values of a single column, growing as rows are added.
+	 */
+	static abstract class Column implements Serializable {
+
+		/** Null flags, only allocated once a null value has been added */
+		private BitSet nulls;
+
+		protected void setNull(int row) {
+			if (this.nulls == null) {
+				this.nulls = new BitSet();
+			}
+			this.nulls.set(row);
+		}
+
+		public boolean isNull(int row) {
+			return (this.nulls != null && this.nulls.get(row));
+		}
+
+		/**
+		 * Make room for the given row index.
+		 */
+		protected static int grow(int currentLength, int row) {
+			int length = Math.max(currentLength, 16);
+			while (length <= row) {
+				length *= 2;
+			}
+			return length;
+		}
+
+		/**
+		 * Return the value at the given row, or null if SQL NULL.
+		 */
+		public abstract Object getValue(int row);
+
+		/**
+		 * Release capacity beyond the given number of rows.
+		 */
+		public abstract void trim(int rowCount);
+	}
+
+
+	static class IntColumn extends Column {
+
+		private int[] values = new int[16];
+
+		public void set(int row, int value, boolean isNull) {
+			if (row >= this.values.length) {
+				int[] newValues = new int[grow(this.values.length, row)];
+				System.arraycopy(this.values, 0, newValues, 0, this.values.length);
+				this.values = newValues;
+			}
+			this.values[row] = value;
+			if (isNull) {
+				setNull(row);
+			}
+		}
+
+		public Object getValue(int row) {
+			return (isNull(row) ? null : new Integer(this.values[row]));
+		}
+
+		public void trim(int rowCount) {
+			int[] newValues = new int[rowCount];
+			System.arraycopy(this.values, 0, newValues, 0, rowCount);
+			this.values = newValues;
+		}
+	}
+
+
+	static class LongColumn extends Column {
+
+		private long[] values = new long[16];
+
+		public void set(int row, long value, boolean isNull) {
+			if (row >= this.values.length) {
+				long[] newValues = new long[grow(this.values.length, row)];
+				System.arraycopy(this.values, 0, newValues, 0, this.values.length);
+				this.values = newValues;
+			}
+			this.values[row] = value;
+			if (isNull) {
+				setNull(row);
+			}
+		}
+
+		public Object getValue(int row) {
+			return (isNull(row) ? null : new Long(this.values[row]));
+		}
+
+		public void trim(int rowCount) {
+			long[] newValues = new long[rowCount];
+			System.arraycopy(this.values, 0, newValues, 0, rowCount);
+			this.values = newValues;
+		}
+	}
+
+
+	static class FloatColumn extends Column {
+
+		private float[] values = new float[16];
+
+		public void set(int row, float value, boolean isNull) {
+			if (row >= this.values.length) {
+				float[] newValues = new float[grow(this.values.length, row)];
+				System.arraycopy(this.values, 0, newValues, 0, this.values.length);
+				this.values = newValues;
+			}
+			this.values[row] = value;
+			if (isNull) {
+				setNull(row);
+			}
+		}
+
+		public Object getValue(int row) {
+			return (isNull(row) ? null : new Float(this.values[row]));
+		}
+
+		public void trim(int rowCount) {
+			float[] newValues = new float[rowCount];
+			System.arraycopy(this.values, 0, newValues, 0, rowCount);
+			this.values = newValues;
+		}
+	}
+
+
+	static class DoubleColumn extends Column {
+
+		private double[] values = new double[16];
+
+		public void set(int row, double value, boolean isNull) {
+			if (row >= this.values.length) {
+				double[] newValues = new double[grow(this.values.length, row)];
+				System.arraycopy(this.values, 0, newValues, 0, this.values.length);
+				this.values = newValues;
+			}
+			this.values[row] = value;
+			if (isNull) {
+				setNull(row);
+			}
+		}
+
+		public Object getValue(int row) {
+			return (isNull(row) ? null : new Double(this.values[row]));
+		}
+
+		public void trim(int rowCount) {
+			double[] newValues = new double[rowCount];
+			System.arraycopy(this.values, 0, newValues, 0, rowCount);
+			this.values = newValues;
+		}
+	}
+
+
+	static class ObjectColumn extends Column {
+
+		private Object[] values = new Object[16];
+
+		public void set(int row, Object value) {
+			if (row >= this.values.length) {
+				Object[] newValues = new Object[grow(this.values.length, row)];
+				System.arraycopy(this.values, 0, newValues, 0, this.values.length);
+				this.values = newValues;
+			}
+			this.values[row] = value;
+		}
+
+		public boolean isNull(int row) {
+			return (this.values[row] == null);
+		}
+
+		public Object getValue(int row) {
+			return this.values[row];
+		}
+
+		public void trim(int rowCount) {
+			Object[] newValues = new Object[rowCount];
+			System.arraycopy(this.values, 0, newValues, 0, rowCount);
+			this.values = newValues;
+		}
+	}
+
+}
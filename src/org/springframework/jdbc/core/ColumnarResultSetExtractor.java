@@ -0,0 +1,109 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.core;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * ResultSetExtractor implementation that reads all rows into a compact
+ * ColumnarResult: one array per column instead of one Map per row.
+ *
+ * <p>Columns of SQL type INTEGER, SMALLINT and TINYINT are stored as int
+ * values, BIGINT as long values, REAL as float values, and FLOAT and DOUBLE
+ * as double values. All other columns hold the objects returned by
+ * <code>ResultSet.getObject</code>, just like <code>queryForList</code>.
+ *
+ * <p>Stateless and thus reusable.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see ColumnarResult
+ * @see JdbcTemplate#queryForColumnarResult
+ */
+public class ColumnarResultSetExtractor implements ResultSetExtractor {
+
+	public Object extractData(ResultSet rs) throws SQLException {
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int columnCount = rsmd.getColumnCount();
+		String[] columnNames = new String[columnCount];
+		int[] columnTypes = new int[columnCount];
+		ColumnarResult.Column[] columns = new ColumnarResult.Column[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			columnNames[i] = rsmd.getColumnName(i + 1);
+			columnTypes[i] = rsmd.getColumnType(i + 1);
+			columns[i] = createColumn(columnTypes[i]);
+		}
+
+		int row = 0;
+		while (rs.next()) {
+			for (int i = 0; i < columnCount; i++) {
+				int index = i + 1;
+				ColumnarResult.Column column = columns[i];
+				if (column instanceof ColumnarResult.IntColumn) {
+					int value = rs.getInt(index);
+					((ColumnarResult.IntColumn) column).set(row, value, rs.wasNull());
+				}
+				else if (column instanceof ColumnarResult.LongColumn) {
+					long value = rs.getLong(index);
+					((ColumnarResult.LongColumn) column).set(row, value, rs.wasNull());
+				}
+				else if (column instanceof ColumnarResult.FloatColumn) {
+					float value = rs.getFloat(index);
+					((ColumnarResult.FloatColumn) column).set(row, value, rs.wasNull());
+				}
+				else if (column instanceof ColumnarResult.DoubleColumn) {
+					double value = rs.getDouble(index);
+					((ColumnarResult.DoubleColumn) column).set(row, value, rs.wasNull());
+				}
+				else {
+					((ColumnarResult.ObjectColumn) column).set(row, rs.getObject(index));
+				}
+			}
+			row++;
+		}
+
+		for (int i = 0; i < columnCount; i++) {
+			columns[i].trim(row);
+		}
+		return new ColumnarResult(columnNames, columnTypes, columns, row);
+	}
+
+	/**
+	 * Create the storage for a column of the given SQL type.
+	 */
+	private ColumnarResult.Column createColumn(int sqlType) {
+		switch (sqlType) {
+			case Types.INTEGER:
+			case Types.SMALLINT:
+			case Types.TINYINT:
+				return new ColumnarResult.IntColumn();
+			case Types.BIGINT:
+				return new ColumnarResult.LongColumn();
+			case Types.REAL:
+				return new ColumnarResult.FloatColumn();
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				return new ColumnarResult.DoubleColumn();
+			default:
+				return new ColumnarResult.ObjectColumn();
+		}
+	}
+
+}
@@ -116,6 +116,22 @@ public interface JdbcOperations {
 	 */
 	List queryForList(String sql) throws DataAccessException;
 
+	/**
+	 * Execute a query for a compact, column-oriented result, given static SQL.
+	 * <p>Uses a JDBC Statement, not a PreparedStatement. If you want to execute
+	 * a static query with a PreparedStatement, use the overloaded
+	 * queryForColumnarResult method with null as argument array.
+	 * <p>An alternative to queryForList for large results: the returned
+	 * ColumnarResult is a List of read-only Maps too, but keeps column names
+	 * once and numeric values in primitive arrays.
+	 * @param sql SQL query to execute
+	 * @return the ColumnarResult, with one entry per row
+	 * @throws DataAccessException if there is any problem executing the query
+	 * @see #queryForColumnarResult(String, Object[])
+	 * @see ColumnarResultSetExtractor
+	 */
+	ColumnarResult queryForColumnarResult(String sql) throws DataAccessException;
+
 	/**
 	 * Execute a query for a result object, given static SQL.
 	 * <p>Uses a JDBC Statement, not a PreparedStatement. If you want to execute
@@ -162,6 +178,66 @@ public interface JdbcOperations {
 	 */
 	int queryForInt(String sql) throws DataAccessException;
 
+	/**
+	 * Execute a single-column query that results in a long value per row,
+	 * given static SQL.
+	 * <p>Uses a JDBC Statement, not a PreparedStatement. If you want to execute
+	 * a static query with a PreparedStatement, use the overloaded
+	 * queryForLongArray method with null as argument array.
+	 * <p>Values are collected into a growable long array, without creating
+	 * an object per row.
+	 * @param sql SQL query to execute
+	 * @return the long values, with 0 in case of SQL NULL
+	 * @throws DataAccessException if there is any problem executing the query
+	 * @see #queryForLongArray(String, Object[])
+	 */
+	long[] queryForLongArray(String sql) throws DataAccessException;
+
+	/**
+	 * Execute a single-column query that results in an int value per row,
+	 * given static SQL.
+	 * <p>Uses a JDBC Statement, not a PreparedStatement. If you want to execute
+	 * a static query with a PreparedStatement, use the overloaded
+	 * queryForIntArray method with null as argument array.
+	 * <p>Values are collected into a growable int array, without creating
+	 * an object per row.
+	 * @param sql SQL query to execute
+	 * @return the int values, with 0 in case of SQL NULL
+	 * @throws DataAccessException if there is any problem executing the query
+	 * @see #queryForIntArray(String, Object[])
+	 */
+	int[] queryForIntArray(String sql) throws DataAccessException;
+
+	/**
+	 * Execute a single-column query that results in a double value per row,
+	 * given static SQL.
+	 * <p>Uses a JDBC Statement, not a PreparedStatement. If you want to execute
+	 * a static query with a PreparedStatement, use the overloaded
+	 * queryForDoubleArray method with null as argument array.
+	 * <p>Values are collected into a growable double array, without creating
+	 * an object per row.
+	 * @param sql SQL query to execute
+	 * @return the double values, with 0 in case of SQL NULL
+	 * @throws DataAccessException if there is any problem executing the query
+	 * @see #queryForDoubleArray(String, Object[])
+	 */
+	double[] queryForDoubleArray(String sql) throws DataAccessException;
+
+	/**
+	 * Execute a single-column query that results in a String value per row,
+	 * given static SQL.
+	 * <p>Uses a JDBC Statement, not a PreparedStatement. If you want to execute
+	 * a static query with a PreparedStatement, use the overloaded
+	 * queryForStringArray method with null as argument array.
+	 * <p>Values are collected into a growable String array, without creating
+	 * an object per row except for the String itself.
+	 * @param sql SQL query to execute
+	 * @return the String values, with null in case of SQL NULL
+	 * @throws DataAccessException if there is any problem executing the query
+	 * @see #queryForStringArray(String, Object[])
+	 */
+	String[] queryForStringArray(String sql) throws DataAccessException;
+
 	/**
 	 * Issue a single SQL update.
 	 * @param sql static SQL to execute
@@ -391,6 +467,23 @@ public interface JdbcOperations {
 	 */
 	List queryForList(String sql, Object[] args) throws DataAccessException;
 
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a
+	 * list of arguments to bind to the query, expecting a compact,
+	 * column-oriented result.
+	 * <p>An alternative to queryForList for large results: the returned
+	 * ColumnarResult is a List of read-only Maps too, but keeps column names
+	 * once and numeric values in primitive arrays.
+	 * @param sql SQL to execute
+	 * @param args arguments to bind to the query
+	 * (leaving it to the PreparedStatement to guess the respective SQL type)
+	 * @return the ColumnarResult, with one entry per row
+	 * @throws DataAccessException if the query fails
+	 * @see #queryForColumnarResult(String)
+	 * @see ColumnarResultSetExtractor
+	 */
+	ColumnarResult queryForColumnarResult(String sql, Object[] args) throws DataAccessException;
+
 	/**
 	 * Query given SQL to create a prepared statement from SQL and a
 	 * list of arguments to bind to the query, expecting a result object.
@@ -438,6 +531,110 @@ public interface JdbcOperations {
 	 */
 	int queryForInt(String sql, Object[] args) throws DataAccessException;
 
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a
+	 * list of arguments to bind to the query, resulting in a long value
+	 * per row of a single-column query.
+	 * @param sql SQL to execute
+	 * @param args arguments to bind to the query
+	 * (leaving it to the PreparedStatement to guess the respective SQL type)
+	 * @return the long values, with 0 in case of SQL NULL
+	 * @throws DataAccessException if the query fails
+	 * @see #queryForLongArray(String)
+	 */
+	long[] queryForLongArray(String sql, Object[] args) throws DataAccessException;
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a
+	 * PreparedStatementSetter implementation that knows how to bind values
+	 * to the query, resulting in a long value per row of a single-column query.
+	 * @param sql SQL to execute
+	 * @param pss object that knows how to set values on the prepared statement.
+	 * If this is null, the SQL will be assumed to contain no bind parameters.
+	 * @return the long values, with 0 in case of SQL NULL
+	 * @throws DataAccessException if the query fails
+	 * @see #queryForLongArray(String)
+	 */
+	long[] queryForLongArray(String sql, PreparedStatementSetter pss) throws DataAccessException;
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a
+	 * list of arguments to bind to the query, resulting in an int value
+	 * per row of a single-column query.
+	 * @param sql SQL to execute
+	 * @param args arguments to bind to the query
+	 * (leaving it to the PreparedStatement to guess the respective SQL type)
+	 * @return the int values, with 0 in case of SQL NULL
+	 * @throws DataAccessException if the query fails
+	 * @see #queryForIntArray(String)
+	 */
+	int[] queryForIntArray(String sql, Object[] args) throws DataAccessException;
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a
+	 * PreparedStatementSetter implementation that knows how to bind values
+	 * to the query, resulting in an int value per row of a single-column query.
+	 * @param sql SQL to execute
+	 * @param pss object that knows how to set values on the prepared statement.
+	 * If this is null, the SQL will be assumed to contain no bind parameters.
+	 * @return the int values, with 0 in case of SQL NULL
+	 * @throws DataAccessException if the query fails
+	 * @see #queryForIntArray(String)
+	 */
+	int[] queryForIntArray(String sql, PreparedStatementSetter pss) throws DataAccessException;
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a
+	 * list of arguments to bind to the query, resulting in a double value
+	 * per row of a single-column query.
+	 * @param sql SQL to execute
+	 * @param args arguments to bind to the query
+	 * (leaving it to the PreparedStatement to guess the respective SQL type)
+	 * @return the double values, with 0 in case of SQL NULL
+	 * @throws DataAccessException if the query fails
+	 * @see #queryForDoubleArray(String)
+	 */
+	double[] queryForDoubleArray(String sql, Object[] args) throws DataAccessException;
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a
+	 * PreparedStatementSetter implementation that knows how to bind values
+	 * to the query, resulting in a double value per row of a single-column query.
+	 * @param sql SQL to execute
+	 * @param pss object that knows how to set values on the prepared statement.
+	 * If this is null, the SQL will be assumed to contain no bind parameters.
+	 * @return the double values, with 0 in case of SQL NULL
+	 * @throws DataAccessException if the query fails
+	 * @see #queryForDoubleArray(String)
+	 */
+	double[] queryForDoubleArray(String sql, PreparedStatementSetter pss) throws DataAccessException;
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a
+	 * list of arguments to bind to the query, resulting in a String value
+	 * per row of a single-column query.
+	 * @param sql SQL to execute
+	 * @param args arguments to bind to the query
+	 * (leaving it to the PreparedStatement to guess the respective SQL type)
+	 * @return the String values, with null in case of SQL NULL
+	 * @throws DataAccessException if the query fails
+	 * @see #queryForStringArray(String)
+	 */
+	String[] queryForStringArray(String sql, Object[] args) throws DataAccessException;
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a
+	 * PreparedStatementSetter implementation that knows how to bind values
+	 * to the query, resulting in a String value per row of a single-column query.
+	 * @param sql SQL to execute
+	 * @param pss object that knows how to set values on the prepared statement.
+	 * If this is null, the SQL will be assumed to contain no bind parameters.
+	 * @return the String values, with null in case of SQL NULL
+	 * @throws DataAccessException if the query fails
+	 * @see #queryForStringArray(String)
+	 */
+	String[] queryForStringArray(String sql, PreparedStatementSetter pss) throws DataAccessException;
+
 	/**
 	 * Issue an update using a PreparedStatementCreator to provide SQL and any
 	 * required parameters.
@@ -505,6 +702,67 @@ public interface JdbcOperations {
 	int[] batchUpdate(String sql, BatchPreparedStatementSetter pss)
 			throws DataAccessException;
 
+	/**
+	 * Query given SQL, returning an iterator that maps each row on demand,
+	 * holding the JDBC resources open until closed. Uses a forward-only,
+	 * read-only PreparedStatement.
+	 * @param sql SQL query to execute
+	 * @param rowMapper object that will map one object per row
+	 * @param fetchSize the fetch size to apply to the statement, or 0 to use
+	 * the default fetch size of this template
+	 * @return the iterator, which should be closed unless read until the end,
+	 * and gets closed on transaction completion at the latest
+	 * @throws org.springframework.dao.InvalidDataAccessApiUsageException
+	 * if called without an active transaction
+	 * @throws DataAccessException if the query fails
+	 * @see RowIterator#close
+	 */
+	RowIterator queryForIterator(String sql, RowMapper rowMapper, int fetchSize)
+			throws DataAccessException;
+
+	/**
+	 * Query given SQL, binding the given arguments to the query,
+	 * returning an iterator that maps each row on demand, holding the
+	 * JDBC resources open until closed. Uses a forward-only, read-only
+	 * PreparedStatement.
+	 * @param sql SQL query to execute
+	 * @param args arguments to bind to the query
+	 * (leaving it to the PreparedStatement to guess the respective SQL type),
+	 * or null if none
+	 * @param rowMapper object that will map one object per row
+	 * @param fetchSize the fetch size to apply to the statement, or 0 to use
+	 * the default fetch size of this template
+	 * @return the iterator, which should be closed unless read until the end,
+	 * and gets closed on transaction completion at the latest
+	 * @throws org.springframework.dao.InvalidDataAccessApiUsageException
+	 * if called without an active transaction
+	 * @throws DataAccessException if the query fails
+	 * @see RowIterator#close
+	 */
+	RowIterator queryForIterator(String sql, Object[] args, RowMapper rowMapper, int fetchSize)
+			throws DataAccessException;
+
+	/**
+	 * Query using a prepared statement, returning an iterator that maps each
+	 * row on demand, holding the JDBC resources open until closed.
+	 * The PreparedStatementCreator determines the ResultSet type and
+	 * concurrency, for example via PreparedStatementCreatorFactory.
+	 * @param psc object that can create a PreparedStatement given a Connection
+	 * @param pss object that knows how to set values on the prepared statement,
+	 * or null if the SQL contains no bind parameters
+	 * @param rowMapper object that will map one object per row
+	 * @param fetchSize the fetch size to apply to the statement, or 0 to use
+	 * the default fetch size of this template
+	 * @return the iterator, which should be closed unless read until the end,
+	 * and gets closed on transaction completion at the latest
+	 * @throws org.springframework.dao.InvalidDataAccessApiUsageException
+	 * if called without an active transaction
+	 * @throws DataAccessException if the query fails
+	 * @see RowIterator#close
+	 */
+	RowIterator queryForIterator(PreparedStatementCreator psc, PreparedStatementSetter pss,
+			RowMapper rowMapper, int fetchSize) throws DataAccessException;
+
 
 	//-------------------------------------------------------------------------
 	// Methods dealing with callable statements
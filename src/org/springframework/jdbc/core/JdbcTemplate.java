@@ -31,6 +31,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import javax.sql.DataSource;
 
@@ -49,6 +50,11 @@ import org.springframework.jdbc.support.JdbcAccessor;
 import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.nativejdbc.NativeJdbcExtractor;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.SpanTracer;
+import org.springframework.util.TraceSpan;
 
 /**
  * <b>This is the central class in the JDBC core package.</b>
@@ -187,6 +193,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 
 	public Object execute(final StatementCallback action) {
 		Connection con = DataSourceUtils.getConnection(getDataSource());
+		TraceSpan span = startTraceSpan(action);
 		Statement stmt = null;
 		try {
 			Connection conToUse = con;
@@ -211,6 +218,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 		finally {
 			JdbcUtils.closeStatement(stmt);
 			DataSourceUtils.closeConnectionIfNecessary(con, getDataSource());
+			SpanTracer.endSpan(span);
 		}
 	}
 
@@ -277,6 +285,10 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 		return (List) query(sql, new ListResultSetExtractor());
 	}
 
+	public ColumnarResult queryForColumnarResult(String sql) throws DataAccessException {
+		return (ColumnarResult) query(sql, new ColumnarResultSetExtractor());
+	}
+
 	public Object queryForObject(String sql, Class requiredType) throws DataAccessException {
 		return query(sql, new ObjectResultSetExtractor(requiredType));
 	}
@@ -291,6 +303,22 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 		return (number != null ? number.intValue() : 0);
 	}
 
+	public long[] queryForLongArray(String sql) throws DataAccessException {
+		return (long[]) query(sql, new SingleColumnArrayResultSetExtractor(long.class, getFetchSize()));
+	}
+
+	public int[] queryForIntArray(String sql) throws DataAccessException {
+		return (int[]) query(sql, new SingleColumnArrayResultSetExtractor(int.class, getFetchSize()));
+	}
+
+	public double[] queryForDoubleArray(String sql) throws DataAccessException {
+		return (double[]) query(sql, new SingleColumnArrayResultSetExtractor(double.class, getFetchSize()));
+	}
+
+	public String[] queryForStringArray(String sql) throws DataAccessException {
+		return (String[]) query(sql, new SingleColumnArrayResultSetExtractor(String.class, getFetchSize()));
+	}
+
 	public int update(final String sql) throws DataAccessException {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Executing SQL update [" + sql + "]");
@@ -318,6 +346,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 	public Object execute(PreparedStatementCreator psc, PreparedStatementCallback action) {
 		//获取数据库连接
 		Connection con = DataSourceUtils.getConnection(getDataSource());
+		TraceSpan span = startTraceSpan(psc);
 		PreparedStatement ps = null;
 		try {
 			Connection conToUse = con;
@@ -348,6 +377,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 			}
 			JdbcUtils.closeStatement(ps);
 			DataSourceUtils.closeConnectionIfNecessary(con, getDataSource());
+			SpanTracer.endSpan(span);
 		}
 	}
 
@@ -469,6 +499,12 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 				new ListResultSetExtractor());
 	}
 
+	public ColumnarResult queryForColumnarResult(String sql, Object[] args) throws DataAccessException {
+		return (ColumnarResult) query(sql,
+				new ArgPreparedStatementSetter(args),
+				new ColumnarResultSetExtractor());
+	}
+
 	public Object queryForObject(String sql, Object[] args, Class requiredType)
 			throws DataAccessException {
 		return query(sql,
@@ -486,6 +522,38 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 		return (number != null ? number.intValue() : 0);
 	}
 
+	public long[] queryForLongArray(String sql, Object[] args) throws DataAccessException {
+		return queryForLongArray(sql, new ArgPreparedStatementSetter(args));
+	}
+
+	public long[] queryForLongArray(String sql, PreparedStatementSetter pss) throws DataAccessException {
+		return (long[]) query(sql, pss, new SingleColumnArrayResultSetExtractor(long.class, getFetchSize()));
+	}
+
+	public int[] queryForIntArray(String sql, Object[] args) throws DataAccessException {
+		return queryForIntArray(sql, new ArgPreparedStatementSetter(args));
+	}
+
+	public int[] queryForIntArray(String sql, PreparedStatementSetter pss) throws DataAccessException {
+		return (int[]) query(sql, pss, new SingleColumnArrayResultSetExtractor(int.class, getFetchSize()));
+	}
+
+	public double[] queryForDoubleArray(String sql, Object[] args) throws DataAccessException {
+		return queryForDoubleArray(sql, new ArgPreparedStatementSetter(args));
+	}
+
+	public double[] queryForDoubleArray(String sql, PreparedStatementSetter pss) throws DataAccessException {
+		return (double[]) query(sql, pss, new SingleColumnArrayResultSetExtractor(double.class, getFetchSize()));
+	}
+
+	public String[] queryForStringArray(String sql, Object[] args) throws DataAccessException {
+		return queryForStringArray(sql, new ArgPreparedStatementSetter(args));
+	}
+
+	public String[] queryForStringArray(String sql, PreparedStatementSetter pss) throws DataAccessException {
+		return (String[]) query(sql, pss, new SingleColumnArrayResultSetExtractor(String.class, getFetchSize()));
+	}
+
 	protected int update(final PreparedStatementCreator psc, final PreparedStatementSetter pss)
 			throws DataAccessException {
 		if (logger.isDebugEnabled()) {
@@ -619,6 +687,92 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 		});
 	}
 
+	public RowIterator queryForIterator(String sql, RowMapper rowMapper, int fetchSize)
+			throws DataAccessException {
+		return queryForIterator(sql, null, rowMapper, fetchSize);
+	}
+
+	public RowIterator queryForIterator(String sql, Object[] args, RowMapper rowMapper, int fetchSize)
+			throws DataAccessException {
+		if (sql == null) {
+			throw new InvalidDataAccessApiUsageException("SQL may not be null");
+		}
+		return queryForIterator(new ReadOnlyPreparedStatementCreator(sql),
+				(args != null ? new ArgPreparedStatementSetter(args) : null), rowMapper, fetchSize);
+	}
+
+	public RowIterator queryForIterator(PreparedStatementCreator psc, PreparedStatementSetter pss,
+			RowMapper rowMapper, int fetchSize) throws DataAccessException {
+		String sql = getSql(psc);
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			throw new InvalidDataAccessApiUsageException("queryForIterator requires an active transaction, " +
+					"to close the iterator on transaction completion if it gets abandoned");
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing SQL query for iteration" + (sql != null ? " [" + sql  + "]" : ""));
+		}
+		// register before getting the Connection, whose own synchronization
+		// might release it: the iterator needs to be closed first
+		RowIteratorSynchronization synchronization = new RowIteratorSynchronization();
+		TransactionSynchronizationManager.registerSynchronization(synchronization);
+		Connection con = DataSourceUtils.getConnection(getDataSource());
+		// remember whether the Connection is managed by a transaction:
+		// the iterator might get closed by a different thread
+		boolean connectionBound = TransactionSynchronizationManager.hasResource(getDataSource());
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		boolean success = false;
+		try {
+			Connection conToUse = con;
+			if (this.nativeJdbcExtractor != null &&
+					this.nativeJdbcExtractor.isNativeConnectionNecessaryForNativePreparedStatements()) {
+				conToUse = this.nativeJdbcExtractor.getNativeConnection(con);
+			}
+			ps = psc.createPreparedStatement(conToUse);
+			DataSourceUtils.applyTransactionTimeout(ps, getDataSource());
+			PreparedStatement psToUse = ps;
+			if (this.nativeJdbcExtractor != null) {
+				psToUse = this.nativeJdbcExtractor.getNativePreparedStatement(ps);
+			}
+			if (pss != null) {
+				pss.setValues(psToUse);
+			}
+			if (fetchSize != 0) {
+				psToUse.setFetchSize(fetchSize);
+			}
+			else if (getFetchSize() > 0) {
+				psToUse.setFetchSize(getFetchSize());
+			}
+			rs = psToUse.executeQuery();
+			ResultSet rsToUse = rs;
+			if (this.nativeJdbcExtractor != null) {
+				rsToUse = this.nativeJdbcExtractor.getNativeResultSet(rs);
+			}
+			ResultSetRowIterator iterator =
+					new ResultSetRowIterator(con, connectionBound, ps, rs, rsToUse, rowMapper, sql);
+			synchronization.setRowIterator(iterator);
+			success = true;
+			return iterator;
+		}
+		catch (SQLException ex) {
+			throw getExceptionTranslator().translate("executing PreparedStatementCreator [" + psc + "]",
+																							 sql, ex);
+		}
+		finally {
+			if (psc instanceof ParameterDisposer) {
+				((ParameterDisposer) psc).cleanupParameters();
+			}
+			if (pss instanceof ParameterDisposer) {
+				((ParameterDisposer) pss).cleanupParameters();
+			}
+			if (!success) {
+				JdbcUtils.closeResultSet(rs);
+				JdbcUtils.closeStatement(ps);
+				DataSourceUtils.closeConnectionIfNecessary(con, getDataSource());
+			}
+		}
+	}
+
 
 	//-------------------------------------------------------------------------
 	// Methods dealing with callable statements
@@ -630,6 +784,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 			logger.debug("Calling stored procedure" + (sql != null ? " [" + sql  + "]" : ""));
 		}
 		Connection con = DataSourceUtils.getConnection(getDataSource());
+		TraceSpan span = startTraceSpan(csc);
 		CallableStatement cs = null;
 		try {
 			Connection conToUse = con;
@@ -658,6 +813,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 			}
 			JdbcUtils.closeStatement(cs);
 			DataSourceUtils.closeConnectionIfNecessary(con, getDataSource());
+			SpanTracer.endSpan(span);
 		}
 	}
 
@@ -831,6 +987,20 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 		}
 	}
 
+	/**
+	 * Start a trace span for executing the given statement, if tracing is enabled.
+	 * @param sqlProvider object that's potentially a SqlProvider
+	 * @return the span, or null if tracing is disabled
+	 * @see org.springframework.util.SpanTracer
+	 */
+	private TraceSpan startTraceSpan(Object sqlProvider) {
+		if (!SpanTracer.isEnabled()) {
+			return null;
+		}
+		String sql = getSql(sqlProvider);
+		return SpanTracer.startSpan("JDBC " + (sql != null ? sql : ClassUtils.getShortName(sqlProvider.getClass())));
+	}
+
 
 	/**
 	 * Simple adapter for PreparedStatementCreator, allowing to use a plain SQL statement.
@@ -854,6 +1024,29 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 	}
 
 
+	/**
+	 * Adapter for PreparedStatementCreator, allowing to use a plain SQL statement
+	 * for a forward-only, read-only ResultSet.
+	 */
+	private static class ReadOnlyPreparedStatementCreator
+			implements PreparedStatementCreator, SqlProvider {
+
+		private final String sql;
+
+		public ReadOnlyPreparedStatementCreator(String sql) {
+			this.sql = sql;
+		}
+
+		public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+			return con.prepareStatement(this.sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		}
+
+		public String getSql() {
+			return sql;
+		}
+	}
+
+
 	/**
 	 * Simple adapter for CallableStatementCreator, allowing to use a plain SQL statement.
 	 */
@@ -985,6 +1178,97 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 	}
 
 
+	/**
+	 * ResultSetExtractor implementation that reads a single column into an
+	 * array of long, int, double or String values, using a growable buffer.
+	 * SQL NULL values are represented as 0 respectively null.
+	 */
+	private static class SingleColumnArrayResultSetExtractor implements ResultSetExtractor {
+
+		private static final int DEFAULT_INITIAL_CAPACITY = 64;
+
+		private final Class componentType;
+
+		private final int initialCapacity;
+
+		/**
+		 * Create a new SingleColumnArrayResultSetExtractor.
+		 * @param componentType long.class, int.class, double.class or String.class
+		 * @param fetchSize the fetch size of the query, used as initial capacity
+		 */
+		public SingleColumnArrayResultSetExtractor(Class componentType, int fetchSize) {
+			this.componentType = componentType;
+			this.initialCapacity = (fetchSize > 0 ? fetchSize : DEFAULT_INITIAL_CAPACITY);
+		}
+
+		public Object extractData(ResultSet rs) throws SQLException {
+			ResultSetMetaData rsmd = rs.getMetaData();
+			int nrOfColumns = rsmd.getColumnCount();
+			if (nrOfColumns != 1) {
+				throw new IncorrectResultSizeDataAccessException(
+						"Expected single column but found " + nrOfColumns, 1, nrOfColumns);
+			}
+			int count = 0;
+			if (long.class.equals(this.componentType)) {
+				long[] values = new long[this.initialCapacity];
+				while (rs.next()) {
+					if (count == values.length) {
+						long[] newValues = new long[count * 2];
+						System.arraycopy(values, 0, newValues, 0, count);
+						values = newValues;
+					}
+					values[count++] = rs.getLong(1);
+				}
+				long[] result = new long[count];
+				System.arraycopy(values, 0, result, 0, count);
+				return result;
+			}
+			else if (int.class.equals(this.componentType)) {
+				int[] values = new int[this.initialCapacity];
+				while (rs.next()) {
+					if (count == values.length) {
+						int[] newValues = new int[count * 2];
+						System.arraycopy(values, 0, newValues, 0, count);
+						values = newValues;
+					}
+					values[count++] = rs.getInt(1);
+				}
+				int[] result = new int[count];
+				System.arraycopy(values, 0, result, 0, count);
+				return result;
+			}
+			else if (double.class.equals(this.componentType)) {
+				double[] values = new double[this.initialCapacity];
+				while (rs.next()) {
+					if (count == values.length) {
+						double[] newValues = new double[count * 2];
+						System.arraycopy(values, 0, newValues, 0, count);
+						values = newValues;
+					}
+					values[count++] = rs.getDouble(1);
+				}
+				double[] result = new double[count];
+				System.arraycopy(values, 0, result, 0, count);
+				return result;
+			}
+			else {
+				String[] values = new String[this.initialCapacity];
+				while (rs.next()) {
+					if (count == values.length) {
+						String[] newValues = new String[count * 2];
+						System.arraycopy(values, 0, newValues, 0, count);
+						values = newValues;
+					}
+					values[count++] = rs.getString(1);
+				}
+				String[] result = new String[count];
+				System.arraycopy(values, 0, result, 0, count);
+				return result;
+			}
+		}
+	}
+
+
 	/**
 	 * ResultSetExtractor implementation that returns single result object.
 	 */
@@ -1067,4 +1351,123 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations, Initia
 		}
 	}
 
+
+	/**
+	 * RowIterator implementation that holds the JDBC resources of a query,
+	 * mapping each row via a RowMapper on demand.
+	 */
+	private class ResultSetRowIterator implements RowIterator {
+
+		private final Connection connection;
+
+		private final boolean connectionBound;
+
+		private final Statement statement;
+
+		private final ResultSet resultSet;
+
+		private final ResultSet resultSetToUse;
+
+		private final RowMapper rowMapper;
+
+		private final String sql;
+
+		private int rowCount = 0;
+
+		private boolean nextChecked = false;
+
+		private boolean closed = false;
+
+		public ResultSetRowIterator(Connection connection, boolean connectionBound, Statement statement,
+				ResultSet resultSet, ResultSet resultSetToUse, RowMapper rowMapper, String sql) {
+			this.connection = connection;
+			this.connectionBound = connectionBound;
+			this.statement = statement;
+			this.resultSet = resultSet;
+			this.resultSetToUse = resultSetToUse;
+			this.rowMapper = rowMapper;
+			this.sql = sql;
+		}
+
+		public boolean hasNext() throws DataAccessException {
+			if (this.closed) {
+				return false;
+			}
+			if (!this.nextChecked) {
+				boolean hasNext = false;
+				try {
+					hasNext = this.resultSetToUse.next();
+				}
+				catch (SQLException ex) {
+					close();
+					throw getExceptionTranslator().translate("iterating over ResultSet", this.sql, ex);
+				}
+				if (!hasNext) {
+					close();
+					return false;
+				}
+				this.nextChecked = true;
+			}
+			return true;
+		}
+
+		public Object next() throws DataAccessException {
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more rows");
+			}
+			this.nextChecked = false;
+			try {
+				return this.rowMapper.mapRow(this.resultSetToUse, this.rowCount++);
+			}
+			catch (SQLException ex) {
+				close();
+				throw getExceptionTranslator().translate("mapping row of ResultSet", this.sql, ex);
+			}
+			catch (RuntimeException ex) {
+				close();
+				throw ex;
+			}
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException("RowIterator does not support remove");
+		}
+
+		public int getRowCount() {
+			return rowCount;
+		}
+
+		public synchronized void close() {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			JdbcUtils.closeResultSet(this.resultSet);
+			JdbcUtils.closeStatement(this.statement);
+			if (!this.connectionBound) {
+				DataSourceUtils.closeConnectionIfNecessary(this.connection, getDataSource());
+			}
+		}
+	}
+
+
+	/**
+	 * Callback that closes a RowIterator at the end of a transaction,
+	 * in case it has been abandoned by application code.
+	 */
+	private static class RowIteratorSynchronization extends TransactionSynchronizationAdapter {
+
+		private RowIterator rowIterator;
+
+		private void setRowIterator(RowIterator rowIterator) {
+			this.rowIterator = rowIterator;
+		}
+
+		public void beforeCompletion() {
+			if (this.rowIterator != null) {
+				this.rowIterator.close();
+			}
+		}
+	}
+
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.core;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Strategy for binding a value to a PreparedStatement parameter of a
+ * specific SQL type. Resolved once per declared parameter, so that binding
+ * values does not need to evaluate the SQL type again for every call.
+ *
+ * <p>Implementations are stateless and thus thread-safe. They handle
+ * null values and SqlTypeValue instances the same way as
+ * StatementCreatorUtils.setParameterValue.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see StatementCreatorUtils#getParameterBinder
+ * @see PreparedStatementCreatorFactory
+ */
+public interface ParameterBinder {
+
+	/**
+	 * Bind the given value to the given parameter of the PreparedStatement.
+	 * @param ps the PreparedStatement or CallableStatement
+	 * @param paramIndex index of the parameter we are setting
+	 * @param inValue the value to set (may be null)
+	 * @throws SQLException if thrown by PreparedStatement methods
+	 */
+	void bind(PreparedStatement ps, int paramIndex, Object inValue) throws SQLException;
+
+}
@@ -54,6 +54,9 @@ public class PreparedStatementCreatorFactory {
 
 	private NativeJdbcExtractor nativeJdbcExtractor;
 
+	/** ParameterBinders for the declared parameters, resolved lazily */
+	private volatile ParameterBinder[] parameterBinders;
+
 
 	/**
 	 * Create a new factory. Will need to add parameters
@@ -91,6 +94,7 @@ public class PreparedStatementCreatorFactory {
 	 */
 	public void addParameter(SqlParameter param) {
 		this.declaredParameters.add(param);
+		this.parameterBinders = null;
 	}
 
 	/**
@@ -171,6 +175,24 @@ public class PreparedStatementCreatorFactory {
 	}
 
 
+	/**
+	 * Return the ParameterBinders for the declared parameters,
+	 * resolving them on first access. Concurrent first accesses
+	 * may resolve them more than once, to the same effect.
+	 */
+	private ParameterBinder[] getParameterBinders() {
+		ParameterBinder[] binders = this.parameterBinders;
+		if (binders == null) {
+			binders = new ParameterBinder[this.declaredParameters.size()];
+			for (int i = 0; i < binders.length; i++) {
+				binders[i] = StatementCreatorUtils.getParameterBinder((SqlParameter) this.declaredParameters.get(i));
+			}
+			this.parameterBinders = binders;
+		}
+		return binders;
+	}
+
+
 	/**
 	 * PreparedStatementCreator implementation returned by this class.
 	 */
@@ -226,11 +248,9 @@ public class PreparedStatementCreatorFactory {
 			}
 
 			// Set arguments: Does nothing if there are no parameters.
-			for (int i = 0; i < this.parameters.size(); i++) {
-				SqlParameter declaredParameter = (SqlParameter) declaredParameters.get(i);
-				Object in = this.parameters.get(i);
-				int sqlColIndx = i + 1;
-				StatementCreatorUtils.setParameterValue(psToUse, sqlColIndx, declaredParameter, in);
+			ParameterBinder[] binders = getParameterBinders();
+			for (int i = 0; i < binders.length; i++) {
+				binders[i].bind(psToUse, i + 1, this.parameters.get(i));
 			}
 		}
 		
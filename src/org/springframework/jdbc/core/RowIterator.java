@@ -0,0 +1,88 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.core;
+
+import java.util.Iterator;
+
+import org.springframework.dao.DataAccessException;
+
+/**
+ * Iterator over the rows of a query result, mapping each row on demand
+ * via a RowMapper. Returned by JdbcTemplate's queryForIterator methods.
+ *
+ * <p>In contrast to the List-returning query methods, only the current row
+ * is held in memory: suitable for processing very large results, like
+ * exports. The underlying JDBC Connection, Statement and ResultSet stay
+ * open until the iterator gets closed. This happens automatically when
+ * the last row has been read or when an exception is thrown, but
+ * should be done explicitly, in a finally block, if iteration
+ * may be abandoned early:
+ *
+ * <pre>
+ * RowIterator it = jdbcTemplate.queryForIterator(sql, args, rowMapper, 1000);
+ * try {
+ *   while (it.hasNext()) {
+ *     Customer customer = (Customer) it.next();
+ *     ...
+ *   }
+ * }
+ * finally {
+ *   it.close();
+ * }</pre>
+ *
+ * <p>Iterators can only be obtained within a transaction, more precisely
+ * with transaction synchronization active, for example within a
+ * read-only transaction of DataSourceTransactionManager. An iterator
+ * that has been abandoned without being closed gets closed on
+ * transaction completion at the latest.
+ *
+ * <p>SQLExceptions thrown while advancing through the rows will be
+ * translated to Spring's DataAccessException hierarchy.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see JdbcOperations#queryForIterator(String, Object[], RowMapper, int)
+ * @see RowMapper
+ */
+public interface RowIterator extends Iterator {
+
+	/**
+	 * Return whether there is another row. Returns false once
+	 * the iterator has been closed.
+	 * @throws DataAccessException if advancing the ResultSet failed
+	 */
+	boolean hasNext() throws DataAccessException;
+
+	/**
+	 * Return the next row, as mapped by the RowMapper.
+	 * @throws java.util.NoSuchElementException if there are no more rows
+	 * @throws DataAccessException if reading the row failed
+	 */
+	Object next() throws DataAccessException;
+
+	/**
+	 * Return the number of rows returned so far.
+	 */
+	int getRowCount();
+
+	/**
+	 * Close the underlying ResultSet and Statement, and release the
+	 * Connection. Can be called multiple times.
+	 */
+	void close();
+
+}
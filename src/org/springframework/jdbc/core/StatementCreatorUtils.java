@@ -21,7 +21,9 @@ import java.sql.SQLException;
 import java.sql.Types;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -83,94 +85,71 @@ public class StatementCreatorUtils {
 					"', valueClass=" + (inValue != null ? inValue.getClass().getName() : "null") +
 					", sqlType=" + (sqlType == SqlTypeValue.TYPE_UNKNOWN ? "unknown" : Integer.toString(sqlType)));
 		}
-		//设置的值为null
-		if (inValue == null) {
-			if (sqlType == SqlTypeValue.TYPE_UNKNOWN) {
-				// possible alternative: ps.setNull(paramIndex, Types.NULL);
-				ps.setObject(paramIndex, null);
-			}
-			else if (typeName != null) {
-				ps.setNull(paramIndex, sqlType, typeName);
-			}
-			else {
-				ps.setNull(paramIndex, sqlType);
+		getParameterBinder(sqlType, typeName).bind(ps, paramIndex, inValue);
+	}
+
+	/**
+	 * Return a ParameterBinder for the given SQL type, applying the same
+	 * conversions as <code>setParameterValue</code>. Binders without a type
+	 * name are shared instances, one per SQL type; callers that bind many
+	 * values of a declared parameter with a type name should resolve the
+	 * binder once and keep it.
+	 * @param sqlType the SQL type of the parameter
+	 * @param typeName the type name of the parameter (may be null)
+	 * @return the ParameterBinder
+	 * @see #setParameterValue(java.sql.PreparedStatement, int, int, String, Object)
+	 */
+	public static ParameterBinder getParameterBinder(int sqlType, String typeName) {
+		if (typeName == null) {
+			switch (sqlType) {
+				case SqlTypeValue.TYPE_UNKNOWN: return UNKNOWN_TYPE_BINDER;
+				case Types.VARCHAR: return VARCHAR_BINDER;
+				case Types.DATE: return DATE_BINDER;
+				case Types.TIME: return TIME_BINDER;
+				case Types.TIMESTAMP: return TIMESTAMP_BINDER;
+				default: return getTypedObjectBinder(sqlType);
 			}
 		}
-		//设置的值不为null，以下是各种类型的判断和设置value
-		else {  // inValue != null
-			if (inValue instanceof SqlTypeValue) {
-				((SqlTypeValue) inValue).setTypeValue(ps, paramIndex, sqlType, typeName);
-			}
-			else if (sqlType == Types.VARCHAR) {
-				ps.setString(paramIndex, inValue.toString());
-			}
-			else if (sqlType == Types.DATE) {
-				if (inValue instanceof java.util.Date) {
-					if (inValue instanceof java.sql.Date) {
-						ps.setDate(paramIndex, (java.sql.Date) inValue);
-					}
-					else {
-						ps.setDate(paramIndex, new java.sql.Date(((java.util.Date) inValue).getTime()));
-					}
-				}
-				else if (inValue instanceof java.util.Calendar) {
-					java.util.Calendar cal = (java.util.Calendar) inValue;
-					ps.setDate(paramIndex, new java.sql.Date(cal.getTime().getTime()), cal);
-				}
-				else {
-					ps.setObject(paramIndex, inValue, Types.DATE);
-				}
-			}
-			else if (sqlType == Types.TIME) {
-				if (inValue instanceof java.util.Date) {
-					if (inValue instanceof java.sql.Time) {
-						ps.setTime(paramIndex, (java.sql.Time) inValue);
-					}
-					else {
-						ps.setTime(paramIndex, new java.sql.Time(((java.util.Date) inValue).getTime()));
-					}
-				}
-				else if (inValue instanceof java.util.Calendar) {
-					java.util.Calendar cal = (java.util.Calendar) inValue;
-					ps.setTime(paramIndex, new java.sql.Time(cal.getTime().getTime()), cal);
-				}
-				else {
-					ps.setObject(paramIndex, inValue, Types.TIME);
-				}
-			}
-			else if (sqlType == Types.TIMESTAMP) {
-				if (inValue instanceof java.util.Date) {
-					if (inValue instanceof java.sql.Timestamp) {
-						ps.setTimestamp(paramIndex, (java.sql.Timestamp) inValue);
-					}
-					else {
-						ps.setTimestamp(paramIndex, new java.sql.Timestamp(((java.util.Date) inValue).getTime()));
-					}
-				}
-				else if (inValue instanceof java.util.Calendar) {
-					java.util.Calendar cal = (java.util.Calendar) inValue;
-					ps.setTimestamp(paramIndex, new java.sql.Timestamp(cal.getTime().getTime()), cal);
-				}
-				else {
-					ps.setObject(paramIndex, inValue, Types.TIMESTAMP);
-				}
-			}
-			else if (sqlType == SqlTypeValue.TYPE_UNKNOWN) {
-				if ((inValue instanceof java.util.Date) && !(inValue instanceof java.sql.Date ||
-						inValue instanceof java.sql.Time || inValue instanceof java.sql.Timestamp)) {
-					ps.setObject(paramIndex, new java.sql.Timestamp(((java.util.Date) inValue).getTime()));
-				}
-				else if (inValue instanceof java.util.Calendar) {
-					ps.setObject(paramIndex, new java.sql.Timestamp(((java.util.Calendar) inValue).getTime().getTime()));
-				}
-				else {
-					ps.setObject(paramIndex, inValue);
+		switch (sqlType) {
+			case SqlTypeValue.TYPE_UNKNOWN: return new UnknownTypeBinder(typeName);
+			case Types.VARCHAR: return new VarcharBinder(typeName);
+			case Types.DATE: return new DateBinder(typeName);
+			case Types.TIME: return new TimeBinder(typeName);
+			case Types.TIMESTAMP: return new TimestampBinder(typeName);
+			default: return new TypedObjectBinder(sqlType, typeName);
+		}
+	}
+
+	/**
+	 * Return the shared TypedObjectBinder for the given SQL type,
+	 * creating it on first access.
+	 */
+	private static ParameterBinder getTypedObjectBinder(int sqlType) {
+		Integer key = new Integer(sqlType);
+		ParameterBinder binder = (ParameterBinder) typedObjectBinders.get(key);
+		if (binder == null) {
+			synchronized (typedObjectBinderMonitor) {
+				binder = (ParameterBinder) typedObjectBinders.get(key);
+				if (binder == null) {
+					binder = new TypedObjectBinder(sqlType, null);
+					// copy-on-write: readers never see a Map that is being modified
+					Map newBinders = new HashMap(typedObjectBinders);
+					newBinders.put(key, binder);
+					typedObjectBinders = newBinders;
 				}
 			}
-			else {
-				ps.setObject(paramIndex, inValue, sqlType);
-			}
 		}
+		return binder;
+	}
+
+	/**
+	 * Return a ParameterBinder for the given declared parameter.
+	 * @param declaredParam the parameter as it is declared including type
+	 * @return the ParameterBinder
+	 * @see #getParameterBinder(int, String)
+	 */
+	public static ParameterBinder getParameterBinder(SqlParameter declaredParam) {
+		return getParameterBinder(declaredParam.getSqlType(), declaredParam.getTypeName());
 	}
 
 	/**
@@ -204,4 +183,194 @@ public class StatementCreatorUtils {
 		}
 	}
 
+
+	private static final ParameterBinder UNKNOWN_TYPE_BINDER = new UnknownTypeBinder(null);
+
+	private static final ParameterBinder VARCHAR_BINDER = new VarcharBinder(null);
+
+	private static final ParameterBinder DATE_BINDER = new DateBinder(null);
+
+	private static final ParameterBinder TIME_BINDER = new TimeBinder(null);
+
+	private static final ParameterBinder TIMESTAMP_BINDER = new TimestampBinder(null);
+
+	/** Map from Integer SQL type to shared TypedObjectBinder, replaced on every change */
+	private static volatile Map typedObjectBinders = new HashMap();
+
+	private static final Object typedObjectBinderMonitor = new Object();
+
+
+	/**
+	 * Base class for ParameterBinders: handles null values and SqlTypeValues,
+	 * delegating all other values to <code>bindValue</code>.
+	 */
+	private abstract static class AbstractParameterBinder implements ParameterBinder {
+
+		private final int sqlType;
+
+		private final String typeName;
+
+		protected AbstractParameterBinder(int sqlType, String typeName) {
+			this.sqlType = sqlType;
+			this.typeName = typeName;
+		}
+
+		protected final int getSqlType() {
+			return sqlType;
+		}
+
+		public final void bind(PreparedStatement ps, int paramIndex, Object inValue) throws SQLException {
+			//设置的值为null
+			if (inValue == null) {
+				if (this.sqlType == SqlTypeValue.TYPE_UNKNOWN) {
+					// possible alternative: ps.setNull(paramIndex, Types.NULL);
+					ps.setObject(paramIndex, null);
+				}
+				else if (this.typeName != null) {
+					ps.setNull(paramIndex, this.sqlType, this.typeName);
+				}
+				else {
+					ps.setNull(paramIndex, this.sqlType);
+				}
+			}
+			//设置的值不为null，以下是各种类型的判断和设置value
+			else {  // inValue != null
+				if (inValue instanceof SqlTypeValue) {
+					((SqlTypeValue) inValue).setTypeValue(ps, paramIndex, this.sqlType, this.typeName);
+				}
+				else {
+					bindValue(ps, paramIndex, inValue);
+				}
+			}
+		}
+
+		protected abstract void bindValue(PreparedStatement ps, int paramIndex, Object inValue) throws SQLException;
+	}
+
+
+	private static class UnknownTypeBinder extends AbstractParameterBinder {
+
+		private UnknownTypeBinder(String typeName) {
+			super(SqlTypeValue.TYPE_UNKNOWN, typeName);
+		}
+
+		protected void bindValue(PreparedStatement ps, int paramIndex, Object inValue) throws SQLException {
+			if ((inValue instanceof java.util.Date) && !(inValue instanceof java.sql.Date ||
+					inValue instanceof java.sql.Time || inValue instanceof java.sql.Timestamp)) {
+				ps.setObject(paramIndex, new java.sql.Timestamp(((java.util.Date) inValue).getTime()));
+			}
+			else if (inValue instanceof java.util.Calendar) {
+				ps.setObject(paramIndex, new java.sql.Timestamp(((java.util.Calendar) inValue).getTime().getTime()));
+			}
+			else {
+				ps.setObject(paramIndex, inValue);
+			}
+		}
+	}
+
+
+	private static class VarcharBinder extends AbstractParameterBinder {
+
+		private VarcharBinder(String typeName) {
+			super(Types.VARCHAR, typeName);
+		}
+
+		protected void bindValue(PreparedStatement ps, int paramIndex, Object inValue) throws SQLException {
+			ps.setString(paramIndex, inValue.toString());
+		}
+	}
+
+
+	private static class DateBinder extends AbstractParameterBinder {
+
+		private DateBinder(String typeName) {
+			super(Types.DATE, typeName);
+		}
+
+		protected void bindValue(PreparedStatement ps, int paramIndex, Object inValue) throws SQLException {
+			if (inValue instanceof java.util.Date) {
+				if (inValue instanceof java.sql.Date) {
+					ps.setDate(paramIndex, (java.sql.Date) inValue);
+				}
+				else {
+					ps.setDate(paramIndex, new java.sql.Date(((java.util.Date) inValue).getTime()));
+				}
+			}
+			else if (inValue instanceof java.util.Calendar) {
+				java.util.Calendar cal = (java.util.Calendar) inValue;
+				ps.setDate(paramIndex, new java.sql.Date(cal.getTime().getTime()), cal);
+			}
+			else {
+				ps.setObject(paramIndex, inValue, Types.DATE);
+			}
+		}
+	}
+
+
+	private static class TimeBinder extends AbstractParameterBinder {
+
+		private TimeBinder(String typeName) {
+			super(Types.TIME, typeName);
+		}
+
+		protected void bindValue(PreparedStatement ps, int paramIndex, Object inValue) throws SQLException {
+			if (inValue instanceof java.util.Date) {
+				if (inValue instanceof java.sql.Time) {
+					ps.setTime(paramIndex, (java.sql.Time) inValue);
+				}
+				else {
+					ps.setTime(paramIndex, new java.sql.Time(((java.util.Date) inValue).getTime()));
+				}
+			}
+			else if (inValue instanceof java.util.Calendar) {
+				java.util.Calendar cal = (java.util.Calendar) inValue;
+				ps.setTime(paramIndex, new java.sql.Time(cal.getTime().getTime()), cal);
+			}
+			else {
+				ps.setObject(paramIndex, inValue, Types.TIME);
+			}
+		}
+	}
+
+
+	private static class TimestampBinder extends AbstractParameterBinder {
+
+		private TimestampBinder(String typeName) {
+			super(Types.TIMESTAMP, typeName);
+		}
+
+		protected void bindValue(PreparedStatement ps, int paramIndex, Object inValue) throws SQLException {
+			if (inValue instanceof java.util.Date) {
+				if (inValue instanceof java.sql.Timestamp) {
+					ps.setTimestamp(paramIndex, (java.sql.Timestamp) inValue);
+				}
+				else {
+					ps.setTimestamp(paramIndex, new java.sql.Timestamp(((java.util.Date) inValue).getTime()));
+				}
+			}
+			else if (inValue instanceof java.util.Calendar) {
+				java.util.Calendar cal = (java.util.Calendar) inValue;
+				ps.setTimestamp(paramIndex, new java.sql.Timestamp(cal.getTime().getTime()), cal);
+			}
+			else {
+				ps.setObject(paramIndex, inValue, Types.TIMESTAMP);
+			}
+		}
+	}
+
+
+	/**
+	 * Binder for all other SQL types: passes the SQL type to setObject.
+	 */
+	private static class TypedObjectBinder extends AbstractParameterBinder {
+
+		private TypedObjectBinder(int sqlType, String typeName) {
+			super(sqlType, typeName);
+		}
+
+		protected void bindValue(PreparedStatement ps, int paramIndex, Object inValue) throws SQLException {
+			ps.setObject(paramIndex, inValue, getSqlType());
+		}
+	}
+
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.core.namedparam;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * Template class with a basic set of JDBC operations, allowing the use
+ * of named parameters (":name") rather than traditional "?" placeholders.
+ * Parameter values are passed in as Map from parameter name to value.
+ *
+ * <p>Delegates to a wrapped JdbcOperations instance once the substitution
+ * from named parameters to JDBC style "?" placeholders has been done at
+ * execution time: parsed statements are cached by NamedParameterUtils, so
+ * the per-call overhead is a Map lookup per parameter unless Collection or
+ * array values need to be expanded into "IN" lists.
+ *
+ * <p>Like JdbcTemplate, this class is thread-safe once configured.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see NamedParameterUtils
+ * @see org.springframework.jdbc.core.JdbcTemplate
+ */
+public class NamedParameterJdbcTemplate {
+
+	private final JdbcOperations classicJdbcTemplate;
+
+
+	/**
+	 * Create a new NamedParameterJdbcTemplate for the given DataSource.
+	 * <p>Creates a classic JdbcTemplate and wraps it.
+	 * @param dataSource the JDBC DataSource to access
+	 */
+	public NamedParameterJdbcTemplate(DataSource dataSource) {
+		this.classicJdbcTemplate = new JdbcTemplate(dataSource);
+	}
+
+	/**
+	 * Create a new NamedParameterJdbcTemplate for the given classic
+	 * JdbcTemplate, for example a shared, pre-configured one.
+	 * @param classicJdbcTemplate the classic JdbcTemplate to wrap
+	 */
+	public NamedParameterJdbcTemplate(JdbcOperations classicJdbcTemplate) {
+		if (classicJdbcTemplate == null) {
+			throw new IllegalArgumentException("JdbcTemplate must not be null");
+		}
+		this.classicJdbcTemplate = classicJdbcTemplate;
+	}
+
+	/**
+	 * Expose the classic JdbcTemplate to allow invocation of
+	 * less commonly used methods.
+	 */
+	public JdbcOperations getJdbcOperations() {
+		return classicJdbcTemplate;
+	}
+
+
+	/**
+	 * Query given SQL with named parameters, reading the ResultSet
+	 * with a ResultSetExtractor.
+	 * @param sql SQL query to execute
+	 * @param paramMap Map from parameter name to value
+	 * @param rse object that will extract results
+	 * @return an arbitrary result object, as returned by the ResultSetExtractor
+	 * @throws DataAccessException if the query fails
+	 * @see JdbcOperations#query(String, Object[], ResultSetExtractor)
+	 */
+	public Object query(String sql, Map paramMap, ResultSetExtractor rse) throws DataAccessException {
+		ParsedSql parsedSql = NamedParameterUtils.getParsedSql(sql);
+		return getJdbcOperations().query(NamedParameterUtils.substituteNamedParameters(parsedSql, paramMap),
+				NamedParameterUtils.buildValueArray(parsedSql, paramMap), rse);
+	}
+
+	/**
+	 * Query given SQL with named parameters, reading the ResultSet
+	 * on a per-row basis with a RowCallbackHandler.
+	 * @param sql SQL query to execute
+	 * @param paramMap Map from parameter name to value
+	 * @param rch object that will extract results, one row at a time
+	 * @return the result List in case of a ResultReader, or null else
+	 * @throws DataAccessException if the query fails
+	 * @see JdbcOperations#query(String, Object[], RowCallbackHandler)
+	 */
+	public List query(String sql, Map paramMap, RowCallbackHandler rch) throws DataAccessException {
+		ParsedSql parsedSql = NamedParameterUtils.getParsedSql(sql);
+		return getJdbcOperations().query(NamedParameterUtils.substituteNamedParameters(parsedSql, paramMap),
+				NamedParameterUtils.buildValueArray(parsedSql, paramMap), rch);
+	}
+
+	/**
+	 * Query given SQL with named parameters, mapping each row
+	 * to a Java object via a RowMapper.
+	 * @param sql SQL query to execute
+	 * @param paramMap Map from parameter name to value
+	 * @param rowMapper object that will map one object per row
+	 * @return the result List, containing mapped objects
+	 * @throws DataAccessException if the query fails
+	 * @see JdbcOperations#query(String, Object[], RowMapper)
+	 */
+	public List query(String sql, Map paramMap, RowMapper rowMapper) throws DataAccessException {
+		ParsedSql parsedSql = NamedParameterUtils.getParsedSql(sql);
+		return getJdbcOperations().query(NamedParameterUtils.substituteNamedParameters(parsedSql, paramMap),
+				NamedParameterUtils.buildValueArray(parsedSql, paramMap), rowMapper);
+	}
+
+	/**
+	 * Query given SQL with named parameters, resulting in a List of Maps
+	 * (one entry for each column, using the column name as the key).
+	 * @param sql SQL query to execute
+	 * @param paramMap Map from parameter name to value
+	 * @return a List that contains a Map per row
+	 * @throws DataAccessException if the query fails
+	 * @see JdbcOperations#queryForList(String, Object[])
+	 */
+	public List queryForList(String sql, Map paramMap) throws DataAccessException {
+		ParsedSql parsedSql = NamedParameterUtils.getParsedSql(sql);
+		return getJdbcOperations().queryForList(NamedParameterUtils.substituteNamedParameters(parsedSql, paramMap),
+				NamedParameterUtils.buildValueArray(parsedSql, paramMap));
+	}
+
+	/**
+	 * Query given SQL with named parameters, expecting a single-row,
+	 * single-column result of the given type.
+	 * @param sql SQL query to execute
+	 * @param paramMap Map from parameter name to value
+	 * @param requiredType the type that the result object is expected to match
+	 * @return the result object of the required type, or null in case of SQL NULL
+	 * @throws DataAccessException if the query fails
+	 * @see JdbcOperations#queryForObject(String, Object[], Class)
+	 */
+	public Object queryForObject(String sql, Map paramMap, Class requiredType) throws DataAccessException {
+		ParsedSql parsedSql = NamedParameterUtils.getParsedSql(sql);
+		return getJdbcOperations().queryForObject(NamedParameterUtils.substituteNamedParameters(parsedSql, paramMap),
+				NamedParameterUtils.buildValueArray(parsedSql, paramMap), requiredType);
+	}
+
+	/**
+	 * Query given SQL with named parameters, expecting a single-row,
+	 * single-column result that is a long value.
+	 * @param sql SQL query to execute
+	 * @param paramMap Map from parameter name to value
+	 * @return the long value, or 0 in case of SQL NULL
+	 * @throws DataAccessException if the query fails
+	 * @see JdbcOperations#queryForLong(String, Object[])
+	 */
+	public long queryForLong(String sql, Map paramMap) throws DataAccessException {
+		ParsedSql parsedSql = NamedParameterUtils.getParsedSql(sql);
+		return getJdbcOperations().queryForLong(NamedParameterUtils.substituteNamedParameters(parsedSql, paramMap),
+				NamedParameterUtils.buildValueArray(parsedSql, paramMap));
+	}
+
+	/**
+	 * Query given SQL with named parameters, expecting a single-row,
+	 * single-column result that is an int value.
+	 * @param sql SQL query to execute
+	 * @param paramMap Map from parameter name to value
+	 * @return the int value, or 0 in case of SQL NULL
+	 * @throws DataAccessException if the query fails
+	 * @see JdbcOperations#queryForInt(String, Object[])
+	 */
+	public int queryForInt(String sql, Map paramMap) throws DataAccessException {
+		ParsedSql parsedSql = NamedParameterUtils.getParsedSql(sql);
+		return getJdbcOperations().queryForInt(NamedParameterUtils.substituteNamedParameters(parsedSql, paramMap),
+				NamedParameterUtils.buildValueArray(parsedSql, paramMap));
+	}
+
+	/**
+	 * Issue an update with named parameters.
+	 * @param sql SQL containing named parameters
+	 * @param paramMap Map from parameter name to value
+	 * @return the number of rows affected
+	 * @throws DataAccessException if there is any problem issuing the update
+	 * @see JdbcOperations#update(String, Object[])
+	 */
+	public int update(String sql, Map paramMap) throws DataAccessException {
+		ParsedSql parsedSql = NamedParameterUtils.getParsedSql(sql);
+		return getJdbcOperations().update(NamedParameterUtils.substituteNamedParameters(parsedSql, paramMap),
+				NamedParameterUtils.buildValueArray(parsedSql, paramMap));
+	}
+
+}
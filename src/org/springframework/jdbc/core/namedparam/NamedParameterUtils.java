@@ -0,0 +1,318 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.core.namedparam;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+/**
+ * Helper methods for SQL statements with named parameters in the form
+ * ":name". Names start with a letter or underscore and consist of letters,
+ * digits and underscores, so that array slices like "[1:2]" are not taken
+ * for parameters. Colons within quoted literals (with quotes escaped either
+ * by doubling or by a backslash) or comments, and PostgreSQL-style "::"
+ * casts, are ignored.
+ *
+ * <p>A parameter value that is a Collection or an Object array is expanded
+ * into a comma-separated list of placeholders, for use in "IN" clauses.
+ *
+ * <p>Parsed statements are kept in a VM-wide cache keyed by SQL string,
+ * with the least recently used statements evicted beyond 256 entries.
+ * Lookups of cached statements do not lock.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see NamedParameterJdbcTemplate
+ * @see org.springframework.jdbc.object.SqlOperation
+ */
+public abstract class NamedParameterUtils {
+
+	private static final int PARSED_SQL_CACHE_LIMIT = 256;
+
+	/** Map from SQL String to CachedSql, replaced on every change */
+	private static volatile Map parsedSqlCache = new HashMap();
+
+	private static final Object parsedSqlCacheMonitor = new Object();
+
+	/** Source of access stamps: increments may get lost, which only blurs the LRU order */
+	private static volatile long accessCounter = 0;
+
+
+	/**
+	 * Return the ParsedSql for the given statement, parsing it if
+	 * not found in the cache.
+	 * @param sql the SQL statement
+	 * @return the ParsedSql
+	 * @see #parseSqlStatement
+	 */
+	public static ParsedSql getParsedSql(String sql) {
+		CachedSql cachedSql = (CachedSql) parsedSqlCache.get(sql);
+		if (cachedSql != null) {
+			cachedSql.lastAccess = ++accessCounter;
+			return cachedSql.parsedSql;
+		}
+		ParsedSql parsedSql = parseSqlStatement(sql);
+		synchronized (parsedSqlCacheMonitor) {
+			// copy-on-write: readers never see a Map that is being modified
+			Map newCache = new HashMap(parsedSqlCache);
+			if (newCache.size() >= PARSED_SQL_CACHE_LIMIT && !newCache.containsKey(sql)) {
+				evictLeastRecentlyUsed(newCache);
+			}
+			CachedSql newCachedSql = new CachedSql(parsedSql);
+			newCachedSql.lastAccess = ++accessCounter;
+			newCache.put(sql, newCachedSql);
+			parsedSqlCache = newCache;
+		}
+		return parsedSql;
+	}
+
+	private static void evictLeastRecentlyUsed(Map cache) {
+		Object eldestKey = null;
+		long eldestAccess = Long.MAX_VALUE;
+		for (Iterator it = cache.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			long lastAccess = ((CachedSql) entry.getValue()).lastAccess;
+			if (lastAccess < eldestAccess) {
+				eldestKey = entry.getKey();
+				eldestAccess = lastAccess;
+			}
+		}
+		cache.remove(eldestKey);
+	}
+
+	/**
+	 * Parse the given SQL statement, without caching.
+	 * @param sql the SQL statement
+	 * @return the ParsedSql
+	 */
+	public static ParsedSql parseSqlStatement(String sql) {
+		List names = new ArrayList();
+		List startIndexes = new ArrayList();
+		List endIndexes = new ArrayList();
+		int unnamedCount = 0;
+		int length = sql.length();
+		int i = 0;
+		while (i < length) {
+			char c = sql.charAt(i);
+			if (c == '\'' || c == '"') {
+				// skip literal: a doubled quote within it simply starts another literal
+				int end = i + 1;
+				while (end < length && sql.charAt(end) != c) {
+					end += (sql.charAt(end) == '\\' ? 2 : 1);
+				}
+				i = Math.min(end + 1, length);
+			}
+			else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+				int end = sql.indexOf('\n', i + 2);
+				i = (end != -1 ? end + 1 : length);
+			}
+			else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+				int end = sql.indexOf("*/", i + 2);
+				i = (end != -1 ? end + 2 : length);
+			}
+			else if (c == ':') {
+				if (i + 1 < length && sql.charAt(i + 1) == ':') {
+					// PostgreSQL-style cast
+					i += 2;
+				}
+				else {
+					int end = i + 1;
+					if (end < length && (Character.isLetter(sql.charAt(end)) || sql.charAt(end) == '_')) {
+						while (end < length && isParameterNameCharacter(sql.charAt(end))) {
+							end++;
+						}
+					}
+					if (end > i + 1) {
+						names.add(sql.substring(i + 1, end));
+						startIndexes.add(new Integer(i));
+						endIndexes.add(new Integer(end));
+					}
+					i = end;
+				}
+			}
+			else {
+				if (c == '?') {
+					unnamedCount++;
+				}
+				i++;
+			}
+		}
+		int[] starts = new int[names.size()];
+		int[] ends = new int[names.size()];
+		for (int j = 0; j < starts.length; j++) {
+			starts[j] = ((Integer) startIndexes.get(j)).intValue();
+			ends[j] = ((Integer) endIndexes.get(j)).intValue();
+		}
+		return new ParsedSql(sql, (String[]) names.toArray(new String[names.size()]), starts, ends, unnamedCount);
+	}
+
+	private static boolean isParameterNameCharacter(char c) {
+		return (Character.isLetterOrDigit(c) || c == '_');
+	}
+
+	/**
+	 * Remove all cached ParsedSql instances.
+	 */
+	public static void clearCache() {
+		synchronized (parsedSqlCacheMonitor) {
+			parsedSqlCache = new HashMap();
+		}
+	}
+
+
+	/**
+	 * Return the SQL statement to execute for the given parameter values:
+	 * each named parameter replaced by a "?" placeholder, respectively by a
+	 * list of placeholders if its value is a Collection or an Object array.
+	 * @param parsedSql the parsed statement
+	 * @param paramMap Map from parameter name to value
+	 * @return the SQL statement with JDBC placeholders
+	 * @throws InvalidDataAccessApiUsageException if named parameters are
+	 * mixed with "?" placeholders, or if an expanded value is empty
+	 */
+	public static String substituteNamedParameters(ParsedSql parsedSql, Map paramMap)
+			throws InvalidDataAccessApiUsageException {
+		checkParameterStyle(parsedSql);
+		if (!hasExpandableValues(parsedSql, paramMap)) {
+			return parsedSql.getSubstitutedSql();
+		}
+		String sql = parsedSql.getSql();
+		StringBuffer sb = new StringBuffer(sql.length() + 16);
+		int lastIndex = 0;
+		for (int i = 0; i < parsedSql.getParameterCount(); i++) {
+			sb.append(sql.substring(lastIndex, parsedSql.getStartIndex(i)));
+			int size = getExpandedSize(parsedSql.getParameterName(i), paramMap.get(parsedSql.getParameterName(i)));
+			for (int j = 0; j < size; j++) {
+				if (j > 0) {
+					sb.append(", ");
+				}
+				sb.append('?');
+			}
+			lastIndex = parsedSql.getEndIndex(i);
+		}
+		sb.append(sql.substring(lastIndex));
+		return sb.toString();
+	}
+
+	/**
+	 * Build the array of values to bind to the placeholders of the statement
+	 * returned by <code>substituteNamedParameters</code>.
+	 * @param parsedSql the parsed statement
+	 * @param paramMap Map from parameter name to value
+	 * @return the values, in placeholder order
+	 * @throws InvalidDataAccessApiUsageException if no value has been
+	 * given for a named parameter
+	 */
+	public static Object[] buildValueArray(ParsedSql parsedSql, Map paramMap)
+			throws InvalidDataAccessApiUsageException {
+		checkParameterStyle(parsedSql);
+		int count = parsedSql.getParameterCount();
+		if (!hasExpandableValues(parsedSql, paramMap)) {
+			Object[] values = new Object[count];
+			for (int i = 0; i < count; i++) {
+				values[i] = getValue(parsedSql.getParameterName(i), paramMap);
+			}
+			return values;
+		}
+		List values = new ArrayList(count + 16);
+		for (int i = 0; i < count; i++) {
+			Object value = getValue(parsedSql.getParameterName(i), paramMap);
+			if (value instanceof Collection) {
+				values.addAll((Collection) value);
+			}
+			else if (value instanceof Object[]) {
+				Object[] array = (Object[]) value;
+				for (int j = 0; j < array.length; j++) {
+					values.add(array[j]);
+				}
+			}
+			else {
+				values.add(value);
+			}
+		}
+		return values.toArray();
+	}
+
+	/**
+	 * Return whether any of the parameter values is a Collection or an Object
+	 * array, i.e. whether the statement needs to be expanded for these values.
+	 * @param parsedSql the parsed statement
+	 * @param paramMap Map from parameter name to value
+	 */
+	public static boolean hasExpandableValues(ParsedSql parsedSql, Map paramMap) {
+		String[] names = parsedSql.getDistinctParameterNames();
+		for (int i = 0; i < names.length; i++) {
+			Object value = paramMap.get(names[i]);
+			if (value instanceof Collection || value instanceof Object[]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void checkParameterStyle(ParsedSql parsedSql) throws InvalidDataAccessApiUsageException {
+		if (parsedSql.hasNamedParameters() && parsedSql.getUnnamedParameterCount() > 0) {
+			throw new InvalidDataAccessApiUsageException(
+					"SQL [" + parsedSql.getSql() + "] mixes named parameters and '?' placeholders");
+		}
+	}
+
+	private static Object getValue(String name, Map paramMap) throws InvalidDataAccessApiUsageException {
+		Object value = paramMap.get(name);
+		if (value == null && !paramMap.containsKey(name)) {
+			throw new InvalidDataAccessApiUsageException("No value supplied for SQL parameter '" + name + "'");
+		}
+		return value;
+	}
+
+	private static int getExpandedSize(String name, Object value) throws InvalidDataAccessApiUsageException {
+		int size = 1;
+		if (value instanceof Collection) {
+			size = ((Collection) value).size();
+		}
+		else if (value instanceof Object[]) {
+			size = ((Object[]) value).length;
+		}
+		if (size == 0) {
+			throw new InvalidDataAccessApiUsageException("Empty Collection or array for SQL parameter '" + name + "'");
+		}
+		return size;
+	}
+
+
+
+	/**
+	 * Cache entry: a ParsedSql with the stamp of its last access.
+	 */
+	private static class CachedSql {
+
+		private final ParsedSql parsedSql;
+
+		private volatile long lastAccess;
+
+		private CachedSql(ParsedSql parsedSql) {
+			this.parsedSql = parsedSql;
+		}
+	}
+
+}
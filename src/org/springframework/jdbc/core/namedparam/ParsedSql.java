@@ -0,0 +1,149 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.core.namedparam;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds information about a parsed SQL statement: the positions and names
+ * of its named parameters, and the SQL with all named parameters replaced
+ * by JDBC "?" placeholders. Immutable and thus suitable for caching.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see NamedParameterUtils#getParsedSql
+ */
+public class ParsedSql {
+
+	private final String sql;
+
+	private final String[] parameterNames;
+
+	private final int[] startIndexes;
+
+	private final int[] endIndexes;
+
+	private final String[] distinctParameterNames;
+
+	private final int unnamedParameterCount;
+
+	private final String substitutedSql;
+
+
+	/**
+	 * Create a new ParsedSql instance.
+	 * @param sql the original SQL statement
+	 * @param parameterNames the name of every named parameter occurrence
+	 * @param startIndexes the index of the ':' of every occurrence
+	 * @param endIndexes the index after the name of every occurrence
+	 * @param unnamedParameterCount the number of "?" placeholders
+	 */
+	ParsedSql(String sql, String[] parameterNames, int[] startIndexes, int[] endIndexes, int unnamedParameterCount) {
+		this.sql = sql;
+		this.parameterNames = parameterNames;
+		this.startIndexes = startIndexes;
+		this.endIndexes = endIndexes;
+		this.unnamedParameterCount = unnamedParameterCount;
+		List distinctNames = new ArrayList();
+		for (int i = 0; i < parameterNames.length; i++) {
+			if (!distinctNames.contains(parameterNames[i])) {
+				distinctNames.add(parameterNames[i]);
+			}
+		}
+		this.distinctParameterNames = (String[]) distinctNames.toArray(new String[distinctNames.size()]);
+		StringBuffer sb = new StringBuffer(sql.length());
+		int lastIndex = 0;
+		for (int i = 0; i < parameterNames.length; i++) {
+			sb.append(sql.substring(lastIndex, startIndexes[i])).append('?');
+			lastIndex = endIndexes[i];
+		}
+		sb.append(sql.substring(lastIndex));
+		this.substitutedSql = sb.toString();
+	}
+
+	/**
+	 * Return the original SQL statement.
+	 */
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 * Return the number of named parameter occurrences in the statement.
+	 */
+	public int getParameterCount() {
+		return this.parameterNames.length;
+	}
+
+	/**
+	 * Return the name of the named parameter occurrence at the given index.
+	 */
+	public String getParameterName(int index) {
+		return this.parameterNames[index];
+	}
+
+	/**
+	 * Return the index of the ':' of the given parameter occurrence
+	 * in the original SQL statement.
+	 */
+	public int getStartIndex(int index) {
+		return this.startIndexes[index];
+	}
+
+	/**
+	 * Return the index after the name of the given parameter occurrence
+	 * in the original SQL statement.
+	 */
+	public int getEndIndex(int index) {
+		return this.endIndexes[index];
+	}
+
+	/**
+	 * Return the distinct parameter names, in order of first occurrence.
+	 */
+	public String[] getDistinctParameterNames() {
+		return distinctParameterNames;
+	}
+
+	/**
+	 * Return the number of JDBC "?" placeholders in the original statement.
+	 */
+	public int getUnnamedParameterCount() {
+		return unnamedParameterCount;
+	}
+
+	/**
+	 * Return whether the statement contains any named parameters.
+	 */
+	public boolean hasNamedParameters() {
+		return (this.parameterNames.length > 0);
+	}
+
+	/**
+	 * Return the SQL statement with each named parameter occurrence
+	 * replaced by a single "?" placeholder.
+	 */
+	public String getSubstitutedSql() {
+		return substitutedSql;
+	}
+
+	public String toString() {
+		return this.sql;
+	}
+
+}
@@ -37,7 +37,8 @@ import org.springframework.jdbc.CannotGetJdbcConnectionException;
  * a local DataSource bean like this class.
  *
  * <p>If you need a "real" connection pool outside of a J2EE container, consider
- * <a href="http://jakarta.apache.org/commons/dbcp">Apache's Jakarta Commons DBCP</a>.
+ * PoolingDataSource, a subclass of this class that keeps Connections open for
+ * reuse, or <a href="http://jakarta.apache.org/commons/dbcp">Apache's Jakarta Commons DBCP</a>.
  * Its BasicDataSource is a full connection pool bean, supporting the same basic
  * properties as this class plus specific settings. It can be used as a replacement
  * for an instance of this class just by changing the class name of the bean
@@ -47,6 +48,7 @@ import org.springframework.jdbc.CannotGetJdbcConnectionException;
  * @since 14.03.2003
  * @see org.springframework.jndi.JndiObjectFactoryBean
  * @see org.springframework.mock.jndi.SimpleNamingContextBuilder
+ * @see PoolingDataSource
  * @see org.apache.commons.dbcp.BasicDataSource
  */
 public class DriverManagerDataSource extends AbstractDataSource implements SmartDataSource {
@@ -0,0 +1,1085 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.util.LatencyHistogram;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Connection pool that configures a plain old JDBC Driver via bean properties,
+ * like DriverManagerDataSource, but keeps physical Connections open for reuse.
+ * Intended for standalone applications, batch jobs and tests that do not
+ * have a container DataSource available.
+ *
+ * <p>Returned Connections are proxies: calling <code>close</code> returns the
+ * physical Connection to the pool, after closing any statements that have
+ * been left open, rolling back uncommitted work, and restoring auto-commit,
+ * read-only, transaction isolation and catalog if they have been changed.
+ * Hence <code>shouldClose</code> always returns true.
+ *
+ * <p>Borrowing does not go through a pool-wide lock: each pooled Connection
+ * is claimed via its own monitor, and every thread first tries the Connection
+ * that it returned last, which is usually idle in typical request-per-thread
+ * scenarios. (We can't rely on JDK 1.5 atomic variables for a truly lock-free
+ * implementation.) Only creating a new Connection, retiring one, and waiting
+ * for one when the pool is exhausted synchronize on the pool itself.
+ *
+ * <p>Main configuration options:
+ * <ul>
+ * <li>"minSize" and "maxSize": bounds for the number of physical Connections.
+ * "minSize" Connections are created on initialization and kept available by
+ * the housekeeping timer.
+ * <li>"connectionTimeout": how long to wait for a Connection if the pool is
+ * exhausted, before throwing an SQLException.
+ * <li>"validationQuery" and "validationInterval": Connections that have been
+ * idle for longer than the interval get validated before being handed out,
+ * either by executing the query or by checking <code>isClosed</code>.
+ * <li>"maxLifetime" and "idleTimeout": Connections older than the maximum
+ * lifetime get retired, as do Connections beyond "minSize" that have been
+ * idle for too long.
+ * <li>"leakDetectionThreshold": Connections that have been borrowed for
+ * longer than this get logged as potential leaks, including the stack trace
+ * of the code that borrowed them.
+ * </ul>
+ *
+ * <p>Call <code>afterPropertiesSet</code> after configuration to prefill the pool
+ * and start housekeeping (a bean factory will do this automatically), and
+ * <code>destroy</code> to close all Connections. Usage statistics are available
+ * via <code>getActiveCount</code>, <code>getIdleCount</code>,
+ * <code>getWaitingCount</code> and <code>getAcquireLatency</code>.
+ *
+ * <p>Like TransactionAwareDataSourceProxy, returns wrapped Connections and
+ * Statements that cannot be cast to native JDBC types; use <code>getTargetConnection</code>
+ * of the ConnectionProxy interface to access the physical Connection.
+ * Note that the physical Connection must not be used after the proxy has
+ * been closed, since it may have been handed out to another thread by then;
+ * statements created on it directly are not closed on return either.
+ * Can be combined with StatementCachingDataSource to reuse PreparedStatements
+ * across borrowings of the same physical Connection.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see #setMaxSize
+ * @see #setValidationQuery
+ * @see #setLeakDetectionThreshold
+ * @see #getAcquireLatency
+ * @see StatementCachingDataSource
+ */
+public class PoolingDataSource extends DriverManagerDataSource implements InitializingBean, DisposableBean {
+
+	public static final int DEFAULT_MAX_SIZE = 10;
+
+	public static final long DEFAULT_CONNECTION_TIMEOUT = 30000;
+
+	public static final long DEFAULT_VALIDATION_INTERVAL = 5000;
+
+	public static final long DEFAULT_MAX_LIFETIME = 1800000;
+
+	public static final long DEFAULT_IDLE_TIMEOUT = 600000;
+
+	public static final long DEFAULT_HOUSEKEEPING_PERIOD = 30000;
+
+	private static final int STATE_IDLE = 0;
+
+	private static final int STATE_IN_USE = 1;
+
+	private static final int STATE_RETIRED = 2;
+
+	/** Constructor of the proxy class for pooled Connections, resolved once */
+	private static final Constructor proxyConstructor;
+
+	static {
+		try {
+			proxyConstructor = Proxy.getProxyClass(ConnectionProxy.class.getClassLoader(),
+					new Class[] {ConnectionProxy.class}).getConstructor(new Class[] {InvocationHandler.class});
+		}
+		catch (NoSuchMethodException ex) {
+			throw new IllegalStateException("Could not resolve JDK proxy constructor: " + ex.getMessage());
+		}
+	}
+
+
+	private int minSize = 0;
+
+	private int maxSize = DEFAULT_MAX_SIZE;
+
+	private long connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
+
+	private String validationQuery;
+
+	private long validationInterval = DEFAULT_VALIDATION_INTERVAL;
+
+	private long maxLifetime = DEFAULT_MAX_LIFETIME;
+
+	private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+	private long leakDetectionThreshold = 0;
+
+	private long housekeepingPeriod = DEFAULT_HOUSEKEEPING_PERIOD;
+
+	/** All physical Connections, replaced on change while holding the pool monitor */
+	private volatile PoolEntry[] entries = new PoolEntry[0];
+
+	/** Monitor for changes to the entries array, and for waiting borrowers */
+	private final Object poolMonitor = new Object();
+
+	/** Number of Connections currently being created, guarded by the pool monitor */
+	private int pendingCount = 0;
+
+	/** Number of threads waiting for a Connection, changed while holding the pool monitor */
+	private volatile int waitingCount = 0;
+
+	/** The entry that the current thread returned last */
+	private final ThreadLocal lastEntry = new ThreadLocal();
+
+	private volatile boolean closed = false;
+
+	private Timer housekeepingTimer;
+
+	private final LatencyHistogram acquireLatency = new LatencyHistogram();
+
+	private final Object statisticsMonitor = new Object();
+
+	private long createdCount = 0;
+
+	private long retiredCount = 0;
+
+	private long timeoutCount = 0;
+
+	private long leakCount = 0;
+
+
+	/**
+	 * Constructor for bean-style configuration.
+	 */
+	public PoolingDataSource() {
+	}
+
+	/**
+	 * Create a new PoolingDataSource with the given standard
+	 * DriverManager parameters.
+	 */
+	public PoolingDataSource(String driverClassName, String url, String username, String password)
+			throws CannotGetJdbcConnectionException {
+		super(driverClassName, url, username, password);
+	}
+
+
+	/**
+	 * Set the number of Connections to create on initialization and to
+	 * keep in the pool even if idle. Default is 0.
+	 */
+	public void setMinSize(int minSize) {
+		this.minSize = minSize;
+	}
+
+	public int getMinSize() {
+		return minSize;
+	}
+
+	/**
+	 * Set the maximum number of physical Connections. Default is 10.
+	 */
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds to wait for a Connection
+	 * if the pool is exhausted. Default is 30 seconds.
+	 */
+	public void setConnectionTimeout(long connectionTimeout) {
+		this.connectionTimeout = connectionTimeout;
+	}
+
+	public long getConnectionTimeout() {
+		return connectionTimeout;
+	}
+
+	/**
+	 * Set the SQL query to validate Connections with, for example
+	 * "SELECT 1 FROM DUAL" on Oracle. Default is none, checking
+	 * <code>Connection.isClosed</code> only.
+	 * @see #setValidationInterval
+	 */
+	public void setValidationQuery(String validationQuery) {
+		this.validationQuery = validationQuery;
+	}
+
+	public String getValidationQuery() {
+		return validationQuery;
+	}
+
+	/**
+	 * Set the time in milliseconds that a Connection may have been idle
+	 * before it gets validated on borrowing. Default is 5 seconds;
+	 * 0 validates on every borrowing.
+	 * <p>Connections that have been returned recently are handed out
+	 * without validation, saving a database roundtrip per borrowing.
+	 */
+	public void setValidationInterval(long validationInterval) {
+		this.validationInterval = validationInterval;
+	}
+
+	public long getValidationInterval() {
+		return validationInterval;
+	}
+
+	/**
+	 * Set the maximum lifetime of a physical Connection in milliseconds,
+	 * after which it is closed when idle. Default is 30 minutes; 0 means
+	 * no limit. Should be shorter than any timeout imposed by the database
+	 * or the network.
+	 */
+	public void setMaxLifetime(long maxLifetime) {
+		this.maxLifetime = maxLifetime;
+	}
+
+	public long getMaxLifetime() {
+		return maxLifetime;
+	}
+
+	/**
+	 * Set the time in milliseconds after which an idle Connection gets closed,
+	 * as long as there are more than "minSize" Connections. Default is
+	 * 10 minutes; 0 means never.
+	 */
+	public void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	/**
+	 * Set the time in milliseconds that a Connection may be borrowed before
+	 * it gets logged as potential leak. Default is 0, for no leak detection.
+	 * <p>If enabled, the stack trace of each borrowing gets captured, which
+	 * is expensive: Use this for diagnosis rather than in production.
+	 */
+	public void setLeakDetectionThreshold(long leakDetectionThreshold) {
+		this.leakDetectionThreshold = leakDetectionThreshold;
+	}
+
+	public long getLeakDetectionThreshold() {
+		return leakDetectionThreshold;
+	}
+
+	/**
+	 * Set the period in milliseconds of the housekeeping timer that retires
+	 * expired Connections, reports leaks and tops up the pool to "minSize".
+	 * Default is 30 seconds; 0 disables housekeeping.
+	 */
+	public void setHousekeepingPeriod(long housekeepingPeriod) {
+		this.housekeepingPeriod = housekeepingPeriod;
+	}
+
+	public long getHousekeepingPeriod() {
+		return housekeepingPeriod;
+	}
+
+
+	/**
+	 * Prefill the pool with "minSize" Connections and start housekeeping.
+	 * Getting Connections works without prior initialization too.
+	 */
+	public void afterPropertiesSet() throws CannotGetJdbcConnectionException {
+		if (this.minSize < 0 || this.maxSize < 1 || this.minSize > this.maxSize) {
+			throw new IllegalArgumentException("minSize must be between 0 and maxSize, and maxSize at least 1");
+		}
+		try {
+			fillPool();
+		}
+		catch (SQLException ex) {
+			throw new CannotGetJdbcConnectionException("Could not prefill connection pool", ex);
+		}
+		if (this.housekeepingPeriod > 0) {
+			this.housekeepingTimer = new Timer(true);
+			this.housekeepingTimer.schedule(new HousekeepingTask(), this.housekeepingPeriod, this.housekeepingPeriod);
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Initialized connection pool for [" + getUrl() + "] with " + getTotalCount() + " connections");
+		}
+	}
+
+	/**
+	 * Close all idle Connections and stop housekeeping. Connections that are
+	 * currently in use get closed when returned.
+	 * <p>As this bean implements DisposableBean, a bean factory will
+	 * automatically invoke this on destruction of its cached singletons.
+	 */
+	public void destroy() {
+		this.closed = true;
+		if (this.housekeepingTimer != null) {
+			this.housekeepingTimer.cancel();
+		}
+		PoolEntry[] current = this.entries;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i].retireIfIdle()) {
+				retire(current[i]);
+			}
+		}
+		synchronized (this.poolMonitor) {
+			this.poolMonitor.notifyAll();
+		}
+	}
+
+
+	/**
+	 * Connections returned by this DataSource get returned to the
+	 * pool when closed: Always close them after use.
+	 */
+	public boolean shouldClose(Connection con) {
+		return true;
+	}
+
+	public Connection getConnection() throws SQLException {
+		long startTime = System.currentTimeMillis();
+		PoolEntry entry = null;
+		try {
+			entry = borrowEntry(startTime);
+		}
+		catch (SQLException ex) {
+			this.acquireLatency.record(System.currentTimeMillis() - startTime, true);
+			throw ex;
+		}
+		this.acquireLatency.record(System.currentTimeMillis() - startTime, false);
+		try {
+			return (Connection) proxyConstructor.newInstance(new Object[] {new PooledConnectionInvocationHandler(entry)});
+		}
+		catch (Exception ex) {
+			release(entry, false);
+			throw new IllegalStateException("Could not create connection proxy: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Pooled Connections all use the configured username and password.
+	 * Returns a pooled Connection if given the same username and password.
+	 */
+	public Connection getConnection(String username, String password) throws SQLException {
+		if (ObjectUtils.nullSafeEquals(username, getUsername()) &&
+				ObjectUtils.nullSafeEquals(password, getPassword())) {
+			return getConnection();
+		}
+		else {
+			throw new SQLException("PoolingDataSource does not support custom username and password");
+		}
+	}
+
+
+	/**
+	 * Borrow an entry: an idle one if available, else a new one if the pool
+	 * is not exhausted, else wait for one until the connection timeout.
+	 */
+	private PoolEntry borrowEntry(long startTime) throws SQLException {
+		long deadline = startTime + this.connectionTimeout;
+		while (true) {
+			if (this.closed) {
+				throw new SQLException("PoolingDataSource has been closed");
+			}
+			PoolEntry entry = claimIdleEntry();
+			if (entry == null) {
+				entry = createEntryIfPossible(STATE_IN_USE);
+			}
+			if (entry != null) {
+				long now = System.currentTimeMillis();
+				if (isUsable(entry, now)) {
+					entry.borrowed(now, (this.leakDetectionThreshold > 0 ? new Throwable("Connection borrowed here") : null));
+					return entry;
+				}
+				entry.markRetired();
+				retire(entry);
+			}
+			else if (!awaitRelease(deadline)) {
+				synchronized (this.statisticsMonitor) {
+					this.timeoutCount++;
+				}
+				throw new SQLException("Timed out after " + this.connectionTimeout +
+						"ms waiting for a connection: " + getActiveCount() + " of " + this.maxSize + " in use");
+			}
+		}
+	}
+
+	/**
+	 * Claim an idle entry, trying the one that the current thread returned
+	 * last first, then scanning all entries from a thread-specific offset.
+	 * @return the claimed entry, or null if none is idle
+	 */
+	private PoolEntry claimIdleEntry() {
+		PoolEntry preferred = (PoolEntry) this.lastEntry.get();
+		if (preferred != null && preferred.claim()) {
+			return preferred;
+		}
+		PoolEntry[] current = this.entries;
+		int count = current.length;
+		if (count == 0) {
+			return null;
+		}
+		int offset = (System.identityHashCode(Thread.currentThread()) & Integer.MAX_VALUE) % count;
+		for (int i = 0; i < count; i++) {
+			PoolEntry entry = current[(offset + i) % count];
+			if (entry != preferred && entry.claim()) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Create a new entry in the given state, unless the pool is exhausted.
+	 * The physical Connection gets created outside of the pool monitor.
+	 * @return the new entry, or null if the pool is exhausted
+	 */
+	private PoolEntry createEntryIfPossible(int state) throws SQLException {
+		synchronized (this.poolMonitor) {
+			if (this.entries.length + this.pendingCount >= this.maxSize) {
+				return null;
+			}
+			this.pendingCount++;
+		}
+		PoolEntry entry = null;
+		try {
+			entry = new PoolEntry(getConnectionFromDriverManager(), state);
+		}
+		finally {
+			synchronized (this.poolMonitor) {
+				this.pendingCount--;
+				if (entry != null) {
+					PoolEntry[] current = this.entries;
+					PoolEntry[] newEntries = new PoolEntry[current.length + 1];
+					System.arraycopy(current, 0, newEntries, 0, current.length);
+					newEntries[current.length] = entry;
+					this.entries = newEntries;
+				}
+				else {
+					// let a waiting thread try to create a connection instead
+					this.poolMonitor.notify();
+				}
+			}
+		}
+		synchronized (this.statisticsMonitor) {
+			this.createdCount++;
+		}
+		if (this.closed && entry.retireIfIdle()) {
+			retire(entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Wait until a Connection gets returned or retired, or the deadline passes.
+	 * @return whether it is worth trying to borrow again
+	 */
+	private boolean awaitRelease(long deadline) throws SQLException {
+		synchronized (this.poolMonitor) {
+			this.waitingCount++;
+			try {
+				// Re-check while registered as waiting, not to miss a release.
+				if (this.closed || hasIdleEntry() || this.entries.length + this.pendingCount < this.maxSize) {
+					return true;
+				}
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return false;
+				}
+				this.poolMonitor.wait(remaining);
+				return true;
+			}
+			catch (InterruptedException ex) {
+				// Preserve the interrupt status for the caller.
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted while waiting for a connection: " + ex.getMessage());
+			}
+			finally {
+				this.waitingCount--;
+			}
+		}
+	}
+
+	private boolean hasIdleEntry() {
+		PoolEntry[] current = this.entries;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i].getState() == STATE_IDLE) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check whether the given entry may be handed out: It must not have
+	 * exceeded its maximum lifetime, and must pass validation if it has
+	 * been idle for longer than the validation interval.
+	 */
+	private boolean isUsable(PoolEntry entry, long now) {
+		if (isExpired(entry, now)) {
+			return false;
+		}
+		if (now - entry.getLastReleaseTime() < this.validationInterval) {
+			return true;
+		}
+		try {
+			if (this.validationQuery != null) {
+				Statement stmt = entry.connection.createStatement();
+				try {
+					stmt.execute(this.validationQuery);
+				}
+				finally {
+					stmt.close();
+				}
+				return true;
+			}
+			return !entry.connection.isClosed();
+		}
+		catch (SQLException ex) {
+			logger.info("Discarding pooled connection that failed validation", ex);
+			return false;
+		}
+	}
+
+	private boolean isExpired(PoolEntry entry, long now) {
+		return (this.maxLifetime > 0 && now - entry.createdTime > this.maxLifetime);
+	}
+
+	/**
+	 * Return the given entry to the pool, resetting its Connection first,
+	 * or retire it if it cannot be reused.
+	 * @param entry the entry to return
+	 * @param settingsChanged whether a setter has been called on the Connection
+	 */
+	private void release(PoolEntry entry, boolean settingsChanged) {
+		long now = System.currentTimeMillis();
+		if (this.closed || isExpired(entry, now) || !resetConnection(entry, settingsChanged)) {
+			entry.markRetired();
+			retire(entry);
+			return;
+		}
+		entry.released(now);
+		this.lastEntry.set(entry);
+		if (this.waitingCount > 0) {
+			synchronized (this.poolMonitor) {
+				this.poolMonitor.notify();
+			}
+		}
+	}
+
+	/**
+	 * Roll back uncommitted work and restore the original Connection settings.
+	 * @return whether the Connection can be reused
+	 */
+	private boolean resetConnection(PoolEntry entry, boolean settingsChanged) {
+		Connection con = entry.connection;
+		try {
+			if (!con.getAutoCommit()) {
+				con.rollback();
+			}
+			if (settingsChanged) {
+				if (con.getAutoCommit() != entry.defaultAutoCommit) {
+					con.setAutoCommit(entry.defaultAutoCommit);
+				}
+				if (con.isReadOnly() != entry.defaultReadOnly) {
+					con.setReadOnly(entry.defaultReadOnly);
+				}
+				if (con.getTransactionIsolation() != entry.defaultTransactionIsolation) {
+					con.setTransactionIsolation(entry.defaultTransactionIsolation);
+				}
+				if (!ObjectUtils.nullSafeEquals(con.getCatalog(), entry.defaultCatalog)) {
+					con.setCatalog(entry.defaultCatalog);
+				}
+			}
+			con.clearWarnings();
+			return true;
+		}
+		catch (SQLException ex) {
+			logger.info("Discarding pooled connection that could not be reset", ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Remove the given retired entry from the pool and close its Connection.
+	 */
+	private void retire(PoolEntry entry) {
+		synchronized (this.poolMonitor) {
+			PoolEntry[] current = this.entries;
+			for (int i = 0; i < current.length; i++) {
+				if (current[i] == entry) {
+					PoolEntry[] newEntries = new PoolEntry[current.length - 1];
+					System.arraycopy(current, 0, newEntries, 0, i);
+					System.arraycopy(current, i + 1, newEntries, i, current.length - i - 1);
+					this.entries = newEntries;
+					break;
+				}
+			}
+			// capacity has become available
+			this.poolMonitor.notify();
+		}
+		synchronized (this.statisticsMonitor) {
+			this.retiredCount++;
+		}
+		try {
+			entry.connection.close();
+		}
+		catch (SQLException ex) {
+			logger.debug("Could not close retired JDBC connection", ex);
+		}
+		catch (RuntimeException ex) {
+			logger.debug("Unexpected exception on closing retired JDBC connection", ex);
+		}
+	}
+
+	/**
+	 * Create idle Connections until the pool has "minSize" Connections.
+	 */
+	private void fillPool() throws SQLException {
+		while (!this.closed && this.entries.length + this.pendingCount < this.minSize) {
+			if (createEntryIfPossible(STATE_IDLE) == null) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Retire expired and superfluous idle Connections, report leaks,
+	 * and top up the pool to "minSize". Called by the housekeeping timer.
+	 */
+	protected void housekeep() {
+		long now = System.currentTimeMillis();
+		PoolEntry[] current = this.entries;
+		int removable = current.length - this.minSize;
+		for (int i = 0; i < current.length; i++) {
+			PoolEntry entry = current[i];
+			int state = entry.getState();
+			if (state == STATE_IDLE) {
+				boolean idleTooLong = (this.idleTimeout > 0 && removable > 0 &&
+						now - entry.getLastReleaseTime() > this.idleTimeout);
+				if ((isExpired(entry, now) || idleTooLong) && entry.retireIfIdle()) {
+					retire(entry);
+					removable--;
+				}
+			}
+			else if (state == STATE_IN_USE && this.leakDetectionThreshold > 0) {
+				Throwable borrowTrace = entry.reportLeakIfBorrowedBefore(now - this.leakDetectionThreshold);
+				if (borrowTrace != null) {
+					synchronized (this.statisticsMonitor) {
+						this.leakCount++;
+					}
+					logger.warn("Connection leak detected: connection [" + entry.connection + "] has been borrowed for more than " +
+							this.leakDetectionThreshold + "ms", borrowTrace);
+				}
+			}
+		}
+		try {
+			fillPool();
+		}
+		catch (SQLException ex) {
+			logger.warn("Could not top up connection pool to minimum size", ex);
+		}
+	}
+
+
+	/**
+	 * Return the total number of physical Connections in the pool.
+	 */
+	public int getTotalCount() {
+		return this.entries.length;
+	}
+
+	/**
+	 * Return the number of Connections that are currently borrowed.
+	 */
+	public int getActiveCount() {
+		return countEntries(STATE_IN_USE);
+	}
+
+	/**
+	 * Return the number of Connections that are currently idle.
+	 */
+	public int getIdleCount() {
+		return countEntries(STATE_IDLE);
+	}
+
+	private int countEntries(int state) {
+		PoolEntry[] current = this.entries;
+		int count = 0;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i].getState() == state) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Return the number of threads currently waiting for a Connection.
+	 */
+	public int getWaitingCount() {
+		return waitingCount;
+	}
+
+	/**
+	 * Return the number of physical Connections created so far.
+	 */
+	public long getCreatedCount() {
+		synchronized (this.statisticsMonitor) {
+			return createdCount;
+		}
+	}
+
+	/**
+	 * Return the number of physical Connections closed so far, because of
+	 * failed validation, expiry, idle timeout or shutdown.
+	 */
+	public long getRetiredCount() {
+		synchronized (this.statisticsMonitor) {
+			return retiredCount;
+		}
+	}
+
+	/**
+	 * Return the number of <code>getConnection</code> calls that timed out.
+	 */
+	public long getTimeoutCount() {
+		synchronized (this.statisticsMonitor) {
+			return timeoutCount;
+		}
+	}
+
+	/**
+	 * Return the number of potential Connection leaks detected so far.
+	 * @see #setLeakDetectionThreshold
+	 */
+	public long getLeakCount() {
+		synchronized (this.statisticsMonitor) {
+			return leakCount;
+		}
+	}
+
+	/**
+	 * Return a snapshot of the time spent in <code>getConnection</code>,
+	 * including the number of calls and the number of failed calls.
+	 */
+	public LatencyHistogram.Snapshot getAcquireLatency() {
+		return this.acquireLatency.getSnapshot();
+	}
+
+	/**
+	 * Reset the acquire latency histogram and all counters.
+	 */
+	public void resetStatistics() {
+		this.acquireLatency.reset();
+		synchronized (this.statisticsMonitor) {
+			this.createdCount = 0;
+			this.retiredCount = 0;
+			this.timeoutCount = 0;
+			this.leakCount = 0;
+		}
+	}
+
+
+	/**
+	 * A physical Connection in the pool, with its state guarded by its own monitor.
+	 */
+	private static class PoolEntry {
+
+		private final Connection connection;
+
+		private final long createdTime;
+
+		private final boolean defaultAutoCommit;
+
+		private final boolean defaultReadOnly;
+
+		private final int defaultTransactionIsolation;
+
+		private final String defaultCatalog;
+
+		private int state;
+
+		private long lastReleaseTime;
+
+		private long borrowTime;
+
+		private Throwable borrowTrace;
+
+		private PoolEntry(Connection connection, int state) throws SQLException {
+			try {
+				this.defaultAutoCommit = connection.getAutoCommit();
+				this.defaultReadOnly = connection.isReadOnly();
+				this.defaultTransactionIsolation = connection.getTransactionIsolation();
+				this.defaultCatalog = connection.getCatalog();
+			}
+			catch (SQLException ex) {
+				connection.close();
+				throw ex;
+			}
+			this.connection = connection;
+			this.createdTime = System.currentTimeMillis();
+			this.lastReleaseTime = this.createdTime;
+			this.state = state;
+		}
+
+		private synchronized int getState() {
+			return state;
+		}
+
+		private synchronized long getLastReleaseTime() {
+			return lastReleaseTime;
+		}
+
+		private synchronized boolean claim() {
+			if (this.state == STATE_IDLE) {
+				this.state = STATE_IN_USE;
+				return true;
+			}
+			return false;
+		}
+
+		private synchronized void borrowed(long now, Throwable borrowTrace) {
+			this.borrowTime = now;
+			this.borrowTrace = borrowTrace;
+		}
+
+		private synchronized void released(long now) {
+			this.state = STATE_IDLE;
+			this.lastReleaseTime = now;
+			this.borrowTrace = null;
+		}
+
+		private synchronized boolean retireIfIdle() {
+			if (this.state == STATE_IDLE) {
+				this.state = STATE_RETIRED;
+				return true;
+			}
+			return false;
+		}
+
+		private synchronized void markRetired() {
+			this.state = STATE_RETIRED;
+		}
+
+		/**
+		 * Return the borrow stack trace if the entry has been borrowed before
+		 * the given time and has not been reported yet, else null.
+		 */
+		private synchronized Throwable reportLeakIfBorrowedBefore(long time) {
+			if (this.state == STATE_IN_USE && this.borrowTrace != null && this.borrowTime < time) {
+				Throwable trace = this.borrowTrace;
+				this.borrowTrace = null;
+				return trace;
+			}
+			return null;
+		}
+	}
+
+
+	/**
+	 * Invocation handler for a borrowed Connection: returns the Connection
+	 * to the pool on close, closing the statements that the borrower has
+	 * left open, and rejects any further use afterwards.
+	 */
+	private class PooledConnectionInvocationHandler implements InvocationHandler {
+
+		private static final String GET_TARGET_CONNECTION_METHOD_NAME = "getTargetConnection";
+
+		private static final String CONNECTION_CLOSE_METHOD_NAME = "close";
+
+		private static final String IS_CLOSED_METHOD_NAME = "isClosed";
+
+		private final PoolEntry entry;
+
+		private boolean closed = false;
+
+		private boolean settingsChanged = false;
+
+		/** Statements created through this handle and not closed yet, closed on return */
+		private List statements;
+
+		private PooledConnectionInvocationHandler(PoolEntry entry) {
+			this.entry = entry;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String methodName = method.getName();
+			if (methodName.equals(CONNECTION_CLOSE_METHOD_NAME)) {
+				if (!this.closed) {
+					this.closed = true;
+					closeStatements();
+					release(this.entry, this.settingsChanged);
+				}
+				return null;
+			}
+			if (methodName.equals(IS_CLOSED_METHOD_NAME)) {
+				return (this.closed ? Boolean.TRUE : Boolean.FALSE);
+			}
+			if (methodName.equals("equals")) {
+				return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
+			}
+			if (methodName.equals("hashCode")) {
+				return new Integer(System.identityHashCode(proxy));
+			}
+			if (methodName.equals("toString")) {
+				return "Pooled connection [" + this.entry.connection + "]";
+			}
+			if (methodName.equals(GET_TARGET_CONNECTION_METHOD_NAME)) {
+				if (this.closed) {
+					throw new IllegalStateException("Connection handle has already been closed");
+				}
+				return this.entry.connection;
+			}
+			if (this.closed) {
+				throw new SQLException("Connection handle has already been closed");
+			}
+			if (methodName.startsWith("set")) {
+				this.settingsChanged = true;
+			}
+			Object result;
+			try {
+				result = method.invoke(this.entry.connection, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+			if (result instanceof Statement) {
+				if (this.statements == null) {
+					this.statements = new ArrayList();
+				}
+				this.statements.add(result);
+				return Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+						new Class[] {method.getReturnType()},
+						new TrackedStatementInvocationHandler((Statement) result, (Connection) proxy, this));
+			}
+			return result;
+		}
+
+		/**
+		 * Stop tracking the given statement, since the borrower has closed it.
+		 */
+		private void statementClosed(Statement statement) {
+			if (this.statements != null) {
+				// usually the most recently created one
+				for (int i = this.statements.size() - 1; i >= 0; i--) {
+					if (this.statements.get(i) == statement) {
+						this.statements.remove(i);
+						return;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Close all statements that the borrower has left open.
+		 */
+		private void closeStatements() {
+			if (this.statements != null) {
+				for (Iterator it = this.statements.iterator(); it.hasNext();) {
+					try {
+						((Statement) it.next()).close();
+					}
+					catch (SQLException ex) {
+						logger.debug("Could not close JDBC statement left open by borrower", ex);
+					}
+				}
+				this.statements = null;
+			}
+		}
+	}
+
+
+	/**
+	 * Invocation handler for a Statement created through a borrowed Connection:
+	 * stops tracking the Statement when the borrower closes it, and returns
+	 * the Connection proxy from <code>getConnection</code>.
+	 */
+	private static class TrackedStatementInvocationHandler implements InvocationHandler {
+
+		private final Statement target;
+
+		private final Connection connectionProxy;
+
+		private final PooledConnectionInvocationHandler connectionHandler;
+
+		private TrackedStatementInvocationHandler(
+				Statement target, Connection connectionProxy, PooledConnectionInvocationHandler connectionHandler) {
+			this.target = target;
+			this.connectionProxy = connectionProxy;
+			this.connectionHandler = connectionHandler;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String methodName = method.getName();
+			if (methodName.equals("close")) {
+				this.connectionHandler.statementClosed(this.target);
+			}
+			else if (methodName.equals("getConnection")) {
+				return this.connectionProxy;
+			}
+			else if (methodName.equals("equals")) {
+				return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
+			}
+			else if (methodName.equals("hashCode")) {
+				return new Integer(System.identityHashCode(proxy));
+			}
+			try {
+				return method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+	}
+
+
+	/**
+	 * Timer task that triggers housekeeping.
+	 */
+	private class HousekeepingTask extends TimerTask {
+
+		public void run() {
+			try {
+				housekeep();
+			}
+			catch (RuntimeException ex) {
+				logger.warn("Connection pool housekeeping failed", ex);
+			}
+		}
+	}
+
+}
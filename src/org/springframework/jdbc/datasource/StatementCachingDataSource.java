@@ -0,0 +1,610 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.CollectionFactory;
+
+/**
+ * Proxy for a target DataSource that caches PreparedStatements and
+ * CallableStatements per Connection, for connection pools that do not
+ * cache statements themselves. Avoids re-parsing hot statements on
+ * databases like Oracle or DB2 that keep statement plans per cursor.
+ *
+ * <p>Returned Connections are wrapped: <code>prepareStatement</code> and
+ * <code>prepareCall</code> with just SQL, or with SQL plus ResultSet type
+ * and concurrency, return a cached statement for the same arguments if
+ * an idle one is available. Calling <code>close</code> on such a statement
+ * returns it to the cache, after clearing its parameters and restoring
+ * settings like max rows, fetch size and query timeout. Each Connection
+ * keeps at most "cacheSize" idle statements, evicting the least recently
+ * used ones. Other <code>prepareStatement</code> variants are not cached.
+ *
+ * <p>Caches are kept per target Connection, as returned by the target
+ * DataSource. If the target DataSource returns the same Connection object
+ * for subsequent <code>getConnection</code> calls, for example a pool that
+ * hands out its physical Connections, statements are reused across calls;
+ * else, they are only reused within a single logical Connection, for
+ * example within a transaction. Connections that implement ConnectionProxy,
+ * like those of PoolingDataSource, are identified by their target Connection,
+ * and cached statements get prepared on the latter, so that they survive
+ * a pool closing the statements left open on return. Caches of Connections
+ * that have been closed by the target DataSource are discarded.
+ *
+ * <p>Works with DataSourceUtils, JdbcTemplate and DataSourceTransactionManager
+ * like any other DataSource, and can be wrapped by a TransactionAwareDataSourceProxy.
+ * Like the latter, it returns wrapped Connections, Statements and ResultSets
+ * that cannot be cast to native JDBC types. Their <code>getConnection</code>
+ * and <code>getStatement</code> methods return the wrappers too, so that a
+ * cached statement cannot be closed behind the cache's back.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see #setCacheSize
+ * @see #getCacheHitRatio
+ * @see TransactionAwareDataSourceProxy
+ * @see PoolingDataSource
+ */
+public class StatementCachingDataSource extends DelegatingDataSource {
+
+	/**
+	 * Default maximum number of idle statements to cache per Connection (32).
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 32;
+
+	private static final Log logger = LogFactory.getLog(StatementCachingDataSource.class);
+
+	/** Map from Statement setter to getter for all settings to restore on return */
+	private static final Map restorableSettings = new HashMap();
+
+	static {
+		String[] settings = new String[] {"MaxRows", "FetchSize", "QueryTimeout", "MaxFieldSize", "FetchDirection"};
+		try {
+			for (int i = 0; i < settings.length; i++) {
+				restorableSettings.put(Statement.class.getMethod("set" + settings[i], new Class[] {int.class}),
+						Statement.class.getMethod("get" + settings[i], new Class[0]));
+			}
+		}
+		catch (NoSuchMethodException ex) {
+			throw new IllegalStateException("Incompatible JDBC Statement interface: " + ex.getMessage());
+		}
+	}
+
+
+	private int cacheSize = DEFAULT_CACHE_SIZE;
+
+	/** Map from target Connection to StatementCache */
+	private final Map statementCaches = CollectionFactory.createIdentityMapIfPossible(16);
+
+	private final Object statisticsMonitor = new Object();
+
+	private long hitCount = 0;
+
+	private long missCount = 0;
+
+
+	/**
+	 * Create a new StatementCachingDataSource.
+	 * @see #setTargetDataSource
+	 */
+	public StatementCachingDataSource() {
+	}
+
+	/**
+	 * Create a new StatementCachingDataSource.
+	 * @param targetDataSource the target DataSource
+	 */
+	public StatementCachingDataSource(DataSource targetDataSource) {
+		setTargetDataSource(targetDataSource);
+		afterPropertiesSet();
+	}
+
+	/**
+	 * Set the maximum number of idle statements to cache per Connection.
+	 * Default is 32.
+	 */
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	/**
+	 * Return the maximum number of idle statements to cache per Connection.
+	 */
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+
+	public Connection getConnection() throws SQLException {
+		return getStatementCachingConnectionProxy(getTargetDataSource().getConnection());
+	}
+
+	public Connection getConnection(String username, String password) throws SQLException {
+		return getStatementCachingConnectionProxy(getTargetDataSource().getConnection(username, password));
+	}
+
+	/**
+	 * Wrap the given Connection with a proxy that caches statements.
+	 * @param target the original Connection to wrap
+	 * @return the wrapped Connection
+	 */
+	protected Connection getStatementCachingConnectionProxy(Connection target) {
+		Connection statementTarget = getStatementTarget(target);
+		return (Connection) Proxy.newProxyInstance(
+				ConnectionProxy.class.getClassLoader(),
+				new Class[] {ConnectionProxy.class},
+				new StatementCachingInvocationHandler(target, statementTarget, getStatementCache(statementTarget)));
+	}
+
+	/**
+	 * Return the Connection that cached statements are prepared on: the
+	 * underlying Connection of a ConnectionProxy, as returned by
+	 * PoolingDataSource, since the proxy changes with every borrowing
+	 * while the physical Connection stays the same.
+	 */
+	private Connection getStatementTarget(Connection target) {
+		if (target instanceof ConnectionProxy) {
+			return ((ConnectionProxy) target).getTargetConnection();
+		}
+		return target;
+	}
+
+	/**
+	 * Return the StatementCache for the given statement target Connection,
+	 * creating one if necessary. Discards the caches of closed Connections
+	 * whenever a new cache gets created.
+	 */
+	private StatementCache getStatementCache(Connection target) {
+		synchronized (this.statementCaches) {
+			StatementCache cache = (StatementCache) this.statementCaches.get(target);
+			if (cache == null) {
+				for (Iterator it = this.statementCaches.entrySet().iterator(); it.hasNext();) {
+					Map.Entry entry = (Map.Entry) it.next();
+					if (isClosed((Connection) entry.getKey())) {
+						((StatementCache) entry.getValue()).clear();
+						it.remove();
+					}
+				}
+				cache = new StatementCache();
+				this.statementCaches.put(target, cache);
+			}
+			return cache;
+		}
+	}
+
+	private boolean isClosed(Connection con) {
+		try {
+			return con.isClosed();
+		}
+		catch (SQLException ex) {
+			return true;
+		}
+	}
+
+	/**
+	 * Close all idle cached statements of all Connections.
+	 * Statements that are currently in use are not affected.
+	 */
+	public void clearCache() {
+		List caches = null;
+		synchronized (this.statementCaches) {
+			caches = new ArrayList(this.statementCaches.values());
+		}
+		for (Iterator it = caches.iterator(); it.hasNext();) {
+			((StatementCache) it.next()).clear();
+		}
+	}
+
+
+	/**
+	 * Return the number of <code>prepareStatement</code> and
+	 * <code>prepareCall</code> calls served from the cache.
+	 */
+	public long getCacheHitCount() {
+		synchronized (this.statisticsMonitor) {
+			return hitCount;
+		}
+	}
+
+	/**
+	 * Return the number of cacheable <code>prepareStatement</code> and
+	 * <code>prepareCall</code> calls that had to create a new statement.
+	 */
+	public long getCacheMissCount() {
+		synchronized (this.statisticsMonitor) {
+			return missCount;
+		}
+	}
+
+	/**
+	 * Return the fraction of cacheable calls served from the cache,
+	 * between 0.0 and 1.0, or 0.0 if there haven't been any calls yet.
+	 */
+	public double getCacheHitRatio() {
+		synchronized (this.statisticsMonitor) {
+			long total = this.hitCount + this.missCount;
+			return (total > 0 ? (double) this.hitCount / total : 0.0);
+		}
+	}
+
+	/**
+	 * Reset the hit and miss counters.
+	 */
+	public void resetStatistics() {
+		synchronized (this.statisticsMonitor) {
+			this.hitCount = 0;
+			this.missCount = 0;
+		}
+	}
+
+	private void recordLookup(boolean hit) {
+		synchronized (this.statisticsMonitor) {
+			if (hit) {
+				this.hitCount++;
+			}
+			else {
+				this.missCount++;
+			}
+		}
+	}
+
+
+	/**
+	 * Cache key for a statement: SQL, ResultSet type and concurrency,
+	 * and whether it is a CallableStatement.
+	 */
+	private static class StatementKey {
+
+		private final String sql;
+
+		private final int resultSetType;
+
+		private final int resultSetConcurrency;
+
+		private final boolean callable;
+
+		private StatementKey(String sql, int resultSetType, int resultSetConcurrency, boolean callable) {
+			this.sql = sql;
+			this.resultSetType = resultSetType;
+			this.resultSetConcurrency = resultSetConcurrency;
+			this.callable = callable;
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof StatementKey)) {
+				return false;
+			}
+			StatementKey otherKey = (StatementKey) other;
+			return (this.sql.equals(otherKey.sql) && this.resultSetType == otherKey.resultSetType &&
+					this.resultSetConcurrency == otherKey.resultSetConcurrency && this.callable == otherKey.callable);
+		}
+
+		public int hashCode() {
+			return this.sql.hashCode() * 29 + this.resultSetType * 7 + this.resultSetConcurrency + (this.callable ? 1 : 0);
+		}
+	}
+
+
+	/**
+	 * Idle statements of a single target Connection, in LRU order.
+	 */
+	private class StatementCache {
+
+		/** Map from StatementKey to idle target PreparedStatement */
+		private final Map idleStatements = CollectionFactory.createLinkedMapIfPossible(16);
+
+		/**
+		 * Remove and return an idle statement for the given key, if any.
+		 */
+		private synchronized PreparedStatement take(StatementKey key) {
+			return (PreparedStatement) this.idleStatements.remove(key);
+		}
+
+		/**
+		 * Add the given statement as most recently used idle statement,
+		 * closing it if there is one for the same key already, and evicting
+		 * the least recently used statement if the cache size is exceeded.
+		 */
+		private void release(StatementKey key, PreparedStatement ps) {
+			PreparedStatement toClose = null;
+			synchronized (this) {
+				if (this.idleStatements.containsKey(key)) {
+					toClose = ps;
+				}
+				else {
+					this.idleStatements.put(key, ps);
+					if (this.idleStatements.size() > cacheSize) {
+						Iterator it = this.idleStatements.values().iterator();
+						toClose = (PreparedStatement) it.next();
+						it.remove();
+					}
+				}
+			}
+			if (toClose != null) {
+				closeStatement(toClose);
+			}
+		}
+
+		private void clear() {
+			List toClose = null;
+			synchronized (this) {
+				toClose = new ArrayList(this.idleStatements.values());
+				this.idleStatements.clear();
+			}
+			for (Iterator it = toClose.iterator(); it.hasNext();) {
+				closeStatement((PreparedStatement) it.next());
+			}
+		}
+
+		private void closeStatement(PreparedStatement ps) {
+			try {
+				ps.close();
+			}
+			catch (SQLException ex) {
+				logger.debug("Could not close cached JDBC statement", ex);
+			}
+		}
+	}
+
+
+	/**
+	 * Invocation handler for Connection proxies: serves cacheable
+	 * prepareStatement and prepareCall calls from the StatementCache,
+	 * and wraps all other statements.
+	 */
+	private class StatementCachingInvocationHandler implements InvocationHandler {
+
+		private final Connection target;
+
+		private final Connection statementTarget;
+
+		private final StatementCache cache;
+
+		private StatementCachingInvocationHandler(Connection target, Connection statementTarget, StatementCache cache) {
+			this.target = target;
+			this.statementTarget = statementTarget;
+			this.cache = cache;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("getTargetConnection")) {
+				return this.target;
+			}
+			else if (name.equals("equals")) {
+				return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
+			}
+			else if (name.equals("hashCode")) {
+				return new Integer(System.identityHashCode(proxy));
+			}
+			else if ((name.equals("prepareStatement") || name.equals("prepareCall")) &&
+					(args.length == 1 || (args.length == 3 && args[1] instanceof Integer && args[2] instanceof Integer))) {
+				boolean callable = name.equals("prepareCall");
+				String sql = (String) args[0];
+				StatementKey key = (args.length == 1 ?
+						new StatementKey(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, callable) :
+						new StatementKey(sql, ((Integer) args[1]).intValue(), ((Integer) args[2]).intValue(), callable));
+				PreparedStatement ps = this.cache.take(key);
+				recordLookup(ps != null);
+				if (ps == null) {
+					// prepare on the physical Connection: the statement outlives this borrowing
+					try {
+						ps = (PreparedStatement) method.invoke(this.statementTarget, args);
+					}
+					catch (InvocationTargetException ex) {
+						throw ex.getTargetException();
+					}
+				}
+				return Proxy.newProxyInstance(
+						ConnectionProxy.class.getClassLoader(),
+						new Class[] {callable ? CallableStatement.class : PreparedStatement.class},
+						new StatementInvocationHandler(ps, key, (Connection) proxy, this.cache));
+			}
+			else if (name.equals("createStatement") || name.equals("prepareStatement") || name.equals("prepareCall")) {
+				// not cacheable, but getConnection still needs to return the proxy
+				return Proxy.newProxyInstance(
+						ConnectionProxy.class.getClassLoader(),
+						new Class[] {method.getReturnType()},
+						new StatementInvocationHandler((Statement) invokeTarget(method, args), null, (Connection) proxy, null));
+			}
+			return invokeTarget(method, args);
+		}
+
+		private Object invokeTarget(Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+	}
+
+
+	/**
+	 * Invocation handler for statement proxies: returns a cached target
+	 * statement to the StatementCache on close, after resetting its state,
+	 * and closes any other target statement. Wraps returned ResultSets.
+	 */
+	private static class StatementInvocationHandler implements InvocationHandler {
+
+		private final Statement target;
+
+		/** Cache key of the target statement, or null if not cacheable */
+		private final StatementKey key;
+
+		private final Connection connectionProxy;
+
+		private final StatementCache cache;
+
+		/** Map from setter Method to original value, for settings changed during use */
+		private Map originalSettings;
+
+		private boolean batchUsed;
+
+		private boolean closed;
+
+		private StatementInvocationHandler(
+				Statement target, StatementKey key, Connection connectionProxy, StatementCache cache) {
+			this.target = target;
+			this.key = key;
+			this.connectionProxy = connectionProxy;
+			this.cache = cache;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("equals")) {
+				return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
+			}
+			else if (name.equals("hashCode")) {
+				return new Integer(System.identityHashCode(proxy));
+			}
+			else if (name.equals("close")) {
+				if (!this.closed) {
+					this.closed = true;
+					if (this.key != null) {
+						returnToCache();
+					}
+					else {
+						this.target.close();
+					}
+				}
+				return null;
+			}
+			if (this.closed) {
+				throw new SQLException("Statement has been closed");
+			}
+			if (name.equals("getConnection")) {
+				return this.connectionProxy;
+			}
+			else if (name.equals("addBatch")) {
+				this.batchUsed = true;
+			}
+			else if (this.key != null && restorableSettings.containsKey(method)) {
+				if (this.originalSettings == null) {
+					this.originalSettings = new HashMap(4);
+				}
+				if (!this.originalSettings.containsKey(method)) {
+					Method getter = (Method) restorableSettings.get(method);
+					this.originalSettings.put(method, getter.invoke(this.target, null));
+				}
+			}
+			Object result;
+			try {
+				result = method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+			if (result instanceof ResultSet) {
+				return Proxy.newProxyInstance(
+						ConnectionProxy.class.getClassLoader(),
+						new Class[] {ResultSet.class},
+						new ResultSetInvocationHandler((ResultSet) result, (Statement) proxy));
+			}
+			return result;
+		}
+
+		/**
+		 * Reset the target statement and return it to the cache,
+		 * or close it if it could not be reset.
+		 */
+		private void returnToCache() throws SQLException {
+			PreparedStatement ps = (PreparedStatement) this.target;
+			try {
+				ps.clearParameters();
+				if (this.batchUsed) {
+					ps.clearBatch();
+				}
+				if (this.originalSettings != null) {
+					for (Iterator it = this.originalSettings.entrySet().iterator(); it.hasNext();) {
+						Map.Entry entry = (Map.Entry) it.next();
+						((Method) entry.getKey()).invoke(ps, new Object[] {entry.getValue()});
+					}
+				}
+				ps.clearWarnings();
+			}
+			catch (Exception ex) {
+				logger.debug("Could not reset JDBC statement - closing it instead of caching it", ex);
+				ps.close();
+				return;
+			}
+			this.cache.release(this.key, ps);
+		}
+	}
+
+
+	/**
+	 * Invocation handler for ResultSet proxies: returns the statement
+	 * proxy from <code>getStatement</code>.
+	 */
+	private static class ResultSetInvocationHandler implements InvocationHandler {
+
+		private final ResultSet target;
+
+		private final Statement statementProxy;
+
+		private ResultSetInvocationHandler(ResultSet target, Statement statementProxy) {
+			this.target = target;
+			this.statementProxy = statementProxy;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("equals")) {
+				return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
+			}
+			else if (name.equals("hashCode")) {
+				return new Integer(System.identityHashCode(proxy));
+			}
+			else if (name.equals("getStatement")) {
+				return this.statementProxy;
+			}
+			try {
+				return method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+	}
+
+}
@@ -162,7 +162,7 @@ public class BatchSqlUpdate extends SqlUpdate {
 		}
 		
 		int[] rowsAffected = getJdbcTemplate().batchUpdate(
-				getSql(),
+				getSqlToUse(),
 				new BatchPreparedStatementSetter() {
 				 public int getBatchSize() {
 					 return parameterQueue.size();
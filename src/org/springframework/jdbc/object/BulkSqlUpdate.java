@@ -0,0 +1,502 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.object;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.core.task.DiscardableTask;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+
+/**
+ * SqlUpdate subclass for bulk writes of large numbers of rows. Reads
+ * statement parameters from a row source, splits them into chunks of
+ * a configurable size and executes each chunk as a JDBC batch, so that
+ * no more than a few chunks are held in memory at any time.
+ *
+ * <p>By default, chunks are executed in the calling thread via the
+ * JdbcTemplate, participating in a surrounding transaction if any.
+ * With "commitPerChunk", each chunk gets executed on its own Connection
+ * obtained from the DataSource and committed on its own, outside of any
+ * surrounding transaction. With a "taskExecutor", chunks are spread over
+ * multiple threads and thus Connections, up to "concurrency" chunks
+ * at a time; each chunk is committed on its own then.
+ *
+ * <p>In contrast to BatchSqlUpdate, this class is thread-safe once
+ * configured: all state of a run is local to the <code>update</code>
+ * call. Failed chunks do not throw an exception but are reported in
+ * the returned BulkUpdateResult.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see #update(java.util.Iterator)
+ * @see BulkUpdateResult
+ * @see BatchSqlUpdate
+ */
+public class BulkSqlUpdate extends SqlUpdate {
+
+	/**
+	 * Default number of chunks that may be executed at the same time
+	 * when using a TaskExecutor (4).
+	 */
+	public static final int DEFAULT_CONCURRENCY = 4;
+
+	private int chunkSize = BatchSqlUpdate.DEFAULT_BATCH_SIZE;
+
+	private boolean commitPerChunk = false;
+
+	private TaskExecutor taskExecutor;
+
+	private int concurrency = DEFAULT_CONCURRENCY;
+
+	private boolean continueOnFailure = false;
+
+
+	/**
+	 * Constructor to allow use as a JavaBean. DataSource and SQL
+	 * must be supplied before compilation and use.
+	 */
+	public BulkSqlUpdate() {
+		super();
+	}
+
+	/**
+	 * Construct a bulk update object with a given DataSource and SQL.
+	 * @param ds DataSource to use to obtain connections
+	 * @param sql SQL statement to execute
+	 */
+	public BulkSqlUpdate(DataSource ds, String sql) {
+		super(ds, sql);
+	}
+
+	/**
+	 * Construct a bulk update object with a given DataSource, SQL
+	 * and anonymous parameters.
+	 * @param ds DataSource to use to obtain connections
+	 * @param sql SQL statement to execute
+	 * @param types anonymous parameter declarations
+	 */
+	public BulkSqlUpdate(DataSource ds, String sql, int[] types) {
+		super(ds, sql, types);
+	}
+
+	/**
+	 * Set the number of rows to execute as one JDBC batch.
+	 * Default is BatchSqlUpdate's DEFAULT_BATCH_SIZE.
+	 * @see BatchSqlUpdate#DEFAULT_BATCH_SIZE
+	 */
+	public void setChunkSize(int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize must be greater than 0");
+		}
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Return the number of rows to execute as one JDBC batch.
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Set whether to execute each chunk on its own Connection and commit it
+	 * on its own, independent from a surrounding transaction. Default is false.
+	 * <p>Committed chunks stay committed even if later chunks fail: check the
+	 * resulting BulkUpdateResult to find out which rows need to be retried.
+	 * Always effectively true when a TaskExecutor has been specified.
+	 * @see #setTaskExecutor
+	 */
+	public void setCommitPerChunk(boolean commitPerChunk) {
+		this.commitPerChunk = commitPerChunk;
+	}
+
+	/**
+	 * Return whether each chunk gets committed on its own.
+	 */
+	public boolean isCommitPerChunk() {
+		return commitPerChunk;
+	}
+
+	/**
+	 * Set the TaskExecutor to execute chunks with, for example a
+	 * ThreadPoolTaskExecutor. Default is none, executing all chunks
+	 * in the calling thread.
+	 * <p>Note that a chunk executed by another thread cannot participate
+	 * in the caller's transaction: each chunk will be committed on its own.
+	 * Chunks that the TaskExecutor rejects or discards are reported as failed.
+	 * @see #setConcurrency
+	 * @see org.springframework.scheduling.pool.ThreadPoolTaskExecutor
+	 */
+	public void setTaskExecutor(TaskExecutor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Return the TaskExecutor to execute chunks with, if any.
+	 */
+	public TaskExecutor getTaskExecutor() {
+		return taskExecutor;
+	}
+
+	/**
+	 * Set the maximum number of chunks to execute at the same time when using
+	 * a TaskExecutor, and thus the maximum number of Connections to use.
+	 * Default is 4.
+	 * <p>Reading from the row source pauses while this number of chunks is
+	 * in progress, limiting memory consumption to (concurrency + 1) chunks.
+	 */
+	public void setConcurrency(int concurrency) {
+		if (concurrency <= 0) {
+			throw new IllegalArgumentException("concurrency must be greater than 0");
+		}
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Return the maximum number of chunks to execute at the same time.
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * Set whether to keep executing further chunks after a chunk failed.
+	 * Default is false: No further rows will be read from the row source
+	 * once a failure has been detected.
+	 */
+	public void setContinueOnFailure(boolean continueOnFailure) {
+		this.continueOnFailure = continueOnFailure;
+	}
+
+	/**
+	 * Return whether to keep executing further chunks after a chunk failed.
+	 */
+	public boolean isContinueOnFailure() {
+		return continueOnFailure;
+	}
+
+	/**
+	 * BulkSqlUpdate does not support BLOB or CLOB parameters.
+	 */
+	protected boolean supportsLobParameters() {
+		return false;
+	}
+
+
+	/**
+	 * Execute this update for all parameter arrays in the given Collection.
+	 * @param rows Collection of Object arrays, one per row
+	 * @return the aggregated result of all chunks
+	 * @see #update(java.util.Iterator)
+	 */
+	public BulkUpdateResult update(Collection rows) throws DataAccessException {
+		return update(rows.iterator());
+	}
+
+	/**
+	 * Execute this update for all parameter arrays returned by the given
+	 * Iterator. The Iterator will only be accessed by the calling thread,
+	 * and not read ahead any further than necessary to fill the next chunk:
+	 * it may lazily produce rows, for example from a file.
+	 * <p>Returns after all chunks have been executed, respectively after the
+	 * first failure unless "continueOnFailure" has been specified. Failures
+	 * of individual chunks are not thrown but reported in the result.
+	 * @param rows Iterator over Object arrays, one per row. Each row needs
+	 * its own array instance, as rows are only bound when a chunk executes.
+	 * @return the aggregated result of all chunks
+	 * @throws InvalidDataAccessApiUsageException if a row does not
+	 * match the declared parameters
+	 * @throws DataAccessResourceFailureException if the calling thread got
+	 * interrupted while waiting for chunks executed by the TaskExecutor;
+	 * its interrupt flag remains set, and chunks in progress still complete
+	 * @see BulkUpdateResult#hasFailures
+	 */
+	public BulkUpdateResult update(Iterator rows) throws DataAccessException {
+		BulkUpdateResult result = new BulkUpdateResult();
+		ChunkTracker tracker = new ChunkTracker();
+		int chunkIndex = 0;
+		long rowIndex = 0;
+		try {
+			while (rows.hasNext() && (this.continueOnFailure || !result.hasFailures())) {
+				List chunk = new ArrayList(this.chunkSize);
+				Object[] lastParams = null;
+				while (chunk.size() < this.chunkSize && rows.hasNext()) {
+					Object[] params = (Object[]) rows.next();
+					validateParameters(params);
+					if (params != null && params == lastParams) {
+						throw new InvalidDataAccessApiUsageException(
+								"Object array containing the parameters cannot be reused -- " +
+								"you must create a new object array for each row");
+					}
+					chunk.add(params);
+					lastParams = params;
+				}
+				result.chunkSubmitted(chunk.size());
+				ChunkTask task = new ChunkTask(chunk, chunkIndex, rowIndex, result, tracker);
+				if (this.taskExecutor != null) {
+					tracker.acquire(this.concurrency);
+					try {
+						this.taskExecutor.execute(task);
+					}
+					catch (TaskRejectedException ex) {
+						tracker.release();
+						task.failed(ex);
+					}
+				}
+				else {
+					task.run();
+				}
+				chunkIndex++;
+				rowIndex += chunk.size();
+			}
+		}
+		finally {
+			tracker.awaitCompletion();
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Bulk update [" + getSql() + "] finished: " + result);
+		}
+		return result;
+	}
+
+	/**
+	 * Execute the given chunk of rows, either via the JdbcTemplate
+	 * or on a Connection of its own.
+	 * @param chunk List of Object arrays, one per row
+	 * @return the number of rows affected by each statement
+	 * @throws DataAccessException if the chunk failed
+	 */
+	protected int[] executeChunk(List chunk) throws DataAccessException {
+		if (this.commitPerChunk || this.taskExecutor != null) {
+			return executeChunkInOwnTransaction(chunk);
+		}
+		final List rows = chunk;
+		int[] rowsAffected = getJdbcTemplate().batchUpdate(getSqlToUse(), new BatchPreparedStatementSetter() {
+			public int getBatchSize() {
+				return rows.size();
+			}
+			public void setValues(PreparedStatement ps, int index) throws SQLException {
+				newPreparedStatementSetter((Object[]) rows.get(index)).setValues(ps);
+			}
+		});
+		for (int i = 0; i < rowsAffected.length; i++) {
+			checkRowsAffected(rowsAffected[i]);
+		}
+		return rowsAffected;
+	}
+
+	/**
+	 * Execute the given chunk on a new Connection from the DataSource and
+	 * commit it. Deliberately bypasses DataSourceUtils: the Connection must
+	 * neither be a transactional one bound to the current thread nor be
+	 * registered with a surrounding transaction.
+	 * @param chunk List of Object arrays, one per row
+	 * @return the number of rows affected by each statement
+	 * @throws DataAccessException if the chunk failed and has been rolled back
+	 */
+	protected int[] executeChunkInOwnTransaction(List chunk) throws DataAccessException {
+		DataSource ds = getJdbcTemplate().getDataSource();
+		Connection con = null;
+		try {
+			con = ds.getConnection();
+		}
+		catch (SQLException ex) {
+			throw new CannotGetJdbcConnectionException("Could not get JDBC connection for bulk update chunk", ex);
+		}
+		try {
+			boolean autoCommit = con.getAutoCommit();
+			if (autoCommit) {
+				con.setAutoCommit(false);
+			}
+			boolean committed = false;
+			try {
+				int[] rowsAffected = executeBatch(con, chunk);
+				for (int i = 0; i < rowsAffected.length; i++) {
+					checkRowsAffected(rowsAffected[i]);
+				}
+				con.commit();
+				committed = true;
+				return rowsAffected;
+			}
+			finally {
+				if (!committed) {
+					try {
+						con.rollback();
+					}
+					catch (SQLException ex) {
+						logger.warn("Could not roll back failed bulk update chunk", ex);
+					}
+				}
+				if (autoCommit) {
+					con.setAutoCommit(true);
+				}
+			}
+		}
+		catch (SQLException ex) {
+			throw getJdbcTemplate().getExceptionTranslator().translate(
+					"executing bulk update chunk", getSql(), ex);
+		}
+		finally {
+			try {
+				con.close();
+			}
+			catch (SQLException ex) {
+				logger.warn("Could not close JDBC connection", ex);
+			}
+		}
+	}
+
+	/**
+	 * Execute the given rows as a batch on the given Connection, falling back
+	 * to individual updates if the driver does not support batch updates.
+	 */
+	private int[] executeBatch(Connection con, List chunk) throws SQLException {
+		PreparedStatement ps = con.prepareStatement(getSqlToUse());
+		try {
+			DatabaseMetaData dbmd = con.getMetaData();
+			if (dbmd != null && dbmd.supportsBatchUpdates()) {
+				for (int i = 0; i < chunk.size(); i++) {
+					newPreparedStatementSetter((Object[]) chunk.get(i)).setValues(ps);
+					ps.addBatch();
+				}
+				return ps.executeBatch();
+			}
+			else {
+				int[] rowsAffected = new int[chunk.size()];
+				for (int i = 0; i < chunk.size(); i++) {
+					newPreparedStatementSetter((Object[]) chunk.get(i)).setValues(ps);
+					rowsAffected[i] = ps.executeUpdate();
+				}
+				return rowsAffected;
+			}
+		}
+		finally {
+			ps.close();
+		}
+	}
+
+
+	/**
+	 * Runnable that executes a single chunk and records its outcome.
+	 */
+	private class ChunkTask implements DiscardableTask {
+
+		private final List chunk;
+
+		private final int chunkIndex;
+
+		private final long firstRowIndex;
+
+		private final BulkUpdateResult result;
+
+		private final ChunkTracker tracker;
+
+		private ChunkTask(List chunk, int chunkIndex, long firstRowIndex,
+		                  BulkUpdateResult result, ChunkTracker tracker) {
+			this.chunk = chunk;
+			this.chunkIndex = chunkIndex;
+			this.firstRowIndex = firstRowIndex;
+			this.result = result;
+			this.tracker = tracker;
+		}
+
+		public void run() {
+			try {
+				int[] rowsAffected = executeChunk(this.chunk);
+				this.result.chunkSucceeded(this.chunk.size(), rowsAffected);
+			}
+			catch (Throwable ex) {
+				failed(ex);
+			}
+			finally {
+				if (taskExecutor != null) {
+					this.tracker.release();
+				}
+			}
+		}
+
+		public void discard(TaskRejectedException reason) {
+			try {
+				failed(reason);
+			}
+			finally {
+				this.tracker.release();
+			}
+		}
+
+		private void failed(Throwable ex) {
+			logger.warn("Bulk update chunk " + this.chunkIndex + " failed", ex);
+			this.result.chunkFailed(
+					new BulkUpdateResult.ChunkFailure(this.chunkIndex, this.firstRowIndex, this.chunk.size(), ex));
+		}
+	}
+
+
+	/**
+	 * Counts the chunks in progress for a single <code>update</code> call.
+	 */
+	private static class ChunkTracker {
+
+		private int inProgress = 0;
+
+		private synchronized void acquire(int limit) {
+			while (this.inProgress >= limit) {
+				waitForRelease();
+			}
+			this.inProgress++;
+		}
+
+		private synchronized void release() {
+			this.inProgress--;
+			notifyAll();
+		}
+
+		private synchronized void awaitCompletion() {
+			while (this.inProgress > 0) {
+				waitForRelease();
+			}
+		}
+
+		private void waitForRelease() {
+			try {
+				wait();
+			}
+			catch (InterruptedException ex) {
+				// the chunks in progress complete on their own and close their Connections
+				Thread.currentThread().interrupt();
+				throw new DataAccessResourceFailureException(
+						"Interrupted while waiting for bulk update chunks in progress", ex);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.object;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a BulkSqlUpdate run: aggregated update counts plus
+ * a description of every chunk that failed.
+ *
+ * <p>Updated by the executing threads while a run is in progress;
+ * only handed out to the caller once all chunks have completed.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see BulkSqlUpdate#update(java.util.Iterator)
+ */
+public class BulkUpdateResult {
+
+	private long rowCount;
+
+	private int chunkCount;
+
+	private long executedRowCount;
+
+	private long rowsAffected;
+
+	private final List failures = new ArrayList();
+
+
+	synchronized void chunkSubmitted(int chunkRowCount) {
+		this.chunkCount++;
+		this.rowCount += chunkRowCount;
+	}
+
+	synchronized void chunkSucceeded(int chunkRowCount, int[] chunkRowsAffected) {
+		this.executedRowCount += chunkRowCount;
+		for (int i = 0; i < chunkRowsAffected.length; i++) {
+			// negative values like Statement.SUCCESS_NO_INFO do not count
+			if (chunkRowsAffected[i] > 0) {
+				this.rowsAffected += chunkRowsAffected[i];
+			}
+		}
+	}
+
+	synchronized void chunkFailed(ChunkFailure failure) {
+		this.failures.add(failure);
+	}
+
+
+	/**
+	 * Return the number of rows read from the row source.
+	 */
+	public synchronized long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Return the number of chunks that the rows have been split into.
+	 */
+	public synchronized int getChunkCount() {
+		return chunkCount;
+	}
+
+	/**
+	 * Return the number of rows in successfully executed chunks.
+	 */
+	public synchronized long getExecutedRowCount() {
+		return executedRowCount;
+	}
+
+	/**
+	 * Return the total number of rows affected by all successfully executed
+	 * chunks, as far as reported by the JDBC driver.
+	 */
+	public synchronized long getRowsAffected() {
+		return rowsAffected;
+	}
+
+	/**
+	 * Return whether any chunk failed.
+	 */
+	public synchronized boolean hasFailures() {
+		return !this.failures.isEmpty();
+	}
+
+	/**
+	 * Return the ChunkFailure objects for all failed chunks,
+	 * in the order of their failure.
+	 */
+	public synchronized List getFailures() {
+		return Collections.unmodifiableList(new ArrayList(this.failures));
+	}
+
+	public String toString() {
+		StringBuffer sb = new StringBuffer("BulkUpdateResult: ");
+		sb.append("rows=[").append(getRowCount()).append("]; ");
+		sb.append("chunks=[").append(getChunkCount()).append("]; ");
+		sb.append("executedRows=[").append(getExecutedRowCount()).append("]; ");
+		sb.append("rowsAffected=[").append(getRowsAffected()).append("]; ");
+		sb.append("failedChunks=[").append(getFailures().size()).append("]");
+		return sb.toString();
+	}
+
+
+	/**
+	 * Description of a single failed chunk. With per-chunk commits, the rows
+	 * of a failed chunk have been rolled back and can be retried as a unit.
+	 */
+	public static class ChunkFailure {
+
+		private final int chunkIndex;
+
+		private final long firstRowIndex;
+
+		private final int rowCount;
+
+		private final Throwable cause;
+
+		ChunkFailure(int chunkIndex, long firstRowIndex, int rowCount, Throwable cause) {
+			this.chunkIndex = chunkIndex;
+			this.firstRowIndex = firstRowIndex;
+			this.rowCount = rowCount;
+			this.cause = cause;
+		}
+
+		/**
+		 * Return the 0-based index of the failed chunk.
+		 */
+		public int getChunkIndex() {
+			return chunkIndex;
+		}
+
+		/**
+		 * Return the 0-based index of the first row of the failed chunk
+		 * within the row source.
+		 */
+		public long getFirstRowIndex() {
+			return firstRowIndex;
+		}
+
+		/**
+		 * Return the number of rows in the failed chunk.
+		 */
+		public int getRowCount() {
+			return rowCount;
+		}
+
+		/**
+		 * Return the exception that the chunk failed with, usually
+		 * a DataAccessException.
+		 */
+		public Throwable getCause() {
+			return cause;
+		}
+
+		public String toString() {
+			return "Chunk " + this.chunkIndex + " (rows " + this.firstRowIndex + " to " +
+					(this.firstRowIndex + this.rowCount - 1) + ") failed: " + this.cause;
+		}
+	}
+
+}
@@ -21,6 +21,7 @@ import java.sql.Types;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import javax.sql.DataSource;
 
@@ -302,27 +303,7 @@ public abstract class RdbmsOperation implements InitializingBean {
 	 * @throws InvalidDataAccessApiUsageException if the parameters are invalid
 	 */
 	protected void validateParameters(Object[] parameters) throws InvalidDataAccessApiUsageException {
-		if (!this.compiled) {
-			logger.info("SQL operation not compiled before execution - invoking compile");
-			compile();
-		}
-
-		int declaredInParameters = 0;
-		if (this.declaredParameters != null) {
-			Iterator iter = this.declaredParameters.iterator();
-			while (iter.hasNext()) {
-				Object param = iter.next();
-				if (!(param instanceof SqlOutParameter) && !(param instanceof SqlReturnResultSet)) {
-					if (!supportsLobParameters() &&
-							(((SqlParameter)param).getSqlType() == Types.BLOB ||
-							((SqlParameter)param).getSqlType() == Types.CLOB)) {
-						throw new InvalidDataAccessApiUsageException("BLOB or CLOB parameters are not allowed " +
-																												 "for this kind of operation.");
-					}
-					declaredInParameters++;
-				}
-			}
-		}
+		int declaredInParameters = checkDeclaredInParameters();
 
 		if (parameters != null) {
 			if (this.declaredParameters == null) {
@@ -347,6 +328,61 @@ public abstract class RdbmsOperation implements InitializingBean {
 		}
 	}
 
+	/**
+	 * Validate the named parameters passed to an execute method based on
+	 * declared parameters: every declared in parameter needs a value in the
+	 * given Map, keyed by its name.
+	 * @param parameters Map from parameter name to value. May be null.
+	 * @throws InvalidDataAccessApiUsageException if the parameters are invalid
+	 */
+	protected void validateNamedParameters(Map parameters) throws InvalidDataAccessApiUsageException {
+		checkDeclaredInParameters();
+		for (Iterator it = this.declaredParameters.iterator(); it.hasNext();) {
+			SqlParameter param = (SqlParameter) it.next();
+			if (param instanceof SqlOutParameter || param instanceof SqlReturnResultSet) {
+				continue;
+			}
+			if (param.getName() == null) {
+				throw new InvalidDataAccessApiUsageException("All parameters need to be declared with names " +
+																										 "for use with named parameter values");
+			}
+			if (parameters == null || !parameters.containsKey(param.getName())) {
+				throw new InvalidDataAccessApiUsageException("No value supplied for SQL parameter '" +
+																										 param.getName() + "'");
+			}
+		}
+	}
+
+	/**
+	 * Compile this operation if necessary, and check the declared
+	 * in parameters for unsupported types.
+	 * @return the number of declared in parameters
+	 */
+	private int checkDeclaredInParameters() throws InvalidDataAccessApiUsageException {
+		if (!this.compiled) {
+			logger.info("SQL operation not compiled before execution - invoking compile");
+			compile();
+		}
+
+		int declaredInParameters = 0;
+		if (this.declaredParameters != null) {
+			Iterator iter = this.declaredParameters.iterator();
+			while (iter.hasNext()) {
+				Object param = iter.next();
+				if (!(param instanceof SqlOutParameter) && !(param instanceof SqlReturnResultSet)) {
+					if (!supportsLobParameters() &&
+							(((SqlParameter)param).getSqlType() == Types.BLOB ||
+							((SqlParameter)param).getSqlType() == Types.CLOB)) {
+						throw new InvalidDataAccessApiUsageException("BLOB or CLOB parameters are not allowed " +
+																												 "for this kind of operation.");
+					}
+					declaredInParameters++;
+				}
+			}
+		}
+		return declaredInParameters;
+	}
+
 	/**
 	 * Return whether BLOB or CLOB parameters are supported
 	 * for this kind of operation. Default is true.
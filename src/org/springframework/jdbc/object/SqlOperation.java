@@ -16,10 +16,18 @@
 
 package org.springframework.jdbc.object;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
 import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
 import org.springframework.jdbc.support.JdbcUtils;
 
 /**
@@ -29,6 +37,13 @@ import org.springframework.jdbc.support.JdbcUtils;
  * <p>Configures a PreparedStatementCreatorFactory based on the
  * declared parameters.
  *
+ * <p>The SQL uses "?" placeholders by default, and is passed to the
+ * JDBC driver as-is. With "useNamedParameters", it uses named parameters
+ * in the form ":name" instead, matched against the names of the declared
+ * parameters. Values for named parameters can be passed in positionally,
+ * in the order of declaration, or by name through the "ByNamedParam"
+ * methods of subclasses, which also expand Collection values into "IN" lists.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  */
@@ -40,12 +55,49 @@ public abstract class SqlOperation extends RdbmsOperation {
 	 */
 	private PreparedStatementCreatorFactory preparedStatementFactory;
 
+	private boolean useNamedParameters = false;
+
+	/** Parsed SQL if it uses named parameters, else null */
+	private ParsedSql parsedSql;
+
+	/** Index of the declared parameter for each named parameter occurrence */
+	private int[] declaredParameterIndexes;
+
+
+	/**
+	 * Set whether the SQL uses named parameters (":name") instead of "?"
+	 * placeholders. Default is false: the SQL is not parsed for named
+	 * parameters, leaving constructs like PostgreSQL's "::" casts and
+	 * "[1:2]" array slices untouched.
+	 * <p>Needs to be true for the "ByNamedParam" methods of subclasses.
+	 * @throws InvalidDataAccessApiUsageException if the operation is already compiled
+	 */
+	public void setUseNamedParameters(boolean useNamedParameters) {
+		if (isCompiled()) {
+			throw new InvalidDataAccessApiUsageException("The useNamedParameters flag must be set " +
+			                                             "before the operation is compiled");
+		}
+		this.useNamedParameters = useNamedParameters;
+	}
+
+	/**
+	 * Return whether the SQL uses named parameters.
+	 */
+	public boolean isUseNamedParameters() {
+		return useNamedParameters;
+	}
 
 	/**
 	 * Overridden method to configure the PreparedStatementCreatorFactory
 	 * based on our declared parameters.
 	 */
 	protected final void compileInternal() {
+		if (this.useNamedParameters) {
+			compileNamedParameters(NamedParameterUtils.getParsedSql(getSql()));
+			onCompileInternal();
+			return;
+		}
+
 		// validate parameter count
 		int bindVarCount = 0;
 		try {
@@ -60,15 +112,75 @@ public abstract class SqlOperation extends RdbmsOperation {
 			                                             " bind variables, but " + getDeclaredParameters().size() +
 																									 " variables were declared for this object");
 
-		this.preparedStatementFactory = new PreparedStatementCreatorFactory(getSql(), getDeclaredParameters());
-		this.preparedStatementFactory.setResultSetType(getResultSetType());
-		this.preparedStatementFactory.setUpdatableResults(isUpdatableResults());
-		this.preparedStatementFactory.setReturnGeneratedKeys(isReturnGeneratedKeys());
+		this.preparedStatementFactory = createPreparedStatementCreatorFactory(getSql(), getDeclaredParameters());
+		onCompileInternal();
+	}
+
+	/**
+	 * Match the named parameters of the given SQL against the declared
+	 * parameters, and configure the PreparedStatementCreatorFactory with
+	 * one declared parameter per named parameter occurrence.
+	 */
+	private void compileNamedParameters(ParsedSql parsedSql) throws InvalidDataAccessApiUsageException {
+		if (parsedSql.getUnnamedParameterCount() > 0) {
+			throw new InvalidDataAccessApiUsageException(
+					"SQL '" + getSql() + "' contains '?' placeholders, but uses named parameters");
+		}
+		List declaredParameters = getDeclaredParameters();
+		if (parsedSql.getDistinctParameterNames().length != declaredParameters.size()) {
+			throw new InvalidDataAccessApiUsageException("SQL '" + getSql() + "' requires " +
+			                                             parsedSql.getDistinctParameterNames().length +
+			                                             " named parameters, but " + declaredParameters.size() +
+			                                             " parameters were declared for this object");
+		}
+		int[] indexes = new int[parsedSql.getParameterCount()];
+		List occurrenceParameters = new ArrayList(indexes.length);
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = getDeclaredParameterIndex(parsedSql.getParameterName(i));
+			occurrenceParameters.add(declaredParameters.get(indexes[i]));
+		}
+		this.parsedSql = parsedSql;
+		this.declaredParameterIndexes = indexes;
+		this.preparedStatementFactory =
+				createPreparedStatementCreatorFactory(parsedSql.getSubstitutedSql(), occurrenceParameters);
+	}
+
+	private int getDeclaredParameterIndex(String name) throws InvalidDataAccessApiUsageException {
+		List declaredParameters = getDeclaredParameters();
+		for (int i = 0; i < declaredParameters.size(); i++) {
+			if (name.equals(((SqlParameter) declaredParameters.get(i)).getName())) {
+				return i;
+			}
+		}
+		throw new InvalidDataAccessApiUsageException("SQL parameter ':" + name + "' has not been declared");
+	}
+
+	/**
+	 * Create a PreparedStatementCreatorFactory for the given SQL and
+	 * parameters, with this operation's settings applied.
+	 */
+	private PreparedStatementCreatorFactory createPreparedStatementCreatorFactory(String sql, List parameters) {
+		PreparedStatementCreatorFactory factory = new PreparedStatementCreatorFactory(sql, parameters);
+		factory.setResultSetType(getResultSetType());
+		factory.setUpdatableResults(isUpdatableResults());
+		factory.setReturnGeneratedKeys(isReturnGeneratedKeys());
 		if (getGeneratedKeysColumnNames() != null)
-			this.preparedStatementFactory.setGeneratedKeysColumnNames(getGeneratedKeysColumnNames());
-		this.preparedStatementFactory.setNativeJdbcExtractor(getJdbcTemplate().getNativeJdbcExtractor());
+			factory.setGeneratedKeysColumnNames(getGeneratedKeysColumnNames());
+		factory.setNativeJdbcExtractor(getJdbcTemplate().getNativeJdbcExtractor());
+		return factory;
+	}
 
-		onCompileInternal();
+	/**
+	 * Return the SQL to hand to the JDBC driver: the SQL with named
+	 * parameters replaced by "?" placeholders if it uses named parameters,
+	 * else the SQL as specified. Only available after compilation.
+	 * <p>Subclasses that execute statements themselves rather than through
+	 * a PreparedStatementCreator need to use this instead of getSql.
+	 * @see #setUseNamedParameters
+	 * @see #newPreparedStatementSetter(Object[])
+	 */
+	protected String getSqlToUse() {
+		return (this.parsedSql != null ? this.parsedSql.getSubstitutedSql() : getSql());
 	}
 
 	/**
@@ -85,7 +197,7 @@ public abstract class SqlOperation extends RdbmsOperation {
 	 * @param params parameter array. May be null.
 	 */
 	protected final PreparedStatementCreator newPreparedStatementCreator(Object[] params) {
-		return this.preparedStatementFactory.newPreparedStatementCreator(params);
+		return this.preparedStatementFactory.newPreparedStatementCreator(toOccurrenceValues(params));
 	}
 
 	/**
@@ -94,7 +206,80 @@ public abstract class SqlOperation extends RdbmsOperation {
 	 * @param params parameter array. May be null.
 	 */
 	protected final PreparedStatementSetter newPreparedStatementSetter(Object[] params) {
-		return this.preparedStatementFactory.newPreparedStatementSetter(params);
+		return this.preparedStatementFactory.newPreparedStatementSetter(toOccurrenceValues(params));
+	}
+
+	/**
+	 * Return a PreparedStatementCreator to perform an operation
+	 * with the given named parameter values.
+	 * @param paramMap Map from parameter name to value
+	 * @throws InvalidDataAccessApiUsageException if the SQL of this
+	 * operation does not use named parameters
+	 * @see #setUseNamedParameters
+	 */
+	protected final PreparedStatementCreator newPreparedStatementCreator(Map paramMap) {
+		return getPreparedStatementCreatorFactory(paramMap).newPreparedStatementCreator(
+				NamedParameterUtils.buildValueArray(this.parsedSql, paramMap));
+	}
+
+	/**
+	 * Return a PreparedStatementSetter to perform an operation
+	 * with the given named parameter values.
+	 * @param paramMap Map from parameter name to value
+	 * @throws InvalidDataAccessApiUsageException if the SQL of this
+	 * operation does not use named parameters
+	 */
+	protected final PreparedStatementSetter newPreparedStatementSetter(Map paramMap) {
+		return getPreparedStatementCreatorFactory(paramMap).newPreparedStatementSetter(
+				NamedParameterUtils.buildValueArray(this.parsedSql, paramMap));
+	}
+
+	/**
+	 * Map positional values, given in the order of the declared parameters,
+	 * to the named parameter occurrences in the SQL.
+	 */
+	private Object[] toOccurrenceValues(Object[] params) {
+		if (this.parsedSql == null || params == null) {
+			return params;
+		}
+		Object[] values = new Object[this.declaredParameterIndexes.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = params[this.declaredParameterIndexes[i]];
+		}
+		return values;
+	}
+
+	/**
+	 * Return the PreparedStatementCreatorFactory for the given named
+	 * parameter values: the compiled one, unless Collection or array
+	 * values need to be expanded into lists of placeholders.
+	 */
+	private PreparedStatementCreatorFactory getPreparedStatementCreatorFactory(Map paramMap) {
+		if (this.parsedSql == null) {
+			throw new InvalidDataAccessApiUsageException(
+					"SQL '" + getSql() + "' does not use named parameters: set 'useNamedParameters' to true");
+		}
+		if (!NamedParameterUtils.hasExpandableValues(this.parsedSql, paramMap)) {
+			return this.preparedStatementFactory;
+		}
+		List declaredParameters = getDeclaredParameters();
+		List expandedParameters = new ArrayList();
+		for (int i = 0; i < this.declaredParameterIndexes.length; i++) {
+			SqlParameter param = (SqlParameter) declaredParameters.get(this.declaredParameterIndexes[i]);
+			Object value = paramMap.get(this.parsedSql.getParameterName(i));
+			int size = 1;
+			if (value instanceof Collection) {
+				size = ((Collection) value).size();
+			}
+			else if (value instanceof Object[]) {
+				size = ((Object[]) value).length;
+			}
+			for (int j = 0; j < size; j++) {
+				expandedParameters.add(param);
+			}
+		}
+		return createPreparedStatementCreatorFactory(
+				NamedParameterUtils.substituteNamedParameters(this.parsedSql, paramMap), expandedParameters);
 	}
 
 }
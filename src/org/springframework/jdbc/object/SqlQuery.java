@@ -24,6 +24,7 @@ import javax.sql.DataSource;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.jdbc.core.ResultReader;
+import org.springframework.jdbc.core.SqlParameter;
 
 /**
  * Reusable threadsafe object to represent a SQL query. Subclasses must
@@ -205,6 +206,38 @@ public abstract class SqlQuery extends SqlOperation {
 		return execute(p1, null);
 	}
 
+	/**
+	 * Central execution method for named parameter values: the SQL of this
+	 * query needs to use named parameters (":name") matching the names of
+	 * the declared parameters, with "useNamedParameters" set to true.
+	 * @param paramMap Map from parameter name to value. Collection and array
+	 * values are expanded into lists of placeholders, e.g. for "IN" clauses.
+	 * @param context contextual information passed to the callback mapRow method.
+	 * This parameter doesn't rely on the JDBC request itself, but can be useful
+	 * for creating the objects of the result list.
+	 * @return a List of objects, one per row of the ResultSet. Normally all these
+	 * will be of the same class, although it is possible to use different types.
+	 */
+	public List executeByNamedParam(Map paramMap, Map context) throws DataAccessException {
+		validateNamedParameters(paramMap);
+		List declaredParameters = getDeclaredParameters();
+		Object[] parameters = new Object[declaredParameters.size()];
+		for (int i = 0; i < parameters.length; i++) {
+			parameters[i] = paramMap.get(((SqlParameter) declaredParameters.get(i)).getName());
+		}
+		ResultReader rr = newResultReader(this.rowsExpected, parameters, context);
+		return getJdbcTemplate().query(newPreparedStatementCreator(paramMap), rr);
+	}
+
+	/**
+	 * Convenient method to execute with named parameter values, without context.
+	 * @param paramMap Map from parameter name to value
+	 * @see #executeByNamedParam(java.util.Map, java.util.Map)
+	 */
+	public List executeByNamedParam(Map paramMap) throws DataAccessException {
+		return executeByNamedParam(paramMap, null);
+	}
+
 	/**
 	 * Generic findObject method, used by all other findObject() methods.
 	 * findObject() methods are like EJB entity bean finders, in that it is
@@ -218,6 +251,27 @@ public abstract class SqlQuery extends SqlOperation {
 		return DataAccessUtils.uniqueResult(results);
 	}
 
+	/**
+	 * Generic findObject method for named parameter values.
+	 * @param paramMap Map from parameter name to value
+	 * @param context contextual information passed to the callback mapRow method
+	 * @return null if not found
+	 * @see #executeByNamedParam(java.util.Map, java.util.Map)
+	 */
+	public Object findObjectByNamedParam(Map paramMap, Map context) throws DataAccessException {
+		List results = executeByNamedParam(paramMap, context);
+		return DataAccessUtils.uniqueResult(results);
+	}
+
+	/**
+	 * Convenient method to find a single object for named parameter values,
+	 * without context.
+	 * @param paramMap Map from parameter name to value
+	 */
+	public Object findObjectByNamedParam(Map paramMap) throws DataAccessException {
+		return findObjectByNamedParam(paramMap, null);
+	}
+
 	/**
 	 * Convenient method to find a single object without context.
 	 */
@@ -16,6 +16,8 @@
 
 package org.springframework.jdbc.object;
 
+import java.util.Map;
+
 import javax.sql.DataSource;
 
 import org.springframework.dao.DataAccessException;
@@ -168,6 +170,36 @@ public class SqlUpdate extends SqlOperation {
 		return rowsAffected;
 	}
 
+	/**
+	 * Generic method to execute the update given named parameter values:
+	 * the SQL of this update needs to use named parameters (":name")
+	 * matching the names of the declared parameters, with
+	 * "useNamedParameters" set to true.
+	 * @param paramMap Map from parameter name to value. Collection and array
+	 * values are expanded into lists of placeholders, e.g. for "IN" clauses.
+	 * @return the number of rows affected by the update
+	 */
+	public int updateByNamedParam(Map paramMap) throws DataAccessException {
+		validateNamedParameters(paramMap);
+		int rowsAffected = getJdbcTemplate().update(newPreparedStatementCreator(paramMap));
+		checkRowsAffected(rowsAffected);
+		return rowsAffected;
+	}
+
+	/**
+	 * Method to execute the update given named parameter values and
+	 * retrieve the generated keys using a KeyHolder.
+	 * @param paramMap Map from parameter name to value
+	 * @param generatedKeyHolder KeyHolder that will hold the generated keys
+	 * @return the number of rows affected by the update
+	 */
+	public int updateByNamedParam(Map paramMap, KeyHolder generatedKeyHolder) throws DataAccessException {
+		validateNamedParameters(paramMap);
+		int rowsAffected = getJdbcTemplate().update(newPreparedStatementCreator(paramMap), generatedKeyHolder);
+		checkRowsAffected(rowsAffected);
+		return rowsAffected;
+	}
+
 	/**
 	 * Convenience method to execute an update with no parameters.
 	 */
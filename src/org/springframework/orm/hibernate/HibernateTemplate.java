@@ -34,6 +34,9 @@ import net.sf.hibernate.type.Type;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.SpanTracer;
+import org.springframework.util.TraceSpan;
 
 /**
  * Helper class that simplifies Hibernate data access code, and converts
@@ -196,6 +199,8 @@ public class HibernateTemplate extends HibernateAccessor implements HibernateOpe
 		if (!existingTransaction && getFlushMode() == FLUSH_NEVER) {
 			session.setFlushMode(FlushMode.NEVER);
 		}
+		TraceSpan span = (SpanTracer.isEnabled() ?
+				SpanTracer.startSpan("Hibernate " + ClassUtils.getShortName(action.getClass())) : null);
 		try {
 			Object result = action.doInHibernate(session);
 			flushIfNecessary(session, existingTransaction);
@@ -213,6 +218,7 @@ public class HibernateTemplate extends HibernateAccessor implements HibernateOpe
 		}
 		finally {
 			SessionFactoryUtils.closeSessionIfNecessary(session, getSessionFactory());
+			SpanTracer.endSpan(span);
 		}
 	}
 
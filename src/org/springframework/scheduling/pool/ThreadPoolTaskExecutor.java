@@ -0,0 +1,450 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.scheduling.pool;
+
+import java.util.LinkedList;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.Constants;
+import org.springframework.core.task.DiscardableTask;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * TaskExecutor implementation backed by a fixed number of worker threads
+ * and a bounded task queue. Works on JDK 1.3, without any dependency on
+ * JDK 1.5's ThreadPoolExecutor.
+ *
+ * <p>When the queue has reached its capacity, the configured overflow policy
+ * applies: running the task in the calling thread, rejecting it with a
+ * TaskRejectedException, discarding the oldest queued task, or discarding
+ * the new task. Discarded tasks that implement DiscardableTask get notified,
+ * as do queued tasks dropped on shutdown.
+ *
+ * <p>Exposes queue and execution statistics for monitoring, for example
+ * via a JMX adapter. Starts its threads on <code>afterPropertiesSet</code>
+ * (or on <code>initialize</code>) and stops them on <code>destroy</code>.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see #setPoolSize
+ * @see #setQueueCapacity
+ * @see #setOverflowPolicy
+ */
+public class ThreadPoolTaskExecutor implements TaskExecutor, BeanNameAware, InitializingBean, DisposableBean {
+
+	/** Run the task in the thread that submitted it */
+	public static final int OVERFLOW_CALLER_RUNS = 0;
+
+	/** Reject the task with a TaskRejectedException */
+	public static final int OVERFLOW_ABORT = 1;
+
+	/** Discard the oldest queued task to make room for the new task */
+	public static final int OVERFLOW_DISCARD_OLDEST = 2;
+
+	/** Discard the new task */
+	public static final int OVERFLOW_DISCARD = 3;
+
+	/** Constants instance for ThreadPoolTaskExecutor */
+	private static final Constants constants = new Constants(ThreadPoolTaskExecutor.class);
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private int poolSize = 1;
+
+	private int queueCapacity = 1000;
+
+	private int overflowPolicy = OVERFLOW_CALLER_RUNS;
+
+	private boolean daemon = false;
+
+	private String threadNamePrefix = "ThreadPoolTaskExecutor-";
+
+	private boolean waitForTasksToCompleteOnShutdown = false;
+
+	/** Queued Runnables, also the monitor for all mutable state below */
+	private final LinkedList queue = new LinkedList();
+
+	private Thread[] workers;
+
+	private boolean shutdown = false;
+
+	private int activeCount = 0;
+
+	private int largestQueueSize = 0;
+
+	private long completedTaskCount = 0;
+
+	private long callerRunsCount = 0;
+
+	private long rejectedTaskCount = 0;
+
+	private long discardedTaskCount = 0;
+
+
+	/**
+	 * Set the number of worker threads. Default is 1.
+	 */
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	/**
+	 * Return the number of worker threads.
+	 */
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * Set the maximum number of tasks waiting for a worker thread.
+	 * Default is 1000.
+	 * @see #setOverflowPolicy
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Return the maximum number of tasks waiting for a worker thread.
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Set the policy to apply when the queue has reached its capacity.
+	 * Default is OVERFLOW_CALLER_RUNS.
+	 * @see #OVERFLOW_CALLER_RUNS
+	 * @see #OVERFLOW_ABORT
+	 * @see #OVERFLOW_DISCARD_OLDEST
+	 * @see #OVERFLOW_DISCARD
+	 */
+	public void setOverflowPolicy(int overflowPolicy) {
+		if (!constants.getValues("OVERFLOW_").contains(new Integer(overflowPolicy))) {
+			throw new IllegalArgumentException("Only values of overflow constants allowed");
+		}
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Set the overflow policy by the name of the corresponding constant
+	 * in this class, e.g. "OVERFLOW_DISCARD_OLDEST".
+	 * @param constantName name of the constant
+	 * @see #setOverflowPolicy
+	 */
+	public void setOverflowPolicyName(String constantName) {
+		if (constantName == null || !constantName.startsWith("OVERFLOW_")) {
+			throw new IllegalArgumentException("Only overflow constants allowed");
+		}
+		setOverflowPolicy(constants.asNumber(constantName).intValue());
+	}
+
+	/**
+	 * Return the policy to apply when the queue has reached its capacity.
+	 */
+	public int getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * Set whether the worker threads should be daemon threads,
+	 * not preventing the VM from shutting down. Default is false.
+	 */
+	public void setDaemon(boolean daemon) {
+		this.daemon = daemon;
+	}
+
+	/**
+	 * Set the prefix for the names of the worker threads.
+	 * Default is the bean name followed by "-", if available.
+	 */
+	public void setThreadNamePrefix(String threadNamePrefix) {
+		this.threadNamePrefix = threadNamePrefix;
+	}
+
+	/**
+	 * Set whether to execute all queued tasks on shutdown, rather than
+	 * discarding them. Default is false.
+	 */
+	public void setWaitForTasksToCompleteOnShutdown(boolean waitForTasksToCompleteOnShutdown) {
+		this.waitForTasksToCompleteOnShutdown = waitForTasksToCompleteOnShutdown;
+	}
+
+	public void setBeanName(String name) {
+		if ("ThreadPoolTaskExecutor-".equals(this.threadNamePrefix)) {
+			this.threadNamePrefix = name + "-";
+		}
+	}
+
+	public void afterPropertiesSet() {
+		initialize();
+	}
+
+	/**
+	 * Start the worker threads. Called by <code>afterPropertiesSet</code>.
+	 * @throws IllegalStateException if already initialized
+	 */
+	public void initialize() throws IllegalStateException {
+		if (this.poolSize < 1) {
+			throw new IllegalArgumentException("poolSize must be at least 1");
+		}
+		if (this.queueCapacity < 0) {
+			throw new IllegalArgumentException("queueCapacity must not be negative");
+		}
+		synchronized (this.queue) {
+			if (this.workers != null) {
+				throw new IllegalStateException("ThreadPoolTaskExecutor already initialized");
+			}
+			if (logger.isInfoEnabled()) {
+				logger.info("Starting ThreadPoolTaskExecutor with " + this.poolSize + " threads and queue capacity " +
+						this.queueCapacity);
+			}
+			this.workers = new Thread[this.poolSize];
+			for (int i = 0; i < this.poolSize; i++) {
+				Thread worker = new Thread(new Worker(), this.threadNamePrefix + (i + 1));
+				worker.setDaemon(this.daemon);
+				this.workers[i] = worker;
+				worker.start();
+			}
+		}
+	}
+
+
+	public void execute(Runnable task) throws TaskRejectedException {
+		Runnable discarded = null;
+		synchronized (this.queue) {
+			if (this.workers == null) {
+				throw new IllegalStateException("ThreadPoolTaskExecutor not initialized");
+			}
+			if (this.shutdown) {
+				this.rejectedTaskCount++;
+				throw new TaskRejectedException("ThreadPoolTaskExecutor has been shut down");
+			}
+			if (this.queue.size() < this.queueCapacity) {
+				enqueue(task);
+				return;
+			}
+			switch (this.overflowPolicy) {
+				case OVERFLOW_ABORT:
+					this.rejectedTaskCount++;
+					throw new TaskRejectedException("ThreadPoolTaskExecutor queue has reached its capacity of " +
+							this.queueCapacity + " tasks");
+				case OVERFLOW_DISCARD_OLDEST:
+					this.discardedTaskCount++;
+					if (!this.queue.isEmpty()) {
+						discarded = (Runnable) this.queue.removeFirst();
+						if (logger.isDebugEnabled()) {
+							logger.debug("Discarding oldest queued task [" + discarded + "]");
+						}
+						enqueue(task);
+					}
+					else {
+						// zero capacity: nothing to replace
+						discarded = task;
+					}
+					break;
+				case OVERFLOW_DISCARD:
+					this.discardedTaskCount++;
+					if (logger.isDebugEnabled()) {
+						logger.debug("Discarding task [" + task + "] because queue is full");
+					}
+					discarded = task;
+					break;
+				default:
+					this.callerRunsCount++;
+			}
+		}
+		if (discarded != null) {
+			// notify the discarded task outside of the lock
+			discard(discarded, "ThreadPoolTaskExecutor queue has reached its capacity of " +
+					this.queueCapacity + " tasks");
+			return;
+		}
+		// OVERFLOW_CALLER_RUNS: execute outside of the lock
+		task.run();
+	}
+
+	private void enqueue(Runnable task) {
+		this.queue.addLast(task);
+		if (this.queue.size() > this.largestQueueSize) {
+			this.largestQueueSize = this.queue.size();
+		}
+		this.queue.notify();
+	}
+
+
+	/**
+	 * Return the number of tasks currently waiting in the queue.
+	 */
+	public int getQueueSize() {
+		synchronized (this.queue) {
+			return this.queue.size();
+		}
+	}
+
+	/**
+	 * Return the largest number of tasks that have ever been
+	 * waiting in the queue at the same time.
+	 */
+	public int getLargestQueueSize() {
+		synchronized (this.queue) {
+			return largestQueueSize;
+		}
+	}
+
+	/**
+	 * Return the number of worker threads currently executing tasks.
+	 */
+	public int getActiveCount() {
+		synchronized (this.queue) {
+			return activeCount;
+		}
+	}
+
+	/**
+	 * Return the number of tasks completed by the worker threads.
+	 */
+	public long getCompletedTaskCount() {
+		synchronized (this.queue) {
+			return completedTaskCount;
+		}
+	}
+
+	/**
+	 * Return the number of tasks that were executed in the calling
+	 * thread because the queue was full.
+	 */
+	public long getCallerRunsCount() {
+		synchronized (this.queue) {
+			return callerRunsCount;
+		}
+	}
+
+	/**
+	 * Return the number of tasks rejected with a TaskRejectedException.
+	 */
+	public long getRejectedTaskCount() {
+		synchronized (this.queue) {
+			return rejectedTaskCount;
+		}
+	}
+
+	/**
+	 * Return the number of tasks discarded because the queue was full.
+	 */
+	public long getDiscardedTaskCount() {
+		synchronized (this.queue) {
+			return discardedTaskCount;
+		}
+	}
+
+
+	/**
+	 * Stop the worker threads on bean factory shutdown.
+	 * Queued tasks will be discarded unless "waitForTasksToCompleteOnShutdown"
+	 * is set; tasks in progress will be allowed to finish in either case.
+	 * @see #setWaitForTasksToCompleteOnShutdown
+	 */
+	public void destroy() {
+		logger.info("Shutting down ThreadPoolTaskExecutor");
+		Object[] discarded = null;
+		synchronized (this.queue) {
+			this.shutdown = true;
+			if (!this.waitForTasksToCompleteOnShutdown) {
+				discarded = this.queue.toArray();
+				this.discardedTaskCount += discarded.length;
+				this.queue.clear();
+			}
+			this.queue.notifyAll();
+		}
+		if (discarded != null) {
+			for (int i = 0; i < discarded.length; i++) {
+				discard((Runnable) discarded[i], "ThreadPoolTaskExecutor has been shut down");
+			}
+		}
+	}
+
+	/**
+	 * Notify the given task that it has been dropped without being run,
+	 * if it is a DiscardableTask. Called without holding the queue lock.
+	 * @param task the dropped task
+	 * @param reason the reason why the task has been dropped
+	 * @see org.springframework.core.task.DiscardableTask#discard
+	 */
+	private void discard(Runnable task, String reason) {
+		if (task instanceof DiscardableTask) {
+			try {
+				((DiscardableTask) task).discard(new TaskRejectedException(reason));
+			}
+			catch (Throwable ex) {
+				logger.error("Discarded task [" + task + "] threw exception", ex);
+			}
+		}
+	}
+
+
+	/**
+	 * Worker loop: takes tasks from the queue until shut down.
+	 */
+	private class Worker implements Runnable {
+
+		public void run() {
+			while (true) {
+				Runnable task = null;
+				synchronized (queue) {
+					while (queue.isEmpty() && !shutdown) {
+						try {
+							queue.wait();
+						}
+						catch (InterruptedException ex) {
+							// Workers get stopped via the shutdown flag, not via interrupts:
+							// re-check it. Deliberately not restoring the interrupt status,
+							// which would make the next wait fail again immediately and
+							// leak the stale interrupt into the next task that runs here.
+						}
+					}
+					if (queue.isEmpty()) {
+						// shut down and nothing left to do
+						return;
+					}
+					task = (Runnable) queue.removeFirst();
+					activeCount++;
+				}
+				try {
+					task.run();
+				}
+				catch (Throwable ex) {
+					logger.error("Task [" + task + "] threw exception", ex);
+				}
+				finally {
+					synchronized (queue) {
+						activeCount--;
+						completedTaskCount++;
+					}
+				}
+			}
+		}
+	}
+
+}
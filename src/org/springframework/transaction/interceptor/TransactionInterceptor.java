@@ -19,6 +19,10 @@ package org.springframework.transaction.interceptor;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 
+import org.springframework.util.ClassUtils;
+import org.springframework.util.SpanTracer;
+import org.springframework.util.TraceSpan;
+
 /**
  * AOP Alliance MethodInterceptor providing declarative transaction
  * management using the common Spring transaction infrastructure.
@@ -45,7 +49,27 @@ public class TransactionInterceptor extends TransactionAspectSupport implements
 		// as well as the method, which may be from an interface
 		//目标类
 		Class targetClass = (invocation.getThis() != null) ? invocation.getThis().getClass() : null;
-		
+
+		TraceSpan span = (SpanTracer.isEnabled() ?
+				SpanTracer.startSpan("Transactional " + ClassUtils.getShortName(invocation.getMethod().getDeclaringClass()) +
+						"." + invocation.getMethod().getName()) : null);
+		Throwable failure = null;
+		try {
+			return invokeWithinTransaction(invocation, targetClass);
+		}
+		catch (Throwable ex) {
+			failure = ex;
+			throw ex;
+		}
+		finally {
+			SpanTracer.endSpan(span, failure);
+		}
+	}
+
+	/**
+	 * Invoke the given method invocation within a transaction, if necessary.
+	 */
+	private Object invokeWithinTransaction(MethodInvocation invocation, Class targetClass) throws Throwable {
 		// Create transaction if necessary
 		//如果需要，就创建事务
 		TransactionInfo txInfo = createTransactionIfNecessary(invocation.getMethod(), targetClass);
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * Ant-style path pattern, compiled once into its path segments for
+ * repeated matching. Follows the same rules as PathMatcher's
+ * <code>match</code> method, but never tokenizes the given path:
+ * matching walks the path by index and does not allocate.
+ *
+ * <p>Instances are immutable and thus thread-safe. Typically created
+ * once at configuration time, for patterns that will be matched against
+ * many paths, for example URL mappings or resource search patterns.
+ *
+ * <p>Also offers a notion of specificity for choosing between several
+ * patterns that match the same path: see <code>isMoreSpecificThan</code>.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see PathMatcher#match
+ * @see PathPatternTrie
+ */
+public class CompiledPathPattern implements Serializable {
+
+	static final int LITERAL = 0;
+
+	static final int WILDCARD = 1;
+
+	static final int DOUBLE_WILDCARD = 2;
+
+
+	private final String pattern;
+
+	private final boolean absolute;
+
+	private final char[][] segments;
+
+	private final int[] segmentTypes;
+
+	private final int literalLength;
+
+	private final int wildcardCount;
+
+	private final int doubleWildcardCount;
+
+
+	/**
+	 * Compile the given Ant-style pattern.
+	 * @param pattern the pattern to compile
+	 * @see PathMatcher
+	 */
+	public CompiledPathPattern(String pattern) {
+		if (pattern == null) {
+			throw new IllegalArgumentException("pattern is required");
+		}
+		this.pattern = pattern;
+		this.absolute = pattern.startsWith("/");
+		List tokens = new ArrayList();
+		StringTokenizer st = new StringTokenizer(pattern, "/");
+		while (st.hasMoreTokens()) {
+			tokens.add(st.nextToken());
+		}
+		this.segments = new char[tokens.size()][];
+		this.segmentTypes = new int[tokens.size()];
+		int literalLength = 0;
+		int wildcardCount = 0;
+		int doubleWildcardCount = 0;
+		for (int i = 0; i < this.segments.length; i++) {
+			String token = (String) tokens.get(i);
+			this.segments[i] = token.toCharArray();
+			this.segmentTypes[i] = segmentType(token);
+			if (this.segmentTypes[i] == DOUBLE_WILDCARD) {
+				doubleWildcardCount++;
+			}
+			else {
+				for (int j = 0; j < this.segments[i].length; j++) {
+					char ch = this.segments[i][j];
+					if (ch == '*' || ch == '?') {
+						wildcardCount++;
+					}
+					else {
+						literalLength++;
+					}
+				}
+			}
+		}
+		this.literalLength = literalLength;
+		this.wildcardCount = wildcardCount;
+		this.doubleWildcardCount = doubleWildcardCount;
+	}
+
+	/**
+	 * Return the original pattern String.
+	 */
+	public String getPattern() {
+		return pattern;
+	}
+
+	/**
+	 * Return whether this pattern contains any wildcards,
+	 * i.e. whether it is a pattern in the sense of <code>PathMatcher.isPattern</code>.
+	 * @see PathMatcher#isPattern
+	 */
+	public boolean isPattern() {
+		return (this.wildcardCount > 0 || this.doubleWildcardCount > 0);
+	}
+
+	/**
+	 * Return whether this pattern is more specific than the given one,
+	 * for choosing between several patterns that match the same path.
+	 * <p>A pattern without wildcards is more specific than one with wildcards;
+	 * beyond that, fewer "**" segments, more literal characters and fewer
+	 * "*" and "?" wildcards make a pattern more specific, in that order.
+	 * @param other the pattern to compare with
+	 * @return whether this pattern is more specific
+	 * (false if both are equally specific)
+	 */
+	public boolean isMoreSpecificThan(CompiledPathPattern other) {
+		if (isPattern() != other.isPattern()) {
+			return !isPattern();
+		}
+		if (this.doubleWildcardCount != other.doubleWildcardCount) {
+			return (this.doubleWildcardCount < other.doubleWildcardCount);
+		}
+		if (this.literalLength != other.literalLength) {
+			return (this.literalLength > other.literalLength);
+		}
+		return (this.wildcardCount < other.wildcardCount);
+	}
+
+	/**
+	 * Match the given path against this pattern.
+	 * @param path the path to match
+	 * @return whether the path matches
+	 * @see PathMatcher#match
+	 */
+	public boolean matches(String path) {
+		if (path.startsWith("/") != this.absolute) {
+			return false;
+		}
+		int len = path.length();
+		int patIdxStart = 0;
+		int patIdxEnd = this.segments.length - 1;
+
+		// match all segments up to the first **
+		int pos = 0;
+		while (patIdxStart <= patIdxEnd) {
+			if (this.segmentTypes[patIdxStart] == DOUBLE_WILDCARD) {
+				break;
+			}
+			int start = skipSeparators(path, pos, len);
+			if (start == len) {
+				break;
+			}
+			int end = segmentEnd(path, start, len);
+			if (!matchSegment(patIdxStart, path, start, end)) {
+				return false;
+			}
+			patIdxStart++;
+			pos = end;
+		}
+		pos = skipSeparators(path, pos, len);
+		if (pos == len) {
+			// path is exhausted, only match if rest of pattern is **'s
+			return onlyDoubleWildcards(patIdxStart, patIdxEnd);
+		}
+		if (patIdxStart > patIdxEnd) {
+			// path not exhausted, but pattern is
+			return false;
+		}
+
+		// match all segments after the last **, from the end of the path
+		int limit = len;
+		while (patIdxStart <= patIdxEnd) {
+			if (this.segmentTypes[patIdxEnd] == DOUBLE_WILDCARD) {
+				break;
+			}
+			int end = limit;
+			while (end > pos && path.charAt(end - 1) == '/') {
+				end--;
+			}
+			if (end == pos) {
+				break;
+			}
+			int start = path.lastIndexOf('/', end - 1) + 1;
+			if (!matchSegment(patIdxEnd, path, start, end)) {
+				return false;
+			}
+			patIdxEnd--;
+			limit = start;
+		}
+		if (skipSeparators(path, pos, limit) == limit) {
+			// path is exhausted
+			return onlyDoubleWildcards(patIdxStart, patIdxEnd);
+		}
+
+		// match the blocks between **'s, each at its leftmost position
+		while (patIdxStart != patIdxEnd && skipSeparators(path, pos, limit) < limit) {
+			int patIdxTmp = patIdxStart + 1;
+			while (this.segmentTypes[patIdxTmp] != DOUBLE_WILDCARD) {
+				patIdxTmp++;
+			}
+			if (patIdxTmp == patIdxStart + 1) {
+				// '**/**' situation, so skip one
+				patIdxStart++;
+				continue;
+			}
+			int found = -1;
+			int candidate = skipSeparators(path, pos, limit);
+			while (found == -1 && candidate < limit) {
+				found = matchBlock(patIdxStart + 1, patIdxTmp, path, candidate, limit);
+				if (found == -2) {
+					// not enough segments left
+					return false;
+				}
+				candidate = skipSeparators(path, segmentEnd(path, candidate, limit), limit);
+			}
+			if (found < 0) {
+				return false;
+			}
+			patIdxStart = patIdxTmp;
+			pos = found;
+		}
+
+		return onlyDoubleWildcards(patIdxStart, patIdxEnd);
+	}
+
+	/**
+	 * Match the pattern segments from the given start index (inclusive) to the
+	 * given end index (exclusive) against consecutive path segments.
+	 * @return the path position after the block if matched, -1 if not matched,
+	 * or -2 if the path does not have enough segments left
+	 */
+	private int matchBlock(int patIdxFrom, int patIdxTo, String path, int pos, int limit) {
+		for (int i = patIdxFrom; i < patIdxTo; i++) {
+			int start = skipSeparators(path, pos, limit);
+			if (start == limit) {
+				return -2;
+			}
+			int end = segmentEnd(path, start, limit);
+			if (!matchSegment(i, path, start, end)) {
+				return -1;
+			}
+			pos = end;
+		}
+		return pos;
+	}
+
+	private boolean onlyDoubleWildcards(int patIdxStart, int patIdxEnd) {
+		for (int i = patIdxStart; i <= patIdxEnd; i++) {
+			if (this.segmentTypes[i] != DOUBLE_WILDCARD) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean matchSegment(int index, String path, int start, int end) {
+		return matchSegment(this.segments[index], this.segmentTypes[index] == WILDCARD, path, start, end);
+	}
+
+
+	/**
+	 * Determine the type of the given pattern segment.
+	 */
+	static int segmentType(String segment) {
+		if (segment.equals("**")) {
+			return DOUBLE_WILDCARD;
+		}
+		if (segment.indexOf('*') != -1 || segment.indexOf('?') != -1) {
+			return WILDCARD;
+		}
+		return LITERAL;
+	}
+
+	/**
+	 * Return the index of the first non-separator character at or after
+	 * the given position, or the limit if there is none.
+	 */
+	static int skipSeparators(String path, int pos, int limit) {
+		while (pos < limit && path.charAt(pos) == '/') {
+			pos++;
+		}
+		return pos;
+	}
+
+	/**
+	 * Return the end index (exclusive) of the path segment
+	 * that starts at the given position.
+	 */
+	static int segmentEnd(String path, int start, int limit) {
+		int end = path.indexOf('/', start);
+		return (end != -1 && end < limit ? end : limit);
+	}
+
+	/**
+	 * Match a single pattern segment against the given region of the path.
+	 * '*' means zero or more characters, '?' means exactly one character.
+	 * @param segment the pattern segment
+	 * @param wildcard whether the segment contains '*' or '?' characters
+	 * @param path the path
+	 * @param start the start index of the path segment
+	 * @param end the end index (exclusive) of the path segment
+	 */
+	static boolean matchSegment(char[] segment, boolean wildcard, String path, int start, int end) {
+		if (!wildcard) {
+			if (segment.length != end - start) {
+				return false;
+			}
+			for (int i = 0; i < segment.length; i++) {
+				if (segment[i] != path.charAt(start + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		int patIdx = 0;
+		int strIdx = start;
+		int starIdx = -1;
+		int starMatch = start;
+		while (strIdx < end) {
+			if (patIdx < segment.length && segment[patIdx] == '*') {
+				// remember the star position, try matching zero characters first
+				starIdx = patIdx++;
+				starMatch = strIdx;
+			}
+			else if (patIdx < segment.length && (segment[patIdx] == '?' || segment[patIdx] == path.charAt(strIdx))) {
+				patIdx++;
+				strIdx++;
+			}
+			else if (starIdx != -1) {
+				// backtrack: let the last star consume one more character
+				patIdx = starIdx + 1;
+				strIdx = ++starMatch;
+			}
+			else {
+				return false;
+			}
+		}
+		while (patIdx < segment.length && segment[patIdx] == '*') {
+			patIdx++;
+		}
+		return (patIdx == segment.length);
+	}
+
+
+	public boolean equals(Object other) {
+		return (other instanceof CompiledPathPattern &&
+				this.pattern.equals(((CompiledPathPattern) other).pattern));
+	}
+
+	public int hashCode() {
+		return this.pattern.hashCode();
+	}
+
+	public String toString() {
+		return this.pattern;
+	}
+
+}
@@ -29,6 +29,9 @@ import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -38,6 +41,11 @@ import org.apache.commons.logging.LogFactory;
  * All copy methods use a block size of 4096 bytes,
  * and close all affected streams when done.
  *
+ * <p>On JDK 1.4 or higher, copies from a file are delegated to
+ * <code>FileChannel.transferTo</code>, which allows the operating
+ * system to move the bytes without copying them into user space.
+ * On JDK 1.3, all copying falls back to stream-based block copying.
+ *
  * <p>Mainly for use within the framework,
  * but also useful for application code.
  *
@@ -50,6 +58,28 @@ public abstract class FileCopyUtils {
 
 	public static final int BUFFER_SIZE = 4096;
 
+	/**
+	 * Maximum number of bytes to hand to a single channel transfer:
+	 * some platforms fail or degrade with very large transfer counts.
+	 */
+	private static final long MAX_TRANSFER_SIZE = 8 * 1024 * 1024;
+
+	private static final String FILE_CHANNEL_CLASS_NAME = "java.nio.channels.FileChannel";
+
+	private static boolean channelTransferAvailable;
+
+	static {
+		// Check whether java.nio channels are available, that is,
+		// whether we're running on JDK 1.4 or higher.
+		try {
+			Class.forName(FILE_CHANNEL_CLASS_NAME);
+			channelTransferAvailable = true;
+		}
+		catch (ClassNotFoundException ex) {
+			channelTransferAvailable = false;
+		}
+	}
+
 
 	//---------------------------------------------------------------------
 	// Copy methods for java.io.File
@@ -62,8 +92,41 @@ public abstract class FileCopyUtils {
 	 * @throws IOException in case of I/O errors
 	 */
 	public static void copy(File in, File out) throws IOException {
-		copy(new BufferedInputStream(new FileInputStream(in)),
-		    new BufferedOutputStream(new FileOutputStream(out)));
+		if (channelTransferAvailable) {
+			// no buffering needed: the streams will be accessed through their channels
+			copy(new FileInputStream(in), new FileOutputStream(out));
+		}
+		else {
+			copy(new BufferedInputStream(new FileInputStream(in)),
+					new BufferedOutputStream(new FileOutputStream(out)));
+		}
+	}
+
+	/**
+	 * Copy the contents of the given input File to the given OutputStream,
+	 * for example a servlet response stream. Closes the stream when done.
+	 * @param in the file to copy from
+	 * @param out the stream to copy to
+	 * @throws IOException in case of I/O errors
+	 */
+	public static void copy(File in, OutputStream out) throws IOException {
+		InputStream inStream = null;
+		try {
+			inStream = new FileInputStream(in);
+		}
+		catch (IOException ex) {
+			try {
+				out.close();
+			}
+			catch (IOException ex2) {
+				logger.warn("Could not close OutputStream", ex2);
+			}
+			throw ex;
+		}
+		if (!channelTransferAvailable) {
+			inStream = new BufferedInputStream(inStream);
+		}
+		copy(inStream, out);
 	}
 
 	/**
@@ -85,7 +148,12 @@ public abstract class FileCopyUtils {
 	 * @throws IOException in case of I/O errors
 	 */
 	public static byte[] copyToByteArray(File in) throws IOException {
-		return copyToByteArray(new BufferedInputStream(new FileInputStream(in)));
+		// pre-size the buffer: the file length is usually known upfront
+		long length = in.length();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(
+				length > 0 && length < Integer.MAX_VALUE ? (int) length : BUFFER_SIZE);
+		copy(new BufferedInputStream(new FileInputStream(in)), out);
+		return out.toByteArray();
 	}
 
 
@@ -96,16 +164,24 @@ public abstract class FileCopyUtils {
 	/**
 	 * Copy the contents of the given InputStream to the given OutputStream.
 	 * Closes both streams when done.
+	 * <p>If the InputStream is a plain FileInputStream and we're running
+	 * on JDK 1.4 or higher, the remaining content of the file gets
+	 * transferred through its channel instead of a stream buffer.
 	 * @param in the stream to copy from
 	 * @param out the stream to copy to
 	 * @throws IOException in case of I/O errors
 	 */
 	public static void copy(InputStream in, OutputStream out) throws IOException {
 		try {
-			byte[] buffer = new byte[BUFFER_SIZE];
-			int nrOfBytes = -1;
-			while ((nrOfBytes = in.read(buffer)) != -1) {
-				out.write(buffer, 0, nrOfBytes);
+			if (channelTransferAvailable && in instanceof FileInputStream) {
+				ChannelTransfer.transfer((FileInputStream) in, out);
+			}
+			else {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int nrOfBytes = -1;
+				while ((nrOfBytes = in.read(buffer)) != -1) {
+					out.write(buffer, 0, nrOfBytes);
+				}
 			}
 			out.flush();
 		}
@@ -230,4 +306,33 @@ public abstract class FileCopyUtils {
 		return out.toString();
 	}
 
+
+	/**
+	 * Actual channel-based transfer of file content.
+	 * In separate inner class to avoid runtime dependency on JDK 1.4.
+	 */
+	private static abstract class ChannelTransfer {
+
+		/**
+		 * Transfer the remaining content of the given file stream
+		 * to the given OutputStream, without closing either of them.
+		 * @see java.nio.channels.FileChannel#transferTo
+		 */
+		private static void transfer(FileInputStream in, OutputStream out) throws IOException {
+			FileChannel inChannel = in.getChannel();
+			WritableByteChannel outChannel = (out instanceof FileOutputStream ?
+					(WritableByteChannel) ((FileOutputStream) out).getChannel() : Channels.newChannel(out));
+			long position = inChannel.position();
+			long size = inChannel.size();
+			while (position < size) {
+				long transferred = inChannel.transferTo(position, Math.min(size - position, MAX_TRANSFER_SIZE), outChannel);
+				if (transferred <= 0) {
+					// file has been truncated in the meantime
+					break;
+				}
+				position += transferred;
+			}
+		}
+	}
+
 }
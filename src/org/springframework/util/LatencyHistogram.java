@@ -0,0 +1,365 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.io.Serializable;
+
+/**
+ * Fixed-memory histogram of response times in milliseconds, using
+ * log-linear buckets: each power-of-two range is divided into 8 linear
+ * sub-buckets, giving a relative precision of 12.5% for any recorded value
+ * up to roughly one year, without ever allocating on the recording path.
+ *
+ * <p>Recording is spread over a number of stripes, each guarded by its own
+ * monitor, so that concurrent threads rarely contend for the same lock.
+ * (We can't rely on JDK 1.5 atomic variables for a truly lock-free
+ * implementation.) Snapshots merge all stripes and are immutable.
+ *
+ * <p>Intended for always-on timing in production, for example by
+ * PerformanceMonitorInterceptor in statistics mode.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see org.springframework.aop.interceptor.PerformanceMonitorInterceptor
+ */
+public class LatencyHistogram implements Serializable {
+
+	public static final int DEFAULT_STRIPE_COUNT = 4;
+
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	private static final int MAX_SHIFT = 32;
+
+	private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_SHIFT + 1) * SUB_BUCKET_COUNT;
+
+
+	private final Stripe[] stripes;
+
+	private final int stripeMask;
+
+
+	/**
+	 * Create a new LatencyHistogram with the default number of stripes.
+	 */
+	public LatencyHistogram() {
+		this(DEFAULT_STRIPE_COUNT);
+	}
+
+	/**
+	 * Create a new LatencyHistogram.
+	 * @param stripeCount the number of independently locked stripes,
+	 * rounded up to the next power of two
+	 */
+	public LatencyHistogram(int stripeCount) {
+		int count = 1;
+		while (count < stripeCount) {
+			count <<= 1;
+		}
+		this.stripes = new Stripe[count];
+		for (int i = 0; i < count; i++) {
+			this.stripes[i] = new Stripe();
+		}
+		this.stripeMask = count - 1;
+	}
+
+	/**
+	 * Record a single response time.
+	 * @param millis the elapsed time in milliseconds
+	 * @param failed whether the call ended with an exception
+	 */
+	public void record(long millis, boolean failed) {
+		if (millis < 0) {
+			millis = 0;
+		}
+		int bucket = bucketIndex(millis);
+		Stripe stripe = this.stripes[System.identityHashCode(Thread.currentThread()) & this.stripeMask];
+		synchronized (stripe) {
+			stripe.counts[bucket]++;
+			stripe.count++;
+			stripe.total += millis;
+			if (millis < stripe.min) {
+				stripe.min = millis;
+			}
+			if (millis > stripe.max) {
+				stripe.max = millis;
+			}
+			if (failed) {
+				stripe.errorCount++;
+			}
+		}
+	}
+
+	/**
+	 * Clear all recorded values.
+	 */
+	public void reset() {
+		for (int i = 0; i < this.stripes.length; i++) {
+			Stripe stripe = this.stripes[i];
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+	}
+
+	/**
+	 * Return an immutable snapshot of the values recorded so far.
+	 */
+	public Snapshot getSnapshot() {
+		long[] counts = new long[BUCKET_COUNT];
+		long count = 0;
+		long errorCount = 0;
+		long total = 0;
+		long min = Long.MAX_VALUE;
+		long max = 0;
+		for (int i = 0; i < this.stripes.length; i++) {
+			Stripe stripe = this.stripes[i];
+			synchronized (stripe) {
+				for (int j = 0; j < BUCKET_COUNT; j++) {
+					counts[j] += stripe.counts[j];
+				}
+				count += stripe.count;
+				errorCount += stripe.errorCount;
+				total += stripe.total;
+				if (stripe.min < min) {
+					min = stripe.min;
+				}
+				if (stripe.max > max) {
+					max = stripe.max;
+				}
+			}
+		}
+		return new Snapshot(counts, count, errorCount, total, min, max);
+	}
+
+
+	/**
+	 * Determine the bucket that the given value falls into.
+	 */
+	private static int bucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int highestBit = 63;
+		while ((value & (1L << highestBit)) == 0) {
+			highestBit--;
+		}
+		int shift = highestBit - SUB_BUCKET_BITS;
+		if (shift > MAX_SHIFT) {
+			return BUCKET_COUNT - 1;
+		}
+		int subBucket = (int) (value >> shift) - SUB_BUCKET_COUNT;
+		return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/**
+	 * Determine the highest value that falls into the given bucket.
+	 */
+	private static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+		int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+		return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+	}
+
+
+	/**
+	 * Counters for one stripe, guarded by the stripe's own monitor.
+	 */
+	private static class Stripe implements Serializable {
+
+		private final long[] counts = new long[BUCKET_COUNT];
+
+		private long count;
+
+		private long errorCount;
+
+		private long total;
+
+		private long min = Long.MAX_VALUE;
+
+		private long max;
+
+		private void clear() {
+			for (int i = 0; i < this.counts.length; i++) {
+				this.counts[i] = 0;
+			}
+			this.count = 0;
+			this.errorCount = 0;
+			this.total = 0;
+			this.min = Long.MAX_VALUE;
+			this.max = 0;
+		}
+	}
+
+
+	/**
+	 * Immutable view of a histogram at a given point in time.
+	 */
+	public static class Snapshot implements Serializable {
+
+		private final long[] counts;
+
+		private final long count;
+
+		private final long errorCount;
+
+		private final long totalMillis;
+
+		private final long minMillis;
+
+		private final long maxMillis;
+
+		private Snapshot(long[] counts, long count, long errorCount, long totalMillis, long minMillis, long maxMillis) {
+			this.counts = counts;
+			this.count = count;
+			this.errorCount = errorCount;
+			this.totalMillis = totalMillis;
+			this.minMillis = minMillis;
+			this.maxMillis = maxMillis;
+		}
+
+		/**
+		 * Return a new snapshot that combines the values of this snapshot
+		 * and the given one, for example of consecutive time intervals.
+		 * @param other the snapshot to combine with
+		 * @return the combined snapshot
+		 */
+		public Snapshot merge(Snapshot other) {
+			long[] mergedCounts = new long[BUCKET_COUNT];
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				mergedCounts[i] = this.counts[i] + other.counts[i];
+			}
+			return new Snapshot(mergedCounts, this.count + other.count, this.errorCount + other.errorCount,
+					this.totalMillis + other.totalMillis, Math.min(this.minMillis, other.minMillis),
+					Math.max(this.maxMillis, other.maxMillis));
+		}
+
+		/**
+		 * Return the number of recorded calls.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Return the number of recorded calls that failed with an exception.
+		 */
+		public long getErrorCount() {
+			return errorCount;
+		}
+
+		/**
+		 * Return the sum of all recorded response times in milliseconds.
+		 */
+		public long getTotalMillis() {
+			return totalMillis;
+		}
+
+		/**
+		 * Return the mean response time in milliseconds.
+		 */
+		public double getMeanMillis() {
+			// avoid division by 0
+			if (this.count == 0) {
+				return 0;
+			}
+			return (double) this.totalMillis / this.count;
+		}
+
+		/**
+		 * Return the lowest recorded response time in milliseconds,
+		 * or 0 if nothing has been recorded.
+		 */
+		public long getMinMillis() {
+			return (this.count > 0 ? this.minMillis : 0);
+		}
+
+		/**
+		 * Return the highest recorded response time in milliseconds.
+		 */
+		public long getMaxMillis() {
+			return maxMillis;
+		}
+
+		/**
+		 * Return the response time that the given fraction of calls
+		 * did not exceed, within the precision of the histogram buckets.
+		 * @param fraction the fraction of calls, between 0.0 and 1.0
+		 * (for example 0.99 for the 99th percentile)
+		 * @return the percentile value in milliseconds, or 0 if nothing
+		 * has been recorded
+		 */
+		public long getPercentileMillis(double fraction) {
+			if (fraction < 0.0 || fraction > 1.0) {
+				throw new IllegalArgumentException("Fraction must be between 0.0 and 1.0");
+			}
+			if (this.count == 0) {
+				return 0;
+			}
+			long threshold = (long) Math.ceil(fraction * this.count);
+			if (threshold < 1) {
+				threshold = 1;
+			}
+			long seen = 0;
+			for (int i = 0; i < this.counts.length; i++) {
+				seen += this.counts[i];
+				if (seen >= threshold) {
+					return Math.min(bucketUpperBound(i), this.maxMillis);
+				}
+			}
+			return this.maxMillis;
+		}
+
+		/**
+		 * Return the median response time in milliseconds.
+		 */
+		public long get50thPercentileMillis() {
+			return getPercentileMillis(0.5);
+		}
+
+		/**
+		 * Return the 90th percentile response time in milliseconds.
+		 */
+		public long get90thPercentileMillis() {
+			return getPercentileMillis(0.9);
+		}
+
+		/**
+		 * Return the 99th percentile response time in milliseconds.
+		 */
+		public long get99thPercentileMillis() {
+			return getPercentileMillis(0.99);
+		}
+
+		public String toString() {
+			StringBuffer sb = new StringBuffer();
+			sb.append("count=[").append(getCount()).append("]; ");
+			sb.append("errors=[").append(getErrorCount()).append("]; ");
+			sb.append("mean=[").append(Math.round(getMeanMillis())).append("ms]; ");
+			sb.append("p50=[").append(get50thPercentileMillis()).append("ms]; ");
+			sb.append("p90=[").append(get90thPercentileMillis()).append("ms]; ");
+			sb.append("p99=[").append(get99thPercentileMillis()).append("ms]; ");
+			sb.append("max=[").append(getMaxMillis()).append("ms]");
+			return sb.toString();
+		}
+	}
+
+}
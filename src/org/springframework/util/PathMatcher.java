@@ -45,9 +45,14 @@ import java.util.StringTokenizer;
  * but also org/springframework/testing/servlet/bla.jsp and com/servlet/bla.jsp</li>
  * </ul>
  *
+ * <p>For patterns that get matched repeatedly, consider CompiledPathPattern,
+ * or PathPatternTrie for matching a path against a whole set of patterns.
+ *
  * @author Alef Arendsen
  * @author Juergen Hoeller
  * @since 16.07.2003
+ * @see CompiledPathPattern
+ * @see PathPatternTrie
  */
 public abstract class PathMatcher {
 
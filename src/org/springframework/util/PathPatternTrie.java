@@ -0,0 +1,349 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+/**
+ * Immutable set of Ant-style path patterns, compiled into a trie of path
+ * segments. Determines all patterns that match a given path, or the most
+ * specific one, in one walk over the path and the trie: patterns that share
+ * leading segments get checked together, and literal segments get looked up
+ * via a hash table instead of being compared one by one.
+ *
+ * <p>Follows the same matching rules as PathMatcher's <code>match</code>
+ * method, without tokenizing the given path. Intended for checking a path
+ * against a large number of patterns, for example the URL mappings of a
+ * HandlerMapping.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see PathMatcher#match
+ * @see CompiledPathPattern
+ * @see org.springframework.web.servlet.handler.AbstractUrlHandlerMapping
+ */
+public class PathPatternTrie implements Serializable {
+
+	private final CompiledPathPattern[] patterns;
+
+	private final Node absoluteRoot = new Node(null);
+
+	private final Node relativeRoot = new Node(null);
+
+
+	/**
+	 * Compile the given patterns into a trie.
+	 * @param patterns the Ant-style patterns
+	 */
+	public PathPatternTrie(String[] patterns) {
+		this.patterns = new CompiledPathPattern[patterns.length];
+		for (int i = 0; i < patterns.length; i++) {
+			this.patterns[i] = new CompiledPathPattern(patterns[i]);
+			addPattern(patterns[i], i);
+		}
+		this.absoluteRoot.freeze();
+		this.relativeRoot.freeze();
+	}
+
+	/**
+	 * Compile the given patterns into a trie.
+	 * @param patterns the Ant-style patterns, as Collection of Strings
+	 */
+	public PathPatternTrie(Collection patterns) {
+		this((String[]) patterns.toArray(new String[patterns.size()]));
+	}
+
+	private void addPattern(String pattern, int index) {
+		Node node = (pattern.startsWith("/") ? this.absoluteRoot : this.relativeRoot);
+		StringTokenizer st = new StringTokenizer(pattern, "/");
+		while (st.hasMoreTokens()) {
+			node = node.addChild(st.nextToken());
+		}
+		node.addPatternIndex(index);
+	}
+
+	/**
+	 * Return the patterns that this trie has been built for,
+	 * in registration order.
+	 */
+	public String[] getPatterns() {
+		String[] result = new String[this.patterns.length];
+		for (int i = 0; i < this.patterns.length; i++) {
+			result[i] = this.patterns[i].getPattern();
+		}
+		return result;
+	}
+
+	/**
+	 * Return whether any of the patterns matches the given path.
+	 * @param path the path to match
+	 */
+	public boolean matches(String path) {
+		return (getBestMatch(path) != null);
+	}
+
+	/**
+	 * Return all patterns that match the given path, in registration order.
+	 * @param path the path to match
+	 * @return a List of pattern Strings (never null)
+	 */
+	public List getMatchingPatterns(String path) {
+		MatchCollector collector = new MatchCollector(this.patterns.length);
+		walk(path, collector);
+		List result = new ArrayList();
+		for (int i = 0; i < collector.matched.length; i++) {
+			if (collector.matched[i]) {
+				result.add(this.patterns[i].getPattern());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the most specific pattern that matches the given path.
+	 * If several patterns are equally specific, the one registered
+	 * first wins.
+	 * @param path the path to match
+	 * @return the pattern String, or null if none matches
+	 * @see CompiledPathPattern#isMoreSpecificThan
+	 */
+	public String getBestMatch(String path) {
+		BestMatchCollector collector = new BestMatchCollector(this.patterns);
+		walk(path, collector);
+		return (collector.best != -1 ? this.patterns[collector.best].getPattern() : null);
+	}
+
+	private void walk(String path, Collector collector) {
+		Node root = (path.startsWith("/") ? this.absoluteRoot : this.relativeRoot);
+		walk(root, path, 0, path.length(), collector);
+	}
+
+	/**
+	 * Match the remainder of the path, starting at the given position,
+	 * against the children of the given node.
+	 */
+	private void walk(Node node, String path, int pos, int len, Collector collector) {
+		int start = CompiledPathPattern.skipSeparators(path, pos, len);
+		if (start == len) {
+			// path is exhausted: patterns ending here match, as well as ones with trailing **'s
+			for (int i = 0; i < node.patternIndexes.length; i++) {
+				collector.add(node.patternIndexes[i]);
+			}
+		}
+		else {
+			int end = CompiledPathPattern.segmentEnd(path, start, len);
+			Node literalChild = node.getLiteralChild(path, start, end);
+			if (literalChild != null) {
+				walk(literalChild, path, end, len, collector);
+			}
+			for (int i = 0; i < node.wildcardChildren.length; i++) {
+				Node child = node.wildcardChildren[i];
+				if (CompiledPathPattern.matchSegment(child.segment, true, path, start, end)) {
+					walk(child, path, end, len, collector);
+				}
+			}
+		}
+		if (node.doubleWildcardChild != null) {
+			// ** consumes zero or more segments
+			Node child = node.doubleWildcardChild;
+			int current = start;
+			while (true) {
+				walk(child, path, current, len, collector);
+				if (current == len) {
+					break;
+				}
+				current = CompiledPathPattern.skipSeparators(
+						path, CompiledPathPattern.segmentEnd(path, current, len), len);
+			}
+		}
+	}
+
+
+	/**
+	 * Trie node for one pattern segment. Mutable while the trie is being
+	 * built, and effectively immutable after <code>freeze</code>.
+	 */
+	private static class Node implements Serializable {
+
+		private final char[] segment;
+
+		private Map literalChildMap = new HashMap();
+
+		private List wildcardChildList = new ArrayList();
+
+		private List patternIndexList = new ArrayList();
+
+		private String[] literalKeys;
+
+		private Node[] literalValues;
+
+		private Node[] wildcardChildren;
+
+		private Node doubleWildcardChild;
+
+		private int[] patternIndexes;
+
+		private Node(String segment) {
+			this.segment = (segment != null ? segment.toCharArray() : null);
+		}
+
+		private Node addChild(String segment) {
+			int type = CompiledPathPattern.segmentType(segment);
+			if (type == CompiledPathPattern.DOUBLE_WILDCARD) {
+				if (this.doubleWildcardChild == null) {
+					this.doubleWildcardChild = new Node(segment);
+				}
+				return this.doubleWildcardChild;
+			}
+			else if (type == CompiledPathPattern.WILDCARD) {
+				for (Iterator it = this.wildcardChildList.iterator(); it.hasNext();) {
+					Node child = (Node) it.next();
+					if (segment.equals(new String(child.segment))) {
+						return child;
+					}
+				}
+				Node child = new Node(segment);
+				this.wildcardChildList.add(child);
+				return child;
+			}
+			else {
+				Node child = (Node) this.literalChildMap.get(segment);
+				if (child == null) {
+					child = new Node(segment);
+					this.literalChildMap.put(segment, child);
+				}
+				return child;
+			}
+		}
+
+		private void addPatternIndex(int index) {
+			this.patternIndexList.add(new Integer(index));
+		}
+
+		/**
+		 * Convert the build-time collections into arrays and an open-addressing
+		 * hash table for literal segments, which can be probed with a region
+		 * of the path instead of a substring.
+		 */
+		private void freeze() {
+			int size = 2;
+			while (size < this.literalChildMap.size() * 2) {
+				size <<= 1;
+			}
+			this.literalKeys = new String[size];
+			this.literalValues = new Node[size];
+			for (Iterator it = this.literalChildMap.entrySet().iterator(); it.hasNext();) {
+				Map.Entry entry = (Map.Entry) it.next();
+				String key = (String) entry.getKey();
+				int index = key.hashCode() & (size - 1);
+				while (this.literalKeys[index] != null) {
+					index = (index + 1) & (size - 1);
+				}
+				this.literalKeys[index] = key;
+				this.literalValues[index] = (Node) entry.getValue();
+				((Node) entry.getValue()).freeze();
+			}
+			this.wildcardChildren = (Node[]) this.wildcardChildList.toArray(new Node[this.wildcardChildList.size()]);
+			for (int i = 0; i < this.wildcardChildren.length; i++) {
+				this.wildcardChildren[i].freeze();
+			}
+			if (this.doubleWildcardChild != null) {
+				this.doubleWildcardChild.freeze();
+			}
+			this.patternIndexes = new int[this.patternIndexList.size()];
+			for (int i = 0; i < this.patternIndexes.length; i++) {
+				this.patternIndexes[i] = ((Integer) this.patternIndexList.get(i)).intValue();
+			}
+			this.literalChildMap = null;
+			this.wildcardChildList = null;
+			this.patternIndexList = null;
+		}
+
+		/**
+		 * Look up the literal child for the given region of the path,
+		 * computing the same hash as <code>String.hashCode</code>.
+		 */
+		private Node getLiteralChild(String path, int start, int end) {
+			int hash = 0;
+			for (int i = start; i < end; i++) {
+				hash = 31 * hash + path.charAt(i);
+			}
+			int mask = this.literalKeys.length - 1;
+			int length = end - start;
+			for (int index = hash & mask; this.literalKeys[index] != null; index = (index + 1) & mask) {
+				String key = this.literalKeys[index];
+				if (key.length() == length && path.regionMatches(start, key, 0, length)) {
+					return this.literalValues[index];
+				}
+			}
+			return null;
+		}
+	}
+
+
+	/**
+	 * Callback for matching patterns found during a walk.
+	 */
+	private interface Collector {
+
+		void add(int patternIndex);
+	}
+
+
+	private static class MatchCollector implements Collector {
+
+		private final boolean[] matched;
+
+		private MatchCollector(int patternCount) {
+			this.matched = new boolean[patternCount];
+		}
+
+		public void add(int patternIndex) {
+			this.matched[patternIndex] = true;
+		}
+	}
+
+
+	private static class BestMatchCollector implements Collector {
+
+		private final CompiledPathPattern[] patterns;
+
+		private int best = -1;
+
+		private BestMatchCollector(CompiledPathPattern[] patterns) {
+			this.patterns = patterns;
+		}
+
+		public void add(int patternIndex) {
+			if (this.best == -1) {
+				this.best = patternIndex;
+			}
+			else if (this.patterns[patternIndex].isMoreSpecificThan(this.patterns[this.best]) ||
+					(patternIndex < this.best && !this.patterns[this.best].isMoreSpecificThan(this.patterns[patternIndex]))) {
+				this.best = patternIndex;
+			}
+		}
+	}
+
+}
@@ -22,34 +22,78 @@ import java.util.Date;
  * Implementation of ResponseTimeMonitor for use via delegation by
  * objects that implement this interface.
  *
- * <p>Uses no synchronization, so is suitable for use in a web application.
+ * <p>Besides the lifetime statistics of the ResponseTimeMonitor interface,
+ * keeps a ring of time buckets, each holding a LatencyHistogram, for throughput
+ * and latency percentiles over recent time windows such as the last minute
+ * (ONE_MINUTE), the last 5 minutes or the last 15 minutes. A window covers the
+ * current bucket plus as many previous buckets as fit into the window size,
+ * so the actual period is accurate to within one bucket (15 seconds by default).
+ *
+ * <p>Recording goes to striped histograms, so concurrent threads rarely contend
+ * for the same lock, and is thus suitable for use in a web application. Buckets
+ * get recycled when their time slot comes around again: a thread that records
+ * a response time at that very moment may get its value discarded, which is
+ * an acceptable inaccuracy for a monitor.
  *
  * @author Rod Johnson
+ * @author Juergen Hoeller
  * @since November 21, 2000
+ * @see LatencyHistogram
  */
 public class ResponseTimeMonitorImpl implements ResponseTimeMonitor {
 
-	/** The number of operations recorded by this object */
-	private int accessCount;
+	public static final long ONE_MINUTE = 60 * 1000;
+
+	public static final long FIVE_MINUTES = 5 * ONE_MINUTE;
+
+	public static final long FIFTEEN_MINUTES = 15 * ONE_MINUTE;
+
+	public static final long DEFAULT_BUCKET_MILLIS = 15 * 1000;
+
+	/** Stripes per time bucket: fewer than for the lifetime histogram, to bound memory */
+	private static final int BUCKET_STRIPE_COUNT = 2;
+
 
 	/** The system time at which this object was initialized */
-	private long initedMillis;
+	private final long initedMillis;
 
-	/** The sum of the response times for all operations */
-	private int totalResponseTimeMillis = 0;
+	/** Response times of all operations recorded by this object */
+	private final LatencyHistogram lifetimeHistogram = new LatencyHistogram();
 
-	/** The best response time this object has recorded */
-	private int bestResponseTimeMillis = Integer.MAX_VALUE;
+	private final long bucketMillis;
 
-	/** The worst response time this object has recorded */
-	private int worstResponseTimeMillis = Integer.MIN_VALUE;
+	private final long maxWindowMillis;
+
+	/** Ring of time buckets, indexed by time slot modulo length */
+	private final TimeBucket[] buckets;
 
 
 	/**
-	 * Create a new ResponseTimeMonitorImpl.
+	 * Create a new ResponseTimeMonitorImpl, with 15-second buckets
+	 * and windows of up to 15 minutes.
 	 */
 	public ResponseTimeMonitorImpl() {
+		this(DEFAULT_BUCKET_MILLIS, FIFTEEN_MINUTES);
+	}
+
+	/**
+	 * Create a new ResponseTimeMonitorImpl.
+	 * @param bucketMillis the time span covered by each bucket,
+	 * i.e. the precision of the time windows
+	 * @param maxWindowMillis the largest time window to keep statistics for
+	 */
+	public ResponseTimeMonitorImpl(long bucketMillis, long maxWindowMillis) {
+		if (bucketMillis <= 0 || maxWindowMillis < bucketMillis) {
+			throw new IllegalArgumentException("bucketMillis must be positive and not larger than maxWindowMillis");
+		}
 		this.initedMillis = System.currentTimeMillis();
+		this.bucketMillis = bucketMillis;
+		this.maxWindowMillis = maxWindowMillis;
+		// one more bucket than needed, so the oldest one of a full window never gets recycled
+		this.buckets = new TimeBucket[(int) ((maxWindowMillis + bucketMillis - 1) / bucketMillis) + 1];
+		for (int i = 0; i < this.buckets.length; i++) {
+			this.buckets[i] = new TimeBucket();
+		}
 	}
 
 	/**
@@ -63,7 +107,7 @@ public class ResponseTimeMonitorImpl implements ResponseTimeMonitor {
 	 * Return the number of hits this object has handled.
 	 */
 	public int getAccessCount() {
-		return accessCount;
+		return (int) this.lifetimeHistogram.getSnapshot().getCount();
 	}
 
 	/**
@@ -85,25 +129,92 @@ public class ResponseTimeMonitorImpl implements ResponseTimeMonitor {
 	 * Return the average response time achieved by this object.
 	 */
 	public int getAverageResponseTimeMillis() {
-		// avoid division by 0
-		if (getAccessCount() == 0) {
-			return 0;
-		}
-		return this.totalResponseTimeMillis / getAccessCount();
+		return (int) this.lifetimeHistogram.getSnapshot().getMeanMillis();
 	}
 
 	/**
-	 * Return the best (lowest) response time achieved by this object.
+	 * Return the best (lowest) response time achieved by this object,
+	 * or Integer.MAX_VALUE if nothing has been recorded yet.
 	 */
 	public int getBestResponseTimeMillis() {
-		return bestResponseTimeMillis;
+		LatencyHistogram.Snapshot snapshot = this.lifetimeHistogram.getSnapshot();
+		return (snapshot.getCount() > 0 ? (int) snapshot.getMinMillis() : Integer.MAX_VALUE);
 	}
 
 	/**
-	 * Return the worst (slowest) response time achieved by this object.
+	 * Return the worst (slowest) response time achieved by this object,
+	 * or Integer.MIN_VALUE if nothing has been recorded yet.
 	 */
 	public int getWorstResponseTimeMillis() {
-		return worstResponseTimeMillis;
+		LatencyHistogram.Snapshot snapshot = this.lifetimeHistogram.getSnapshot();
+		return (snapshot.getCount() > 0 ? (int) snapshot.getMaxMillis() : Integer.MIN_VALUE);
+	}
+
+	/**
+	 * Return the statistics for all response times recorded since
+	 * this object was loaded.
+	 */
+	public LatencyHistogram.Snapshot getLifetimeSnapshot() {
+		return this.lifetimeHistogram.getSnapshot();
+	}
+
+	/**
+	 * Return the statistics for the response times recorded
+	 * within the given time window, up to now.
+	 * @param windowMillis the time window, e.g. ONE_MINUTE
+	 * @return the merged statistics of all buckets within the window
+	 * @see #ONE_MINUTE
+	 * @see #FIVE_MINUTES
+	 * @see #FIFTEEN_MINUTES
+	 */
+	public LatencyHistogram.Snapshot getWindowSnapshot(long windowMillis) {
+		long currentSlot = System.currentTimeMillis() / this.bucketMillis;
+		int bucketCount = getBucketCount(windowMillis);
+		LatencyHistogram.Snapshot result = null;
+		for (int i = 0; i < bucketCount; i++) {
+			long slot = currentSlot - i;
+			TimeBucket bucket = this.buckets[(int) (slot % this.buckets.length)];
+			LatencyHistogram.Snapshot snapshot = bucket.getSnapshot(slot);
+			if (snapshot != null) {
+				result = (result != null ? result.merge(snapshot) : snapshot);
+			}
+		}
+		return (result != null ? result : new LatencyHistogram(1).getSnapshot());
+	}
+
+	/**
+	 * Return the number of recorded operations per second
+	 * within the given time window, up to now.
+	 * @param windowMillis the time window, e.g. ONE_MINUTE
+	 */
+	public double getThroughputPerSecond(long windowMillis) {
+		long now = System.currentTimeMillis();
+		long windowStart = (now / this.bucketMillis - getBucketCount(windowMillis) + 1) * this.bucketMillis;
+		long elapsed = now - Math.max(windowStart, this.initedMillis);
+		if (elapsed <= 0) {
+			return 0;
+		}
+		return getWindowSnapshot(windowMillis).getCount() * 1000.0 / elapsed;
+	}
+
+	/**
+	 * Return the response time that the given fraction of operations
+	 * within the given time window did not exceed.
+	 * @param fraction the fraction of operations, between 0.0 and 1.0
+	 * (for example 0.99 for the 99th percentile)
+	 * @param windowMillis the time window, e.g. ONE_MINUTE
+	 * @see LatencyHistogram.Snapshot#getPercentileMillis
+	 */
+	public long getPercentileResponseTimeMillis(double fraction, long windowMillis) {
+		return getWindowSnapshot(windowMillis).getPercentileMillis(fraction);
+	}
+
+	private int getBucketCount(long windowMillis) {
+		if (windowMillis <= 0 || windowMillis > this.maxWindowMillis) {
+			throw new IllegalArgumentException(
+					"Time window must be positive and not larger than " + this.maxWindowMillis + " ms");
+		}
+		return (int) ((windowMillis + this.bucketMillis - 1) / this.bucketMillis);
 	}
 
 	/**
@@ -112,15 +223,19 @@ public class ResponseTimeMonitorImpl implements ResponseTimeMonitor {
 	 * @param responseTimeMillis the response time of this request
 	 */
 	public void recordResponseTime(long responseTimeMillis) {
-		++this.accessCount;
-		int iResponseTime = (int) responseTimeMillis;
-		this.totalResponseTimeMillis += iResponseTime;
-		if (iResponseTime < this.bestResponseTimeMillis) {
-			this.bestResponseTimeMillis = iResponseTime;
-		}
-		if (iResponseTime > this.worstResponseTimeMillis) {
-			this.worstResponseTimeMillis = iResponseTime;
-		}
+		recordResponseTime(responseTimeMillis, false);
+	}
+
+	/**
+	 * Record the given response time, in the lifetime statistics
+	 * as well as in the current time bucket.
+	 * @param responseTimeMillis the response time of this request
+	 * @param failed whether the request failed
+	 */
+	public void recordResponseTime(long responseTimeMillis, boolean failed) {
+		this.lifetimeHistogram.record(responseTimeMillis, failed);
+		long slot = System.currentTimeMillis() / this.bucketMillis;
+		this.buckets[(int) (slot % this.buckets.length)].getHistogram(slot).record(responseTimeMillis, failed);
 	}
 
 	/**
@@ -128,12 +243,61 @@ public class ResponseTimeMonitorImpl implements ResponseTimeMonitor {
 	 * data recorded by this object.
 	 */
 	public String toString() {
+		LatencyHistogram.Snapshot lifetime = this.lifetimeHistogram.getSnapshot();
 		StringBuffer sb = new StringBuffer();
-		sb.append("hits=[").append(getAccessCount()).append("]; ");
-		sb.append("average=[").append(getAverageResponseTimeMillis()).append("ms]; ");
-		sb.append("best=[").append(getBestResponseTimeMillis()).append("ms]; ");
-		sb.append("worst=[").append(getWorstResponseTimeMillis()).append("ms]");
+		sb.append("hits=[").append(lifetime.getCount()).append("]; ");
+		sb.append("average=[").append((int) lifetime.getMeanMillis()).append("ms]; ");
+		sb.append("best=[").append(lifetime.getCount() > 0 ? lifetime.getMinMillis() : Integer.MAX_VALUE).append("ms]; ");
+		sb.append("worst=[").append(lifetime.getCount() > 0 ? lifetime.getMaxMillis() : Integer.MIN_VALUE).append("ms]");
+		if (this.maxWindowMillis >= ONE_MINUTE) {
+			LatencyHistogram.Snapshot lastMinute = getWindowSnapshot(ONE_MINUTE);
+			sb.append("; last minute: hits=[").append(lastMinute.getCount()).append("]; ");
+			sb.append("p50=[").append(lastMinute.get50thPercentileMillis()).append("ms]; ");
+			sb.append("p99=[").append(lastMinute.get99thPercentileMillis()).append("ms]");
+		}
 		return sb.toString();
 	}
 
+
+	/**
+	 * Histogram for one time slot, recycled when the ring comes around.
+	 */
+	private static class TimeBucket {
+
+		private final LatencyHistogram histogram = new LatencyHistogram(BUCKET_STRIPE_COUNT);
+
+		/** The time slot that the histogram currently holds values for */
+		private volatile long slot = -1;
+
+		/**
+		 * Return the histogram to record values for the given slot in,
+		 * resetting it if it still holds values for an earlier slot.
+		 */
+		private LatencyHistogram getHistogram(long slot) {
+			if (this.slot < slot) {
+				synchronized (this) {
+					if (this.slot < slot) {
+						this.histogram.reset();
+						this.slot = slot;
+					}
+				}
+			}
+			// a late recording for an already recycled slot counts towards the current one
+			return this.histogram;
+		}
+
+		/**
+		 * Return a snapshot of the histogram if it holds values for
+		 * the given slot, or null if it doesn't.
+		 */
+		private LatencyHistogram.Snapshot getSnapshot(long slot) {
+			if (this.slot != slot) {
+				return null;
+			}
+			LatencyHistogram.Snapshot snapshot = this.histogram.getSnapshot();
+			// recycled while taking the snapshot?
+			return (this.slot == slot ? snapshot : null);
+		}
+	}
+
 }
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * Lightweight tracing of nested units of work per thread, for finding out
+ * where the time of a request goes without attaching a profiler: for example
+ * DispatcherServlet, controller, transactional service method and JDBC
+ * statements. Complements StopWatch, which times flat, sequential tasks
+ * within a single piece of code.
+ *
+ * <p>Each thread holds a stack of open spans. <code>startSpan</code> opens a
+ * child of the current span (or a new trace if there is none), and
+ * <code>endSpan</code> closes it again, in a finally block. Completed traces
+ * are kept in a fixed-size ring buffer, for inspection via
+ * <code>getCompletedTraces</code>, and can be rendered as text or JSON.
+ *
+ * <p>Tracing is disabled by default. The framework's hooks in FrameworkServlet,
+ * DispatcherServlet, TransactionInterceptor, JdbcTemplate and HibernateTemplate
+ * only check a volatile flag then, and don't build any span names.
+ *
+ * <p>Uses <code>System.nanoTime</code> on JDK 1.5, falling back to
+ * millisecond precision via <code>System.currentTimeMillis</code> on
+ * older JVMs. As this class needs to compile on JDK 1.3, the former is
+ * called via reflection: see <code>currentNanos</code> for the cost.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see TraceSpan
+ * @see StopWatch
+ */
+public abstract class SpanTracer {
+
+	public static final int DEFAULT_TRACE_BUFFER_SIZE = 100;
+
+	public static final int DEFAULT_MAX_SPANS_PER_TRACE = 1000;
+
+	private static final Method nanoTimeMethod;
+
+	static {
+		Method method = null;
+		try {
+			// JDK 1.5+ System.nanoTime()
+			method = System.class.getMethod("nanoTime", null);
+		}
+		catch (NoSuchMethodException ex) {
+			// fall back to currentTimeMillis
+		}
+		nanoTimeMethod = method;
+	}
+
+	private static volatile boolean enabled = false;
+
+	private static volatile int maxSpansPerTrace = DEFAULT_MAX_SPANS_PER_TRACE;
+
+	private static final ThreadLocal currentSpan = new ThreadLocal();
+
+	private static final Object traceBufferMonitor = new Object();
+
+	private static TraceSpan[] traceBuffer = new TraceSpan[DEFAULT_TRACE_BUFFER_SIZE];
+
+	private static int nextTraceIndex = 0;
+
+	private static int bufferedTraceCount = 0;
+
+	private static long completedTraceCount = 0;
+
+
+	/**
+	 * Enable or disable tracing for all threads. Spans that are already
+	 * open will still be ended and recorded.
+	 */
+	public static void setEnabled(boolean enabled) {
+		SpanTracer.enabled = enabled;
+	}
+
+	/**
+	 * Return whether tracing is currently enabled.
+	 * Hooks should check this before building a span name.
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Set the number of completed traces to keep. Default is 100.
+	 * Discards all traces recorded so far.
+	 */
+	public static void setTraceBufferSize(int traceBufferSize) {
+		if (traceBufferSize <= 0) {
+			throw new IllegalArgumentException("traceBufferSize must be positive");
+		}
+		synchronized (traceBufferMonitor) {
+			traceBuffer = new TraceSpan[traceBufferSize];
+			nextTraceIndex = 0;
+			bufferedTraceCount = 0;
+		}
+	}
+
+	/**
+	 * Set the maximum number of spans to record per trace. Default is 1000.
+	 * <p>Further spans, for example for the statements of a large batch job,
+	 * are still timed as part of their parents but not recorded individually.
+	 * @see TraceSpan#getDroppedSpanCount
+	 */
+	public static void setMaxSpansPerTrace(int maxSpansPerTrace) {
+		SpanTracer.maxSpansPerTrace = maxSpansPerTrace;
+	}
+
+
+	/**
+	 * Start a new trace for the current thread, if it is not tracing yet.
+	 * <p>Within an open trace, for example for an include or forward that
+	 * is dispatched within the same request, a child of the current span
+	 * is started instead, leaving the outer trace intact.
+	 * @param name the name of the root span
+	 * @return the root span (or child span), or null if tracing is disabled
+	 * @see #startSpan
+	 */
+	public static TraceSpan startTrace(String name) {
+		return startSpan(name);
+	}
+
+	/**
+	 * Start a new span as child of the current thread's current span,
+	 * or as root of a new trace if there is no current span.
+	 * @param name the name of the span
+	 * @return the span, or null if tracing is disabled
+	 * @see #endSpan(TraceSpan)
+	 */
+	public static TraceSpan startSpan(String name) {
+		if (!enabled) {
+			return null;
+		}
+		TraceSpan span = new TraceSpan(name, (TraceSpan) currentSpan.get(), currentNanos(), maxSpansPerTrace);
+		currentSpan.set(span);
+		return span;
+	}
+
+	/**
+	 * End the given span, making its parent the current span again.
+	 * Completes the trace if given its root span.
+	 * @param span the span returned by <code>startSpan</code>
+	 * (may be null, if tracing was disabled at the time)
+	 */
+	public static void endSpan(TraceSpan span) {
+		endSpan(span, null);
+	}
+
+	/**
+	 * End the given span, making its parent the current span again.
+	 * Completes the trace if given its root span.
+	 * @param span the span returned by <code>startSpan</code>
+	 * (may be null, if tracing was disabled at the time)
+	 * @param failure the exception that ended the unit of work, if any
+	 */
+	public static void endSpan(TraceSpan span, Throwable failure) {
+		if (span == null || span.isEnded()) {
+			return;
+		}
+		span.end(currentNanos(), failure);
+		currentSpan.set(span.getParent());
+		if (span.getParent() == null) {
+			synchronized (traceBufferMonitor) {
+				traceBuffer[nextTraceIndex] = span;
+				nextTraceIndex = (nextTraceIndex + 1) % traceBuffer.length;
+				if (bufferedTraceCount < traceBuffer.length) {
+					bufferedTraceCount++;
+				}
+				completedTraceCount++;
+			}
+		}
+	}
+
+	/**
+	 * Return the current thread's current span, or null if none.
+	 */
+	public static TraceSpan getCurrentSpan() {
+		return (TraceSpan) currentSpan.get();
+	}
+
+
+	/**
+	 * Return the completed traces that are still held in the ring buffer,
+	 * oldest first.
+	 * @return the root spans of the completed traces
+	 */
+	public static TraceSpan[] getCompletedTraces() {
+		synchronized (traceBufferMonitor) {
+			TraceSpan[] result = new TraceSpan[bufferedTraceCount];
+			int index = (nextTraceIndex - bufferedTraceCount + traceBuffer.length) % traceBuffer.length;
+			for (int i = 0; i < bufferedTraceCount; i++) {
+				result[i] = traceBuffer[(index + i) % traceBuffer.length];
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Return the total number of traces completed since startup,
+	 * including the ones that have already left the ring buffer.
+	 */
+	public static long getCompletedTraceCount() {
+		synchronized (traceBufferMonitor) {
+			return completedTraceCount;
+		}
+	}
+
+	/**
+	 * Discard all completed traces.
+	 */
+	public static void clearCompletedTraces() {
+		synchronized (traceBufferMonitor) {
+			traceBuffer = new TraceSpan[traceBuffer.length];
+			nextTraceIndex = 0;
+			bufferedTraceCount = 0;
+			completedTraceCount = 0;
+		}
+	}
+
+	/**
+	 * Return the current value of the most precise clock available, in
+	 * nanoseconds. Only meaningful for measuring elapsed time.
+	 * <p>On JDK 1.5, <code>System.nanoTime</code> is invoked reflectively,
+	 * which allocates a Long per call: each traced span costs two such
+	 * calls, typically well below a microsecond, while tracing is enabled.
+	 * This is negligible for the units of work traced by the framework
+	 * (requests, handlers, transactions, statements), but not meant for
+	 * timing fine-grained method calls. Nothing is invoked while tracing
+	 * is disabled.
+	 */
+	public static long currentNanos() {
+		if (nanoTimeMethod != null) {
+			try {
+				return ((Long) nanoTimeMethod.invoke(null, null)).longValue();
+			}
+			catch (Exception ex) {
+				// should never happen - fall through to currentTimeMillis
+			}
+		}
+		return System.currentTimeMillis() * 1000000;
+	}
+
+}
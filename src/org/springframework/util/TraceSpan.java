@@ -0,0 +1,319 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.util;
+
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One timed unit of work within a trace, with a parent span and child spans.
+ * A span without parent is the root of a trace, typically a web request.
+ *
+ * <p>Spans are created and ended via SpanTracer, by the thread that runs
+ * the corresponding work. A trace is not modified anymore once its root span
+ * has ended, and can safely be read by other threads from then on.
+ *
+ * <p>Can render itself and its children as indented text or as JSON.
+ *
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ * @see SpanTracer
+ */
+public class TraceSpan {
+
+	private final String name;
+
+	private final TraceSpan parent;
+
+	private final TraceSpan root;
+
+	private final String threadName;
+
+	private final long startTimeMillis;
+
+	private final long startNanos;
+
+	private long endNanos = -1;
+
+	private String failure;
+
+	private final List children = new ArrayList();
+
+	/** Number of spans in this trace, if this is a root span */
+	private int spanCount = 1;
+
+	/** Number of spans that exceeded the maximum, if this is a root span */
+	private int droppedSpanCount;
+
+
+	/**
+	 * Create a new span, attaching it to the given parent unless the
+	 * trace already holds the given maximum number of spans.
+	 */
+	TraceSpan(String name, TraceSpan parent, long startNanos, int maxSpansPerTrace) {
+		this.name = name;
+		this.parent = parent;
+		this.root = (parent != null ? parent.root : this);
+		this.threadName = (parent != null ? parent.threadName : Thread.currentThread().getName());
+		this.startTimeMillis = System.currentTimeMillis();
+		this.startNanos = startNanos;
+		if (parent != null) {
+			if (this.root.spanCount < maxSpansPerTrace) {
+				parent.children.add(this);
+				this.root.spanCount++;
+			}
+			else {
+				this.root.droppedSpanCount++;
+			}
+		}
+	}
+
+	void end(long endNanos, Throwable failure) {
+		this.endNanos = endNanos;
+		if (failure != null) {
+			this.failure = failure.getClass().getName();
+		}
+	}
+
+
+	/**
+	 * Return the name of this span, e.g. "GET /app/index.html".
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Return the parent span, or null if this is the root of a trace.
+	 */
+	public TraceSpan getParent() {
+		return parent;
+	}
+
+	/**
+	 * Return the root span of the trace that this span belongs to.
+	 */
+	public TraceSpan getRoot() {
+		return root;
+	}
+
+	/**
+	 * Return the child spans, in the order in which they were started.
+	 */
+	public TraceSpan[] getChildren() {
+		return (TraceSpan[]) this.children.toArray(new TraceSpan[this.children.size()]);
+	}
+
+	/**
+	 * Return the name of the thread that executed this trace.
+	 */
+	public String getThreadName() {
+		return threadName;
+	}
+
+	/**
+	 * Return the wall clock time at which this span started.
+	 */
+	public long getStartTimeMillis() {
+		return startTimeMillis;
+	}
+
+	/**
+	 * Return whether this span has ended.
+	 */
+	public boolean isEnded() {
+		return (this.endNanos != -1);
+	}
+
+	/**
+	 * Return the duration of this span in nanoseconds, or the time elapsed
+	 * so far if it has not ended yet. The actual precision depends on the
+	 * clock available on the current JVM.
+	 * @see SpanTracer#currentNanos
+	 */
+	public long getDurationNanos() {
+		return (isEnded() ? this.endNanos : SpanTracer.currentNanos()) - this.startNanos;
+	}
+
+	/**
+	 * Return the duration of this span in milliseconds.
+	 */
+	public double getDurationMillis() {
+		return getDurationNanos() / 1000000.0;
+	}
+
+	/**
+	 * Return the time spent in this span itself in nanoseconds,
+	 * i.e. not spent in any of its recorded child spans.
+	 */
+	public long getSelfNanos() {
+		long self = getDurationNanos();
+		for (int i = 0; i < this.children.size(); i++) {
+			self -= ((TraceSpan) this.children.get(i)).getDurationNanos();
+		}
+		return Math.max(self, 0);
+	}
+
+	/**
+	 * Return the class name of the exception that ended this span,
+	 * or null if it ended normally.
+	 */
+	public String getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Return the number of spans recorded in the trace of this span.
+	 */
+	public int getSpanCount() {
+		return this.root.spanCount;
+	}
+
+	/**
+	 * Return the number of spans of this trace that have not been
+	 * recorded because the trace exceeded the maximum number of spans.
+	 * @see SpanTracer#setMaxSpansPerTrace
+	 */
+	public int getDroppedSpanCount() {
+		return this.root.droppedSpanCount;
+	}
+
+
+	/**
+	 * Return this span and its children as indented text,
+	 * one span per line with total and self time in milliseconds.
+	 */
+	public String toText() {
+		StringBuffer sb = new StringBuffer();
+		sb.append("Trace '").append(this.name).append("' on thread [").append(this.threadName);
+		sb.append("] started at ").append(new Date(this.startTimeMillis)).append('\n');
+		sb.append("-----------------------------------------\n");
+		sb.append("total ms   self ms    Span\n");
+		sb.append("-----------------------------------------\n");
+		NumberFormat nf = NumberFormat.getNumberInstance(Locale.US);
+		nf.setMinimumFractionDigits(3);
+		nf.setMaximumFractionDigits(3);
+		nf.setGroupingUsed(false);
+		appendText(sb, nf, 0);
+		if (this.root.droppedSpanCount > 0) {
+			sb.append("(").append(this.root.droppedSpanCount).append(" more spans not recorded)\n");
+		}
+		return sb.toString();
+	}
+
+	private void appendText(StringBuffer sb, NumberFormat nf, int depth) {
+		appendPadded(sb, nf.format(getDurationMillis()), 11);
+		appendPadded(sb, nf.format(getSelfNanos() / 1000000.0), 11);
+		for (int i = 0; i < depth; i++) {
+			sb.append("  ");
+		}
+		sb.append(this.name);
+		if (this.failure != null) {
+			sb.append(" [failed: ").append(this.failure).append(']');
+		}
+		if (!isEnded()) {
+			sb.append(" [running]");
+		}
+		sb.append('\n');
+		for (int i = 0; i < this.children.size(); i++) {
+			((TraceSpan) this.children.get(i)).appendText(sb, nf, depth + 1);
+		}
+	}
+
+	private static void appendPadded(StringBuffer sb, String value, int width) {
+		sb.append(value);
+		for (int i = value.length(); i < width; i++) {
+			sb.append(' ');
+		}
+	}
+
+	/**
+	 * Return this span and its children as JSON object.
+	 */
+	public String toJson() {
+		StringBuffer sb = new StringBuffer();
+		appendJson(sb);
+		return sb.toString();
+	}
+
+	private void appendJson(StringBuffer sb) {
+		sb.append("{\"name\":");
+		appendJsonString(sb, this.name);
+		if (this.parent == null) {
+			sb.append(",\"thread\":");
+			appendJsonString(sb, this.threadName);
+			sb.append(",\"droppedSpans\":").append(this.droppedSpanCount);
+		}
+		sb.append(",\"startTimeMillis\":").append(this.startTimeMillis);
+		sb.append(",\"durationNanos\":").append(getDurationNanos());
+		sb.append(",\"selfNanos\":").append(getSelfNanos());
+		if (this.failure != null) {
+			sb.append(",\"failure\":");
+			appendJsonString(sb, this.failure);
+		}
+		if (!this.children.isEmpty()) {
+			sb.append(",\"children\":[");
+			for (int i = 0; i < this.children.size(); i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				((TraceSpan) this.children.get(i)).appendJson(sb);
+			}
+			sb.append(']');
+		}
+		sb.append('}');
+	}
+
+	private static void appendJsonString(StringBuffer sb, String value) {
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			}
+			else if (c == '\n') {
+				sb.append("\\n");
+			}
+			else if (c == '\r') {
+				sb.append("\\r");
+			}
+			else if (c == '\t') {
+				sb.append("\\t");
+			}
+			else if (c < 0x20) {
+				String hex = Integer.toHexString(c);
+				sb.append("\\u");
+				for (int j = hex.length(); j < 4; j++) {
+					sb.append('0');
+				}
+				sb.append(hex);
+			}
+			else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+
+	public String toString() {
+		return "TraceSpan '" + this.name + "': " + getDurationMillis() + " ms" + (isEnded() ? "" : " (running)");
+	}
+
+}
@@ -40,7 +40,7 @@ public class PerformanceMonitorListener implements ApplicationListener {
 		if (event instanceof RequestHandledEvent) {
 			RequestHandledEvent rhe = (RequestHandledEvent) event;
 			// could use one monitor per URL
-			this.responseTimeMonitor.recordResponseTime(rhe.getProcessingTimeMillis());
+			this.responseTimeMonitor.recordResponseTime(rhe.getProcessingTimeMillis(), rhe.wasFailure());
 			if (logger.isInfoEnabled()) {
 				// Stringifying objects is expensive. Don't do it unless it will show.
 				logger.info("PerformanceMonitorListener: last=[" + rhe.getProcessingTimeMillis() + "ms]; " +
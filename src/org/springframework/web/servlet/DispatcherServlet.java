@@ -34,6 +34,9 @@ import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.core.OrderComparator;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.SpanTracer;
+import org.springframework.util.TraceSpan;
 import org.springframework.web.multipart.MultipartHttpServletRequest;
 import org.springframework.web.multipart.MultipartResolver;
 import org.springframework.web.servlet.handler.BeanNameUrlHandlerMapping;
@@ -562,7 +565,15 @@ public class DispatcherServlet extends FrameworkServlet {
 				//根据handler查找HandlerAdapter
 				HandlerAdapter ha = getHandlerAdapter(mappedHandler.getHandler());
 				//HandlerAdapter执行Handler
-				mv = ha.handle(processedRequest, response, mappedHandler.getHandler());
+				TraceSpan handlerSpan = (SpanTracer.isEnabled() ?
+						SpanTracer.startSpan("Handler " + ClassUtils.getShortName(mappedHandler.getHandler().getClass())) :
+						null);
+				try {
+					mv = ha.handle(processedRequest, response, mappedHandler.getHandler());
+				}
+				finally {
+					SpanTracer.endSpan(handlerSpan);
+				}
 
 				// apply postHandle methods of registered interceptors
 				//拦截器postHandle的调用
@@ -606,7 +617,14 @@ public class DispatcherServlet extends FrameworkServlet {
 				Locale locale = this.localeResolver.resolveLocale(processedRequest);
 				response.setLocale(locale);
 				//进行视图渲染
-				render(mv, processedRequest, response, locale);
+				TraceSpan renderSpan = (SpanTracer.isEnabled() ?
+						SpanTracer.startSpan("Render " + (mv.getViewName() != null ? mv.getViewName() : "view")) : null);
+				try {
+					render(mv, processedRequest, response, locale);
+				}
+				finally {
+					SpanTracer.endSpan(renderSpan);
+				}
 			}
 			else {
 				if (logger.isDebugEnabled()) {
@@ -28,7 +28,9 @@ import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContextException;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.SpanTracer;
 import org.springframework.util.StringUtils;
+import org.springframework.util.TraceSpan;
 import org.springframework.web.context.ConfigurableWebApplicationContext;
 import org.springframework.web.context.WebApplicationContext;
 import org.springframework.web.context.support.RequestHandledEvent;
@@ -325,6 +327,8 @@ public abstract class FrameworkServlet extends HttpServletBean {
 	protected final void service(HttpServletRequest request, HttpServletResponse response)
 	    throws ServletException, IOException {
 		long startTime = System.currentTimeMillis();
+		TraceSpan span = (SpanTracer.isEnabled() ?
+				SpanTracer.startTrace(request.getMethod() + " " + request.getRequestURI()) : null);
 		Exception failureCause = null;
 		try {
 			doService(request, response);
@@ -346,6 +350,7 @@ public abstract class FrameworkServlet extends HttpServletBean {
 			throw new ServletException(ex.getMessage(), ex);
 		}
 		finally {
+			SpanTracer.endSpan(span, failureCause);
 			long processingTime = System.currentTimeMillis() - startTime;
 			if (failureCause != null) {
 				logger.error("Could not complete request", failureCause);
@@ -17,14 +17,13 @@
 package org.springframework.web.servlet.handler;
 
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContextException;
-import org.springframework.util.PathMatcher;
+import org.springframework.util.PathPatternTrie;
 import org.springframework.web.util.UrlPathHelper;
 
 /**
@@ -36,13 +35,18 @@ import org.springframework.web.util.UrlPathHelper;
  * and various Ant-style pattern matches, e.g. a registered "/t*" pattern
  * matches both "/test" and "/team", "/test/*" matches all paths in the
  * "/test" directory, "/test/**" matches all paths below "/test".
- * For details, see the PathMatcher class.
+ * For details, see the PathMatcher class. If several patterns match,
+ * the most specific one wins, e.g. "/test/*" over "/test/**".
+ *
+ * <p>Registered paths get compiled into a PathPatternTrie on first lookup,
+ * so that a request path is checked against all patterns in a single walk.
  *
  * @author Juergen Hoeller
  * @since 16.04.2003
  * @see #setAlwaysUseFullPath
  * @see #setUrlDecode
  * @see org.springframework.util.PathMatcher
+ * @see org.springframework.util.PathPatternTrie
  */
 public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 
@@ -52,6 +56,9 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 
 	private final Map handlerMap = new HashMap();
 
+	/** Compiled registered paths, rebuilt lazily after registration */
+	private volatile PathPatternTrie patternTrie;
+
 
 	/**
 	 * Set if URL lookup should always use full path within current servlet
@@ -125,9 +132,11 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 	 * <p>Supports direct matches, e.g. a registered "/test" matches "/test",
 	 * and various Ant-style pattern matches, e.g. a registered "/t*" matches
 	 * both "/test" and "/team". For details, see the PathMatcher class.
+	 * If several patterns match, the most specific one wins.
 	 * @param urlPath URL the bean is mapped to
 	 * @return the associated handler instance, or null if not found
 	 * @see org.springframework.util.PathMatcher
+	 * @see org.springframework.util.PathPatternTrie#getBestMatch
 	 * 根据路径查找匹配的Handler
 	 */
 	protected Object lookupHandler(String urlPath) {
@@ -137,17 +146,32 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 		//缓存中不存在
 		if (handler == null) {
 			// pattern match?
-			for (Iterator it = this.handlerMap.keySet().iterator(); it.hasNext();) {
-				String registeredPath = (String) it.next();
-				//和handlerMap中的进行对比匹配
-				if (PathMatcher.match(registeredPath, urlPath)) {
-					handler = this.handlerMap.get(registeredPath);
-				}
+			//和handlerMap中的进行对比匹配
+			String bestPattern = getPatternTrie().getBestMatch(urlPath);
+			if (bestPattern != null) {
+				handler = this.handlerMap.get(bestPattern);
 			}
 		}
 		return handler;
 	}
 
+	/**
+	 * Return the trie of all registered paths, building it if necessary.
+	 */
+	private PathPatternTrie getPatternTrie() {
+		PathPatternTrie trie = this.patternTrie;
+		if (trie == null) {
+			synchronized (this.handlerMap) {
+				trie = this.patternTrie;
+				if (trie == null) {
+					trie = new PathPatternTrie(this.handlerMap.keySet());
+					this.patternTrie = trie;
+				}
+			}
+		}
+		return trie;
+	}
+
 	/**
 	 * Register the given handler instance for the given URL path.
 	 * @param urlPath URL the bean is mapped to
@@ -173,7 +197,10 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 			setDefaultHandler(handler);
 		}
 		else {
-			this.handlerMap.put(urlPath, handler);
+			synchronized (this.handlerMap) {
+				this.handlerMap.put(urlPath, handler);
+				this.patternTrie = null;
+			}
 			if (logger.isInfoEnabled()) {
 				logger.info("Mapped URL path [" + urlPath + "] onto handler [" + handler + "]");
 			}
@@ -16,7 +16,10 @@
 
 package org.springframework.web.util;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -296,6 +299,24 @@ public abstract class HtmlUtils {
 		System.out.println(ENTITIES.size());
 	}
 
+	/**
+	 * Decimal references for all characters that have an entity
+	 * in the HTML 4.01 recommendation, indexed by character.
+	 */
+	private static final String[] REFERENCES;
+
+	static {
+		int maxCharacter = 0;
+		for (Iterator it = ENTITIES.values().iterator(); it.hasNext();) {
+			maxCharacter = Math.max(maxCharacter, ((Integer) it.next()).intValue());
+		}
+		REFERENCES = new String[maxCharacter + 1];
+		for (Iterator it = ENTITIES.values().iterator(); it.hasNext();) {
+			int c = ((Integer) it.next()).intValue();
+			REFERENCES[c] = REFERENCE_START + c + ";";
+		}
+	}
+
 	/**
 	 * Turn special characters into HTML character references.
 	 * Handles complete character set defined in HTML 4.01 recommendation.
@@ -313,293 +334,80 @@ public abstract class HtmlUtils {
 			return null;
 		}
 
-		StringBuffer escaped = new StringBuffer(input.length());
-		for (int i = 0; i < input.length(); i++) {
+		// common case: nothing to escape
+		int first = indexOfCharacterToEscape(input);
+		if (first == -1) {
+			return input;
+		}
+
+		StringBuffer escaped = new StringBuffer(input.length() + 16);
+		for (int i = 0; i < first; i++) {
+			escaped.append(input.charAt(i));
+		}
+		for (int i = first; i < input.length(); i++) {
 			char c = input.charAt(i);
-			// handle non-special ASCII chars first since they will be most common
-			if ((c >= 0 && c <= 33)
-			    || (c >= 35 && c <= 37)
-			    || (c >= 39 && c <= 59)
-			    || (c == 61)
-			    || (c >= 63 && c <= 159)) {
+			String reference = getReference(c);
+			if (reference != null) {
+				escaped.append(reference);
+			}
+			else {
 				escaped.append(c);
-				continue;
 			}
+		}
+		return escaped.toString();
+	}
 
-			// handle special chars
-			if (c == 34) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 38) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 60) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 62) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 160 && c <= 255) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 338 && c <= 339) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 352 && c <= 353) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 376) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 402) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 710) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 732) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 913 && c <= 929) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 931 && c <= 937) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 945 && c <= 969) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 977 && c <= 978) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 982) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8194 && c <= 8195) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8201) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8204 && c <= 8207) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8211 && c <= 8212) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8216 && c <= 8218) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8220 && c <= 8222) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8224 && c <= 8226) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8230) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8240) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8242 && c <= 8243) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8249 && c <= 8250) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8254) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8260) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8364) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8465) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8472) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8476) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8482) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8501) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8592 && c <= 8596) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8629) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8656 && c <= 8660) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8704) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8706 && c <= 8707) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8709) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8711 && c <= 8713) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8715) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8719) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8721 && c <= 8722) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8727) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8730) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8733 && c <= 8734) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8736) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8743 && c <= 8747) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8756) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8764) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8773) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8776) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8800 && c <= 8801) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8804 && c <= 8805) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8834 && c <= 8836) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8838 && c <= 8839) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8853) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8855) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8869) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 8901) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 8968 && c <= 8971) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c >= 9001 && c <= 9002) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 9674) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 9824) {
-				writeDecimalReference(c, escaped);
-				continue;
-			}
-			if (c == 9827) {
-				writeDecimalReference(c, escaped);
-				continue;
+	/**
+	 * Turn special characters into HTML character references,
+	 * writing the result to the given Writer, for example a JspWriter.
+	 * <p>Writes unescaped stretches of the input as a whole, without
+	 * building an intermediate String.
+	 * @param input the (unescaped) input string (may be null,
+	 * which leads to nothing being written)
+	 * @param out the Writer to write the escaped string to
+	 * @throws IOException if thrown by the Writer
+	 * @see #htmlEscape(String)
+	 */
+	public static void htmlEscape(String input, Writer out) throws IOException {
+		if (input == null) {
+			return;
+		}
+		int length = input.length();
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			String reference = getReference(input.charAt(i));
+			if (reference != null) {
+				if (i > start) {
+					out.write(input, start, i - start);
+				}
+				out.write(reference);
+				start = i + 1;
 			}
+		}
+		if (start < length) {
+			out.write(input, start, length - start);
+		}
+	}
 
-			// all other chars
-			escaped.append(c);
+	/**
+	 * Return the index of the first character in the given string
+	 * that needs to be escaped, or -1 if none.
+	 */
+	private static int indexOfCharacterToEscape(String input) {
+		for (int i = 0; i < input.length(); i++) {
+			if (getReference(input.charAt(i)) != null) {
+				return i;
+			}
 		}
-		return escaped.toString();
+		return -1;
+	}
+
+	/**
+	 * Return the decimal reference for the given character,
+	 * or null if it does not need to be escaped.
+	 */
+	private static String getReference(char c) {
+		return (c < REFERENCES.length ? REFERENCES[c] : null);
 	}
 
 	/**
@@ -691,15 +499,4 @@ public abstract class HtmlUtils {
 		return unescaped.toString();
 	}
 
-	/**
-	 * Write the given character as decimal reference.
-	 * @param c the character to write
-	 * @param buf the buffer to write into
-	 */
-	private static void writeDecimalReference(char c, StringBuffer buf) {
-		buf.append(REFERENCE_START);
-		buf.append((int) c);
-		buf.append(';');
-	}
-
 }
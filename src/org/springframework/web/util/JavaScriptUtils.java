@@ -16,6 +16,9 @@
 
 package org.springframework.web.util;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * Utility class for JavaScript escaping.
  * Escapes based on the JavaScript 1.5 recommendation.
@@ -30,52 +33,125 @@ package org.springframework.web.util;
  */
 public class JavaScriptUtils {
 
+	/**
+	 * Escape sequences for all characters that need to be escaped,
+	 * indexed by character. A line feed that directly follows a
+	 * carriage return is dropped: the pair turns into a single "\n".
+	 */
+	private static final String[] ESCAPES = new String[128];
+
+	static {
+		ESCAPES['"'] = "\\\"";
+		ESCAPES['\''] = "\\'";
+		ESCAPES['\\'] = "\\\\";
+		ESCAPES['\t'] = "\\t";
+		ESCAPES['\n'] = "\\n";
+		ESCAPES['\r'] = "\\n";
+		ESCAPES['\f'] = "\\f";
+	}
+
+
 	/**
 	 * Turn special characters into escaped characters conforming to JavaScript.
 	 * Handles complete character set defined in HTML 4.01 recommendation.
 	 * @param input the input string
-	 * @return the escaped string
+	 * @return the escaped string, or the input string itself
+	 * if it does not contain any characters to escape
 	 */
 	public static String javaScriptEscape(String input) {
 		if (input == null) {
 			return input;
 		}
 
-		StringBuffer filtered = new StringBuffer(input.length());
-		char prevChar = '\u0000';
-		char c;
-		for (int i = 0; i < input.length(); i++) {
-			c = input.charAt(i);
-			if (c == '"') {
-				filtered.append("\\\"");
-			}
-			else if (c == '\'') {
-				filtered.append("\\'");
-			}
-			else if (c == '\\') {
-				filtered.append("\\\\");
+		// common case: nothing to escape
+		int first = indexOfCharacterToEscape(input);
+		if (first == -1) {
+			return input;
+		}
+
+		StringBuffer filtered = new StringBuffer(input.length() + 16);
+		for (int i = 0; i < first; i++) {
+			filtered.append(input.charAt(i));
+		}
+		for (int i = first; i < input.length(); i++) {
+			char c = input.charAt(i);
+			String escape = getEscape(input, i);
+			if (escape != null) {
+				filtered.append(escape);
 			}
-			else if (c == '\t') {
-				filtered.append("\\t");
+			else if (!isLineFeedAfterCarriageReturn(input, i)) {
+				filtered.append(c);
 			}
-			else if (c == '\n') {
-				if (prevChar != '\r') {
-					filtered.append("\\n");
+		}
+		return filtered.toString();
+	}
+
+	/**
+	 * Turn special characters into escaped characters conforming to JavaScript,
+	 * writing the result to the given Writer, for example a JspWriter.
+	 * <p>Writes unescaped stretches of the input as a whole, without
+	 * building an intermediate String.
+	 * @param input the input string (may be null,
+	 * which leads to nothing being written)
+	 * @param out the Writer to write the escaped string to
+	 * @throws IOException if thrown by the Writer
+	 * @see #javaScriptEscape(String)
+	 */
+	public static void javaScriptEscape(String input, Writer out) throws IOException {
+		if (input == null) {
+			return;
+		}
+		int length = input.length();
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			String escape = getEscape(input, i);
+			if (escape != null || isLineFeedAfterCarriageReturn(input, i)) {
+				if (i > start) {
+					out.write(input, start, i - start);
 				}
+				if (escape != null) {
+					out.write(escape);
+				}
+				start = i + 1;
 			}
-			else if (c == '\r') {
-				filtered.append("\\n");
-			}
-			else if (c == '\f') {
-				filtered.append("\\f");
-			}
-			else {
-				filtered.append(c);
+		}
+		if (start < length) {
+			out.write(input, start, length - start);
+		}
+	}
+
+	/**
+	 * Return the index of the first character in the given string
+	 * that needs to be escaped, or -1 if none.
+	 */
+	private static int indexOfCharacterToEscape(String input) {
+		for (int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if (c < ESCAPES.length && ESCAPES[c] != null) {
+				return i;
 			}
-			prevChar = c;
+		}
+		return -1;
+	}
 
+	/**
+	 * Return the escape sequence for the character at the given index,
+	 * or null if it is to be written as-is or dropped.
+	 */
+	private static String getEscape(String input, int index) {
+		if (isLineFeedAfterCarriageReturn(input, index)) {
+			return null;
 		}
-		return filtered.toString();
+		char c = input.charAt(index);
+		return (c < ESCAPES.length ? ESCAPES[c] : null);
+	}
+
+	/**
+	 * Determine whether the character at the given index is a line feed
+	 * that follows a carriage return, i.e. is to be dropped.
+	 */
+	private static boolean isLineFeedAfterCarriageReturn(String input, int index) {
+		return (input.charAt(index) == '\n' && index > 0 && input.charAt(index - 1) == '\r');
 	}
 
 }
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.interceptor;
+
+import java.lang.reflect.InvocationTargetException;
+
+import junit.framework.TestCase;
+
+import org.springframework.aop.TargetSource;
+import org.springframework.aop.framework.AopConfigException;
+import org.springframework.aop.framework.AopContext;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.core.task.FutureResult;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.pool.ThreadPoolTaskExecutor;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class AsyncExecutionInterceptorTests extends TestCase {
+
+	private ThreadPoolTaskExecutor executor;
+
+	protected void setUp() {
+		this.executor = new ThreadPoolTaskExecutor();
+		this.executor.setPoolSize(2);
+		this.executor.setDaemon(true);
+		this.executor.afterPropertiesSet();
+	}
+
+	protected void tearDown() {
+		this.executor.destroy();
+	}
+
+	public void testVoidMethodReturnsImmediately() throws Exception {
+		AsyncService target = new AsyncService();
+		AsyncOperations proxy = createProxy(target, false);
+		proxy.doSomething();
+		FutureResult executed = target.getExecutedThread();
+		assertNotSame(Thread.currentThread(), executed.get(5000));
+	}
+
+	public void testFutureResult() throws Exception {
+		AsyncOperations proxy = createProxy(new AsyncService(), false);
+		FutureResult result = proxy.compute(21);
+		assertEquals(new Integer(42), result.get(5000));
+	}
+
+	public void testFutureResultWithException() throws Exception {
+		AsyncOperations proxy = createProxy(new AsyncService(), false);
+		FutureResult result = proxy.compute(-1);
+		try {
+			result.get(5000);
+			fail("Should have thrown InvocationTargetException");
+		}
+		catch (InvocationTargetException ex) {
+			assertTrue(ex.getTargetException() instanceof IllegalArgumentException);
+		}
+	}
+
+	public void testOtherReturnTypesExecuteSynchronously() {
+		AsyncOperations proxy = createProxy(new AsyncService(), false);
+		assertSame(Thread.currentThread(), proxy.currentThread());
+	}
+
+	public void testAopContextIsPropagated() throws Exception {
+		AsyncService target = new AsyncService();
+		AsyncOperations proxy = createProxy(target, true);
+		FutureResult result = proxy.exposedProxy();
+		assertSame(proxy, result.get(5000));
+	}
+
+	public void testTransactionStateIsNotPropagated() throws Exception {
+		AsyncOperations proxy = createProxy(new AsyncService(), false);
+		TransactionSynchronizationManager.bindResource("key", "value");
+		try {
+			assertEquals(Boolean.FALSE, proxy.hasTransactionalResource().get(5000));
+		}
+		finally {
+			TransactionSynchronizationManager.unbindResource("key");
+		}
+	}
+
+	public void testSyncTaskExecutorKeepsCallerState() throws Exception {
+		ProxyFactory pf = new ProxyFactory(new AsyncService());
+		pf.addAdvice(new AsyncExecutionInterceptor(new SyncTaskExecutor()));
+		AsyncOperations proxy = (AsyncOperations) pf.getProxy();
+		TransactionSynchronizationManager.bindResource("key", "value");
+		try {
+			assertEquals(Boolean.TRUE, proxy.hasTransactionalResource().get());
+			assertTrue(TransactionSynchronizationManager.hasResource("key"));
+		}
+		finally {
+			TransactionSynchronizationManager.unbindResource("key");
+		}
+	}
+
+	public void testDiscardedInvocationCompletesFutureResult() throws Exception {
+		this.executor.destroy();
+		this.executor = new ThreadPoolTaskExecutor();
+		this.executor.setQueueCapacity(0);
+		this.executor.setOverflowPolicy(ThreadPoolTaskExecutor.OVERFLOW_DISCARD);
+		this.executor.setDaemon(true);
+		this.executor.afterPropertiesSet();
+		AsyncOperations proxy = createProxy(new AsyncService(), false);
+		FutureResult result = proxy.compute(21);
+		try {
+			result.get(5000);
+			fail("Should have thrown InvocationTargetException");
+		}
+		catch (InvocationTargetException ex) {
+			assertTrue(ex.getTargetException() instanceof TaskRejectedException);
+		}
+		assertEquals(1, this.executor.getDiscardedTaskCount());
+	}
+
+	public void testNonStaticTargetSourceIsRefused() {
+		ProxyFactory pf = new ProxyFactory(new Class[] {AsyncOperations.class});
+		pf.setTargetSource(new NonStaticTargetSource());
+		pf.addAdvice(new AsyncExecutionInterceptor(this.executor));
+		AsyncOperations proxy = (AsyncOperations) pf.getProxy();
+		try {
+			proxy.compute(21);
+			fail("Should have thrown AopConfigException");
+		}
+		catch (AopConfigException ex) {
+			// expected
+		}
+		// synchronously executed methods are not affected
+		assertSame(Thread.currentThread(), proxy.currentThread());
+	}
+
+	public void testRequiresTaskExecutor() {
+		try {
+			new AsyncExecutionInterceptor().afterPropertiesSet();
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	private AsyncOperations createProxy(AsyncService target, boolean exposeProxy) {
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.setExposeProxy(exposeProxy);
+		AsyncExecutionInterceptor interceptor = new AsyncExecutionInterceptor();
+		interceptor.setTaskExecutor(this.executor);
+		interceptor.afterPropertiesSet();
+		pf.addAdvice(interceptor);
+		return (AsyncOperations) pf.getProxy();
+	}
+
+
+	public interface AsyncOperations {
+
+		void doSomething();
+
+		FutureResult compute(int value);
+
+		FutureResult exposedProxy();
+
+		FutureResult hasTransactionalResource();
+
+		Thread currentThread();
+	}
+
+
+	private static class AsyncService implements AsyncOperations {
+
+		private final FutureResult executedThread = new FutureResult();
+
+		public void doSomething() {
+			this.executedThread.setValue(Thread.currentThread());
+		}
+
+		public FutureResult getExecutedThread() {
+			return executedThread;
+		}
+
+		public FutureResult compute(int value) {
+			if (value < 0) {
+				throw new IllegalArgumentException();
+			}
+			return new FutureResult(new Integer(value * 2));
+		}
+
+		public FutureResult exposedProxy() {
+			return new FutureResult(AopContext.currentProxy());
+		}
+
+		public FutureResult hasTransactionalResource() {
+			return new FutureResult(new Boolean(TransactionSynchronizationManager.hasResource("key")));
+		}
+
+		public Thread currentThread() {
+			return Thread.currentThread();
+		}
+	}
+
+
+	/**
+	 * TargetSource that hands out a new target per invocation.
+	 */
+	private static class NonStaticTargetSource implements TargetSource {
+
+		public Class getTargetClass() {
+			return AsyncService.class;
+		}
+
+		public boolean isStatic() {
+			return false;
+		}
+
+		public Object getTarget() {
+			return new AsyncService();
+		}
+
+		public void releaseTarget(Object target) {
+		}
+	}
+
+}
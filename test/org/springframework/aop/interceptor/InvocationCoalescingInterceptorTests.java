@@ -0,0 +1,269 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.interceptor;
+
+import junit.framework.TestCase;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.util.SerializationTestUtils;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class InvocationCoalescingInterceptorTests extends TestCase {
+
+	private static final int NR_OF_THREADS = 10;
+
+	public void testConcurrentEqualInvocationsAreCoalesced() throws Exception {
+		InvocationCoalescingInterceptor ici = new InvocationCoalescingInterceptor();
+		SlowService target = new SlowService();
+		final Service proxy = createProxy(ici, target);
+
+		final Object[] results = new Object[NR_OF_THREADS];
+		Thread[] threads = new Thread[NR_OF_THREADS];
+		for (int i = 0; i < NR_OF_THREADS; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						results[index] = proxy.compute("key");
+					}
+					catch (Throwable ex) {
+						results[index] = ex;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		target.awaitCallers(1);
+		// give the other threads time to queue up behind the first call
+		Thread.sleep(200);
+		target.release();
+		for (int i = 0; i < NR_OF_THREADS; i++) {
+			threads[i].join();
+		}
+
+		assertEquals(1, target.getInvocationCount());
+		for (int i = 0; i < NR_OF_THREADS; i++) {
+			assertEquals("key-1", results[i]);
+		}
+		assertEquals(NR_OF_THREADS, ici.getInvocationCount());
+		assertEquals(NR_OF_THREADS - 1, ici.getCoalescedCount());
+		assertEquals(0.9, ici.getCoalescingRatio(), 0.0001);
+		assertEquals(0, ici.getInFlightCount());
+	}
+
+	public void testExceptionIsShared() throws Exception {
+		InvocationCoalescingInterceptor ici = new InvocationCoalescingInterceptor();
+		SlowService target = new SlowService();
+		final Service proxy = createProxy(ici, target);
+		final Throwable[] exceptions = new Throwable[2];
+		Thread[] threads = new Thread[2];
+		for (int i = 0; i < 2; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						proxy.compute("fail");
+					}
+					catch (Throwable ex) {
+						exceptions[index] = ex;
+					}
+				}
+			};
+			threads[i].start();
+		}
+		target.awaitCallers(1);
+		Thread.sleep(200);
+		target.release();
+		threads[0].join();
+		threads[1].join();
+		assertEquals(1, target.getInvocationCount());
+		assertTrue(exceptions[0] instanceof IllegalStateException);
+		assertSame(exceptions[0], exceptions[1]);
+	}
+
+	public void testDifferentArgumentsAreNotCoalesced() {
+		InvocationCoalescingInterceptor ici = new InvocationCoalescingInterceptor();
+		SlowService target = new SlowService();
+		target.release();
+		Service proxy = createProxy(ici, target);
+		assertEquals("a-1", proxy.compute("a"));
+		assertEquals("b-2", proxy.compute("b"));
+		assertEquals("a-3", proxy.compute("a"));
+		assertEquals(0, ici.getCoalescedCount());
+	}
+
+	public void testEqualInvocationsOnDifferentTargetsAreNotCoalesced() throws Exception {
+		InvocationCoalescingInterceptor ici = new InvocationCoalescingInterceptor();
+		SlowService target1 = new SlowService();
+		final Service proxy1 = createProxy(ici, target1);
+		SlowService target2 = new SlowService();
+		target2.release();
+		Service proxy2 = createProxy(ici, target2);
+		Thread leader = new Thread() {
+			public void run() {
+				proxy1.compute("key");
+			}
+		};
+		leader.start();
+		target1.awaitCallers(1);
+		// must not wait for, or share the result of, the call on target1
+		assertEquals("key-1", proxy2.compute("key"));
+		assertEquals(1, target2.getInvocationCount());
+		target1.release();
+		leader.join();
+		assertEquals(0, ici.getCoalescedCount());
+	}
+
+	public void testInterruptedWaiterInvokesTargetAndKeepsInterruptFlag() throws Exception {
+		final InvocationCoalescingInterceptor ici = new InvocationCoalescingInterceptor();
+		SlowService target = new SlowService();
+		final Service proxy = createProxy(ici, target);
+		Thread leader = new Thread() {
+			public void run() {
+				proxy.compute("key");
+			}
+		};
+		leader.start();
+		target.awaitCallers(1);
+		final boolean[] interrupted = new boolean[1];
+		Thread follower = new Thread() {
+			public void run() {
+				proxy.compute("key");
+				interrupted[0] = Thread.currentThread().isInterrupted();
+			}
+		};
+		follower.start();
+		while (ici.getInvocationCount() < 2) {
+			Thread.sleep(10);
+		}
+		// give the follower time to start waiting for the leader
+		Thread.sleep(50);
+		follower.interrupt();
+		target.awaitCallers(2);
+		target.release();
+		leader.join();
+		follower.join();
+		assertTrue(interrupted[0]);
+		assertEquals(2, target.getInvocationCount());
+		assertEquals(0, ici.getTimeoutCount());
+		assertEquals(0, ici.getCoalescedCount());
+	}
+
+	public void testWaitTimeout() throws Exception {
+		InvocationCoalescingInterceptor ici = new InvocationCoalescingInterceptor();
+		ici.setWaitTimeout(50);
+		SlowService target = new SlowService();
+		final Service proxy = createProxy(ici, target);
+		Thread leader = new Thread() {
+			public void run() {
+				proxy.compute("key");
+			}
+		};
+		leader.start();
+		target.awaitCallers(1);
+		Thread follower = new Thread() {
+			public void run() {
+				proxy.compute("key");
+			}
+		};
+		follower.start();
+		target.awaitCallers(2);
+		target.release();
+		leader.join();
+		follower.join();
+		assertEquals(2, target.getInvocationCount());
+		assertEquals(1, ici.getTimeoutCount());
+		assertEquals(0, ici.getCoalescedCount());
+	}
+
+	public void testSerializable() throws Exception {
+		InvocationCoalescingInterceptor ici = new InvocationCoalescingInterceptor();
+		ici.setWaitTimeout(1000);
+		InvocationCoalescingInterceptor ici2 =
+				(InvocationCoalescingInterceptor) SerializationTestUtils.serializeAndDeserialize(ici);
+		assertEquals(1000, ici2.getWaitTimeout());
+		SlowService target = new SlowService();
+		target.release();
+		assertEquals("a-1", createProxy(ici2, target).compute("a"));
+	}
+
+	private Service createProxy(InvocationCoalescingInterceptor ici, Service target) {
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.addAdvice(ici);
+		return (Service) pf.getProxy();
+	}
+
+
+	public interface Service {
+
+		String compute(String key);
+	}
+
+
+	/**
+	 * Service that blocks all callers until released.
+	 */
+	private static class SlowService implements Service {
+
+		private int invocationCount;
+
+		private boolean released;
+
+		public String compute(String key) {
+			int count;
+			boolean interrupted = false;
+			synchronized (this) {
+				count = ++this.invocationCount;
+				notifyAll();
+				while (!this.released) {
+					try {
+						wait();
+					}
+					catch (InterruptedException ex) {
+						interrupted = true;
+					}
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			if ("fail".equals(key)) {
+				throw new IllegalStateException();
+			}
+			return key + "-" + count;
+		}
+
+		public synchronized void awaitCallers(int count) throws InterruptedException {
+			while (this.invocationCount < count) {
+				wait();
+			}
+		}
+
+		public synchronized void release() {
+			this.released = true;
+			notifyAll();
+		}
+
+		public synchronized int getInvocationCount() {
+			return invocationCount;
+		}
+	}
+
+}
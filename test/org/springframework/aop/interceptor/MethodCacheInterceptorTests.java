@@ -0,0 +1,219 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.interceptor;
+
+import junit.framework.TestCase;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.util.SerializationTestUtils;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class MethodCacheInterceptorTests extends TestCase {
+
+	public void testCachesResultsPerArguments() {
+		MethodCacheInterceptor mci = new MethodCacheInterceptor();
+		CountingLookup target = new CountingLookup();
+		Lookup proxy = createProxy(mci, target);
+
+		assertEquals("a1", proxy.lookup("a", new int[] {1}));
+		assertEquals("a1", proxy.lookup("a", new int[] {1}));
+		assertEquals("b1", proxy.lookup("b", new int[] {1}));
+		assertEquals("a2", proxy.lookup("a", new int[] {2}));
+		assertEquals("b1", proxy.lookup("b", new int[] {1}));
+		assertNull(proxy.lookup(null, null));
+		assertNull(proxy.lookup(null, null));
+
+		assertEquals(4, target.count);
+		assertEquals(3, mci.getHitCount());
+		assertEquals(4, mci.getMissCount());
+		assertEquals(3.0 / 7.0, mci.getHitRatio(), 0.0001);
+		mci.resetCounters();
+		assertEquals(0, mci.getHitCount());
+	}
+
+	public void testCachedAndEvictingMethodNames() {
+		MethodCacheInterceptor mci = new MethodCacheInterceptor();
+		mci.setCachedMethodNames(new String[] {"look*"});
+		mci.setEvictingMethodNames(new String[] {"update"});
+		CountingLookup target = new CountingLookup();
+		Lookup proxy = createProxy(mci, target);
+
+		proxy.lookup("a", null);
+		proxy.lookup("a", null);
+		proxy.uncached("a");
+		proxy.uncached("a");
+		assertEquals(3, target.count);
+
+		proxy.update();
+		assertEquals(1, mci.getEvictionCount());
+		proxy.lookup("a", null);
+		assertEquals(5, target.count);
+	}
+
+	public void testAdvisorMatchesCachedAndEvictingMethodsOnly() throws Exception {
+		MethodCacheInterceptor mci = new MethodCacheInterceptor();
+		mci.setCachedMethodNames(new String[] {"lookup"});
+		mci.setEvictingMethodNames(new String[] {"upd*"});
+		MethodCacheAdvisor advisor = new MethodCacheAdvisor(mci);
+		assertTrue(advisor.matches(Lookup.class.getMethod("lookup", new Class[] {String.class, int[].class}), null));
+		assertTrue(advisor.matches(Lookup.class.getMethod("update", null), null));
+		assertFalse(advisor.matches(Lookup.class.getMethod("uncached", new Class[] {String.class}), null));
+
+		ProxyFactory pf = new ProxyFactory(new CountingLookup());
+		pf.addAdvisor(advisor);
+		Lookup proxy = (Lookup) pf.getProxy();
+		proxy.lookup("x", null);
+		proxy.lookup("x", null);
+		assertEquals(1, mci.getHitCount());
+	}
+
+	public void testTimeToLive() throws Exception {
+		MethodCacheInterceptor mci = new MethodCacheInterceptor();
+		mci.setTimeToLive(1);
+		CountingLookup target = new CountingLookup();
+		Lookup proxy = createProxy(mci, target);
+		proxy.lookup("a", null);
+		Thread.sleep(10);
+		proxy.lookup("a", null);
+		assertEquals(2, target.count);
+	}
+
+	public void testExceptionsAreNotCached() {
+		MethodCacheInterceptor mci = new MethodCacheInterceptor();
+		CountingLookup target = new CountingLookup();
+		Lookup proxy = createProxy(mci, target);
+		for (int i = 0; i < 2; i++) {
+			try {
+				proxy.lookup("fail", null);
+				fail("Should have thrown IllegalArgumentException");
+			}
+			catch (IllegalArgumentException ex) {
+				// expected
+			}
+		}
+		assertEquals(2, target.count);
+	}
+
+	public void testClearDuringInvocationDoesNotCacheStaleResult() {
+		final MethodCacheInterceptor mci = new MethodCacheInterceptor();
+		CountingLookup target = new CountingLookup() {
+			public String lookup(String key, int[] ids) {
+				String result = super.lookup(key, ids);
+				// simulates an evicting call on another thread
+				mci.clearCache();
+				return result;
+			}
+		};
+		Lookup proxy = createProxy(mci, target);
+		proxy.lookup("a", null);
+		proxy.lookup("a", null);
+		assertEquals(2, target.count);
+		assertEquals(0, mci.getHitCount());
+	}
+
+	public void testArgumentArrayCopiedIntoKey() {
+		MethodCacheInterceptor mci = new MethodCacheInterceptor();
+		CountingLookup target = new CountingLookup();
+		Lookup proxy = createProxy(mci, target);
+		int[] ids = new int[] {1};
+		assertEquals("a1", proxy.lookup("a", ids));
+		ids[0] = 2;
+		assertEquals("a2", proxy.lookup("a", ids));
+		assertEquals("a1", proxy.lookup("a", new int[] {1}));
+		assertEquals(2, target.count);
+	}
+
+	public void testLruEviction() {
+		LruMethodCache cache = new LruMethodCache(2);
+		cache.setSegmentCount(1);
+		cache.put("a", "A");
+		cache.put("b", "B");
+		assertEquals("A", cache.get("a"));
+		cache.put("c", "C");
+		assertEquals(2, cache.size());
+		assertEquals("A", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals("C", cache.get("c"));
+		cache.remove("a");
+		assertNull(cache.get("a"));
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	public void testLruMaxSizeAcrossSegments() {
+		LruMethodCache cache = new LruMethodCache(100);
+		for (int i = 0; i < 1000; i++) {
+			cache.put(new Integer(i), "value");
+		}
+		assertTrue(cache.size() <= 100);
+	}
+
+	public void testSerializable() throws Exception {
+		MethodCacheInterceptor mci = new MethodCacheInterceptor();
+		mci.setCachedMethodNames(new String[] {"lookup"});
+		createProxy(mci, new CountingLookup()).lookup("a", null);
+		MethodCacheInterceptor mci2 = (MethodCacheInterceptor) SerializationTestUtils.serializeAndDeserialize(mci);
+		CountingLookup target = new CountingLookup();
+		Lookup proxy = createProxy(mci2, target);
+		proxy.lookup("a", null);
+		proxy.lookup("a", null);
+		assertEquals(1, target.count);
+	}
+
+	private Lookup createProxy(MethodCacheInterceptor mci, Lookup target) {
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.addAdvice(mci);
+		return (Lookup) pf.getProxy();
+	}
+
+
+	public interface Lookup {
+
+		String lookup(String key, int[] ids);
+
+		String uncached(String key);
+
+		void update();
+	}
+
+
+	private static class CountingLookup implements Lookup {
+
+		private int count;
+
+		public String lookup(String key, int[] ids) {
+			this.count++;
+			if ("fail".equals(key)) {
+				throw new IllegalArgumentException();
+			}
+			return (key != null ? key + (ids != null ? String.valueOf(ids[0]) : "") : null);
+		}
+
+		public String uncached(String key) {
+			this.count++;
+			return key;
+		}
+
+		public void update() {
+			this.count++;
+		}
+	}
+
+}
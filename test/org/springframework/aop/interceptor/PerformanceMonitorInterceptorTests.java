@@ -0,0 +1,106 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.interceptor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.ITestBean;
+import org.springframework.beans.TestBean;
+import org.springframework.util.LatencyHistogram;
+import org.springframework.util.SerializationTestUtils;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class PerformanceMonitorInterceptorTests extends TestCase {
+
+	public void testLoggingMode() {
+		PerformanceMonitorInterceptor pmi = new PerformanceMonitorInterceptor();
+		ITestBean proxy = createProxy(pmi);
+		proxy.setAge(5);
+		assertEquals(5, proxy.getAge());
+		assertTrue(pmi.getStatistics().isEmpty());
+	}
+
+	public void testStatisticsMode() throws Throwable {
+		PerformanceMonitorInterceptor pmi = new PerformanceMonitorInterceptor();
+		pmi.setCollectStatistics(true);
+		pmi.setSlowCallThresholdMillis(0);
+		ITestBean proxy = createProxy(pmi);
+		for (int i = 0; i < 10; i++) {
+			proxy.getAge();
+		}
+		try {
+			proxy.exceptional(new IllegalStateException());
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+
+		Method getAge = ITestBean.class.getMethod("getAge", null);
+		Method exceptional = ITestBean.class.getMethod("exceptional", new Class[] {Throwable.class});
+		Map statistics = pmi.getStatistics();
+		assertEquals(2, statistics.size());
+		LatencyHistogram.Snapshot getAgeStats = (LatencyHistogram.Snapshot) statistics.get(getAge);
+		assertEquals(10, getAgeStats.getCount());
+		assertEquals(0, getAgeStats.getErrorCount());
+		assertEquals(1, pmi.getStatistics(exceptional).getCount());
+		assertEquals(1, pmi.getStatistics(exceptional).getErrorCount());
+
+		pmi.resetStatistics();
+		assertTrue(pmi.getStatistics().isEmpty());
+		assertNull(pmi.getStatistics(getAge));
+	}
+
+	public void testResetInterval() throws Exception {
+		PerformanceMonitorInterceptor pmi = new PerformanceMonitorInterceptor();
+		pmi.setCollectStatistics(true);
+		pmi.setResetIntervalMillis(1);
+		ITestBean proxy = createProxy(pmi);
+		proxy.getAge();
+		Thread.sleep(10);
+		proxy.getName();
+		assertEquals(1, pmi.getStatistics().size());
+		assertNotNull(pmi.getStatistics(ITestBean.class.getMethod("getName", null)));
+	}
+
+	public void testSerializable() throws Exception {
+		PerformanceMonitorInterceptor pmi = new PerformanceMonitorInterceptor();
+		pmi.setCollectStatistics(true);
+		createProxy(pmi).getAge();
+		PerformanceMonitorInterceptor pmi2 = (PerformanceMonitorInterceptor) SerializationTestUtils.serializeAndDeserialize(pmi);
+		assertTrue(pmi2.isCollectStatistics());
+		assertTrue(pmi2.getStatistics().isEmpty());
+		createProxy(pmi2).getAge();
+		assertEquals(1, pmi2.getStatistics().size());
+	}
+
+	private ITestBean createProxy(PerformanceMonitorInterceptor pmi) {
+		ProxyFactory proxyFactory = new ProxyFactory();
+		proxyFactory.setInterfaces(new Class[] {ITestBean.class});
+		proxyFactory.addAdvice(pmi);
+		proxyFactory.setTarget(new TestBean());
+		return (ITestBean) proxyFactory.getProxy();
+	}
+
+}
@@ -289,6 +289,29 @@ public class DelegatingIntroductionInterceptorTests extends TestCase {
 		assertTrue(ts.getTimeStamp() == t);
 	}
 
+	public void testRememberedMethodsAreResetWhenSuppressingInterface() throws Exception {
+		final long t = 1001L;
+		class TestII extends DelegatingIntroductionInterceptor implements TimeStamped {
+			public long getTimeStamp() {
+				return t;
+			}
+		}
+
+		DelegatingIntroductionInterceptor ii = new TestII();
+		TestBean target = new TargetClass(t + 1);
+		target.setName("tb");
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.addAdvisor(0, new DefaultIntroductionAdvisor(ii, TimeStamped.class));
+		TimeStamped ts = (TimeStamped) pf.getProxy();
+		assertEquals(t, ts.getTimeStamp());
+		assertEquals(t, ts.getTimeStamp());
+		assertEquals("tb", ((ITestBean) ts).getName());
+
+		// Method results have been remembered: must be recomputed now
+		ii.suppressInterface(TimeStamped.class);
+		assertEquals(t + 1, ts.getTimeStamp());
+	}
+
 
 	public interface ITest {
 		void foo() throws Exception;
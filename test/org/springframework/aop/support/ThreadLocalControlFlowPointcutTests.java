@@ -0,0 +1,138 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.aop.support;
+
+import junit.framework.TestCase;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.interceptor.NopInterceptor;
+import org.springframework.beans.ITestBean;
+import org.springframework.beans.TestBean;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class ThreadLocalControlFlowPointcutTests extends TestCase {
+
+	public void testMatchesUnderMethod() {
+		TestBean target = new TestBean();
+		target.setAge(27);
+		NopInterceptor nop = new NopInterceptor();
+		ThreadLocalControlFlowPointcut cflow = new ThreadLocalControlFlowPointcut(One.class, "getAge");
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.addAdvisor(new DefaultPointcutAdvisor(cflow, nop));
+		ITestBean proxied = (ITestBean) pf.getProxy();
+		Caller one = createCaller(cflow);
+
+		// Not advised, not under One
+		assertEquals(target.getAge(), proxied.getAge());
+		assertEquals(0, nop.getCount());
+
+		// Will be advised
+		assertEquals(target.getAge(), one.getAge(proxied));
+		assertEquals(1, nop.getCount());
+
+		// Won't be advised
+		assertEquals(target.getAge(), one.nomatch(proxied));
+		assertEquals(1, nop.getCount());
+		assertEquals(3, cflow.getEvaluations());
+
+		// Not advised anymore after leaving the control flow
+		proxied.getAge();
+		assertEquals(1, nop.getCount());
+	}
+
+	public void testMatchesUnderClass() {
+		NopInterceptor nop = new NopInterceptor();
+		ThreadLocalControlFlowPointcut cflow = new ThreadLocalControlFlowPointcut(One.class);
+		ProxyFactory pf = new ProxyFactory(new TestBean());
+		pf.addAdvisor(new DefaultPointcutAdvisor(cflow, nop));
+		ITestBean proxied = (ITestBean) pf.getProxy();
+		Caller one = createCaller(cflow);
+
+		one.getAge(proxied);
+		one.nomatch(proxied);
+		assertEquals(2, nop.getCount());
+		proxied.getAge();
+		assertEquals(2, nop.getCount());
+	}
+
+	public void testMarkerIsRestoredAfterException() {
+		ThreadLocalControlFlowPointcut cflow = new ThreadLocalControlFlowPointcut(One.class);
+		Caller one = createCaller(cflow);
+		try {
+			one.getAge(null);
+			fail("Should have thrown NullPointerException");
+		}
+		catch (NullPointerException ex) {
+			// expected
+		}
+		assertFalse(cflow.isInControlFlow());
+	}
+
+	public void testMarkerIsThreadBound() throws Exception {
+		final ThreadLocalControlFlowPointcut cflow = new ThreadLocalControlFlowPointcut(One.class);
+		final boolean[] otherThreadInControlFlow = new boolean[1];
+		ProxyFactory pf = new ProxyFactory(new TestBean() {
+			public int getAge() {
+				Thread thread = new Thread() {
+					public void run() {
+						otherThreadInControlFlow[0] = cflow.isInControlFlow();
+					}
+				};
+				thread.start();
+				try {
+					thread.join();
+				}
+				catch (InterruptedException ex) {
+				}
+				assertTrue(cflow.isInControlFlow());
+				return 0;
+			}
+		});
+		createCaller(cflow).getAge((ITestBean) pf.getProxy());
+		assertFalse(otherThreadInControlFlow[0]);
+	}
+
+	private Caller createCaller(ThreadLocalControlFlowPointcut cflow) {
+		ProxyFactory pf = new ProxyFactory(new One());
+		pf.addAdvisor(cflow.getMarkerAdvisor());
+		return (Caller) pf.getProxy();
+	}
+
+
+	public interface Caller {
+
+		int getAge(ITestBean proxied);
+
+		int nomatch(ITestBean proxied);
+	}
+
+
+	public static class One implements Caller {
+
+		public int getAge(ITestBean proxied) {
+			return proxied.getAge();
+		}
+
+		public int nomatch(ITestBean proxied) {
+			return proxied.getAge();
+		}
+	}
+
+}
@@ -16,15 +16,22 @@
 
 package org.springframework.aop.target;
 
+import java.util.LinkedList;
+import java.util.List;
+
 import junit.framework.TestCase;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
 
 import org.springframework.aop.framework.Advised;
 import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.aop.interceptor.SerializableNopInterceptor;
 import org.springframework.aop.interceptor.SideEffectBean;
 import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.ITestBean;
 import org.springframework.beans.Person;
 import org.springframework.beans.SerializablePerson;
+import org.springframework.beans.TestBean;
 import org.springframework.beans.factory.xml.XmlBeanFactory;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.util.SerializationTestUtils;
@@ -151,4 +158,170 @@ public class HotSwappableTargetSourceTests extends TestCase {
 		assertEquals(sp1.getName(), p.getName());
 		
 	}
+
+	public void testSwapListenerIsNotified() {
+		TestBean tb1 = new TestBean("tb1", 1);
+		TestBean tb2 = new TestBean("tb2", 2);
+		HotSwappableTargetSource hts = new HotSwappableTargetSource(tb1);
+		final List events = new LinkedList();
+		hts.addSwapListener(new TargetSwapListener() {
+			public void targetSwapped(HotSwappableTargetSource targetSource, Object oldTarget, Object newTarget) {
+				events.add(oldTarget);
+				events.add(newTarget);
+			}
+		});
+		hts.swap(tb2);
+		assertEquals(2, events.size());
+		assertSame(tb1, events.get(0));
+		assertSame(tb2, events.get(1));
+	}
+
+	public void testInFlightCountsWithTracking() throws Exception {
+		TestBean tb1 = new TestBean("tb1", 1);
+		TestBean tb2 = new TestBean("tb2", 2);
+		HotSwappableTargetSource hts = new HotSwappableTargetSource(tb1);
+		hts.setTrackInvocations(true);
+
+		assertSame(tb1, hts.getTarget());
+		assertSame(tb1, hts.getTarget());
+		assertEquals(2, hts.getInFlightCount(tb1));
+
+		Object old = hts.swap(tb2);
+		assertSame(tb1, old);
+		assertSame(tb2, hts.getTarget());
+		assertEquals(2, hts.getInFlightCount(tb1));
+		assertEquals(1, hts.getInFlightCount(tb2));
+		assertFalse(hts.waitForDrain(tb1, 10));
+
+		hts.releaseTarget(tb1);
+		hts.releaseTarget(tb1);
+		hts.releaseTarget(tb2);
+		assertEquals(0, hts.getInFlightCount(tb1));
+		assertEquals(0, hts.getInFlightCount(tb2));
+		assertTrue(hts.waitForDrain(tb1, 10));
+	}
+
+	public void testSwapBackToDrainingTarget() throws Exception {
+		TestBean tb1 = new TestBean("tb1", 1);
+		TestBean tb2 = new TestBean("tb2", 2);
+		HotSwappableTargetSource hts = new HotSwappableTargetSource(tb1);
+		hts.setTrackInvocations(true);
+
+		hts.getTarget();
+		hts.swap(tb2);
+		hts.swap(tb1);
+		assertSame(tb1, hts.getTarget());
+		assertEquals(2, hts.getInFlightCount(tb1));
+		hts.releaseTarget(tb1);
+		hts.releaseTarget(tb1);
+		assertEquals(0, hts.getInFlightCount(tb1));
+	}
+
+	public void testWaitForDrainOfCurrentTargetIsRejected() throws Exception {
+		TestBean tb1 = new TestBean("tb1", 1);
+		HotSwappableTargetSource hts = new HotSwappableTargetSource(tb1);
+		try {
+			hts.waitForDrain(tb1, 10);
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+		hts.setTrackInvocations(true);
+		try {
+			hts.waitForDrain(tb1, 10);
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	public void testWaitForDrainBlocksUntilCallCompletes() throws Exception {
+		TestBean tb1 = new TestBean("tb1", 1);
+		TestBean tb2 = new TestBean("tb2", 2);
+		final HotSwappableTargetSource hts = new HotSwappableTargetSource(tb1);
+		hts.setTrackInvocations(true);
+		final Object monitor = new Object();
+		final boolean[] state = new boolean[2];
+
+		ProxyFactory pf = new ProxyFactory();
+		pf.addInterface(ITestBean.class);
+		pf.setTargetSource(hts);
+		pf.addAdvice(new MethodInterceptor() {
+			public Object invoke(MethodInvocation mi) throws Throwable {
+				synchronized (monitor) {
+					// signal that the call is running, then wait to be released
+					state[0] = true;
+					monitor.notifyAll();
+					while (!state[1]) {
+						monitor.wait();
+					}
+				}
+				return mi.proceed();
+			}
+		});
+		final ITestBean proxy = (ITestBean) pf.getProxy();
+		final String[] result = new String[1];
+		Thread caller = new Thread() {
+			public void run() {
+				result[0] = proxy.getName();
+			}
+		};
+		caller.start();
+		synchronized (monitor) {
+			while (!state[0]) {
+				monitor.wait();
+			}
+		}
+
+		Object old = hts.swap(tb2);
+		assertEquals(1, hts.getInFlightCount(old));
+		assertFalse(hts.waitForDrain(old, 50));
+
+		synchronized (monitor) {
+			state[1] = true;
+			monitor.notifyAll();
+		}
+		assertTrue(hts.waitForDrain(old, 5000));
+		caller.join();
+		assertEquals("tb1", result[0]);
+		assertEquals(0, hts.getInFlightCount(old));
+	}
+
+	public void testConcurrentSwapAndRelease() throws Exception {
+		final HotSwappableTargetSource hts = new HotSwappableTargetSource(new TestBean());
+		hts.setTrackInvocations(true);
+		final boolean[] done = new boolean[1];
+		final Throwable[] failure = new Throwable[1];
+		Thread[] callers = new Thread[4];
+		for (int i = 0; i < callers.length; i++) {
+			callers[i] = new Thread() {
+				public void run() {
+					try {
+						while (!done[0]) {
+							hts.releaseTarget(hts.getTarget());
+						}
+					}
+					catch (Throwable ex) {
+						failure[0] = ex;
+					}
+				}
+			};
+			callers[i].start();
+		}
+		Object last = null;
+		for (int i = 0; i < 2000; i++) {
+			last = new TestBean();
+			hts.swap(last);
+		}
+		done[0] = true;
+		for (int i = 0; i < callers.length; i++) {
+			callers[i].join();
+		}
+		assertNull(failure[0]);
+		assertEquals(0, hts.getDrainingTargetCount());
+		assertEquals(0, hts.getInFlightCount(last));
+	}
+
 }
@@ -20,7 +20,12 @@ import junit.framework.TestCase;
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
 
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.interceptor.MethodCacheInterceptor;
+import org.springframework.beans.ITestBean;
+import org.springframework.beans.TestBean;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.SerializationTestUtils;
 
 /**
  * @author Dmitriy Kopylenko
@@ -118,4 +123,56 @@ public class EhCacheTestSuite extends TestCase {
 		}
 	}
 
+	public void testEhCacheMethodCache() throws Exception {
+		EhCacheManagerFactoryBean cacheManagerFb = new EhCacheManagerFactoryBean();
+		cacheManagerFb.afterPropertiesSet();
+		try {
+			EhCacheFactoryBean cacheFb = new EhCacheFactoryBean();
+			cacheFb.setCacheManager((CacheManager) cacheManagerFb.getObject());
+			cacheFb.setBeanName("methodCache");
+			cacheFb.setOverflowToDisk(false);
+			cacheFb.afterPropertiesSet();
+
+			EhCacheMethodCache methodCache = new EhCacheMethodCache((Cache) cacheFb.getObject());
+			methodCache.afterPropertiesSet();
+			methodCache.put("key", "value");
+			assertEquals("value", methodCache.get("key"));
+			methodCache.put(new Object(), "value");
+			assertNull(methodCache.get(new Object()));
+			methodCache.remove("key");
+			assertNull(methodCache.get("key"));
+			methodCache.put("key", "value");
+			methodCache.clear();
+			assertNull(methodCache.get("key"));
+
+			MethodCacheInterceptor mci = new MethodCacheInterceptor();
+			mci.setCache(methodCache);
+			ProxyFactory pf = new ProxyFactory(new TestBean("name", 1));
+			pf.addAdvice(mci);
+			ITestBean proxy = (ITestBean) pf.getProxy();
+			assertEquals("name", proxy.getName());
+			assertEquals("name", proxy.getName());
+			assertEquals(1, mci.getHitCount());
+			assertEquals(1, mci.getMissCount());
+
+			// non-serializable method results (TestBean is not Serializable) must not get cached
+			TestBean spouse = new TestBean();
+			TestBean target = new TestBean();
+			target.setSpouse(spouse);
+			pf = new ProxyFactory(target);
+			pf.addAdvice(mci);
+			proxy = (ITestBean) pf.getProxy();
+			assertSame(spouse, proxy.getSpouse());
+			assertSame(spouse, proxy.getSpouse());
+			assertEquals(1, mci.getHitCount());
+			assertEquals(3, mci.getMissCount());
+
+			MethodCacheInterceptor mci2 = (MethodCacheInterceptor) SerializationTestUtils.serializeAndDeserialize(mci);
+			assertEquals("methodCache", ((EhCacheMethodCache) mci2.getCache()).getCache().getName());
+		}
+		finally {
+			cacheManagerFb.destroy();
+		}
+	}
+
 }
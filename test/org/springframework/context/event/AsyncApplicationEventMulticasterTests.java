@@ -0,0 +1,306 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.context.event;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.core.task.DiscardableTask;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class AsyncApplicationEventMulticasterTests extends TestCase {
+
+	private AsyncApplicationEventMulticaster multicaster;
+
+	protected void setUp() {
+		this.multicaster = new AsyncApplicationEventMulticaster();
+	}
+
+	protected void tearDown() {
+		this.multicaster.destroy();
+	}
+
+	public void testPlainListenerReceivesAllEventsInOrder() throws Exception {
+		this.multicaster.afterPropertiesSet();
+		CollectingListener listener = new CollectingListener();
+		this.multicaster.addApplicationListener(listener);
+		for (int i = 0; i < 100; i++) {
+			this.multicaster.multicastEvent(new NumberedEvent(i));
+		}
+		this.multicaster.multicastEvent(new OtherEvent());
+		List events = listener.waitForEvents(101);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, ((NumberedEvent) events.get(i)).number);
+		}
+		assertTrue(events.get(100) instanceof OtherEvent);
+		assertTrue(listener.thread != Thread.currentThread());
+	}
+
+	public void testSmartListenerOnlyReceivesSupportedEvents() throws Exception {
+		this.multicaster.afterPropertiesSet();
+		NumberedEventListener listener = new NumberedEventListener();
+		CollectingListener all = new CollectingListener();
+		this.multicaster.addApplicationListener(listener);
+		this.multicaster.addApplicationListener(all);
+		this.multicaster.multicastEvent(new OtherEvent());
+		this.multicaster.multicastEvent(new NumberedEvent(1));
+		this.multicaster.multicastEvent(new OtherEvent());
+		this.multicaster.multicastEvent(new NumberedEvent(2));
+		all.waitForEvents(4);
+		List events = listener.waitForEvents(2);
+		assertEquals(2, events.size());
+		assertEquals(1, ((NumberedEvent) events.get(0)).number);
+		assertEquals(2, ((NumberedEvent) events.get(1)).number);
+	}
+
+	public void testSynchronousListenerIsInvokedInCallingThread() throws Exception {
+		this.multicaster.afterPropertiesSet();
+		SynchronousListener listener = new SynchronousListener();
+		this.multicaster.addApplicationListener(listener);
+		this.multicaster.multicastEvent(new OtherEvent());
+		assertEquals(1, listener.events.size());
+		assertSame(Thread.currentThread(), listener.thread);
+	}
+
+	public void testAddListenerTwiceAndRemove() throws Exception {
+		this.multicaster.setTaskExecutor(new SyncTaskExecutor());
+		CollectingListener listener = new CollectingListener();
+		this.multicaster.addApplicationListener(listener);
+		this.multicaster.addApplicationListener(listener);
+		this.multicaster.multicastEvent(new OtherEvent());
+		assertEquals(1, listener.events.size());
+		this.multicaster.removeApplicationListener(listener);
+		this.multicaster.multicastEvent(new OtherEvent());
+		assertEquals(1, listener.events.size());
+	}
+
+	public void testListenerPublishingToItself() throws Exception {
+		this.multicaster.setTaskExecutor(new SyncTaskExecutor());
+		this.multicaster.setQueueCapacity(1);
+		final CollectingListener listener = new CollectingListener() {
+			public void onApplicationEvent(ApplicationEvent event) {
+				super.onApplicationEvent(event);
+				if (event instanceof NumberedEvent && ((NumberedEvent) event).number < 3) {
+					multicaster.multicastEvent(new NumberedEvent(((NumberedEvent) event).number + 1));
+				}
+			}
+		};
+		this.multicaster.addApplicationListener(listener);
+		this.multicaster.multicastEvent(new NumberedEvent(0));
+		assertEquals(4, listener.events.size());
+	}
+
+	public void testListenerPublishingToFullQueueDoesNotBlock() throws Exception {
+		// default: single notification thread, blocking overflow policy
+		this.multicaster.setQueueCapacity(1);
+		this.multicaster.afterPropertiesSet();
+		NumberedEventListener numberedListener = new NumberedEventListener();
+		CollectingListener publishingListener = new CollectingListener() {
+			public void onApplicationEvent(ApplicationEvent event) {
+				super.onApplicationEvent(event);
+				if (event instanceof OtherEvent) {
+					for (int i = 0; i < 3; i++) {
+						multicaster.multicastEvent(new NumberedEvent(i));
+					}
+				}
+			}
+		};
+		this.multicaster.addApplicationListener(numberedListener);
+		this.multicaster.addApplicationListener(publishingListener);
+		this.multicaster.multicastEvent(new OtherEvent());
+		List events = numberedListener.waitForEvents(3);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(i, ((NumberedEvent) events.get(i)).number);
+		}
+		assertEquals(0, this.multicaster.getDiscardedEventCount());
+	}
+
+	public void testOverflowDiscard() throws Exception {
+		BlockingListener listener = prepareBlockedListener("OVERFLOW_DISCARD");
+		this.multicaster.multicastEvent(new NumberedEvent(2));
+		this.multicaster.multicastEvent(new NumberedEvent(3));
+		assertEquals(1, this.multicaster.getDiscardedEventCount());
+		List events = listener.release(3);
+		assertEquals(1, ((NumberedEvent) events.get(1)).number);
+		assertEquals(2, ((NumberedEvent) events.get(2)).number);
+	}
+
+	public void testOverflowDiscardOldest() throws Exception {
+		BlockingListener listener = prepareBlockedListener("OVERFLOW_DISCARD_OLDEST");
+		this.multicaster.multicastEvent(new NumberedEvent(2));
+		this.multicaster.multicastEvent(new NumberedEvent(3));
+		assertEquals(1, this.multicaster.getDiscardedEventCount());
+		List events = listener.release(3);
+		assertEquals(2, ((NumberedEvent) events.get(1)).number);
+		assertEquals(3, ((NumberedEvent) events.get(2)).number);
+	}
+
+	public void testOverflowAbort() throws Exception {
+		BlockingListener listener = prepareBlockedListener("OVERFLOW_ABORT");
+		this.multicaster.multicastEvent(new NumberedEvent(2));
+		try {
+			this.multicaster.multicastEvent(new NumberedEvent(3));
+			fail("Should have thrown TaskRejectedException");
+		}
+		catch (TaskRejectedException ex) {
+			// expected
+		}
+		listener.release(3);
+	}
+
+	public void testTasksDiscardedByExecutorAreRunInDiscardingThread() throws Exception {
+		this.multicaster.setTaskExecutor(new TaskExecutor() {
+			public void execute(Runnable task) {
+				// accepts the task, but drops it like an overflowing or shut down pool
+				((DiscardableTask) task).discard(new TaskRejectedException("discarded"));
+			}
+		});
+		this.multicaster.afterPropertiesSet();
+		CollectingListener listener = new CollectingListener();
+		this.multicaster.addApplicationListener(listener);
+		for (int i = 0; i < 3; i++) {
+			this.multicaster.multicastEvent(new NumberedEvent(i));
+		}
+		List events = listener.waitForEvents(3);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(i, ((NumberedEvent) events.get(i)).number);
+		}
+		assertSame(Thread.currentThread(), listener.thread);
+	}
+
+	public void testInvalidOverflowPolicy() {
+		try {
+			this.multicaster.setOverflowPolicy(42);
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	/**
+	 * Set up a listener with queue capacity 2 that is blocked in its first
+	 * event, with a second event pending.
+	 */
+	private BlockingListener prepareBlockedListener(String overflowPolicyName) throws Exception {
+		this.multicaster.setQueueCapacity(2);
+		this.multicaster.setOverflowPolicyName(overflowPolicyName);
+		this.multicaster.afterPropertiesSet();
+		BlockingListener listener = new BlockingListener();
+		this.multicaster.addApplicationListener(listener);
+		this.multicaster.multicastEvent(new NumberedEvent(0));
+		listener.waitForEvents(1);
+		this.multicaster.multicastEvent(new NumberedEvent(1));
+		return listener;
+	}
+
+
+	private static class NumberedEvent extends ApplicationEvent {
+
+		private final int number;
+
+		public NumberedEvent(int number) {
+			super("source");
+			this.number = number;
+		}
+	}
+
+
+	private static class OtherEvent extends ApplicationEvent {
+
+		public OtherEvent() {
+			super("source");
+		}
+	}
+
+
+	private static class CollectingListener implements org.springframework.context.ApplicationListener {
+
+		protected final List events = new LinkedList();
+
+		protected Thread thread;
+
+		public void onApplicationEvent(ApplicationEvent event) {
+			synchronized (this.events) {
+				this.thread = Thread.currentThread();
+				this.events.add(event);
+				this.events.notifyAll();
+			}
+		}
+
+		public List waitForEvents(int count) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 5000;
+			synchronized (this.events) {
+				while (this.events.size() < count && System.currentTimeMillis() < deadline) {
+					this.events.wait(100);
+				}
+				assertEquals(count, this.events.size());
+				return new LinkedList(this.events);
+			}
+		}
+	}
+
+
+	private static class NumberedEventListener extends CollectingListener implements SmartApplicationListener {
+
+		public boolean supportsEventType(Class eventType) {
+			return NumberedEvent.class.isAssignableFrom(eventType);
+		}
+	}
+
+
+	private static class SynchronousListener extends CollectingListener implements SynchronousApplicationListener {
+	}
+
+
+	private static class BlockingListener extends CollectingListener {
+
+		private boolean released = false;
+
+		public void onApplicationEvent(ApplicationEvent event) {
+			super.onApplicationEvent(event);
+			synchronized (this) {
+				while (!this.released) {
+					try {
+						wait();
+					}
+					catch (InterruptedException ex) {
+						return;
+					}
+				}
+			}
+		}
+
+		public List release(int expectedCount) throws InterruptedException {
+			synchronized (this) {
+				this.released = true;
+				notifyAll();
+			}
+			return waitForEvents(expectedCount);
+		}
+	}
+
+}
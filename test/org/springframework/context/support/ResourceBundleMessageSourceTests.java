@@ -16,6 +16,14 @@
 
 package org.springframework.context.support;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.Locale;
 import java.util.Properties;
 
@@ -24,6 +32,9 @@ import junit.framework.TestCase;
 import org.springframework.beans.MutablePropertyValues;
 import org.springframework.context.MessageSourceResolvable;
 import org.springframework.context.NoSuchMessageException;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.util.DefaultPropertiesPersister;
 
 /**
  * @author Juergen Hoeller
@@ -185,4 +196,190 @@ public class ResourceBundleMessageSourceTests extends TestCase {
 		assertEquals("message1",  ms.getMessage("code1", null, Locale.ENGLISH));
 	}
 
+	public void testResourceBundleMessageSourceServesCachedMessages() {
+		ResourceBundleMessageSource ms = new ResourceBundleMessageSource();
+		ms.setBasename("org/springframework/context/support/messages");
+		assertEquals("message1", ms.getMessage("code1", null, Locale.ENGLISH));
+		assertSame(ms.getMessage("code1", null, Locale.ENGLISH), ms.getMessage("code1", null, Locale.ENGLISH));
+		assertEquals("Hello, World", ms.getMessage("hello", new Object[] {"Hello", "World"}, Locale.ENGLISH));
+		assertEquals("default", ms.getMessage("code4", null, "default", Locale.ENGLISH));
+		assertEquals("default", ms.getMessage("code4", null, "default", Locale.ENGLISH));
+	}
+
+	public void testResourceBundleMessageSourceDoesNotRetainContextClassLoader() {
+		ResourceBundleMessageSource ms = new ResourceBundleMessageSource();
+		ms.setBasename("org/springframework/context/support/messages");
+		Thread currentThread = Thread.currentThread();
+		ClassLoader original = currentThread.getContextClassLoader();
+		ClassLoader cl = new URLClassLoader(new URL[0], getClass().getClassLoader());
+		currentThread.setContextClassLoader(cl);
+		try {
+			assertEquals("message1", ms.getMessage("code1", null, Locale.ENGLISH));
+		}
+		finally {
+			currentThread.setContextClassLoader(original);
+		}
+		WeakReference ref = new WeakReference(cl);
+		cl = null;
+		for (int i = 0; i < 50 && ref.get() != null; i++) {
+			System.gc();
+		}
+		assertNull("ClassLoader retained by message cache", ref.get());
+		assertEquals("message1", ms.getMessage("code1", null, Locale.ENGLISH));
+	}
+
+	public void testReloadableResourceBundleMessageSourceWithCacheSecondsZero() throws Exception {
+		File file = File.createTempFile("messages", ".properties");
+		try {
+			String basename = "file:" + file.getAbsolutePath().substring(0, file.getAbsolutePath().length() - 11);
+			writeMessage(file, "message1", 0);
+			ReloadableResourceBundleMessageSource ms = new ReloadableResourceBundleMessageSource();
+			ms.setBasename(basename);
+			ms.setCacheSeconds(0);
+			ms.setFallbackToSystemLocale(false);
+			assertEquals("message1", ms.getMessage("code1", null, Locale.ENGLISH));
+			assertEquals("message1", ms.getMessage("code1", null, Locale.ENGLISH));
+
+			writeMessage(file, "changed1", 10000);
+			assertEquals("changed1", ms.getMessage("code1", null, Locale.ENGLISH));
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	public void testReloadableResourceBundleMessageSourceWithPeriodicRefresh() throws Exception {
+		File file = File.createTempFile("messages", ".properties");
+		try {
+			String basename = "file:" + file.getAbsolutePath().substring(0, file.getAbsolutePath().length() - 11);
+			writeMessage(file, "message1", 0);
+			ReloadableResourceBundleMessageSource ms = new ReloadableResourceBundleMessageSource();
+			ms.setBasename(basename);
+			ms.setCacheSeconds(1);
+			ms.setRefreshExecutor(new SyncTaskExecutor());
+			ms.setFallbackToSystemLocale(false);
+			assertEquals("message1", ms.getMessage("code1", null, Locale.ENGLISH));
+
+			writeMessage(file, "changed1", 10000);
+			// still within the cache interval
+			assertEquals("message1", ms.getMessage("code1", null, Locale.ENGLISH));
+			Thread.sleep(1100);
+			assertEquals("changed1", ms.getMessage("code1", null, Locale.ENGLISH));
+
+			ms.clearCache();
+			assertEquals("changed1", ms.getMessage("code1", null, Locale.ENGLISH));
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	public void testReloadableResourceBundleMessageSourceRefreshDoesNotBlockReaders() throws Exception {
+		File file = File.createTempFile("messages", ".properties");
+		try {
+			String basename = "file:" + file.getAbsolutePath().substring(0, file.getAbsolutePath().length() - 11);
+			writeMessage(file, "message1", 0);
+			final ReloadableResourceBundleMessageSource ms = new ReloadableResourceBundleMessageSource();
+			ms.setBasename(basename);
+			ms.setCacheSeconds(1);
+			final Thread[] refreshThread = new Thread[1];
+			ms.setRefreshExecutor(new TaskExecutor() {
+				public void execute(Runnable task) {
+					refreshThread[0] = new Thread(task);
+					refreshThread[0].start();
+				}
+			});
+			BlockingPropertiesPersister persister = new BlockingPropertiesPersister();
+			ms.setPropertiesPersister(persister);
+			ms.setFallbackToSystemLocale(false);
+			assertEquals("message1", ms.getMessage("code1", null, Locale.ENGLISH));
+
+			writeMessage(file, "changed1", 10000);
+			Thread.sleep(1100);
+			persister.block();
+			// triggers the refresh, which blocks while loading the changed file
+			assertEquals("message1", ms.getMessage("code1", null, Locale.ENGLISH));
+			persister.waitUntilBlocked();
+
+			// a cache miss must not wait for the refresh
+			final String[] result = new String[1];
+			Thread reader = new Thread() {
+				public void run() {
+					result[0] = ms.getMessage("code1", null, Locale.GERMAN);
+				}
+			};
+			reader.start();
+			reader.join(5000);
+			persister.release();
+			refreshThread[0].join(5000);
+			assertEquals("message1", result[0]);
+			assertEquals("changed1", ms.getMessage("code1", null, Locale.ENGLISH));
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	private void writeMessage(File file, String message, long timestampOffset) throws IOException {
+		long lastModified = file.lastModified();
+		OutputStream os = new FileOutputStream(file);
+		try {
+			os.write(("code1=" + message + "\n").getBytes("ISO-8859-1"));
+		}
+		finally {
+			os.close();
+		}
+		if (timestampOffset > 0) {
+			file.setLastModified(lastModified + timestampOffset);
+		}
+	}
+
+
+
+	/**
+	 * PropertiesPersister that can be told to block the next load
+	 * until released.
+	 */
+	private static class BlockingPropertiesPersister extends DefaultPropertiesPersister {
+
+		private boolean blocking;
+
+		private boolean blocked;
+
+		public synchronized void block() {
+			this.blocking = true;
+		}
+
+		public synchronized void waitUntilBlocked() throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 5000;
+			while (!this.blocked && System.currentTimeMillis() < deadline) {
+				wait(100);
+			}
+			assertTrue("Refresh did not start", this.blocked);
+		}
+
+		public synchronized void release() {
+			this.blocking = false;
+			notifyAll();
+		}
+
+		public void load(Properties props, InputStream is) throws IOException {
+			synchronized (this) {
+				if (this.blocking) {
+					this.blocked = true;
+					notifyAll();
+					while (this.blocking) {
+						try {
+							wait();
+						}
+						catch (InterruptedException ex) {
+							throw new IOException("Interrupted");
+						}
+					}
+				}
+			}
+			super.load(props, is);
+		}
+	}
+
 }
@@ -193,6 +193,23 @@ public class StaticMessageSourceTests extends AbstractApplicationContextTests {
 		}
 	}
 
+	public void testMessageFormatNotLockedWhileFormatting() throws Exception {
+		final StaticMessageSource source = new StaticMessageSource();
+		source.addMessage("code", Locale.US, "Hello {0}");
+		final String[] result = new String[1];
+		Thread formatter = new Thread() {
+			public void run() {
+				result[0] = source.getMessage("code", new Object[] {"world"}, Locale.US);
+			}
+		};
+		// formatting must not wait for a lock on the shared MessageFormat
+		synchronized (source.resolveCode("code", Locale.US)) {
+			formatter.start();
+			formatter.join(5000);
+		}
+		assertEquals("Hello world", result[0]);
+	}
+
 	/** Run for each test */
 	protected ConfigurableApplicationContext createContext() throws Exception {
 		StaticApplicationContext parent = new StaticApplicationContext();
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.core.io.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class CachingResourceLoaderTests extends TestCase {
+
+	public void testContentAndExistenceAreCached() throws IOException {
+		CountingResourceLoader target = new CountingResourceLoader("content".getBytes());
+		CachingResourceLoader loader = new CachingResourceLoader(target);
+		for (int i = 0; i < 5; i++) {
+			Resource resource = loader.getResource("test.txt");
+			assertTrue(resource.exists());
+			assertEquals("content", new String(FileCopyUtils.copyToByteArray(resource.getInputStream())));
+			assertEquals("test.txt", resource.getDescription());
+		}
+		assertEquals(1, target.getResourceCount);
+		assertEquals(1, target.existsCount);
+		assertEquals(1, target.openCount);
+	}
+
+	public void testNonExistingResourceIsCached() throws IOException {
+		CountingResourceLoader target = new CountingResourceLoader(null);
+		CachingResourceLoader loader = new CachingResourceLoader(target);
+		for (int i = 0; i < 5; i++) {
+			Resource resource = loader.getResource("test_de.txt");
+			assertFalse(resource.exists());
+			try {
+				resource.getInputStream();
+				fail("Should have thrown FileNotFoundException");
+			}
+			catch (FileNotFoundException ex) {
+				// expected
+			}
+		}
+		assertEquals(1, target.existsCount);
+		assertEquals(0, target.openCount);
+	}
+
+	public void testLargeContentIsNotCached() throws IOException {
+		byte[] content = new byte[10000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		CountingResourceLoader target = new CountingResourceLoader(content);
+		CachingResourceLoader loader = new CachingResourceLoader(target);
+		loader.setMaxContentSize(5000);
+		for (int i = 0; i < 3; i++) {
+			byte[] read = FileCopyUtils.copyToByteArray(loader.getResource("large.bin").getInputStream());
+			assertEquals(content.length, read.length);
+			assertEquals(content[content.length - 1], read[read.length - 1]);
+		}
+		assertEquals(3, target.openCount);
+	}
+
+	public void testModifiedContentIsReloaded() throws IOException {
+		File file = File.createTempFile("cachingResourceLoader", ".txt");
+		try {
+			FileCopyUtils.copy("version 1".getBytes(), file);
+			file.setLastModified(1000000000000L);
+			CachingResourceLoader loader = new CachingResourceLoader(new FileResourceLoader());
+			loader.setCheckInterval(0);
+			Resource resource = loader.getResource(file.getPath());
+			assertEquals("version 1", new String(FileCopyUtils.copyToByteArray(resource.getInputStream())));
+
+			FileCopyUtils.copy("version 2".getBytes(), file);
+			file.setLastModified(1000000001000L);
+			assertEquals("version 2", new String(FileCopyUtils.copyToByteArray(resource.getInputStream())));
+
+			file.delete();
+			assertFalse(resource.exists());
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	public void testContentDroppedWhileReadingIsNotCached() throws IOException {
+		final long[] lastModified = new long[] {1000};
+		final CachingResourceLoader[] loader = new CachingResourceLoader[1];
+		CountingResourceLoader target = new CountingResourceLoader("content".getBytes()) {
+			protected InputStream openStream(String location) {
+				if (lastModified[0] == 1000) {
+					// resource gets modified while being read, and revalidated meanwhile
+					lastModified[0] = 2000;
+					assertTrue(loader[0].getResource(location).exists());
+				}
+				return super.openStream(location);
+			}
+		};
+		loader[0] = new CachingResourceLoader(target) {
+			protected long getLastModified(Resource resource) {
+				return lastModified[0];
+			}
+		};
+		loader[0].setCheckInterval(0);
+		Resource resource = loader[0].getResource("test.txt");
+		assertEquals("content", new String(FileCopyUtils.copyToByteArray(resource.getInputStream())));
+		assertEquals("content", new String(FileCopyUtils.copyToByteArray(resource.getInputStream())));
+		assertEquals("content", new String(FileCopyUtils.copyToByteArray(resource.getInputStream())));
+		assertEquals(2, target.openCount);
+	}
+
+	public void testInputStreamIsClosedAfterCaching() throws IOException {
+		CountingResourceLoader target = new CountingResourceLoader("content".getBytes());
+		CachingResourceLoader loader = new CachingResourceLoader(target);
+		InputStream is = loader.getResource("test.txt").getInputStream();
+		assertEquals(1, target.closeCount);
+		is.close();
+		assertEquals(1, target.closeCount);
+	}
+
+	public void testUnlimitedMaxContentSize() throws IOException {
+		CountingResourceLoader target = new CountingResourceLoader("content".getBytes());
+		CachingResourceLoader loader = new CachingResourceLoader(target);
+		loader.setMaxContentSize(Integer.MAX_VALUE);
+		for (int i = 0; i < 3; i++) {
+			Resource resource = loader.getResource("test.txt");
+			assertEquals("content", new String(FileCopyUtils.copyToByteArray(resource.getInputStream())));
+		}
+		assertEquals(1, target.openCount);
+	}
+
+	public void testCacheLimit() {
+		CountingResourceLoader target = new CountingResourceLoader("content".getBytes());
+		CachingResourceLoader loader = new CachingResourceLoader(target);
+		loader.setCacheLimit(2);
+		loader.getResource("a");
+		loader.getResource("b");
+		loader.getResource("c");
+		assertEquals(2, loader.getCacheSize());
+		loader.getResource("c");
+		assertEquals(3, target.getResourceCount);
+		loader.clearCache();
+		assertEquals(0, loader.getCacheSize());
+	}
+
+
+	private static class CountingResourceLoader implements ResourceLoader {
+
+		private final byte[] content;
+
+		private int getResourceCount;
+
+		private int existsCount;
+
+		private int openCount;
+
+		private int closeCount;
+
+		private CountingResourceLoader(byte[] content) {
+			this.content = content;
+		}
+
+		protected InputStream openStream(String location) {
+			return new ByteArrayInputStream(this.content) {
+				public void close() throws IOException {
+					closeCount++;
+					super.close();
+				}
+			};
+		}
+
+		public Resource getResource(final String location) {
+			this.getResourceCount++;
+			return new AbstractResource() {
+				public boolean exists() {
+					existsCount++;
+					return (content != null);
+				}
+				public InputStream getInputStream() throws IOException {
+					if (content == null) {
+						throw new FileNotFoundException(location);
+					}
+					openCount++;
+					return openStream(location);
+				}
+				public String getDescription() {
+					return location;
+				}
+			};
+		}
+	}
+
+
+	private static class FileResourceLoader implements ResourceLoader {
+
+		public Resource getResource(String location) {
+			return new FileSystemResource(location);
+		}
+	}
+
+}
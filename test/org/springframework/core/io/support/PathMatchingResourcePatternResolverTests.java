@@ -0,0 +1,200 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.support;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import junit.framework.TestCase;
+
+import org.springframework.core.io.Resource;
+import org.springframework.util.StringUtils;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class PathMatchingResourcePatternResolverTests extends TestCase {
+
+	private File jarFile;
+
+	protected void setUp() throws IOException {
+		this.jarFile = File.createTempFile("pmrpr", ".jar");
+		writeJar(new String[] {"a/", "a/one.txt", "a/b/", "a/b/two.txt", "a/b/three.xml", "c/four.txt"});
+	}
+
+	protected void tearDown() {
+		this.jarFile.delete();
+		JarEntryIndex.clearCache();
+	}
+
+	private void writeJar(String[] entryNames) throws IOException {
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(this.jarFile));
+		try {
+			for (int i = 0; i < entryNames.length; i++) {
+				out.putNextEntry(new ZipEntry(entryNames[i]));
+				if (!entryNames[i].endsWith("/")) {
+					out.write(entryNames[i].getBytes());
+				}
+				out.closeEntry();
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private Set getFilenames(Resource[] resources) {
+		Set filenames = new HashSet();
+		for (int i = 0; i < resources.length; i++) {
+			filenames.add(resources[i].getFilename());
+		}
+		return filenames;
+	}
+
+	public void testClassPathStarWithPatternInDirectories() throws IOException {
+		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+		Resource[] resources = resolver.getResources(
+				"classpath*:org/springframework/core/io/support/PathMatchingResourcePatternResolver*.class");
+		Set filenames = getFilenames(resources);
+		assertTrue(filenames.contains("PathMatchingResourcePatternResolver.class"));
+		assertTrue(filenames.contains("PathMatchingResourcePatternResolverTests.class"));
+		for (int i = 0; i < resources.length; i++) {
+			assertTrue(resources[i].exists());
+		}
+	}
+
+	public void testClassPathStarWithPatternInJar() throws IOException {
+		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+		Resource[] resources = resolver.getResources("classpath*:junit/**/Assert*.class");
+		Set filenames = getFilenames(resources);
+		assertTrue(filenames.contains("Assert.class"));
+		assertTrue(filenames.contains("AssertionFailedError.class"));
+		assertFalse(filenames.contains("TestCase.class"));
+		for (int i = 0; i < resources.length; i++) {
+			assertEquals("jar", resources[i].getURL().getProtocol());
+			assertTrue(resources[i].exists());
+		}
+	}
+
+	public void testPatternWithinJarUrl() throws IOException {
+		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+		String jarUrl = "jar:" + this.jarFile.toURL() + "!/";
+
+		Resource[] resources = resolver.getResources(jarUrl + "a/**/*.txt");
+		assertEquals(2, resources.length);
+		Set filenames = getFilenames(resources);
+		assertTrue(filenames.contains("one.txt"));
+		assertTrue(filenames.contains("two.txt"));
+
+		resources = resolver.getResources(jarUrl + "a/b/*.xml");
+		assertEquals(1, resources.length);
+		assertEquals(jarUrl + "a/b/three.xml", resources[0].getURL().toString());
+	}
+
+	public void testPatternWithinJarUrlWithEscapedPath() throws IOException {
+		File dir = new File(this.jarFile.getParentFile(), "pmrpr+dir " + System.currentTimeMillis());
+		assertTrue(dir.mkdir());
+		File originalJarFile = this.jarFile;
+		this.jarFile = new File(dir, "test.jar");
+		try {
+			writeJar(new String[] {"a/", "a/one.txt", "a/two.xml"});
+			String jarUrl = "jar:file:" + StringUtils.replace(
+					StringUtils.replace(this.jarFile.getAbsolutePath(), File.separator, "/"), " ", "%20") + "!/";
+			PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+			Resource[] resources = resolver.getResources(jarUrl + "a/*.txt");
+			assertEquals(1, resources.length);
+			assertEquals("one.txt", resources[0].getFilename());
+		}
+		finally {
+			this.jarFile.delete();
+			dir.delete();
+			this.jarFile = originalJarFile;
+		}
+	}
+
+	public void testDecodeFileUrlPath() throws IOException {
+		PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+		assertEquals("/tmp/a+b c", resolver.decodeFileUrlPath("/tmp/a+b%20c"));
+		assertEquals("/tmp/\u00e4", resolver.decodeFileUrlPath("/tmp/%C3%A4"));
+		assertEquals("/tmp/plain", resolver.decodeFileUrlPath("/tmp/plain"));
+		try {
+			resolver.decodeFileUrlPath("/tmp/a%2");
+			fail("Should have thrown IOException");
+		}
+		catch (IOException ex) {
+			// expected
+		}
+	}
+
+	public void testJarEntryIndex() throws IOException {
+		JarEntryIndex index = JarEntryIndex.forJarFile(this.jarFile);
+		assertEquals(6, index.getEntryNames().length);
+		assertSame(index, JarEntryIndex.forJarFile(this.jarFile));
+
+		List names = index.getEntryNamesWithPrefix("a/b/");
+		assertEquals(3, names.size());
+		assertEquals("a/b/", names.get(0));
+		assertEquals("a/b/three.xml", names.get(1));
+		assertEquals("a/b/two.txt", names.get(2));
+		assertEquals(0, index.getEntryNamesWithPrefix("d/").size());
+		assertEquals(6, index.getEntryNamesWithPrefix("").size());
+	}
+
+	public void testJarEntryIndexRebuiltWhenJarChanges() throws IOException {
+		JarEntryIndex index = JarEntryIndex.forJarFile(this.jarFile);
+		writeJar(new String[] {"a/one.txt", "a/five.txt"});
+		JarEntryIndex newIndex = JarEntryIndex.forJarFile(this.jarFile);
+		assertNotSame(index, newIndex);
+		assertEquals(2, newIndex.getEntryNamesWithPrefix("a/").size());
+	}
+
+	public void testJarEntryIndexCacheEvictsLeastRecentlyUsed() throws IOException {
+		JarEntryIndex index = JarEntryIndex.forJarFile(this.jarFile);
+		File[] otherJars = new File[JarEntryIndex.MAX_CACHED_INDEXES];
+		JarEntryIndex[] otherIndexes = new JarEntryIndex[otherJars.length];
+		try {
+			for (int i = 0; i < otherJars.length; i++) {
+				otherJars[i] = File.createTempFile("pmrpr", ".jar");
+				new JarOutputStream(new FileOutputStream(otherJars[i])).close();
+				if (i == otherJars.length - 1) {
+					assertEquals(JarEntryIndex.MAX_CACHED_INDEXES, JarEntryIndex.getCacheSize());
+					// touch the first index, so that the second one is least recently used
+					assertSame(index, JarEntryIndex.forJarFile(this.jarFile));
+				}
+				otherIndexes[i] = JarEntryIndex.forJarFile(otherJars[i]);
+			}
+			assertEquals(JarEntryIndex.MAX_CACHED_INDEXES, JarEntryIndex.getCacheSize());
+			assertSame(index, JarEntryIndex.forJarFile(this.jarFile));
+			assertNotSame(otherIndexes[0], JarEntryIndex.forJarFile(otherJars[0]));
+			assertSame(otherIndexes[2], JarEntryIndex.forJarFile(otherJars[2]));
+			assertEquals(JarEntryIndex.MAX_CACHED_INDEXES, JarEntryIndex.getCacheSize());
+		}
+		finally {
+			for (int i = 0; i < otherJars.length && otherJars[i] != null; i++) {
+				otherJars[i].delete();
+			}
+		}
+	}
+
+}
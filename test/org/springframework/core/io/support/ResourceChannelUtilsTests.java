@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.core.io.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+import junit.framework.TestCase;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class ResourceChannelUtilsTests extends TestCase {
+
+	private static final byte[] CONTENT = "some resource content".getBytes();
+
+	private File file;
+
+	protected void setUp() throws IOException {
+		this.file = File.createTempFile("resourceChannelUtils", ".txt");
+		FileCopyUtils.copy(CONTENT, this.file);
+	}
+
+	protected void tearDown() {
+		this.file.delete();
+	}
+
+	public void testReadableChannelForFile() throws IOException {
+		ReadableByteChannel channel = ResourceChannelUtils.getReadableChannel(new FileSystemResource(this.file));
+		try {
+			assertTrue(channel instanceof FileChannel);
+			assertEquals(new String(CONTENT), readFully(channel));
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	public void testReadableChannelForStream() throws IOException {
+		ReadableByteChannel channel = ResourceChannelUtils.getReadableChannel(new InputStreamResource(new ByteArrayInputStream(CONTENT), "test"));
+		try {
+			assertFalse(channel instanceof FileChannel);
+			assertEquals(new String(CONTENT), readFully(channel));
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	public void testByteBuffer() throws IOException {
+		Resource[] resources = new Resource[] {new FileSystemResource(this.file), new InputStreamResource(new ByteArrayInputStream(CONTENT), "test")};
+		for (int i = 0; i < resources.length; i++) {
+			ByteBuffer buffer = ResourceChannelUtils.getByteBuffer(resources[i]);
+			assertTrue(buffer.isReadOnly());
+			assertEquals(CONTENT.length, buffer.remaining());
+			byte[] bytes = new byte[buffer.remaining()];
+			buffer.get(bytes);
+			assertEquals(new String(CONTENT), new String(bytes));
+		}
+	}
+
+	public void testCopy() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ResourceChannelUtils.copy(new FileSystemResource(this.file), out);
+		assertEquals(new String(CONTENT), out.toString());
+
+		out = new ByteArrayOutputStream();
+		ResourceChannelUtils.copy(new InputStreamResource(new ByteArrayInputStream(CONTENT), "test"), out);
+		assertEquals(new String(CONTENT), out.toString());
+	}
+
+	public void testNonExistingFile() {
+		try {
+			ResourceChannelUtils.getReadableChannel(new FileSystemResource(this.file.getPath() + ".notthere"));
+			fail("Should have thrown IOException");
+		}
+		catch (IOException ex) {
+			// expected
+		}
+	}
+
+
+	private String readFully(ReadableByteChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(CONTENT.length * 2);
+		while (channel.read(buffer) != -1) {
+		}
+		return new String(buffer.array(), 0, buffer.position());
+	}
+
+}
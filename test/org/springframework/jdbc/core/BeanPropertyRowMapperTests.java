@@ -0,0 +1,290 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.core;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import org.springframework.dao.TypeMismatchDataAccessException;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class BeanPropertyRowMapperTests extends TestCase {
+
+	private static final String[] COLUMNS = new String[] {"NAME", "AGE", "BIRTH_DATE", "BALANCE", "ACCOUNTID", "OTHER"};
+
+	public void testMapRows() throws SQLException {
+		Timestamp birthDate = new Timestamp(100000000L);
+		FakeResultSet results = new FakeResultSet(COLUMNS, new Object[][] {
+			{"rod", new Integer(32), birthDate, new BigDecimal("10.5"), new Long(4711), "x"},
+			{"juergen", null, null, null, null, null}});
+		ResultSet rs = results.getResultSet();
+		BeanPropertyRowMapper mapper = new BeanPropertyRowMapper(Person.class);
+
+		assertTrue(rs.next());
+		Person rod = (Person) mapper.mapRow(rs, 0);
+		assertEquals("rod", rod.getName());
+		assertEquals(32, rod.getAge());
+		assertEquals(birthDate, rod.getBirthDate());
+		assertEquals(new BigDecimal("10.5"), rod.getBalance());
+		assertEquals(new Long(4711), rod.getAccountId());
+
+		assertTrue(rs.next());
+		Person juergen = (Person) mapper.mapRow(rs, 1);
+		assertEquals("juergen", juergen.getName());
+		assertEquals(-1, juergen.getAge());
+		assertNull(juergen.getBirthDate());
+		assertNull(juergen.getBalance());
+		assertNull(juergen.getAccountId());
+
+		assertEquals(1, results.metaDataCount);
+	}
+
+	public void testPlanIsReusedForSameColumns() throws SQLException {
+		BeanPropertyRowMapper mapper = new BeanPropertyRowMapper(Person.class);
+		for (int i = 0; i < 3; i++) {
+			FakeResultSet results = new FakeResultSet(new String[] {"name"}, new Object[][] {{"rod"}, {"juergen"}});
+			ResultSet rs = results.getResultSet();
+			int rowNum = 0;
+			while (rs.next()) {
+				assertNotNull(((Person) mapper.mapRow(rs, rowNum++)).getName());
+			}
+			// one lookup of the column list per query
+			assertEquals(1, results.metaDataCount);
+		}
+	}
+
+	public void testDifferentColumnsOnSameMapper() throws SQLException {
+		BeanPropertyRowMapper mapper = new BeanPropertyRowMapper(Person.class);
+		ResultSet rs = new FakeResultSet(new String[] {"name"}, new Object[][] {{"rod"}}).getResultSet();
+		rs.next();
+		assertEquals("rod", ((Person) mapper.mapRow(rs, 0)).getName());
+		rs = new FakeResultSet(new String[] {"age"}, new Object[][] {{new Integer(40)}}).getResultSet();
+		rs.next();
+		Person person = (Person) mapper.mapRow(rs, 0);
+		assertNull(person.getName());
+		assertEquals(40, person.getAge());
+	}
+
+	public void testConcurrentQueriesOnSameMapper() throws Exception {
+		final BeanPropertyRowMapper mapper = new BeanPropertyRowMapper(Person.class);
+		final int rowCount = 10;
+		final int[] turn = new int[1];
+		final Throwable[] failure = new Throwable[1];
+		FakeResultSet[] results = new FakeResultSet[2];
+		Thread[] threads = new Thread[2];
+		for (int t = 0; t < 2; t++) {
+			Object[][] rows = new Object[rowCount][];
+			for (int i = 0; i < rowCount; i++) {
+				rows[i] = (t == 0 ? new Object[] {"name" + i} : new Object[] {new Integer(i)});
+			}
+			results[t] = new FakeResultSet(new String[] {(t == 0 ? "name" : "age")}, rows);
+			final ResultSet rs = results[t].getResultSet();
+			final int offset = t;
+			threads[t] = new Thread() {
+				public void run() {
+					try {
+						// both threads map their rows in turns
+						for (int i = 0; i < rowCount; i++) {
+							synchronized (turn) {
+								while (turn[0] != i * 2 + offset) {
+									turn.wait();
+								}
+								rs.next();
+								Person person = (Person) mapper.mapRow(rs, i);
+								if (offset == 0) {
+									assertEquals("name" + i, person.getName());
+								}
+								else {
+									assertEquals(i, person.getAge());
+								}
+								turn[0]++;
+								turn.notifyAll();
+							}
+						}
+					}
+					catch (Throwable ex) {
+						failure[0] = ex;
+						synchronized (turn) {
+							turn[0] = -1;
+							turn.notifyAll();
+						}
+					}
+				}
+			};
+			threads[t].setDaemon(true);
+			threads[t].start();
+		}
+		threads[0].join(5000);
+		threads[1].join(5000);
+		assertNull(failure[0]);
+		assertEquals(rowCount * 2, turn[0]);
+		assertEquals(1, results[0].metaDataCount);
+		assertEquals(1, results[1].metaDataCount);
+	}
+
+	public void testTypeMismatch() throws SQLException {
+		BeanPropertyRowMapper mapper = new BeanPropertyRowMapper(Person.class);
+		ResultSet rs = new FakeResultSet(new String[] {"score"}, new Object[][] {{"no number"}}).getResultSet();
+		rs.next();
+		try {
+			mapper.mapRow(rs, 0);
+			fail("Should have thrown TypeMismatchDataAccessException");
+		}
+		catch (TypeMismatchDataAccessException ex) {
+			// expected
+		}
+	}
+
+
+	public static class Person {
+
+		private String name;
+
+		private int age = -1;
+
+		private Date birthDate;
+
+		private BigDecimal balance;
+
+		private Long accountId;
+
+		private Number score;
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getAge() {
+			return age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+
+		public Date getBirthDate() {
+			return birthDate;
+		}
+
+		public void setBirthDate(Date birthDate) {
+			this.birthDate = birthDate;
+		}
+
+		public BigDecimal getBalance() {
+			return balance;
+		}
+
+		public void setBalance(BigDecimal balance) {
+			this.balance = balance;
+		}
+
+		public Long getAccountId() {
+			return accountId;
+		}
+
+		public void setAccountId(Long accountId) {
+			this.accountId = accountId;
+		}
+
+		public Number getScore() {
+			return score;
+		}
+
+		public void setScore(Number score) {
+			this.score = score;
+		}
+	}
+
+
+	/**
+	 * Minimal in-memory ResultSet, supporting the getters by index
+	 * that BeanPropertyRowMapper uses.
+	 */
+	private static class FakeResultSet implements InvocationHandler {
+
+		private final String[] columns;
+
+		private final Object[][] rows;
+
+		private int current = -1;
+
+		private boolean wasNull;
+
+		private int metaDataCount;
+
+		private FakeResultSet(String[] columns, Object[][] rows) {
+			this.columns = columns;
+			this.rows = rows;
+		}
+
+		private ResultSet getResultSet() {
+			return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {ResultSet.class}, this);
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if (name.equals("next")) {
+				this.current++;
+				return (this.current < this.rows.length ? Boolean.TRUE : Boolean.FALSE);
+			}
+			if (name.equals("getMetaData")) {
+				this.metaDataCount++;
+				return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {ResultSetMetaData.class},
+						new InvocationHandler() {
+							public Object invoke(Object proxy, Method method, Object[] args) {
+								if (method.getName().equals("getColumnCount")) {
+									return new Integer(columns.length);
+								}
+								return columns[((Integer) args[0]).intValue() - 1];
+							}
+						});
+			}
+			if (name.equals("wasNull")) {
+				return (this.wasNull ? Boolean.TRUE : Boolean.FALSE);
+			}
+			if (name.equals("hashCode")) {
+				return new Integer(System.identityHashCode(proxy));
+			}
+			if (name.equals("equals")) {
+				return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
+			}
+			Object value = this.rows[this.current][((Integer) args[0]).intValue() - 1];
+			this.wasNull = (value == null);
+			if (value == null && method.getReturnType().isPrimitive()) {
+				return (method.getReturnType().equals(int.class) ? (Object) new Integer(0) : new Long(0));
+			}
+			return value;
+		}
+	}
+
+}
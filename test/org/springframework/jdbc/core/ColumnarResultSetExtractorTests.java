@@ -0,0 +1,382 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.core;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import junit.framework.TestCase;
+import org.easymock.MockControl;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class ColumnarResultSetExtractorTests extends TestCase {
+
+	private MockControl rsmdControl;
+
+	private ResultSetMetaData rsmd;
+
+	private MockControl rsControl;
+
+	private ResultSet rs;
+
+	protected void setUp() throws SQLException {
+		rsmdControl = MockControl.createControl(ResultSetMetaData.class);
+		rsmd = (ResultSetMetaData) rsmdControl.getMock();
+		rsmd.getColumnCount();
+		rsmdControl.setReturnValue(4);
+		rsmd.getColumnName(1);
+		rsmdControl.setReturnValue("ID");
+		rsmd.getColumnType(1);
+		rsmdControl.setReturnValue(Types.INTEGER);
+		rsmd.getColumnName(2);
+		rsmdControl.setReturnValue("NAME");
+		rsmd.getColumnType(2);
+		rsmdControl.setReturnValue(Types.VARCHAR);
+		rsmd.getColumnName(3);
+		rsmdControl.setReturnValue("AMOUNT");
+		rsmd.getColumnType(3);
+		rsmdControl.setReturnValue(Types.DOUBLE);
+		rsmd.getColumnName(4);
+		rsmdControl.setReturnValue("VERSION");
+		rsmd.getColumnType(4);
+		rsmdControl.setReturnValue(Types.BIGINT);
+		rsmdControl.replay();
+
+		rsControl = MockControl.createControl(ResultSet.class);
+		rs = (ResultSet) rsControl.getMock();
+	}
+
+	public void testExtractData() throws SQLException {
+		// every even AMOUNT value is NULL
+		rs.getMetaData();
+		rsControl.setReturnValue(rsmd);
+		for (int i = 1; i <= 20; i++) {
+			rs.next();
+			rsControl.setReturnValue(true);
+			rs.getInt(1);
+			rsControl.setReturnValue(i);
+			rs.wasNull();
+			rsControl.setReturnValue(false);
+			rs.getObject(2);
+			rsControl.setReturnValue("name" + i);
+			rs.getDouble(3);
+			rsControl.setReturnValue(i % 2 == 0 ? 0.0 : i * 1.5);
+			rs.wasNull();
+			rsControl.setReturnValue(i % 2 == 0);
+			rs.getLong(4);
+			rsControl.setReturnValue(i * 1000000000000L);
+			rs.wasNull();
+			rsControl.setReturnValue(false);
+		}
+		rs.next();
+		rsControl.setReturnValue(false);
+		rsControl.replay();
+
+		ColumnarResult result = (ColumnarResult) new ColumnarResultSetExtractor().extractData(rs);
+		rsControl.verify();
+		rsmdControl.verify();
+
+		assertEquals(4, result.getColumnCount());
+		assertEquals("AMOUNT", result.getColumnName(2));
+		assertEquals(Types.DOUBLE, result.getColumnType(2));
+		assertEquals(2, result.getColumnIndex("AMOUNT"));
+		assertEquals(-1, result.getColumnIndex("OTHER"));
+		assertEquals(20, result.getRowCount());
+		assertEquals(20, result.size());
+
+		assertEquals(5, result.getInt(4, 0));
+		assertEquals("name5", result.getString(4, 1));
+		assertEquals(7.5, result.getDouble(4, 2), 0.0);
+		assertFalse(result.isNull(4, 2));
+		assertTrue(result.isNull(5, 2));
+		assertNull(result.getObject(5, 2));
+		assertEquals(0.0, result.getDouble(5, 2), 0.0);
+		assertEquals(20000000000000L, result.getLong(19, 3));
+		assertEquals(20.0, result.getDouble(19, 0), 0.0);
+
+		Map row = (Map) result.get(0);
+		assertEquals(4, row.size());
+		assertEquals(new Integer(1), row.get("ID"));
+		assertEquals("name1", row.get("NAME"));
+		assertEquals(new Double(1.5), row.get("AMOUNT"));
+		assertEquals(new Long(1000000000000L), row.get("VERSION"));
+		assertNull(row.get("OTHER"));
+		assertTrue(row.containsKey("NAME"));
+		assertFalse(row.containsKey("OTHER"));
+
+		Map expected = new HashMap();
+		expected.put("ID", new Integer(1));
+		expected.put("NAME", "name1");
+		expected.put("AMOUNT", new Double(1.5));
+		expected.put("VERSION", new Long(1000000000000L));
+		assertEquals(expected, row);
+		assertEquals(row, expected);
+		assertEquals(expected.hashCode(), row.hashCode());
+
+		Iterator it = row.keySet().iterator();
+		assertEquals("ID", it.next());
+		assertEquals("NAME", it.next());
+		assertEquals("AMOUNT", it.next());
+		assertEquals("VERSION", it.next());
+		assertFalse(it.hasNext());
+
+		try {
+			row.put("ID", new Integer(2));
+			fail("Should have thrown UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException ex) {
+			// expected
+		}
+		try {
+			result.get(20);
+			fail("Should have thrown IndexOutOfBoundsException");
+		}
+		catch (IndexOutOfBoundsException ex) {
+			// expected
+		}
+	}
+
+	public void testDuplicateColumnNames() throws SQLException {
+		ResultSetMetaData rsmd = createMetaData(
+				new String[] {"ID", "NAME", "ID"}, new int[] {Types.INTEGER, Types.VARCHAR, Types.INTEGER});
+		rs.getMetaData();
+		rsControl.setReturnValue(rsmd);
+		rs.next();
+		rsControl.setReturnValue(true);
+		rs.getInt(1);
+		rsControl.setReturnValue(1);
+		rs.wasNull();
+		rsControl.setReturnValue(false);
+		rs.getObject(2);
+		rsControl.setReturnValue("name1");
+		rs.getInt(3);
+		rsControl.setReturnValue(2);
+		rs.wasNull();
+		rsControl.setReturnValue(false);
+		rs.next();
+		rsControl.setReturnValue(false);
+		rsControl.replay();
+
+		ColumnarResult result = (ColumnarResult) new ColumnarResultSetExtractor().extractData(rs);
+		rsControl.verify();
+
+		// like queryForList: unique keys, the last column of a name wins
+		assertEquals(3, result.getColumnCount());
+		assertEquals(2, result.getColumnIndex("ID"));
+		assertEquals(1, result.getInt(0, 0));
+		assertEquals(2, result.getInt(0, 2));
+
+		Map row = (Map) result.get(0);
+		assertEquals(2, row.size());
+		assertEquals(new Integer(2), row.get("ID"));
+		assertEquals("name1", row.get("NAME"));
+		Iterator it = row.keySet().iterator();
+		assertEquals("ID", it.next());
+		assertEquals("NAME", it.next());
+		assertFalse(it.hasNext());
+		it = row.entrySet().iterator();
+		Map.Entry entry = (Map.Entry) it.next();
+		assertEquals("ID", entry.getKey());
+		assertEquals(new Integer(2), entry.getValue());
+		assertEquals("NAME", ((Map.Entry) it.next()).getKey());
+		assertFalse(it.hasNext());
+
+		Map expected = new HashMap();
+		expected.put("ID", new Integer(2));
+		expected.put("NAME", "name1");
+		assertEquals(expected, row);
+		assertEquals(row, expected);
+		assertEquals(expected.hashCode(), row.hashCode());
+	}
+
+	public void testNullValues() throws SQLException {
+		rs.getMetaData();
+		rsControl.setReturnValue(rsmd);
+		rs.next();
+		rsControl.setReturnValue(true);
+		rs.getInt(1);
+		rsControl.setReturnValue(0);
+		rs.wasNull();
+		rsControl.setReturnValue(true);
+		rs.getObject(2);
+		rsControl.setReturnValue(null);
+		rs.getDouble(3);
+		rsControl.setReturnValue(0.0);
+		rs.wasNull();
+		rsControl.setReturnValue(true);
+		rs.getLong(4);
+		rsControl.setReturnValue(0L);
+		rs.wasNull();
+		rsControl.setReturnValue(true);
+		rs.next();
+		rsControl.setReturnValue(false);
+		rsControl.replay();
+
+		ColumnarResult result = (ColumnarResult) new ColumnarResultSetExtractor().extractData(rs);
+		rsControl.verify();
+
+		assertEquals(1, result.getRowCount());
+		for (int i = 0; i < 4; i++) {
+			assertTrue(result.isNull(0, i));
+			assertNull(result.getObject(0, i));
+			assertNull(result.getString(0, i));
+		}
+		assertEquals(0, result.getInt(0, 0));
+		assertEquals(0, result.getLong(0, 3));
+		assertEquals(0.0, result.getDouble(0, 2), 0.0);
+
+		Map row = (Map) result.get(0);
+		assertEquals(4, row.size());
+		assertTrue(row.containsKey("NAME"));
+		assertNull(row.get("NAME"));
+		assertNull(row.get("VERSION"));
+		Map expected = new HashMap();
+		expected.put("ID", null);
+		expected.put("NAME", null);
+		expected.put("AMOUNT", null);
+		expected.put("VERSION", null);
+		assertEquals(expected, row);
+		assertEquals(expected.hashCode(), row.hashCode());
+	}
+
+	public void testEmptyResult() throws SQLException {
+		rs.getMetaData();
+		rsControl.setReturnValue(rsmd);
+		rs.next();
+		rsControl.setReturnValue(false);
+		rsControl.replay();
+
+		ColumnarResult result = (ColumnarResult) new ColumnarResultSetExtractor().extractData(rs);
+		rsControl.verify();
+
+		assertEquals(4, result.getColumnCount());
+		assertEquals("NAME", result.getColumnName(1));
+		assertEquals(0, result.getRowCount());
+		assertTrue(result.isEmpty());
+		assertFalse(result.iterator().hasNext());
+		try {
+			result.get(0);
+			fail("Should have thrown IndexOutOfBoundsException");
+		}
+		catch (IndexOutOfBoundsException ex) {
+			// expected
+		}
+		try {
+			result.getInt(0, 0);
+			fail("Should have thrown IndexOutOfBoundsException");
+		}
+		catch (IndexOutOfBoundsException ex) {
+			// expected
+		}
+	}
+
+	public void testQueryForColumnarResult() throws SQLException {
+		String sql = "SELECT ID, NAME, AMOUNT, VERSION FROM ACCOUNT";
+		rs.getMetaData();
+		rsControl.setReturnValue(rsmd);
+		rs.next();
+		rsControl.setReturnValue(true);
+		rs.getInt(1);
+		rsControl.setReturnValue(11);
+		rs.wasNull();
+		rsControl.setReturnValue(false);
+		rs.getObject(2);
+		rsControl.setReturnValue("name11");
+		rs.getDouble(3);
+		rsControl.setReturnValue(2.5);
+		rs.wasNull();
+		rsControl.setReturnValue(false);
+		rs.getLong(4);
+		rsControl.setReturnValue(3L);
+		rs.wasNull();
+		rsControl.setReturnValue(false);
+		rs.next();
+		rsControl.setReturnValue(false);
+		rs.close();
+		rsControl.setVoidCallable();
+		rsControl.replay();
+
+		MockControl stmtControl = MockControl.createControl(Statement.class);
+		Statement stmt = (Statement) stmtControl.getMock();
+		stmt.executeQuery(sql);
+		stmtControl.setReturnValue(rs);
+		stmt.getWarnings();
+		stmtControl.setReturnValue(null);
+		stmt.close();
+		stmtControl.setVoidCallable();
+		stmtControl.replay();
+
+		MockControl conControl = MockControl.createControl(Connection.class);
+		Connection con = (Connection) conControl.getMock();
+		con.getMetaData();
+		conControl.setDefaultReturnValue(null);
+		con.createStatement();
+		conControl.setReturnValue(stmt);
+		con.close();
+		conControl.setDefaultVoidCallable();
+		conControl.replay();
+
+		MockControl dsControl = MockControl.createControl(DataSource.class);
+		DataSource ds = (DataSource) dsControl.getMock();
+		ds.getConnection();
+		dsControl.setDefaultReturnValue(con);
+		dsControl.replay();
+
+		ColumnarResult result = new JdbcTemplate(ds).queryForColumnarResult(sql);
+		assertEquals(1, result.getRowCount());
+		assertEquals(11, result.getInt(0, 0));
+		assertEquals(3L, result.getLong(0, 3));
+		List list = result;
+		Map row = (Map) list.get(0);
+		assertEquals("name11", row.get("NAME"));
+		assertEquals(new Double(2.5), row.get("AMOUNT"));
+
+		rsControl.verify();
+		stmtControl.verify();
+		conControl.verify();
+		dsControl.verify();
+	}
+
+	private ResultSetMetaData createMetaData(String[] columnNames, int[] columnTypes) throws SQLException {
+		MockControl control = MockControl.createControl(ResultSetMetaData.class);
+		ResultSetMetaData metaData = (ResultSetMetaData) control.getMock();
+		metaData.getColumnCount();
+		control.setReturnValue(columnNames.length);
+		for (int i = 0; i < columnNames.length; i++) {
+			metaData.getColumnName(i + 1);
+			control.setReturnValue(columnNames[i]);
+			metaData.getColumnType(i + 1);
+			control.setReturnValue(columnTypes[i]);
+		}
+		control.replay();
+		return metaData;
+	}
+
+}
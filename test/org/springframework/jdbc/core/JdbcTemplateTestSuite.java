@@ -26,15 +26,18 @@ import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import javax.sql.DataSource;
 
 import org.easymock.MockControl;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.UncategorizedDataAccessException;
 import org.springframework.jdbc.AbstractJdbcTests;
@@ -46,6 +49,8 @@ import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
 import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
 import org.springframework.jdbc.support.nativejdbc.NativeJdbcExtractor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /** 
  * Mock object based tests for JdbcTemplate.
@@ -1722,6 +1727,355 @@ public class JdbcTemplateTestSuite extends AbstractJdbcTests {
 		ctrlStatement.verify();
 	}
 
+	public void testQueryForLongArray() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR";
+
+		MockControl ctrlResultSetMetaData = MockControl.createControl(ResultSetMetaData.class);
+		ResultSetMetaData mockResultSetMetaData = (ResultSetMetaData) ctrlResultSetMetaData.getMock();
+		mockResultSetMetaData.getColumnCount();
+		ctrlResultSetMetaData.setReturnValue(1);
+
+		MockControl ctrlResultSet = MockControl.createControl(ResultSet.class);
+		ResultSet mockResultSet = (ResultSet) ctrlResultSet.getMock();
+		mockResultSet.getMetaData();
+		ctrlResultSet.setReturnValue(mockResultSetMetaData);
+		mockResultSet.next();
+		ctrlResultSet.setReturnValue(true, 3);
+		mockResultSet.getLong(1);
+		ctrlResultSet.setReturnValue(87);
+		mockResultSet.getLong(1);
+		ctrlResultSet.setReturnValue(0);
+		mockResultSet.getLong(1);
+		ctrlResultSet.setReturnValue(42);
+		mockResultSet.next();
+		ctrlResultSet.setReturnValue(false);
+		mockResultSet.close();
+		ctrlResultSet.setVoidCallable();
+
+		MockControl ctrlStatement = MockControl.createControl(Statement.class);
+		Statement mockStatement = (Statement) ctrlStatement.getMock();
+		mockStatement.setFetchSize(2);
+		ctrlStatement.setVoidCallable();
+		mockStatement.executeQuery(sql);
+		ctrlStatement.setReturnValue(mockResultSet);
+		mockStatement.getWarnings();
+		ctrlStatement.setReturnValue(null);
+		mockStatement.close();
+		ctrlStatement.setVoidCallable();
+
+		mockConnection.createStatement();
+		ctrlConnection.setReturnValue(mockStatement);
+
+		ctrlResultSetMetaData.replay();
+		ctrlResultSet.replay();
+		ctrlStatement.replay();
+		replay();
+
+		JdbcTemplate template = new JdbcTemplate(mockDataSource);
+		// fetch size smaller than the row count, forcing the buffer to grow
+		template.setFetchSize(2);
+		long[] result = template.queryForLongArray(sql);
+		assertEquals(3, result.length);
+		assertEquals(87, result[0]);
+		assertEquals(0, result[1]);
+		assertEquals(42, result[2]);
+
+		ctrlResultSetMetaData.verify();
+		ctrlResultSet.verify();
+		ctrlStatement.verify();
+	}
+
+	public void testQueryForStringArrayWithArgs() throws Exception {
+		String sql = "SELECT NAME FROM CUSTMR WHERE ID > ?";
+
+		MockControl ctrlResultSetMetaData = MockControl.createControl(ResultSetMetaData.class);
+		ResultSetMetaData mockResultSetMetaData = (ResultSetMetaData) ctrlResultSetMetaData.getMock();
+		mockResultSetMetaData.getColumnCount();
+		ctrlResultSetMetaData.setReturnValue(1);
+
+		MockControl ctrlResultSet = MockControl.createControl(ResultSet.class);
+		ResultSet mockResultSet = (ResultSet) ctrlResultSet.getMock();
+		mockResultSet.getMetaData();
+		ctrlResultSet.setReturnValue(mockResultSetMetaData);
+		mockResultSet.next();
+		ctrlResultSet.setReturnValue(true, 2);
+		mockResultSet.getString(1);
+		ctrlResultSet.setReturnValue("rod");
+		mockResultSet.getString(1);
+		ctrlResultSet.setReturnValue(null);
+		mockResultSet.next();
+		ctrlResultSet.setReturnValue(false);
+		mockResultSet.close();
+		ctrlResultSet.setVoidCallable();
+
+		MockControl ctrlStatement = MockControl.createControl(PreparedStatement.class);
+		PreparedStatement mockStatement = (PreparedStatement) ctrlStatement.getMock();
+		mockStatement.setObject(1, new Integer(3));
+		ctrlStatement.setVoidCallable();
+		mockStatement.executeQuery();
+		ctrlStatement.setReturnValue(mockResultSet);
+		mockStatement.getWarnings();
+		ctrlStatement.setReturnValue(null);
+		mockStatement.close();
+		ctrlStatement.setVoidCallable();
+
+		mockConnection.prepareStatement(sql);
+		ctrlConnection.setReturnValue(mockStatement);
+
+		ctrlResultSetMetaData.replay();
+		ctrlResultSet.replay();
+		ctrlStatement.replay();
+		replay();
+
+		JdbcTemplate template = new JdbcTemplate(mockDataSource);
+		String[] result = template.queryForStringArray(sql, new Object[] {new Integer(3)});
+		assertEquals(2, result.length);
+		assertEquals("rod", result[0]);
+		assertNull(result[1]);
+
+		ctrlResultSetMetaData.verify();
+		ctrlResultSet.verify();
+		ctrlStatement.verify();
+	}
+
+	public void testQueryForIntArrayWithMultipleColumns() throws Exception {
+		String sql = "SELECT ID, AGE FROM CUSTMR";
+
+		MockControl ctrlResultSetMetaData = MockControl.createControl(ResultSetMetaData.class);
+		ResultSetMetaData mockResultSetMetaData = (ResultSetMetaData) ctrlResultSetMetaData.getMock();
+		mockResultSetMetaData.getColumnCount();
+		ctrlResultSetMetaData.setReturnValue(2);
+
+		MockControl ctrlResultSet = MockControl.createControl(ResultSet.class);
+		ResultSet mockResultSet = (ResultSet) ctrlResultSet.getMock();
+		mockResultSet.getMetaData();
+		ctrlResultSet.setReturnValue(mockResultSetMetaData);
+		mockResultSet.close();
+		ctrlResultSet.setVoidCallable();
+
+		MockControl ctrlStatement = MockControl.createControl(Statement.class);
+		Statement mockStatement = (Statement) ctrlStatement.getMock();
+		mockStatement.executeQuery(sql);
+		ctrlStatement.setReturnValue(mockResultSet);
+		mockStatement.close();
+		ctrlStatement.setVoidCallable();
+
+		mockConnection.createStatement();
+		ctrlConnection.setReturnValue(mockStatement);
+
+		ctrlResultSetMetaData.replay();
+		ctrlResultSet.replay();
+		ctrlStatement.replay();
+		replay();
+
+		JdbcTemplate template = new JdbcTemplate(mockDataSource);
+		try {
+			template.queryForIntArray(sql);
+			fail("Should have thrown IncorrectResultSizeDataAccessException");
+		}
+		catch (IncorrectResultSizeDataAccessException ex) {
+			// expected
+		}
+
+		ctrlResultSet.verify();
+		ctrlStatement.verify();
+	}
+
+	public void testQueryForIterator() throws Exception {
+		String sql = "SELECT NAME FROM CUSTMR WHERE ID > ?";
+
+		MockControl ctrlResultSet = MockControl.createControl(ResultSet.class);
+		ResultSet mockResultSet = (ResultSet) ctrlResultSet.getMock();
+		mockResultSet.next();
+		ctrlResultSet.setReturnValue(true);
+		mockResultSet.getString(1);
+		ctrlResultSet.setReturnValue("rod");
+		mockResultSet.next();
+		ctrlResultSet.setReturnValue(true);
+		mockResultSet.getString(1);
+		ctrlResultSet.setReturnValue("juergen");
+		mockResultSet.next();
+		ctrlResultSet.setReturnValue(false);
+		mockResultSet.close();
+		ctrlResultSet.setVoidCallable(1);
+
+		MockControl ctrlPreparedStatement = MockControl.createControl(PreparedStatement.class);
+		PreparedStatement mockPreparedStatement = (PreparedStatement) ctrlPreparedStatement.getMock();
+		mockPreparedStatement.setObject(1, new Integer(3));
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.setFetchSize(500);
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.executeQuery();
+		ctrlPreparedStatement.setReturnValue(mockResultSet);
+		mockPreparedStatement.close();
+		ctrlPreparedStatement.setVoidCallable(1);
+
+		mockConnection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		ctrlConnection.setReturnValue(mockPreparedStatement);
+		mockConnection.close();
+		ctrlConnection.setVoidCallable(1);
+
+		ctrlResultSet.replay();
+		ctrlPreparedStatement.replay();
+		replay();
+
+		TransactionSynchronizationManager.initSynchronization();
+		JdbcTemplate template = new JdbcTemplate(mockDataSource);
+		template.setFetchSize(10);
+		RowIterator it = template.queryForIterator(sql, new Object[] {new Integer(3)}, new RowMapper() {
+			public Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+				return rs.getString(1);
+			}
+		}, 500);
+		assertTrue(it.hasNext());
+		assertTrue(it.hasNext());
+		assertEquals("rod", it.next());
+		assertEquals("juergen", it.next());
+		assertEquals(2, it.getRowCount());
+		assertFalse(it.hasNext());
+		try {
+			it.next();
+			fail("Should have thrown NoSuchElementException");
+		}
+		catch (NoSuchElementException ex) {
+			// expected
+		}
+		it.close();
+		completeSynchronization();
+
+		ctrlResultSet.verify();
+		ctrlPreparedStatement.verify();
+	}
+
+	public void testQueryForIteratorClosedWhenAbandoned() throws Exception {
+		String sql = "SELECT NAME FROM CUSTMR";
+
+		MockControl ctrlResultSet = MockControl.createControl(ResultSet.class);
+		ResultSet mockResultSet = (ResultSet) ctrlResultSet.getMock();
+		mockResultSet.next();
+		ctrlResultSet.setReturnValue(true);
+		mockResultSet.getString(1);
+		ctrlResultSet.setReturnValue("rod");
+		mockResultSet.close();
+		ctrlResultSet.setVoidCallable(1);
+
+		MockControl ctrlPreparedStatement = MockControl.createControl(PreparedStatement.class);
+		PreparedStatement mockPreparedStatement = (PreparedStatement) ctrlPreparedStatement.getMock();
+		mockPreparedStatement.executeQuery();
+		ctrlPreparedStatement.setReturnValue(mockResultSet);
+		mockPreparedStatement.close();
+		ctrlPreparedStatement.setVoidCallable(1);
+
+		mockConnection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		ctrlConnection.setReturnValue(mockPreparedStatement);
+		mockConnection.close();
+		ctrlConnection.setVoidCallable(1);
+
+		ctrlResultSet.replay();
+		ctrlPreparedStatement.replay();
+		replay();
+
+		TransactionSynchronizationManager.initSynchronization();
+		JdbcTemplate template = new JdbcTemplate(mockDataSource);
+		RowIterator it = template.queryForIterator(sql, new RowMapper() {
+			public Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+				return rs.getString(1);
+			}
+		}, 0);
+		assertEquals("rod", it.next());
+		// abandoned: closed on transaction completion
+		completeSynchronization();
+		it.close();
+		assertFalse(it.hasNext());
+
+		ctrlResultSet.verify();
+		ctrlPreparedStatement.verify();
+	}
+
+	public void testQueryForIteratorClosedOnMappingFailure() throws Exception {
+		String sql = "SELECT NAME FROM CUSTMR";
+
+		MockControl ctrlResultSet = MockControl.createControl(ResultSet.class);
+		ResultSet mockResultSet = (ResultSet) ctrlResultSet.getMock();
+		mockResultSet.next();
+		ctrlResultSet.setReturnValue(true);
+		mockResultSet.close();
+		ctrlResultSet.setVoidCallable(1);
+
+		MockControl ctrlPreparedStatement = MockControl.createControl(PreparedStatement.class);
+		PreparedStatement mockPreparedStatement = (PreparedStatement) ctrlPreparedStatement.getMock();
+		mockPreparedStatement.executeQuery();
+		ctrlPreparedStatement.setReturnValue(mockResultSet);
+		mockPreparedStatement.close();
+		ctrlPreparedStatement.setVoidCallable(1);
+
+		mockConnection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		ctrlConnection.setReturnValue(mockPreparedStatement);
+		mockConnection.close();
+		ctrlConnection.setVoidCallable(1);
+
+		ctrlResultSet.replay();
+		ctrlPreparedStatement.replay();
+		replay();
+
+		TransactionSynchronizationManager.initSynchronization();
+		JdbcTemplate template = new JdbcTemplate(mockDataSource);
+		RowIterator it = template.queryForIterator(sql, new RowMapper() {
+			public Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+				throw new InvalidDataAccessApiUsageException("");
+			}
+		}, 0);
+		try {
+			it.next();
+			fail("Should have thrown InvalidDataAccessApiUsageException");
+		}
+		catch (InvalidDataAccessApiUsageException ex) {
+			// expected
+		}
+		assertFalse(it.hasNext());
+		completeSynchronization();
+
+		ctrlResultSet.verify();
+		ctrlPreparedStatement.verify();
+	}
+
+
+	public void testQueryForIteratorWithoutTransaction() throws Exception {
+		replay();
+
+		JdbcTemplate template = new JdbcTemplate(mockDataSource);
+		try {
+			template.queryForIterator("SELECT NAME FROM CUSTMR", new RowMapper() {
+				public Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+					return rs.getString(1);
+				}
+			}, 0);
+			fail("Should have thrown InvalidDataAccessApiUsageException");
+		}
+		catch (InvalidDataAccessApiUsageException ex) {
+			// expected
+		}
+	}
+
+	/**
+	 * Complete the current transaction synchronization, as a transaction
+	 * manager would on commit.
+	 */
+	private void completeSynchronization() {
+		List synchs = TransactionSynchronizationManager.getSynchronizations();
+		for (Iterator it = synchs.iterator(); it.hasNext();) {
+			((TransactionSynchronization) it.next()).beforeCompletion();
+		}
+		TransactionSynchronizationManager.clearSynchronization();
+	}
+
+	protected void tearDown() throws Exception {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		super.tearDown();
+	}
+
 
 	private static interface JdbcTemplateCallback {
 
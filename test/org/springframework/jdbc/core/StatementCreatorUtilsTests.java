@@ -172,4 +172,14 @@ public class StatementCreatorUtilsTests extends TestCase {
 		StatementCreatorUtils.setParameterValue(ps, 1, SqlTypeValue.TYPE_UNKNOWN, null, cal);
 	}
 
+	public void testParameterBindersAreSharedPerSqlType() throws SQLException {
+		psControl.replay();
+		assertSame(StatementCreatorUtils.getParameterBinder(Types.NUMERIC, null),
+				StatementCreatorUtils.getParameterBinder(Types.NUMERIC, null));
+		assertSame(StatementCreatorUtils.getParameterBinder(Types.VARCHAR, null),
+				StatementCreatorUtils.getParameterBinder(Types.VARCHAR, null));
+		assertNotSame(StatementCreatorUtils.getParameterBinder(Types.NUMERIC, null),
+				StatementCreatorUtils.getParameterBinder(Types.INTEGER, null));
+	}
+
 }
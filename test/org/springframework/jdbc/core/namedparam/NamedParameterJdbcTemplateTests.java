@@ -0,0 +1,191 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.core.namedparam;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.easymock.MockControl;
+
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.AbstractJdbcTests;
+import org.springframework.jdbc.core.RowMapper;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class NamedParameterJdbcTemplateTests extends AbstractJdbcTests {
+
+	private MockControl ctrlPreparedStatement;
+
+	private PreparedStatement mockPreparedStatement;
+
+	private MockControl ctrlResultSet;
+
+	private ResultSet mockResultSet;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		ctrlPreparedStatement = MockControl.createControl(PreparedStatement.class);
+		mockPreparedStatement = (PreparedStatement) ctrlPreparedStatement.getMock();
+		ctrlResultSet = MockControl.createControl(ResultSet.class);
+		mockResultSet = (ResultSet) ctrlResultSet.getMock();
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		if (shouldVerify()) {
+			ctrlPreparedStatement.verify();
+			ctrlResultSet.verify();
+		}
+	}
+
+	protected void replay() {
+		super.replay();
+		ctrlPreparedStatement.replay();
+		ctrlResultSet.replay();
+	}
+
+	private void expectQuery(String sql, Object[] values, String[] names) throws SQLException {
+		for (int i = 0; i < values.length; i++) {
+			mockPreparedStatement.setObject(i + 1, values[i]);
+			ctrlPreparedStatement.setVoidCallable();
+		}
+		mockPreparedStatement.executeQuery();
+		ctrlPreparedStatement.setReturnValue(mockResultSet);
+		mockPreparedStatement.getWarnings();
+		ctrlPreparedStatement.setReturnValue(null);
+		mockPreparedStatement.close();
+		ctrlPreparedStatement.setVoidCallable();
+
+		for (int i = 0; i < names.length; i++) {
+			mockResultSet.next();
+			ctrlResultSet.setReturnValue(true);
+			mockResultSet.getString(1);
+			ctrlResultSet.setReturnValue(names[i]);
+		}
+		mockResultSet.next();
+		ctrlResultSet.setReturnValue(false);
+		mockResultSet.close();
+		ctrlResultSet.setVoidCallable();
+
+		mockConnection.prepareStatement(sql);
+		ctrlConnection.setReturnValue(mockPreparedStatement);
+	}
+
+	public void testQuery() throws Exception {
+		expectQuery("select name from person where id = ? or parent_id = ?",
+				new Object[] {new Integer(1), new Integer(1)}, new String[] {"rod", "juergen"});
+		replay();
+
+		NamedParameterJdbcTemplate template = new NamedParameterJdbcTemplate(mockDataSource);
+		Map params = new HashMap();
+		params.put("id", new Integer(1));
+		List names = template.query("select name from person where id = :id or parent_id = :id",
+				params, new NameMapper());
+		assertEquals(2, names.size());
+		assertEquals("rod", names.get(0));
+		assertEquals("juergen", names.get(1));
+	}
+
+	public void testQueryWithExpandableCollection() throws Exception {
+		expectQuery("select name from person where id in (?, ?, ?) and active = ?",
+				new Object[] {new Integer(1), new Integer(2), new Integer(3), Boolean.TRUE}, new String[] {"rod"});
+		replay();
+
+		NamedParameterJdbcTemplate template = new NamedParameterJdbcTemplate(mockDataSource);
+		Map params = new HashMap();
+		params.put("ids", Arrays.asList(new Integer[] {new Integer(1), new Integer(2), new Integer(3)}));
+		params.put("active", Boolean.TRUE);
+		List names = template.query("select name from person where id in (:ids) and active = :active",
+				params, new NameMapper());
+		assertEquals(1, names.size());
+	}
+
+	public void testQueryWithQuotedLiterals() throws Exception {
+		expectQuery("select name from person where note = 'at 10:30' and tag = 'it\\'s :x' " +
+				"and codes[1:2] = ? and id = ?::int",
+				new Object[] {"a", "1"}, new String[] {"rod"});
+		replay();
+
+		NamedParameterJdbcTemplate template = new NamedParameterJdbcTemplate(mockDataSource);
+		Map params = new HashMap();
+		params.put("codes", "a");
+		params.put("id", "1");
+		List names = template.query("select name from person where note = 'at 10:30' and tag = 'it\\'s :x' " +
+				"and codes[1:2] = :codes and id = :id::int", params, new NameMapper());
+		assertEquals(1, names.size());
+	}
+
+	public void testMixedParameters() throws Exception {
+		replay();
+
+		NamedParameterJdbcTemplate template = new NamedParameterJdbcTemplate(mockDataSource);
+		Map params = new HashMap();
+		params.put("id", new Integer(1));
+		try {
+			template.query("select name from person where id = :id and parent_id = ?", params, new NameMapper());
+			fail("Should have thrown InvalidDataAccessApiUsageException");
+		}
+		catch (InvalidDataAccessApiUsageException ex) {
+			// expected
+		}
+	}
+
+	public void testUpdate() throws Exception {
+		mockPreparedStatement.setObject(1, "rod");
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.setObject(2, new Integer(1));
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.setObject(3, new Integer(2));
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.executeUpdate();
+		ctrlPreparedStatement.setReturnValue(2);
+		mockPreparedStatement.getWarnings();
+		ctrlPreparedStatement.setReturnValue(null);
+		mockPreparedStatement.close();
+		ctrlPreparedStatement.setVoidCallable();
+
+		mockConnection.prepareStatement("update person set name = ? where id in (?, ?)");
+		ctrlConnection.setReturnValue(mockPreparedStatement);
+
+		replay();
+
+		NamedParameterJdbcTemplate template = new NamedParameterJdbcTemplate(mockDataSource);
+		Map params = new HashMap();
+		params.put("name", "rod");
+		params.put("ids", Arrays.asList(new Integer[] {new Integer(1), new Integer(2)}));
+		int rowsAffected = template.update("update person set name = :name where id in (:ids)", params);
+		assertEquals(2, rowsAffected);
+	}
+
+
+
+	private static class NameMapper implements RowMapper {
+
+		public Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+			return rs.getString(1);
+		}
+	}
+
+}
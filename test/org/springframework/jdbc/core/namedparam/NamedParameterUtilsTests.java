@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.core.namedparam;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class NamedParameterUtilsTests extends TestCase {
+
+	public void testParseSql() {
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(
+				"select * from person where id = :id and (name = :name or nick = :name)");
+		assertEquals(3, parsedSql.getParameterCount());
+		assertEquals("id", parsedSql.getParameterName(0));
+		assertEquals("name", parsedSql.getParameterName(1));
+		assertEquals("name", parsedSql.getParameterName(2));
+		assertEquals(2, parsedSql.getDistinctParameterNames().length);
+		assertEquals(0, parsedSql.getUnnamedParameterCount());
+		assertEquals("select * from person where id = ? and (name = ? or nick = ?)", parsedSql.getSubstitutedSql());
+	}
+
+	public void testParseSqlIgnoresLiteralsCommentsAndCasts() {
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(
+				"select ':notParam', \"col:x\", id::text from t -- where a = :comment\n" +
+				"where /* :other */ b = :b and c = 'it''s :x'");
+		assertEquals(1, parsedSql.getParameterCount());
+		assertEquals("b", parsedSql.getParameterName(0));
+		assertTrue(parsedSql.getSubstitutedSql().endsWith("b = ? and c = 'it''s :x'"));
+	}
+
+	public void testParseSqlIgnoresArraySlicesAndEscapedQuotes() {
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(
+				"select arr[1:2] from t where a = 'it\\'s :x' and b = :b");
+		assertEquals(1, parsedSql.getParameterCount());
+		assertEquals("b", parsedSql.getParameterName(0));
+		assertEquals("select arr[1:2] from t where a = 'it\\'s :x' and b = ?", parsedSql.getSubstitutedSql());
+	}
+
+	public void testParseSqlWithPlaceholders() {
+		ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement("select * from t where a = ? and b = '?'");
+		assertFalse(parsedSql.hasNamedParameters());
+		assertEquals(1, parsedSql.getUnnamedParameterCount());
+	}
+
+	public void testGetParsedSqlIsCached() {
+		String sql = "select * from t where a = :a";
+		assertSame(NamedParameterUtils.getParsedSql(sql), NamedParameterUtils.getParsedSql(sql));
+		NamedParameterUtils.clearCache();
+		ParsedSql parsedSql = NamedParameterUtils.getParsedSql(sql);
+		ParsedSql firstOther = NamedParameterUtils.getParsedSql("select * from t where b = :b0");
+		// exceed the cache limit, touching the first statement in between
+		for (int i = 1; i < 300; i++) {
+			NamedParameterUtils.getParsedSql("select * from t where b = :b" + i);
+			if (i % 100 == 0) {
+				assertSame(parsedSql, NamedParameterUtils.getParsedSql(sql));
+			}
+		}
+		assertSame(parsedSql, NamedParameterUtils.getParsedSql(sql));
+		assertNotSame(firstOther, NamedParameterUtils.getParsedSql("select * from t where b = :b0"));
+	}
+
+	public void testSubstituteAndBuildValueArray() {
+		ParsedSql parsedSql = NamedParameterUtils.getParsedSql("select * from t where a = :a and b = :b");
+		Map params = new HashMap();
+		params.put("a", "x");
+		params.put("b", null);
+		assertEquals("select * from t where a = ? and b = ?",
+				NamedParameterUtils.substituteNamedParameters(parsedSql, params));
+		Object[] values = NamedParameterUtils.buildValueArray(parsedSql, params);
+		assertEquals(2, values.length);
+		assertEquals("x", values[0]);
+		assertNull(values[1]);
+	}
+
+	public void testSubstituteWithInList() {
+		ParsedSql parsedSql = NamedParameterUtils.getParsedSql("select * from t where id in (:ids) and a = :a");
+		Map params = new HashMap();
+		List ids = new ArrayList();
+		ids.add(new Integer(1));
+		ids.add(new Integer(2));
+		ids.add(new Integer(3));
+		params.put("ids", ids);
+		params.put("a", "x");
+		assertEquals("select * from t where id in (?, ?, ?) and a = ?",
+				NamedParameterUtils.substituteNamedParameters(parsedSql, params));
+		Object[] values = NamedParameterUtils.buildValueArray(parsedSql, params);
+		assertEquals(4, values.length);
+		assertEquals(new Integer(3), values[2]);
+		assertEquals("x", values[3]);
+	}
+
+	public void testMissingValue() {
+		ParsedSql parsedSql = NamedParameterUtils.getParsedSql("select * from t where a = :a");
+		try {
+			NamedParameterUtils.buildValueArray(parsedSql, new HashMap());
+			fail("Should have thrown InvalidDataAccessApiUsageException");
+		}
+		catch (InvalidDataAccessApiUsageException ex) {
+			// expected
+		}
+	}
+
+	public void testMixedParameterStyles() {
+		ParsedSql parsedSql = NamedParameterUtils.getParsedSql("select * from t where a = :a and b = ?");
+		Map params = new HashMap();
+		params.put("a", "x");
+		try {
+			NamedParameterUtils.substituteNamedParameters(parsedSql, params);
+			fail("Should have thrown InvalidDataAccessApiUsageException");
+		}
+		catch (InvalidDataAccessApiUsageException ex) {
+			// expected
+		}
+	}
+
+}
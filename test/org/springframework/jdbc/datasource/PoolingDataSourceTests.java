@@ -0,0 +1,503 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class PoolingDataSourceTests extends TestCase {
+
+	private TestPoolingDataSource ds;
+
+	protected void setUp() {
+		ds = new TestPoolingDataSource();
+		ds.setHousekeepingPeriod(0);
+	}
+
+	protected void tearDown() {
+		ds.destroy();
+	}
+
+	public void testConnectionReusedAfterClose() throws SQLException {
+		ds.afterPropertiesSet();
+		Connection con = ds.getConnection();
+		assertTrue(con instanceof ConnectionProxy);
+		Connection target = ((ConnectionProxy) con).getTargetConnection();
+		assertEquals(1, ds.getActiveCount());
+		con.close();
+		assertTrue(con.isClosed());
+		assertEquals(0, ds.getActiveCount());
+		assertEquals(1, ds.getIdleCount());
+		assertFalse("Physical connection not closed", ((FakeConnection) ds.created.get(0)).closed);
+		try {
+			con.createStatement();
+			fail("Should have thrown SQLException");
+		}
+		catch (SQLException ex) {
+			// expected
+		}
+		try {
+			((ConnectionProxy) con).getTargetConnection();
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+
+		Connection con2 = ds.getConnection();
+		assertNotSame(con, con2);
+		assertSame(target, ((ConnectionProxy) con2).getTargetConnection());
+		con2.close();
+		// closing twice must not return the connection twice
+		con2.close();
+		assertEquals(1, ds.getCreatedCount());
+		assertEquals(1, ds.getTotalCount());
+		assertEquals(2, ds.getAcquireLatency().getCount());
+	}
+
+	public void testPrefillAndCounts() throws SQLException {
+		ds.setMinSize(2);
+		ds.setMaxSize(3);
+		ds.afterPropertiesSet();
+		assertEquals(2, ds.getTotalCount());
+		assertEquals(2, ds.getIdleCount());
+		Connection con1 = ds.getConnection();
+		Connection con2 = ds.getConnection();
+		Connection con3 = ds.getConnection();
+		assertEquals(3, ds.getActiveCount());
+		assertEquals(0, ds.getIdleCount());
+		assertEquals(3, ds.getCreatedCount());
+		con1.close();
+		con2.close();
+		con3.close();
+		assertEquals(3, ds.getIdleCount());
+	}
+
+	public void testInvalidPoolSizes() {
+		ds.setMinSize(5);
+		ds.setMaxSize(2);
+		try {
+			ds.afterPropertiesSet();
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	public void testSettingsResetOnReturn() throws SQLException {
+		Connection con = ds.getConnection();
+		con.setAutoCommit(false);
+		con.setReadOnly(true);
+		con.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+		con.close();
+		FakeConnection target = (FakeConnection) ds.created.get(0);
+		assertEquals(1, target.rollbackCount);
+		assertTrue(target.autoCommit);
+		assertFalse(target.readOnly);
+		assertEquals(Connection.TRANSACTION_READ_COMMITTED, target.isolation);
+
+		con = ds.getConnection();
+		con.createStatement();
+		con.close();
+		assertEquals("No rollback in auto-commit mode", 1, target.rollbackCount);
+	}
+
+	public void testRollbackOnReturnWithoutChangedSettings() throws SQLException {
+		ds.defaultAutoCommit = false;
+		Connection con = ds.getConnection();
+		con.createStatement().execute("update x");
+		con.close();
+		FakeConnection target = (FakeConnection) ds.created.get(0);
+		assertEquals(1, target.rollbackCount);
+		assertFalse(target.autoCommit);
+	}
+
+	public void testStatementsLeftOpenClosedOnReturn() throws SQLException {
+		Connection con = ds.getConnection();
+		con.createStatement();
+		con.prepareStatement("select 1");
+		con.createStatement().close();
+		FakeConnection target = (FakeConnection) ds.created.get(0);
+		assertEquals(2, target.openStatementCount);
+		con.close();
+		assertEquals(0, target.openStatementCount);
+		assertEquals(3, target.closeCount);
+	}
+
+	public void testStatementsClosedByBorrowerAreNotTracked() throws SQLException {
+		Connection con = ds.getConnection();
+		for (int i = 0; i < 100; i++) {
+			Statement stmt = con.prepareStatement("select 1");
+			assertSame(con, stmt.getConnection());
+			stmt.close();
+		}
+		con.close();
+		FakeConnection target = (FakeConnection) ds.created.get(0);
+		assertEquals(0, target.openStatementCount);
+		assertEquals("Closed statements closed again on return", 100, target.closeCount);
+	}
+
+	public void testTimeoutWhenExhausted() throws SQLException {
+		ds.setMaxSize(1);
+		ds.setConnectionTimeout(50);
+		Connection con = ds.getConnection();
+		try {
+			ds.getConnection();
+			fail("Should have thrown SQLException");
+		}
+		catch (SQLException ex) {
+			// expected
+		}
+		assertEquals(1, ds.getTimeoutCount());
+		assertEquals(1, ds.getAcquireLatency().getErrorCount());
+		assertEquals(0, ds.getWaitingCount());
+		con.close();
+	}
+
+	public void testInterruptWhileWaitingIsPreserved() throws SQLException {
+		ds.setMaxSize(1);
+		ds.setConnectionTimeout(5000);
+		Connection con = ds.getConnection();
+		Thread.currentThread().interrupt();
+		try {
+			ds.getConnection();
+			fail("Should have thrown SQLException");
+		}
+		catch (SQLException ex) {
+			// expected
+			assertTrue(Thread.interrupted());
+		}
+		finally {
+			Thread.interrupted();
+		}
+		assertEquals(0, ds.getWaitingCount());
+		con.close();
+	}
+
+	public void testWaitingThreadGetsReturnedConnection() throws Exception {
+		ds.setMaxSize(1);
+		final Connection con = ds.getConnection();
+		final List borrowed = new ArrayList();
+		Thread waiter = new Thread() {
+			public void run() {
+				try {
+					Connection con2 = ds.getConnection();
+					borrowed.add(((ConnectionProxy) con2).getTargetConnection());
+					con2.close();
+				}
+				catch (SQLException ex) {
+					borrowed.add(ex);
+				}
+			}
+		};
+		waiter.start();
+		for (int i = 0; i < 100 && ds.getWaitingCount() == 0; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, ds.getWaitingCount());
+		con.close();
+		waiter.join(5000);
+		assertEquals(1, borrowed.size());
+		assertSame(((FakeConnection) ds.created.get(0)).proxy, borrowed.get(0));
+		assertEquals(1, ds.getCreatedCount());
+	}
+
+	public void testConcurrentBorrowing() throws Exception {
+		ds.setMaxSize(3);
+		final List failures = new ArrayList();
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						for (int j = 0; j < 200; j++) {
+							Connection con = ds.getConnection();
+							con.createStatement();
+							con.close();
+						}
+					}
+					catch (SQLException ex) {
+						synchronized (failures) {
+							failures.add(ex);
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+		assertEquals(0, failures.size());
+		assertTrue(ds.getCreatedCount() <= 3);
+		assertEquals(0, ds.getActiveCount());
+		assertEquals(1600, ds.getAcquireLatency().getCount());
+	}
+
+	public void testConnectionFailingValidationIsRetired() throws SQLException {
+		ds.setValidationQuery("SELECT 1");
+		ds.setValidationInterval(0);
+		Connection con = ds.getConnection();
+		con.close();
+		FakeConnection first = (FakeConnection) ds.created.get(0);
+		assertEquals(1, first.executed.size());
+		assertEquals("SELECT 1", first.executed.get(0));
+		first.broken = true;
+
+		con = ds.getConnection();
+		assertNotSame(first, getFakeConnection(con));
+		assertTrue(first.closed);
+		assertEquals(2, ds.getCreatedCount());
+		assertEquals(1, ds.getRetiredCount());
+		con.close();
+	}
+
+	public void testRecentlyReturnedConnectionNotValidated() throws SQLException {
+		ds.setValidationQuery("SELECT 1");
+		Connection con = ds.getConnection();
+		con.close();
+		con = ds.getConnection();
+		con.close();
+		assertEquals(0, ((FakeConnection) ds.created.get(0)).executed.size());
+	}
+
+	public void testMaxLifetime() throws Exception {
+		ds.setMaxLifetime(1);
+		Connection con = ds.getConnection();
+		Thread.sleep(10);
+		con.close();
+		assertTrue(((FakeConnection) ds.created.get(0)).closed);
+		assertEquals(0, ds.getTotalCount());
+		con = ds.getConnection();
+		assertEquals(2, ds.getCreatedCount());
+		con.close();
+	}
+
+	public void testHousekeepingRetiresIdleConnectionsAndDetectsLeaks() throws Exception {
+		ds.setMinSize(1);
+		ds.setMaxSize(3);
+		ds.setIdleTimeout(1);
+		ds.setLeakDetectionThreshold(1);
+		ds.afterPropertiesSet();
+		Connection con1 = ds.getConnection();
+		Connection con2 = ds.getConnection();
+		Connection con3 = ds.getConnection();
+		con2.close();
+		con3.close();
+		Thread.sleep(10);
+		ds.housekeep();
+		// the borrowed connection counts towards the minimum size
+		assertEquals(1, ds.getTotalCount());
+		assertEquals(1, ds.getActiveCount());
+		assertEquals(2, ds.getRetiredCount());
+		assertEquals(1, ds.getLeakCount());
+		ds.housekeep();
+		assertEquals("Leak reported once", 1, ds.getLeakCount());
+		con1.close();
+	}
+
+	public void testDestroy() throws SQLException {
+		ds.setMinSize(1);
+		ds.afterPropertiesSet();
+		Connection con1 = ds.getConnection();
+		FakeConnection target1 = getFakeConnection(con1);
+		Connection con2 = ds.getConnection();
+		FakeConnection target2 = getFakeConnection(con2);
+		con2.close();
+		ds.destroy();
+		assertTrue(target2.closed);
+		assertFalse(target1.closed);
+		try {
+			ds.getConnection();
+			fail("Should have thrown SQLException");
+		}
+		catch (SQLException ex) {
+			// expected
+		}
+		con1.close();
+		assertTrue(target1.closed);
+		assertEquals(0, ds.getTotalCount());
+	}
+
+	public void testStatementCachingAcrossBorrowings() throws SQLException {
+		StatementCachingDataSource scds = new StatementCachingDataSource(ds);
+		Connection con = scds.getConnection();
+		con.prepareStatement("select 1").close();
+		con.close();
+		con = scds.getConnection();
+		con.prepareStatement("select 1").close();
+		con.close();
+		assertEquals(1, ds.getCreatedCount());
+		assertEquals(1, scds.getCacheHitCount());
+		assertEquals(1, ((FakeConnection) ds.created.get(0)).preparedCount);
+		assertEquals("Cached statement closed by pool", 1, ((FakeConnection) ds.created.get(0)).openStatementCount);
+	}
+
+	private static FakeConnection getFakeConnection(Connection con) {
+		return (FakeConnection) Proxy.getInvocationHandler(((ConnectionProxy) con).getTargetConnection());
+	}
+
+
+	/**
+	 * PoolingDataSource that creates FakeConnections instead of using DriverManager.
+	 */
+	private static class TestPoolingDataSource extends PoolingDataSource {
+
+		private final List created = new ArrayList();
+
+		private boolean defaultAutoCommit = true;
+
+		protected Connection getConnectionFromDriverManager(String url, String username, String password) {
+			FakeConnection handler = new FakeConnection();
+			handler.autoCommit = this.defaultAutoCommit;
+			synchronized (this.created) {
+				this.created.add(handler);
+			}
+			return handler.proxy;
+		}
+	}
+
+
+	/**
+	 * Fake JDBC Connection that records state changes. Statements fail
+	 * on execution if the connection has been marked as broken.
+	 */
+	private static class FakeConnection implements InvocationHandler {
+
+		private final Connection proxy = (Connection) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class[] {Connection.class}, this);
+
+		private boolean autoCommit = true;
+
+		private boolean readOnly = false;
+
+		private int isolation = Connection.TRANSACTION_READ_COMMITTED;
+
+		private int rollbackCount;
+
+		private int preparedCount;
+
+		private int openStatementCount;
+
+		private int closeCount;
+
+		private boolean broken;
+
+		private boolean closed;
+
+		private final List executed = new ArrayList();
+
+		public synchronized Object invoke(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if (name.equals("hashCode")) {
+				return new Integer(System.identityHashCode(proxy));
+			}
+			else if (name.equals("equals")) {
+				return new Boolean(proxy == args[0]);
+			}
+			else if (name.equals("getAutoCommit")) {
+				return new Boolean(this.autoCommit);
+			}
+			else if (name.equals("setAutoCommit")) {
+				this.autoCommit = ((Boolean) args[0]).booleanValue();
+			}
+			else if (name.equals("isReadOnly")) {
+				return new Boolean(this.readOnly);
+			}
+			else if (name.equals("setReadOnly")) {
+				this.readOnly = ((Boolean) args[0]).booleanValue();
+			}
+			else if (name.equals("getTransactionIsolation")) {
+				return new Integer(this.isolation);
+			}
+			else if (name.equals("setTransactionIsolation")) {
+				this.isolation = ((Integer) args[0]).intValue();
+			}
+			else if (name.equals("rollback")) {
+				this.rollbackCount++;
+			}
+			else if (name.equals("close")) {
+				this.closed = true;
+			}
+			else if (name.equals("isClosed")) {
+				return new Boolean(this.closed);
+			}
+			else if (name.equals("createStatement")) {
+				return createStatement(Statement.class);
+			}
+			else if (name.equals("prepareStatement")) {
+				this.preparedCount++;
+				return createStatement(PreparedStatement.class);
+			}
+			return defaultValue(method.getReturnType());
+		}
+
+		private Object createStatement(Class statementType) {
+			this.openStatementCount++;
+			return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] {statementType},
+					new InvocationHandler() {
+						private boolean closed;
+						public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+							if (method.getName().equals("close")) {
+								synchronized (FakeConnection.this) {
+									closeCount++;
+									if (!this.closed) {
+										this.closed = true;
+										openStatementCount--;
+									}
+								}
+							}
+							else if (method.getName().equals("execute")) {
+								synchronized (FakeConnection.this) {
+									if (broken) {
+										throw new SQLException("Connection broken");
+									}
+									executed.add(args[0]);
+								}
+								return Boolean.TRUE;
+							}
+							return defaultValue(method.getReturnType());
+						}
+					});
+		}
+
+		private static Object defaultValue(Class type) {
+			if (type == boolean.class) {
+				return Boolean.FALSE;
+			}
+			else if (type == int.class) {
+				return new Integer(0);
+			}
+			return null;
+		}
+	}
+
+}
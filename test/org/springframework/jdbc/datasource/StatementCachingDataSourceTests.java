@@ -0,0 +1,276 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.datasource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import junit.framework.TestCase;
+import org.easymock.MockControl;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class StatementCachingDataSourceTests extends TestCase {
+
+	private static final String SQL_A = "update a set x = ?";
+
+	private static final String SQL_B = "update b set x = ?";
+
+	private MockControl dsControl;
+
+	private DataSource ds;
+
+	private MockControl conControl;
+
+	private Connection con;
+
+	protected void setUp() throws Exception {
+		dsControl = MockControl.createControl(DataSource.class);
+		ds = (DataSource) dsControl.getMock();
+		conControl = MockControl.createControl(Connection.class);
+		con = (Connection) conControl.getMock();
+		ds.getConnection();
+		dsControl.setDefaultReturnValue(con);
+		con.isClosed();
+		conControl.setDefaultReturnValue(false);
+	}
+
+	protected void tearDown() {
+		dsControl.verify();
+		conControl.verify();
+	}
+
+	public void testStatementReusedAfterClose() throws SQLException {
+		MockControl psControl = MockControl.createControl(PreparedStatement.class);
+		PreparedStatement ps = (PreparedStatement) psControl.getMock();
+		con.prepareStatement(SQL_A);
+		conControl.setReturnValue(ps, 1);
+		ps.setInt(1, 1);
+		psControl.setVoidCallable(1);
+		ps.setInt(1, 2);
+		psControl.setVoidCallable(1);
+		ps.executeUpdate();
+		psControl.setReturnValue(1, 2);
+		ps.clearParameters();
+		psControl.setVoidCallable(2);
+		ps.clearWarnings();
+		psControl.setVoidCallable(2);
+		dsControl.replay();
+		conControl.replay();
+		psControl.replay();
+
+		StatementCachingDataSource cachingDs = new StatementCachingDataSource(ds);
+		Connection proxy = cachingDs.getConnection();
+		for (int i = 1; i <= 2; i++) {
+			PreparedStatement psProxy = proxy.prepareStatement(SQL_A);
+			assertSame(proxy, psProxy.getConnection());
+			psProxy.setInt(1, i);
+			psProxy.executeUpdate();
+			psProxy.close();
+		}
+		assertEquals(1, cachingDs.getCacheHitCount());
+		assertEquals(1, cachingDs.getCacheMissCount());
+		assertEquals(0.5, cachingDs.getCacheHitRatio(), 0.001);
+		psControl.verify();
+	}
+
+	public void testSettingsRestoredOnClose() throws SQLException {
+		MockControl psControl = MockControl.createControl(PreparedStatement.class);
+		PreparedStatement ps = (PreparedStatement) psControl.getMock();
+		con.prepareStatement(SQL_A);
+		conControl.setReturnValue(ps, 1);
+		ps.getMaxRows();
+		psControl.setReturnValue(0, 1);
+		ps.setMaxRows(10);
+		psControl.setVoidCallable(1);
+		ps.setMaxRows(20);
+		psControl.setVoidCallable(1);
+		ps.addBatch();
+		psControl.setVoidCallable(1);
+		ps.clearParameters();
+		psControl.setVoidCallable(1);
+		ps.clearBatch();
+		psControl.setVoidCallable(1);
+		ps.setMaxRows(0);
+		psControl.setVoidCallable(1);
+		ps.clearWarnings();
+		psControl.setVoidCallable(1);
+		dsControl.replay();
+		conControl.replay();
+		psControl.replay();
+
+		StatementCachingDataSource cachingDs = new StatementCachingDataSource(ds);
+		PreparedStatement psProxy = cachingDs.getConnection().prepareStatement(SQL_A);
+		psProxy.setMaxRows(10);
+		psProxy.setMaxRows(20);
+		psProxy.addBatch();
+		psProxy.close();
+		try {
+			psProxy.executeUpdate();
+			fail("Should have thrown SQLException");
+		}
+		catch (SQLException ex) {
+			// expected
+		}
+		psControl.verify();
+	}
+
+	public void testResultSetAndConnectionAccessReturnsProxies() throws SQLException {
+		MockControl psControl = MockControl.createControl(PreparedStatement.class);
+		PreparedStatement ps = (PreparedStatement) psControl.getMock();
+		MockControl rsControl = MockControl.createControl(ResultSet.class);
+		ResultSet rs = (ResultSet) rsControl.getMock();
+		MockControl stmtControl = MockControl.createControl(Statement.class);
+		Statement stmt = (Statement) stmtControl.getMock();
+		con.prepareStatement(SQL_A);
+		conControl.setReturnValue(ps, 1);
+		con.createStatement();
+		conControl.setReturnValue(stmt, 1);
+		ps.executeQuery();
+		psControl.setReturnValue(rs, 1);
+		ps.clearParameters();
+		psControl.setVoidCallable(1);
+		ps.clearWarnings();
+		psControl.setVoidCallable(1);
+		rs.next();
+		rsControl.setReturnValue(false, 1);
+		stmt.getResultSet();
+		stmtControl.setReturnValue(rs, 1);
+		stmt.close();
+		stmtControl.setVoidCallable(1);
+		dsControl.replay();
+		conControl.replay();
+		psControl.replay();
+		rsControl.replay();
+		stmtControl.replay();
+
+		StatementCachingDataSource cachingDs = new StatementCachingDataSource(ds);
+		Connection proxy = cachingDs.getConnection();
+		PreparedStatement psProxy = proxy.prepareStatement(SQL_A);
+		ResultSet rsProxy = psProxy.executeQuery();
+		assertNotSame(rs, rsProxy);
+		assertSame(psProxy, rsProxy.getStatement());
+		assertSame(proxy, rsProxy.getStatement().getConnection());
+		assertFalse(rsProxy.next());
+		// closing via the ResultSet returns the statement to the cache
+		rsProxy.getStatement().close();
+
+		Statement stmtProxy = proxy.createStatement();
+		assertNotSame(stmt, stmtProxy);
+		assertSame(proxy, stmtProxy.getConnection());
+		assertSame(stmtProxy, stmtProxy.getResultSet().getStatement());
+		stmtProxy.close();
+		stmtProxy.close();
+
+		psControl.verify();
+		rsControl.verify();
+		stmtControl.verify();
+	}
+
+	public void testConcurrentUseOfSameSql() throws SQLException {
+		MockControl ps1Control = MockControl.createControl(PreparedStatement.class);
+		PreparedStatement ps1 = (PreparedStatement) ps1Control.getMock();
+		MockControl ps2Control = MockControl.createControl(PreparedStatement.class);
+		PreparedStatement ps2 = (PreparedStatement) ps2Control.getMock();
+		con.prepareStatement(SQL_A);
+		conControl.setReturnValue(ps1, 1);
+		con.prepareStatement(SQL_A);
+		conControl.setReturnValue(ps2, 1);
+		ps1.clearParameters();
+		ps1Control.setVoidCallable(1);
+		ps1.clearWarnings();
+		ps1Control.setVoidCallable(1);
+		ps2.clearParameters();
+		ps2Control.setVoidCallable(1);
+		ps2.clearWarnings();
+		ps2Control.setVoidCallable(1);
+		// a second idle statement for the same SQL does not get cached
+		ps2.close();
+		ps2Control.setVoidCallable(1);
+		dsControl.replay();
+		conControl.replay();
+		ps1Control.replay();
+		ps2Control.replay();
+
+		StatementCachingDataSource cachingDs = new StatementCachingDataSource(ds);
+		Connection proxy = cachingDs.getConnection();
+		PreparedStatement psProxy1 = proxy.prepareStatement(SQL_A);
+		PreparedStatement psProxy2 = proxy.prepareStatement(SQL_A);
+		psProxy1.close();
+		psProxy2.close();
+		ps1Control.verify();
+		ps2Control.verify();
+	}
+
+	public void testLeastRecentlyUsedStatementEvicted() throws SQLException {
+		MockControl ps1Control = MockControl.createNiceControl(PreparedStatement.class);
+		PreparedStatement ps1 = (PreparedStatement) ps1Control.getMock();
+		MockControl ps2Control = MockControl.createNiceControl(PreparedStatement.class);
+		PreparedStatement ps2 = (PreparedStatement) ps2Control.getMock();
+		con.prepareStatement(SQL_A);
+		conControl.setReturnValue(ps1, 1);
+		con.prepareStatement(SQL_B);
+		conControl.setReturnValue(ps2, 1);
+		ps1.close();
+		ps1Control.setVoidCallable(1);
+		dsControl.replay();
+		conControl.replay();
+		ps1Control.replay();
+		ps2Control.replay();
+
+		StatementCachingDataSource cachingDs = new StatementCachingDataSource(ds);
+		cachingDs.setCacheSize(1);
+		Connection proxy = cachingDs.getConnection();
+		proxy.prepareStatement(SQL_A).close();
+		proxy.prepareStatement(SQL_B).close();
+		ps1Control.verify();
+	}
+
+	public void testWithJdbcTemplateAndTransactionAwareProxy() throws SQLException {
+		MockControl psControl = MockControl.createNiceControl(PreparedStatement.class);
+		PreparedStatement ps = (PreparedStatement) psControl.getMock();
+		con.prepareStatement(SQL_A);
+		conControl.setReturnValue(ps, 1);
+		con.getMetaData();
+		conControl.setDefaultReturnValue(null);
+		con.close();
+		conControl.setDefaultVoidCallable();
+		ps.executeUpdate();
+		psControl.setReturnValue(1, 3);
+		dsControl.replay();
+		conControl.replay();
+		psControl.replay();
+
+		StatementCachingDataSource cachingDs = new StatementCachingDataSource(ds);
+		JdbcTemplate template = new JdbcTemplate(new TransactionAwareDataSourceProxy(cachingDs));
+		for (int i = 0; i < 3; i++) {
+			assertEquals(1, template.update(SQL_A, new Object[] {new Integer(i)}));
+		}
+		assertEquals(2, cachingDs.getCacheHitCount());
+		psControl.verify();
+	}
+
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.jdbc.object;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import junit.framework.TestCase;
+
+import org.springframework.core.task.DiscardableTask;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.scheduling.pool.ThreadPoolTaskExecutor;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class BulkSqlUpdateTests extends TestCase {
+
+	private static final String INSERT = "insert into person (name) values (?)";
+
+	private FakeDataSource dataSource;
+
+	protected void setUp() {
+		this.dataSource = new FakeDataSource();
+	}
+
+	private BulkSqlUpdate createUpdate(int chunkSize) {
+		BulkSqlUpdate update = new BulkSqlUpdate(this.dataSource.getProxy(), INSERT, new int[] {Types.VARCHAR});
+		update.setChunkSize(chunkSize);
+		update.compile();
+		// ignore the Connection used for looking up the database product name
+		this.dataSource.openCount = 0;
+		this.dataSource.closeCount = 0;
+		return update;
+	}
+
+	private List createRows(int count) {
+		List rows = new ArrayList();
+		for (int i = 0; i < count; i++) {
+			rows.add(new Object[] {"name" + i});
+		}
+		return rows;
+	}
+
+	public void testChunksInCallingThread() {
+		BulkSqlUpdate update = createUpdate(3);
+		BulkUpdateResult result = update.update(createRows(7));
+		assertEquals(7, result.getRowCount());
+		assertEquals(3, result.getChunkCount());
+		assertEquals(7, result.getExecutedRowCount());
+		assertEquals(7, result.getRowsAffected());
+		assertFalse(result.hasFailures());
+		assertEquals(3, this.dataSource.batchCount);
+		assertEquals(0, this.dataSource.commitCount);
+		assertEquals(this.dataSource.openCount, this.dataSource.closeCount);
+	}
+
+	public void testCommitPerChunkStopsAtFirstFailure() {
+		BulkSqlUpdate update = createUpdate(2);
+		update.setCommitPerChunk(true);
+		List rows = createRows(8);
+		rows.set(3, new Object[] {FakeDataSource.FAILING_VALUE});
+		CountingIterator it = new CountingIterator(rows.iterator());
+
+		BulkUpdateResult result = update.update(it);
+		assertEquals(2, result.getChunkCount());
+		assertEquals(2, result.getExecutedRowCount());
+		assertEquals(1, result.getFailures().size());
+		BulkUpdateResult.ChunkFailure failure = (BulkUpdateResult.ChunkFailure) result.getFailures().get(0);
+		assertEquals(1, failure.getChunkIndex());
+		assertEquals(2, failure.getFirstRowIndex());
+		assertEquals(2, failure.getRowCount());
+		assertNotNull(failure.getCause());
+		assertEquals("Rows after failed chunk not read", 4, it.count);
+		assertEquals(1, this.dataSource.commitCount);
+		assertEquals(1, this.dataSource.rollbackCount);
+		assertEquals(2, this.dataSource.openCount);
+		assertEquals(2, this.dataSource.closeCount);
+	}
+
+	public void testCommitPerChunkContinuesOnFailure() {
+		BulkSqlUpdate update = createUpdate(2);
+		update.setCommitPerChunk(true);
+		update.setContinueOnFailure(true);
+		List rows = createRows(8);
+		rows.set(3, new Object[] {FakeDataSource.FAILING_VALUE});
+
+		BulkUpdateResult result = update.update(rows);
+		assertEquals(4, result.getChunkCount());
+		assertEquals(6, result.getExecutedRowCount());
+		assertEquals(6, result.getRowsAffected());
+		assertEquals(1, result.getFailures().size());
+		assertEquals(3, this.dataSource.commitCount);
+		assertEquals(1, this.dataSource.rollbackCount);
+		assertEquals(4, this.dataSource.closeCount);
+	}
+
+	public void testParallelChunks() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setPoolSize(4);
+		executor.initialize();
+		try {
+			BulkSqlUpdate update = createUpdate(10);
+			update.setTaskExecutor(executor);
+			update.setConcurrency(2);
+			this.dataSource.batchDelay = 5;
+
+			BulkUpdateResult result = update.update(createRows(95));
+			assertEquals(10, result.getChunkCount());
+			assertEquals(95, result.getExecutedRowCount());
+			assertEquals(95, result.getRowsAffected());
+			assertFalse(result.hasFailures());
+			assertEquals(10, this.dataSource.commitCount);
+			assertEquals(10, this.dataSource.closeCount);
+			assertTrue("Concurrency limit exceeded", this.dataSource.maxOpenConnections <= 2);
+		}
+		finally {
+			executor.destroy();
+		}
+	}
+
+	public void testDiscardedChunksAreReportedAsFailed() {
+		BulkSqlUpdate update = createUpdate(10);
+		update.setContinueOnFailure(true);
+		update.setTaskExecutor(new TaskExecutor() {
+			public void execute(Runnable task) {
+				((DiscardableTask) task).discard(new TaskRejectedException("Queue full"));
+			}
+		});
+
+		BulkUpdateResult result = update.update(createRows(25));
+		assertEquals(3, result.getChunkCount());
+		assertEquals(0, result.getExecutedRowCount());
+		assertEquals(3, result.getFailures().size());
+		BulkUpdateResult.ChunkFailure failure = (BulkUpdateResult.ChunkFailure) result.getFailures().get(2);
+		assertEquals(20, failure.getFirstRowIndex());
+		assertTrue(failure.getCause() instanceof TaskRejectedException);
+		assertEquals(0, this.dataSource.openCount);
+	}
+
+	public void testInterruptWhileWaitingForChunks() {
+		final List tasks = new ArrayList();
+		BulkSqlUpdate update = createUpdate(10);
+		update.setConcurrency(1);
+		update.setTaskExecutor(new TaskExecutor() {
+			public void execute(Runnable task) {
+				// never runs the task, so that the next chunk has to wait
+				tasks.add(task);
+			}
+		});
+
+		Thread.currentThread().interrupt();
+		try {
+			update.update(createRows(25));
+			fail("Should have thrown DataAccessResourceFailureException");
+		}
+		catch (DataAccessResourceFailureException ex) {
+			assertTrue(ex.getCause() instanceof InterruptedException);
+		}
+		finally {
+			assertTrue("Interrupt flag restored", Thread.interrupted());
+		}
+		assertEquals(1, tasks.size());
+	}
+
+	public void testReusedParameterArray() {
+		BulkSqlUpdate update = createUpdate(10);
+		Object[] params = new Object[] {"name"};
+		List rows = new ArrayList();
+		rows.add(params);
+		rows.add(params);
+		try {
+			update.update(rows);
+			fail("Should have thrown InvalidDataAccessApiUsageException");
+		}
+		catch (InvalidDataAccessApiUsageException ex) {
+			// expected
+		}
+		assertEquals(0, this.dataSource.batchCount);
+	}
+
+
+	public void testNamedParameters() {
+		BulkSqlUpdate update = new BulkSqlUpdate();
+		update.setDataSource(this.dataSource.getProxy());
+		update.setSql("insert into person (name, alias) values (:name, :name)");
+		update.setUseNamedParameters(true);
+		update.declareParameter(new SqlParameter("name", Types.VARCHAR));
+		update.setChunkSize(2);
+		update.compile();
+
+		BulkUpdateResult result = update.update(createRows(3));
+		assertEquals(3, result.getRowsAffected());
+		update.setCommitPerChunk(true);
+		result = update.update(createRows(3));
+		assertEquals(3, result.getRowsAffected());
+		assertEquals(4, this.dataSource.preparedSql.size());
+		for (int i = 0; i < this.dataSource.preparedSql.size(); i++) {
+			assertEquals("insert into person (name, alias) values (?, ?)", this.dataSource.preparedSql.get(i));
+		}
+	}
+
+
+	private static class CountingIterator implements Iterator {
+
+		private final Iterator target;
+
+		private int count;
+
+		private CountingIterator(Iterator target) {
+			this.target = target;
+		}
+
+		public boolean hasNext() {
+			return this.target.hasNext();
+		}
+
+		public Object next() {
+			this.count++;
+			return this.target.next();
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+
+	/**
+	 * Thread-safe fake DataSource: executing a batch that contains
+	 * FAILING_VALUE throws an SQLException, every other row affects 1 row.
+	 */
+	private static class FakeDataSource implements InvocationHandler {
+
+		private static final String FAILING_VALUE = "fail";
+
+		private int openCount;
+
+		private int closeCount;
+
+		private int maxOpenConnections;
+
+		private int commitCount;
+
+		private int rollbackCount;
+
+		private int batchCount;
+
+		private long batchDelay;
+
+		private final List preparedSql = new ArrayList();
+
+		public DataSource getProxy() {
+			return (DataSource) Proxy.newProxyInstance(
+					getClass().getClassLoader(), new Class[] {DataSource.class}, this);
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			if (method.getName().equals("hashCode")) {
+				return new Integer(System.identityHashCode(proxy));
+			}
+			else if (method.getName().equals("equals")) {
+				return new Boolean(proxy == args[0]);
+			}
+			else if (method.getName().equals("getConnection")) {
+				synchronized (this) {
+					this.openCount++;
+					this.maxOpenConnections = Math.max(this.maxOpenConnections, this.openCount - this.closeCount);
+				}
+				return Proxy.newProxyInstance(
+						getClass().getClassLoader(), new Class[] {Connection.class}, new ConnectionHandler());
+			}
+			return null;
+		}
+
+		private Object defaultValue(Class type) {
+			if (type == boolean.class) {
+				return Boolean.FALSE;
+			}
+			else if (type == int.class) {
+				return new Integer(0);
+			}
+			return null;
+		}
+
+		private class ConnectionHandler implements InvocationHandler {
+
+			private boolean autoCommit = true;
+
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				String name = method.getName();
+				if (name.equals("prepareStatement")) {
+					synchronized (FakeDataSource.this) {
+						preparedSql.add(args[0]);
+					}
+					return Proxy.newProxyInstance(getClass().getClassLoader(),
+							new Class[] {PreparedStatement.class}, new StatementHandler((Connection) proxy));
+				}
+				else if (name.equals("getMetaData")) {
+					return Proxy.newProxyInstance(getClass().getClassLoader(),
+							new Class[] {DatabaseMetaData.class}, new InvocationHandler() {
+								public Object invoke(Object proxy, Method method, Object[] args) {
+									return (method.getName().equals("supportsBatchUpdates") ?
+											Boolean.TRUE : defaultValue(method.getReturnType()));
+								}
+							});
+				}
+				else if (name.equals("getAutoCommit")) {
+					return new Boolean(this.autoCommit);
+				}
+				else if (name.equals("setAutoCommit")) {
+					this.autoCommit = ((Boolean) args[0]).booleanValue();
+				}
+				synchronized (FakeDataSource.this) {
+					if (name.equals("commit")) {
+						commitCount++;
+					}
+					else if (name.equals("rollback")) {
+						rollbackCount++;
+					}
+					else if (name.equals("close")) {
+						closeCount++;
+					}
+				}
+				return defaultValue(method.getReturnType());
+			}
+		}
+
+		private class StatementHandler implements InvocationHandler {
+
+			private final Connection connection;
+
+			private final List batch = new ArrayList();
+
+			private Object value;
+
+			private StatementHandler(Connection connection) {
+				this.connection = connection;
+			}
+
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if (name.equals("getConnection")) {
+					return this.connection;
+				}
+				else if (name.equals("setString") || name.equals("setObject")) {
+					this.value = args[1];
+				}
+				else if (name.equals("addBatch")) {
+					this.batch.add(this.value);
+				}
+				else if (name.equals("executeBatch")) {
+					synchronized (FakeDataSource.this) {
+						batchCount++;
+					}
+					if (batchDelay > 0) {
+						Thread.sleep(batchDelay);
+					}
+					if (this.batch.contains(FAILING_VALUE)) {
+						throw new SQLException("Batch failed");
+					}
+					int[] rowsAffected = new int[this.batch.size()];
+					for (int i = 0; i < rowsAffected.length; i++) {
+						rowsAffected[i] = 1;
+					}
+					this.batch.clear();
+					return rowsAffected;
+				}
+				return defaultValue(method.getReturnType());
+			}
+		}
+	}
+
+}
@@ -418,6 +418,84 @@ public class SqlQueryTestSuite extends AbstractJdbcTests {
 			cust.getForename().equals("rod"));
 	}
 
+	public void testFindCustomerByNamedParamWithInList() throws SQLException {
+		mockResultSet.next();
+		ctrlResultSet.setReturnValue(true);
+		mockResultSet.getInt("id");
+		ctrlResultSet.setReturnValue(1);
+		mockResultSet.getString("forename");
+		ctrlResultSet.setReturnValue("rod");
+		mockResultSet.next();
+		ctrlResultSet.setReturnValue(false);
+		mockResultSet.close();
+		ctrlResultSet.setVoidCallable();
+
+		mockPreparedStatement.setObject(1, new Integer(1), Types.NUMERIC);
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.setObject(2, new Integer(2), Types.NUMERIC);
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.setString(3, "rod");
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.executeQuery();
+		ctrlPreparedStatement.setReturnValue(mockResultSet);
+		mockPreparedStatement.getWarnings();
+		ctrlPreparedStatement.setReturnValue(null);
+		mockPreparedStatement.close();
+		ctrlPreparedStatement.setVoidCallable();
+
+		mockConnection.prepareStatement("select id, forename from custmr where id in (?, ?) and forename = ?");
+		ctrlConnection.setReturnValue(mockPreparedStatement);
+
+		replay();
+
+		class CustomerQuery extends MappingSqlQuery {
+
+			public CustomerQuery(DataSource ds) {
+				super(ds, "select id, forename from custmr where id in (:ids) and forename = :name");
+				setUseNamedParameters(true);
+				declareParameter(new SqlParameter("ids", Types.NUMERIC));
+				declareParameter(new SqlParameter("name", Types.VARCHAR));
+				compile();
+			}
+
+			protected Object mapRow(ResultSet rs, int rownum) throws SQLException {
+				Customer cust = new Customer();
+				cust.setId(rs.getInt(COLUMN_NAMES[0]));
+				cust.setForename(rs.getString(COLUMN_NAMES[1]));
+				return cust;
+			}
+		}
+		CustomerQuery query = new CustomerQuery(mockDataSource);
+		Map params = new HashMap();
+		params.put("ids", new Integer[] {new Integer(1), new Integer(2)});
+		params.put("name", "rod");
+		Customer cust = (Customer) query.findObjectByNamedParam(params);
+
+		assertEquals(1, cust.getId());
+		assertEquals("rod", cust.getForename());
+	}
+
+	public void testNamedParameterNotDeclared() {
+		replay();
+
+		MappingSqlQuery query = new MappingSqlQuery() {
+			protected Object mapRow(ResultSet rs, int rownum) {
+				return null;
+			}
+		};
+		query.setDataSource(mockDataSource);
+		query.setSql("select id from custmr where id = :id");
+		query.setUseNamedParameters(true);
+		query.declareParameter(new SqlParameter("other", Types.NUMERIC));
+		try {
+			query.compile();
+			fail("Should have thrown InvalidDataAccessApiUsageException");
+		}
+		catch (InvalidDataAccessApiUsageException ex) {
+			// expected
+		}
+	}
+
 	public void testFindCustomerString() throws SQLException {
 		mockResultSet.next();
 		ctrlResultSet.setReturnValue(true);
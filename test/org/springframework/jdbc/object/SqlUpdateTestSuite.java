@@ -21,8 +21,11 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.easymock.MockControl;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.jdbc.AbstractJdbcTests;
 import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
 import org.springframework.jdbc.core.SqlParameter;
@@ -110,6 +113,127 @@ public class SqlUpdateTestSuite extends AbstractJdbcTests {
 		assertEquals(1, rowsAffected);
 	}
 
+	public void testUpdateByNamedParam() throws SQLException {
+		mockPreparedStatement.setObject(1, new Integer(1), Types.NUMERIC);
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.setObject(2, new Integer(2), Types.NUMERIC);
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.setObject(3, new Integer(1), Types.NUMERIC);
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.executeUpdate();
+		ctrlPreparedStatement.setReturnValue(1);
+		mockPreparedStatement.getWarnings();
+		ctrlPreparedStatement.setReturnValue(null);
+		mockPreparedStatement.close();
+		ctrlPreparedStatement.setVoidCallable();
+
+		mockConnection.prepareStatement(
+				"update seat_status set booking_id = null where performance_id = ? and price_band_id = ? or booking_id = ?");
+		ctrlConnection.setReturnValue(mockPreparedStatement);
+
+		replay();
+
+		SqlUpdate update = new SqlUpdate();
+		update.setSql("update seat_status set booking_id = null where performance_id = :perfId " +
+				"and price_band_id = :priceId or booking_id = :perfId");
+		update.setUseNamedParameters(true);
+		update.setDataSource(mockDataSource);
+		update.declareParameter(new SqlParameter("perfId", Types.NUMERIC));
+		update.declareParameter(new SqlParameter("priceId", Types.NUMERIC));
+		update.compile();
+
+		Map params = new HashMap();
+		params.put("perfId", new Integer(1));
+		params.put("priceId", new Integer(2));
+		int rowsAffected = update.updateByNamedParam(params);
+		assertEquals(1, rowsAffected);
+	}
+
+	public void testPositionalSqlIsNotParsedForNamedParameters() throws SQLException {
+		String sql = "update seat_status set slots[1:2] = ?::int[], note = 'at :time' where id = ?";
+		mockPreparedStatement.setObject(1, "{1,2}", Types.OTHER);
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.setObject(2, new Integer(1), Types.NUMERIC);
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.executeUpdate();
+		ctrlPreparedStatement.setReturnValue(1);
+		mockPreparedStatement.getWarnings();
+		ctrlPreparedStatement.setReturnValue(null);
+		mockPreparedStatement.close();
+		ctrlPreparedStatement.setVoidCallable();
+
+		mockConnection.prepareStatement(sql);
+		ctrlConnection.setReturnValue(mockPreparedStatement);
+
+		replay();
+
+		SqlUpdate update = new SqlUpdate(mockDataSource, sql, new int[] {Types.OTHER, Types.NUMERIC});
+		update.compile();
+		assertEquals(1, update.update(new Object[] {"{1,2}", new Integer(1)}));
+		try {
+			update.updateByNamedParam(new HashMap());
+			fail("Should have thrown InvalidDataAccessApiUsageException");
+		}
+		catch (InvalidDataAccessApiUsageException ex) {
+			// expected
+		}
+	}
+
+	public void testBatchUpdateWithNamedParameters() throws SQLException {
+		mockPreparedStatement.getConnection();
+		ctrlPreparedStatement.setReturnValue(mockConnection);
+		mockPreparedStatement.setObject(1, new Integer(1), Types.NUMERIC);
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.setObject(2, new Integer(2), Types.NUMERIC);
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.setObject(3, new Integer(1), Types.NUMERIC);
+		ctrlPreparedStatement.setVoidCallable();
+		mockPreparedStatement.executeUpdate();
+		ctrlPreparedStatement.setReturnValue(1);
+		mockPreparedStatement.getWarnings();
+		ctrlPreparedStatement.setReturnValue(null);
+		mockPreparedStatement.close();
+		ctrlPreparedStatement.setVoidCallable();
+
+		mockConnection.prepareStatement(
+				"update seat_status set booking_id = null where performance_id = ? and price_band_id = ? or booking_id = ?");
+		ctrlConnection.setReturnValue(mockPreparedStatement);
+
+		replay();
+
+		BatchSqlUpdate update = new BatchSqlUpdate();
+		update.setSql("update seat_status set booking_id = null where performance_id = :perfId " +
+				"and price_band_id = :priceId or booking_id = :perfId");
+		update.setUseNamedParameters(true);
+		update.setDataSource(mockDataSource);
+		update.declareParameter(new SqlParameter("perfId", Types.NUMERIC));
+		update.declareParameter(new SqlParameter("priceId", Types.NUMERIC));
+		update.compile();
+
+		update.update(new Object[] {new Integer(1), new Integer(2)});
+		int[] rowsAffected = update.flush();
+		assertEquals(1, rowsAffected.length);
+		assertEquals(1, rowsAffected[0]);
+	}
+
+	public void testUpdateByNamedParamWithMissingValue() throws SQLException {
+		replay();
+
+		SqlUpdate update = new SqlUpdate();
+		update.setSql("update seat_status set booking_id = null where performance_id = :perfId");
+		update.setUseNamedParameters(true);
+		update.setDataSource(mockDataSource);
+		update.declareParameter(new SqlParameter("perfId", Types.NUMERIC));
+		update.compile();
+		try {
+			update.updateByNamedParam(new HashMap());
+			fail("Should have thrown InvalidDataAccessApiUsageException");
+		}
+		catch (InvalidDataAccessApiUsageException ex) {
+			// expected
+		}
+	}
+
 	public void testUpdateIntInt() throws SQLException {
 		mockPreparedStatement.setObject(1, new Integer(1), Types.NUMERIC);
 		mockPreparedStatement.setObject(2, new Integer(1), Types.NUMERIC);
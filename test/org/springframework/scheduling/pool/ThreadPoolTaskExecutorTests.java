@@ -0,0 +1,250 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.scheduling.pool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.springframework.core.task.DiscardableTask;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class ThreadPoolTaskExecutorTests extends TestCase {
+
+	private ThreadPoolTaskExecutor executor;
+
+	private Gate gate;
+
+	protected void setUp() {
+		this.executor = new ThreadPoolTaskExecutor();
+		this.executor.setPoolSize(1);
+		this.executor.setQueueCapacity(2);
+		this.executor.setDaemon(true);
+		this.gate = new Gate();
+	}
+
+	protected void tearDown() {
+		this.gate.open();
+		this.executor.destroy();
+	}
+
+	public void testExecutesTasksInWorkerThread() throws Exception {
+		this.executor.setBeanName("myExecutor");
+		this.executor.afterPropertiesSet();
+		this.gate.open();
+		final List threadNames = Collections.synchronizedList(new ArrayList());
+		for (int i = 0; i < 2; i++) {
+			this.executor.execute(new Runnable() {
+				public void run() {
+					threadNames.add(Thread.currentThread().getName());
+				}
+			});
+		}
+		waitForCompletedTasks(2);
+		assertEquals("myExecutor-1", threadNames.get(0));
+		assertEquals("myExecutor-1", threadNames.get(1));
+	}
+
+	public void testCallerRuns() throws Exception {
+		this.executor.afterPropertiesSet();
+		fillPool();
+		final Thread[] executingThread = new Thread[1];
+		this.executor.execute(new Runnable() {
+			public void run() {
+				executingThread[0] = Thread.currentThread();
+			}
+		});
+		assertSame(Thread.currentThread(), executingThread[0]);
+		assertEquals(1, this.executor.getCallerRunsCount());
+	}
+
+	public void testAbort() throws Exception {
+		this.executor.setOverflowPolicyName("OVERFLOW_ABORT");
+		this.executor.afterPropertiesSet();
+		fillPool();
+		try {
+			this.executor.execute(new CountingTask());
+			fail("Should have thrown TaskRejectedException");
+		}
+		catch (TaskRejectedException ex) {
+			// expected
+		}
+		assertEquals(1, this.executor.getRejectedTaskCount());
+	}
+
+	public void testDiscardOldest() throws Exception {
+		this.executor.setOverflowPolicy(ThreadPoolTaskExecutor.OVERFLOW_DISCARD_OLDEST);
+		this.executor.afterPropertiesSet();
+		CountingTask[] tasks = fillPool();
+		CountingTask newTask = new CountingTask();
+		this.executor.execute(newTask);
+		assertEquals(1, this.executor.getDiscardedTaskCount());
+		assertEquals(2, this.executor.getQueueSize());
+		this.gate.open();
+		waitForCompletedTasks(3);
+		assertEquals(0, tasks[0].count);
+		assertNotNull(tasks[0].discarded);
+		assertEquals(1, tasks[1].count);
+		assertEquals(1, newTask.count);
+		assertNull(newTask.discarded);
+	}
+
+	public void testDiscard() throws Exception {
+		this.executor.setOverflowPolicy(ThreadPoolTaskExecutor.OVERFLOW_DISCARD);
+		this.executor.afterPropertiesSet();
+		fillPool();
+		CountingTask newTask = new CountingTask();
+		this.executor.execute(newTask);
+		this.gate.open();
+		waitForCompletedTasks(3);
+		assertEquals(0, newTask.count);
+		assertNotNull(newTask.discarded);
+		assertEquals(1, this.executor.getDiscardedTaskCount());
+	}
+
+	public void testQueuedTasksDiscardedOnShutdown() throws Exception {
+		this.executor.afterPropertiesSet();
+		CountingTask[] tasks = fillPool();
+		this.executor.destroy();
+		assertEquals(2, this.executor.getDiscardedTaskCount());
+		assertEquals(0, this.executor.getQueueSize());
+		assertNotNull(tasks[0].discarded);
+		assertNotNull(tasks[1].discarded);
+		this.gate.open();
+		waitForCompletedTasks(1);
+		assertEquals(0, tasks[0].count);
+		assertEquals(0, tasks[1].count);
+	}
+
+	public void testQueueStatistics() throws Exception {
+		this.executor.afterPropertiesSet();
+		fillPool();
+		assertEquals(1, this.executor.getActiveCount());
+		assertEquals(2, this.executor.getQueueSize());
+		assertEquals(2, this.executor.getLargestQueueSize());
+		this.gate.open();
+		waitForCompletedTasks(3);
+		assertEquals(0, this.executor.getQueueSize());
+		assertEquals(2, this.executor.getLargestQueueSize());
+	}
+
+	public void testInvalidOverflowPolicy() {
+		try {
+			this.executor.setOverflowPolicy(99);
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected
+		}
+		try {
+			this.executor.setOverflowPolicyName("DEFAULT_STRIPE_COUNT");
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	public void testRejectsAfterShutdown() throws Exception {
+		this.executor.afterPropertiesSet();
+		this.executor.destroy();
+		try {
+			this.executor.execute(new CountingTask());
+			fail("Should have thrown TaskRejectedException");
+		}
+		catch (TaskRejectedException ex) {
+			// expected
+		}
+	}
+
+	/**
+	 * Block the single worker thread and fill the queue.
+	 * @return the queued tasks
+	 */
+	private CountingTask[] fillPool() throws InterruptedException {
+		this.executor.execute(this.gate);
+		this.gate.awaitEntered();
+		CountingTask[] tasks = new CountingTask[] {new CountingTask(), new CountingTask()};
+		this.executor.execute(tasks[0]);
+		this.executor.execute(tasks[1]);
+		return tasks;
+	}
+
+	private void waitForCompletedTasks(int count) throws InterruptedException {
+		for (int i = 0; i < 500 && this.executor.getCompletedTaskCount() < count; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, this.executor.getCompletedTaskCount());
+	}
+
+
+	private static class CountingTask implements DiscardableTask {
+
+		private int count;
+
+		private TaskRejectedException discarded;
+
+		public void run() {
+			this.count++;
+		}
+
+		public void discard(TaskRejectedException reason) {
+			this.discarded = reason;
+		}
+	}
+
+
+	/**
+	 * Task that blocks until opened.
+	 */
+	private static class Gate implements Runnable {
+
+		private boolean entered;
+
+		private boolean open;
+
+		public synchronized void run() {
+			this.entered = true;
+			notifyAll();
+			while (!this.open) {
+				try {
+					wait();
+				}
+				catch (InterruptedException ex) {
+				}
+			}
+		}
+
+		public synchronized void awaitEntered() throws InterruptedException {
+			while (!this.entered) {
+				wait();
+			}
+		}
+
+		public synchronized void open() {
+			this.open = true;
+			notifyAll();
+		}
+	}
+
+}
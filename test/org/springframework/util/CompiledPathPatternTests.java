@@ -0,0 +1,125 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.util;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class CompiledPathPatternTests extends TestCase {
+
+	private static final String[] PATTERN_SEGMENTS = {"a", "b", "ab", "*", "a*", "*b", "?", "?b", "**", "*a*"};
+
+	private static final String[] PATH_SEGMENTS = {"a", "b", "ab", "ba", "aab", "bab", ""};
+
+
+	private void assertMatch(String pattern, String path, boolean expected) {
+		assertEquals("PathMatcher [" + pattern + "] vs [" + path + "]", expected, PathMatcher.match(pattern, path));
+		assertEquals("Compiled [" + pattern + "] vs [" + path + "]",
+				expected, new CompiledPathPattern(pattern).matches(path));
+	}
+
+	public void testMatchesLikePathMatcher() {
+		assertMatch("test", "test", true);
+		assertMatch("/test", "/test", true);
+		assertMatch("/test.jpg", "test.jpg", false);
+		assertMatch("/test", "test", false);
+		assertMatch("t?st", "test", true);
+		assertMatch("tes?", "testt", false);
+		assertMatch("*", "test", true);
+		assertMatch("*test*", "AnothertestTest", true);
+		assertMatch("*.*", "test.test.test", true);
+		assertMatch("test*aaa", "testblaaaa", true);
+		assertMatch("test*aaa", "testblaaab", false);
+		assertMatch("*", "**x", true);
+		assertMatch("/**", "/testing/testing", true);
+		assertMatch("/**/*", "/testing/testing", true);
+		assertMatch("/bla/**/bla", "/bla/testing/testing/bla/bla", true);
+		assertMatch("/bla/**/**/bla", "/bla/bla/bla/bla/bla/bla", true);
+		assertMatch("/????", "/bala/bla", false);
+		assertMatch("/**/*bla", "/bla/bla/bla/bbb", false);
+		assertMatch("/*bla*/**/bla/**", "/XXXblaXXXX/testing/testing/bla/testing/testing/", true);
+		assertMatch("*bla*/**/bla/*", "XXXblaXXXX/testing/testing/bla/testing/testing", false);
+		assertMatch("/a/**/b/**/c", "/a/x/b/y/z/c", true);
+		assertMatch("/a/**/b/**/c", "/a/x/c/y/b", false);
+		assertMatch("/test/", "/test", true);
+		assertMatch("/test", "//test//", true);
+		assertMatch("/test/**", "/test", true);
+		assertMatch("", "", true);
+	}
+
+	public void testMatchesLikePathMatcherForRandomPatterns() {
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			String pattern = randomPath(random, PATTERN_SEGMENTS);
+			String path = randomPath(random, PATH_SEGMENTS);
+			assertEquals("[" + pattern + "] vs [" + path + "]",
+					PathMatcher.match(pattern, path), new CompiledPathPattern(pattern).matches(path));
+		}
+	}
+
+	static String randomPath(Random random, String[] segments) {
+		StringBuffer sb = new StringBuffer();
+		if (random.nextBoolean()) {
+			sb.append('/');
+		}
+		int count = random.nextInt(5);
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				sb.append('/');
+			}
+			sb.append(segments[random.nextInt(segments.length)]);
+		}
+		return sb.toString();
+	}
+
+	public void testIsPattern() {
+		assertFalse(new CompiledPathPattern("/test/index.html").isPattern());
+		assertTrue(new CompiledPathPattern("/test/*.html").isPattern());
+		assertTrue(new CompiledPathPattern("/test/**").isPattern());
+		assertTrue(new CompiledPathPattern("/t?st").isPattern());
+	}
+
+	public void testIsMoreSpecificThan() {
+		CompiledPathPattern exact = new CompiledPathPattern("/test/index.html");
+		CompiledPathPattern wildcard = new CompiledPathPattern("/test/*.html");
+		CompiledPathPattern shortWildcard = new CompiledPathPattern("/test/*");
+		CompiledPathPattern doubleWildcard = new CompiledPathPattern("/test/**");
+		CompiledPathPattern catchAll = new CompiledPathPattern("/**");
+
+		assertTrue(exact.isMoreSpecificThan(wildcard));
+		assertTrue(wildcard.isMoreSpecificThan(shortWildcard));
+		assertTrue(shortWildcard.isMoreSpecificThan(doubleWildcard));
+		assertTrue(doubleWildcard.isMoreSpecificThan(catchAll));
+		assertFalse(catchAll.isMoreSpecificThan(doubleWildcard));
+		assertFalse(wildcard.isMoreSpecificThan(new CompiledPathPattern("/test/*.html")));
+	}
+
+	public void testEqualsAndSerialization() throws Exception {
+		CompiledPathPattern pattern = new CompiledPathPattern("/test/**/*.html");
+		assertEquals(pattern, new CompiledPathPattern("/test/**/*.html"));
+		assertEquals("/test/**/*.html", pattern.toString());
+		CompiledPathPattern copy = (CompiledPathPattern) SerializationTestUtils.serializeAndDeserialize(pattern);
+		assertEquals(pattern, copy);
+		assertTrue(copy.matches("/test/a/b/index.html"));
+	}
+
+}
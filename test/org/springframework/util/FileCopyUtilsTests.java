@@ -0,0 +1,116 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class FileCopyUtilsTests extends TestCase {
+
+	private File in;
+
+	private File out;
+
+	private byte[] content;
+
+	protected void setUp() throws IOException {
+		this.content = new byte[100000];
+		for (int i = 0; i < this.content.length; i++) {
+			this.content[i] = (byte) (i * 31);
+		}
+		this.in = File.createTempFile("fileCopyUtilsIn", ".bin");
+		this.out = File.createTempFile("fileCopyUtilsOut", ".bin");
+		FileCopyUtils.copy(this.content, this.in);
+	}
+
+	protected void tearDown() {
+		this.in.delete();
+		this.out.delete();
+	}
+
+	public void testCopyFileToFile() throws IOException {
+		FileCopyUtils.copy(this.in, this.out);
+		assertTrue(Arrays.equals(this.content, FileCopyUtils.copyToByteArray(this.out)));
+	}
+
+	public void testCopyFileToStream() throws IOException {
+		CloseTrackingOutputStream target = new CloseTrackingOutputStream();
+		FileCopyUtils.copy(this.in, target);
+		assertTrue(Arrays.equals(this.content, target.toByteArray()));
+		assertTrue(target.closed);
+	}
+
+	public void testCopyNonExistingFileToStreamClosesStream() {
+		CloseTrackingOutputStream target = new CloseTrackingOutputStream();
+		try {
+			FileCopyUtils.copy(new File(this.in.getPath() + ".notthere"), target);
+			fail("Should have thrown IOException");
+		}
+		catch (IOException ex) {
+			// expected
+		}
+		assertTrue(target.closed);
+	}
+
+	public void testCopyPartiallyReadFileStream() throws IOException {
+		FileInputStream is = new FileInputStream(this.in);
+		assertEquals(this.content[0] & 0xFF, is.read());
+		assertEquals(this.content[1] & 0xFF, is.read());
+		OutputStream os = new FileOutputStream(this.out);
+		FileCopyUtils.copy(is, os);
+		byte[] copied = FileCopyUtils.copyToByteArray(this.out);
+		assertEquals(this.content.length - 2, copied.length);
+		assertEquals(this.content[2], copied[0]);
+		assertEquals(this.content[this.content.length - 1], copied[copied.length - 1]);
+	}
+
+	public void testCopyStreamToStream() throws IOException {
+		ByteArrayOutputStream target = new ByteArrayOutputStream();
+		FileCopyUtils.copy(new ByteArrayInputStream(this.content), target);
+		assertTrue(Arrays.equals(this.content, target.toByteArray()));
+	}
+
+	public void testCopyEmptyFile() throws IOException {
+		FileCopyUtils.copy(new byte[0], this.in);
+		FileCopyUtils.copy(this.in, this.out);
+		assertEquals(0, FileCopyUtils.copyToByteArray(this.out).length);
+	}
+
+
+	private static class CloseTrackingOutputStream extends ByteArrayOutputStream {
+
+		private boolean closed;
+
+		public void close() throws IOException {
+			this.closed = true;
+			super.close();
+		}
+	}
+
+}
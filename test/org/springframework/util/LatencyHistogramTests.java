@@ -0,0 +1,136 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.util;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class LatencyHistogramTests extends TestCase {
+
+	public void testEmptySnapshot() {
+		LatencyHistogram.Snapshot snapshot = new LatencyHistogram().getSnapshot();
+		assertEquals(0, snapshot.getCount());
+		assertEquals(0, snapshot.getErrorCount());
+		assertEquals(0.0, snapshot.getMeanMillis(), 0.0);
+		assertEquals(0, snapshot.get99thPercentileMillis());
+		assertEquals(0, snapshot.getMaxMillis());
+	}
+
+	public void testExactSmallValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 5; i++) {
+			histogram.record(i, i == 5);
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+		assertEquals(5, snapshot.getCount());
+		assertEquals(1, snapshot.getErrorCount());
+		assertEquals(15, snapshot.getTotalMillis());
+		assertEquals(3.0, snapshot.getMeanMillis(), 0.0);
+		assertEquals(3, snapshot.get50thPercentileMillis());
+		assertEquals(5, snapshot.get99thPercentileMillis());
+		assertEquals(5, snapshot.getMaxMillis());
+	}
+
+	public void testPercentilesWithinPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram(1);
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i, false);
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(1000, snapshot.getMaxMillis());
+		assertWithinPrecision(500, snapshot.get50thPercentileMillis());
+		assertWithinPrecision(900, snapshot.get90thPercentileMillis());
+		assertWithinPrecision(990, snapshot.get99thPercentileMillis());
+	}
+
+	public void testHugeValueIsCapped() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(Long.MAX_VALUE, false);
+		histogram.record(-1, false);
+		LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+		assertEquals(2, snapshot.getCount());
+		assertEquals(Long.MAX_VALUE, snapshot.getMaxMillis());
+		assertEquals(0, snapshot.getPercentileMillis(0.5));
+	}
+
+	public void testReset() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(10, true);
+		histogram.reset();
+		assertEquals(0, histogram.getSnapshot().getCount());
+		assertEquals(0, histogram.getSnapshot().getErrorCount());
+	}
+
+	public void testInvalidFraction() {
+		try {
+			new LatencyHistogram().getSnapshot().getPercentileMillis(1.5);
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	public void testConcurrentRecording() throws InterruptedException {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		Thread[] threads = new Thread[10];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					for (int j = 0; j < 1000; j++) {
+						histogram.record(j % 100, false);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+		assertEquals(10000, histogram.getSnapshot().getCount());
+		assertEquals(99, histogram.getSnapshot().getMaxMillis());
+	}
+
+	private void assertWithinPrecision(long expected, long actual) {
+		assertTrue("Expected about " + expected + " but was " + actual,
+				actual >= expected && actual <= expected + expected / 8);
+	}
+
+	public void testMinAndMerge() {
+		LatencyHistogram first = new LatencyHistogram();
+		first.record(10, false);
+		first.record(20, true);
+		LatencyHistogram second = new LatencyHistogram();
+		second.record(5, false);
+		second.record(30, false);
+		assertEquals(10, first.getSnapshot().getMinMillis());
+		assertEquals(0, new LatencyHistogram().getSnapshot().getMinMillis());
+
+		LatencyHistogram.Snapshot merged = first.getSnapshot().merge(second.getSnapshot());
+		assertEquals(4, merged.getCount());
+		assertEquals(1, merged.getErrorCount());
+		assertEquals(65, merged.getTotalMillis());
+		assertEquals(5, merged.getMinMillis());
+		assertEquals(30, merged.getMaxMillis());
+		assertEquals(10, merged.get50thPercentileMillis(), 1);
+	}
+
+}
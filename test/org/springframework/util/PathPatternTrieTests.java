@@ -0,0 +1,98 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class PathPatternTrieTests extends TestCase {
+
+	public void testMatchingPatterns() {
+		PathPatternTrie trie = new PathPatternTrie(new String[] {
+				"/**", "/test/*", "/test/index.html", "/test/**/*.html", "/t?st/*.html", "/other/**", "test/*"});
+
+		List matches = trie.getMatchingPatterns("/test/index.html");
+		assertEquals(5, matches.size());
+		assertEquals("/**", matches.get(0));
+		assertEquals("/test/*", matches.get(1));
+		assertEquals("/test/index.html", matches.get(2));
+		assertEquals("/test/**/*.html", matches.get(3));
+		assertEquals("/t?st/*.html", matches.get(4));
+
+		matches = trie.getMatchingPatterns("test/index.html");
+		assertEquals(1, matches.size());
+		assertEquals("test/*", matches.get(0));
+
+		assertEquals("/test/index.html", trie.getBestMatch("/test/index.html"));
+		assertEquals("/t?st/*.html", trie.getBestMatch("/test/other.html"));
+		assertEquals("/test/*", trie.getBestMatch("/test/other.txt"));
+		assertEquals("/test/**/*.html", trie.getBestMatch("/test/a/b/other.html"));
+		assertEquals("/other/**", trie.getBestMatch("/other"));
+		assertEquals("/**", trie.getBestMatch("/"));
+		assertNull(trie.getBestMatch("other/index.html"));
+		assertTrue(trie.matches("/anything"));
+		assertFalse(trie.matches("anything"));
+	}
+
+	public void testEquallySpecificPatternsPreferFirstRegistered() {
+		PathPatternTrie trie = new PathPatternTrie(new String[] {"/a/*/c", "/*/b/c", "/a/b/*"});
+		assertEquals("/a/*/c", trie.getBestMatch("/a/b/c"));
+	}
+
+	public void testMatchesLikePathMatcherForRandomPatterns() {
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			List patterns = new ArrayList();
+			for (int j = 0; j < 20; j++) {
+				patterns.add(CompiledPathPatternTests.randomPath(random, new String[] {"a", "b", "*", "a*", "?", "**"}));
+			}
+			PathPatternTrie trie = new PathPatternTrie(patterns);
+			for (int j = 0; j < 20; j++) {
+				String path = CompiledPathPatternTests.randomPath(random, new String[] {"a", "b", "ab", "ba", ""});
+				List expected = new ArrayList();
+				for (int k = 0; k < patterns.size(); k++) {
+					String pattern = (String) patterns.get(k);
+					if (PathMatcher.match(pattern, path) && !expected.contains(pattern)) {
+						expected.add(pattern);
+					}
+				}
+				List actual = new ArrayList();
+				List matches = trie.getMatchingPatterns(path);
+				for (int k = 0; k < matches.size(); k++) {
+					if (!actual.contains(matches.get(k))) {
+						actual.add(matches.get(k));
+					}
+				}
+				assertEquals("Patterns " + patterns + " vs [" + path + "]", expected, actual);
+			}
+		}
+	}
+
+	public void testSerialization() throws Exception {
+		PathPatternTrie trie = new PathPatternTrie(new String[] {"/test/*", "/test/**/*.html"});
+		PathPatternTrie copy = (PathPatternTrie) SerializationTestUtils.serializeAndDeserialize(trie);
+		assertEquals("/test/**/*.html", copy.getBestMatch("/test/a/index.html"));
+	}
+
+}
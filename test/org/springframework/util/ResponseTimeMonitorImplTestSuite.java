@@ -101,4 +101,77 @@ public class ResponseTimeMonitorImplTestSuite extends TestCase {
 		assertEquals(impl.getWorstResponseTimeMillis(), 500);		
 	}
 
+	public void testNoAccesses() {
+		ResponseTimeMonitorImpl impl = new ResponseTimeMonitorImpl();
+		assertEquals(0, impl.getAccessCount());
+		assertEquals(Integer.MAX_VALUE, impl.getBestResponseTimeMillis());
+		assertEquals(Integer.MIN_VALUE, impl.getWorstResponseTimeMillis());
+		assertEquals(0, impl.getWindowSnapshot(ResponseTimeMonitorImpl.ONE_MINUTE).getCount());
+		assertEquals(0, impl.getPercentileResponseTimeMillis(0.99, ResponseTimeMonitorImpl.FIFTEEN_MINUTES));
+	}
+
+	public void testWindowPercentilesAndThroughput() {
+		ResponseTimeMonitorImpl impl = new ResponseTimeMonitorImpl();
+		for (int i = 1; i <= 100; i++) {
+			impl.recordResponseTime(i, i > 95);
+		}
+		LatencyHistogram.Snapshot snapshot = impl.getWindowSnapshot(ResponseTimeMonitorImpl.FIVE_MINUTES);
+		assertEquals(100, snapshot.getCount());
+		assertEquals(5, snapshot.getErrorCount());
+		assertEquals(1, snapshot.getMinMillis());
+		assertEquals(100, snapshot.getMaxMillis());
+		assertEquals(50, impl.getPercentileResponseTimeMillis(0.5, ResponseTimeMonitorImpl.ONE_MINUTE), 7);
+		assertEquals(99, impl.getPercentileResponseTimeMillis(0.99, ResponseTimeMonitorImpl.ONE_MINUTE), 13);
+		assertTrue(impl.getThroughputPerSecond(ResponseTimeMonitorImpl.ONE_MINUTE) > 0);
+		assertTrue(impl.toString().indexOf("last minute: hits=[100]") != -1);
+	}
+
+	public void testWindowSlidesOverOldBuckets() throws InterruptedException {
+		ResponseTimeMonitorImpl impl = new ResponseTimeMonitorImpl(50, 200);
+		impl.recordResponseTime(1000);
+		assertEquals(1, impl.getWindowSnapshot(200).getCount());
+		Thread.sleep(300);
+		impl.recordResponseTime(10);
+		impl.recordResponseTime(20);
+		LatencyHistogram.Snapshot snapshot = impl.getWindowSnapshot(200);
+		assertEquals(2, snapshot.getCount());
+		assertEquals(20, snapshot.getMaxMillis());
+		// lifetime statistics are unaffected
+		assertEquals(3, impl.getAccessCount());
+		assertEquals(1000, impl.getWorstResponseTimeMillis());
+		assertEquals(10, impl.getBestResponseTimeMillis());
+	}
+
+	public void testInvalidWindow() {
+		ResponseTimeMonitorImpl impl = new ResponseTimeMonitorImpl(1000, ResponseTimeMonitorImpl.ONE_MINUTE);
+		try {
+			impl.getWindowSnapshot(ResponseTimeMonitorImpl.FIVE_MINUTES);
+			fail("Should have thrown IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	public void testConcurrentRecording() throws InterruptedException {
+		final ResponseTimeMonitorImpl impl = new ResponseTimeMonitorImpl();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						impl.recordResponseTime(j % 100);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+		assertEquals(40000, impl.getAccessCount());
+		assertEquals(0, impl.getBestResponseTimeMillis());
+		assertEquals(99, impl.getWorstResponseTimeMillis());
+	}
+
 }
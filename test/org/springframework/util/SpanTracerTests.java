@@ -0,0 +1,135 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.util;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class SpanTracerTests extends TestCase {
+
+	protected void setUp() {
+		SpanTracer.setEnabled(true);
+		SpanTracer.setTraceBufferSize(SpanTracer.DEFAULT_TRACE_BUFFER_SIZE);
+		SpanTracer.setMaxSpansPerTrace(SpanTracer.DEFAULT_MAX_SPANS_PER_TRACE);
+	}
+
+	protected void tearDown() {
+		SpanTracer.setEnabled(false);
+		SpanTracer.clearCompletedTraces();
+	}
+
+	public void testNestedSpans() throws InterruptedException {
+		TraceSpan root = SpanTracer.startTrace("GET /index.html");
+		assertSame(root, SpanTracer.getCurrentSpan());
+		TraceSpan tx = SpanTracer.startSpan("Transactional MyService.doIt");
+		TraceSpan jdbc1 = SpanTracer.startSpan("JDBC select 1");
+		Thread.sleep(5);
+		SpanTracer.endSpan(jdbc1);
+		assertSame(tx, SpanTracer.getCurrentSpan());
+		TraceSpan jdbc2 = SpanTracer.startSpan("JDBC select 2");
+		SpanTracer.endSpan(jdbc2, new IllegalStateException());
+		SpanTracer.endSpan(tx);
+		assertEquals(0, SpanTracer.getCompletedTraces().length);
+		SpanTracer.endSpan(root);
+		assertNull(SpanTracer.getCurrentSpan());
+
+		TraceSpan[] traces = SpanTracer.getCompletedTraces();
+		assertEquals(1, traces.length);
+		assertSame(root, traces[0]);
+		assertNull(root.getParent());
+		assertEquals(1, root.getChildren().length);
+		assertSame(tx, root.getChildren()[0]);
+		assertSame(root, jdbc2.getRoot());
+		assertEquals(2, tx.getChildren().length);
+		assertEquals(4, root.getSpanCount());
+		assertTrue(jdbc1.getDurationMillis() >= 4);
+		assertTrue(root.getDurationNanos() >= tx.getDurationNanos());
+		assertTrue(tx.getDurationNanos() >= jdbc1.getDurationNanos() + jdbc2.getDurationNanos());
+		assertNull(jdbc1.getFailure());
+		assertEquals("java.lang.IllegalStateException", jdbc2.getFailure());
+		assertEquals(Thread.currentThread().getName(), jdbc1.getThreadName());
+
+		String text = root.toText();
+		assertTrue(text.indexOf("GET /index.html") != -1);
+		assertTrue(text.indexOf("\n") != -1);
+		assertTrue(text.indexOf("    JDBC select 2 [failed: java.lang.IllegalStateException]") != -1);
+
+		String json = root.toJson();
+		assertTrue(json.startsWith("{\"name\":\"GET /index.html\",\"thread\":"));
+		assertTrue(json.indexOf("\"children\":[{\"name\":\"Transactional MyService.doIt\"") != -1);
+		assertTrue(json.indexOf("\"failure\":\"java.lang.IllegalStateException\"") != -1);
+	}
+
+	public void testDisabled() {
+		SpanTracer.setEnabled(false);
+		assertNull(SpanTracer.startTrace("GET /index.html"));
+		assertNull(SpanTracer.startSpan("JDBC select 1"));
+		SpanTracer.endSpan(null);
+		assertNull(SpanTracer.getCurrentSpan());
+		assertEquals(0, SpanTracer.getCompletedTraces().length);
+	}
+
+	public void testStartTraceWithinTraceStartsChildSpan() {
+		TraceSpan root = SpanTracer.startTrace("GET /index.html");
+		TraceSpan include = SpanTracer.startTrace("GET /header.jsp");
+		assertSame(root, include.getParent());
+		SpanTracer.endSpan(include);
+		assertSame(root, SpanTracer.getCurrentSpan());
+		assertEquals(0, SpanTracer.getCompletedTraces().length);
+		SpanTracer.endSpan(root);
+		assertEquals(1, SpanTracer.getCompletedTraces().length);
+		assertSame(root, SpanTracer.getCompletedTraces()[0]);
+	}
+
+	public void testRingBuffer() {
+		SpanTracer.setTraceBufferSize(3);
+		for (int i = 0; i < 5; i++) {
+			SpanTracer.endSpan(SpanTracer.startTrace("trace" + i));
+		}
+		TraceSpan[] traces = SpanTracer.getCompletedTraces();
+		assertEquals(3, traces.length);
+		assertEquals("trace2", traces[0].getName());
+		assertEquals("trace3", traces[1].getName());
+		assertEquals("trace4", traces[2].getName());
+		assertEquals(5, SpanTracer.getCompletedTraceCount());
+		SpanTracer.clearCompletedTraces();
+		assertEquals(0, SpanTracer.getCompletedTraces().length);
+	}
+
+	public void testMaxSpansPerTrace() {
+		SpanTracer.setMaxSpansPerTrace(3);
+		TraceSpan root = SpanTracer.startTrace("batch");
+		for (int i = 0; i < 5; i++) {
+			SpanTracer.endSpan(SpanTracer.startSpan("JDBC insert"));
+		}
+		SpanTracer.endSpan(root);
+		assertEquals(2, root.getChildren().length);
+		assertEquals(3, root.getSpanCount());
+		assertEquals(3, root.getDroppedSpanCount());
+		assertTrue(root.toText().indexOf("3 more spans not recorded") != -1);
+	}
+
+	public void testJsonEscaping() {
+		TraceSpan root = SpanTracer.startTrace("JDBC select \"a\\b\"\n");
+		SpanTracer.endSpan(root);
+		assertTrue(root.toJson().startsWith("{\"name\":\"JDBC select \\\"a\\\\b\\\"\\n\""));
+	}
+
+}
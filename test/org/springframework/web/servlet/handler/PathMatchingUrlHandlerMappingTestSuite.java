@@ -16,6 +16,9 @@
 
 package org.springframework.web.servlet.handler;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import junit.framework.TestCase;
 
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -224,4 +227,25 @@ public class PathMatchingUrlHandlerMappingTestSuite extends TestCase {
 		assertTrue("Handler is correct bean", hec != null && hec.getHandler() == bean);
 	}
 
+	public void testMostSpecificPatternWins() throws Exception {
+		Object bean = wac.getBean("mainController");
+		Object otherBean = wac.getBean("anotherController");
+		Object defaultBean = wac.getBean("starController");
+
+		Map urlMap = new HashMap();
+		urlMap.put("/admin/**", defaultBean);
+		urlMap.put("/admin/*.html", otherBean);
+		urlMap.put("/admin/*/index.html", bean);
+		SimpleUrlHandlerMapping mapping = new SimpleUrlHandlerMapping();
+		mapping.setUrlMap(urlMap);
+		mapping.setApplicationContext(wac);
+
+		HandlerExecutionChain hec = mapping.getHandler(new MockHttpServletRequest("GET", "/admin/users.html"));
+		assertSame(otherBean, hec.getHandler());
+		hec = mapping.getHandler(new MockHttpServletRequest("GET", "/admin/users/index.html"));
+		assertSame(bean, hec.getHandler());
+		hec = mapping.getHandler(new MockHttpServletRequest("GET", "/admin/users/list.html"));
+		assertSame(defaultBean, hec.getHandler());
+	}
+
 }
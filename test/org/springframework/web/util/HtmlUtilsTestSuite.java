@@ -6,6 +6,9 @@
  */
 package org.springframework.web.util;
 
+import java.io.IOException;
+import java.io.StringWriter;
+
 import junit.framework.TestCase;
 
 /**
@@ -46,4 +49,26 @@ public class HtmlUtilsTestSuite extends TestCase {
 		
 	}
 
+	public void testHtmlEscapeReturnsInputIfNothingToEscape() {
+		String unescaped = "Nothing to escape here";
+		assertSame(unescaped, HtmlUtils.htmlEscape(unescaped));
+		assertNull(HtmlUtils.htmlEscape(null));
+	}
+
+	public void testHtmlEscapeSpecialCharacters() {
+		assertEquals("a &#60;b&#62; &#38; &#169;", HtmlUtils.htmlEscape("a <b> & \u00A9"));
+		assertEquals("&#8364;5 &#9829;", HtmlUtils.htmlEscape("\u20AC5 \u2665"));
+	}
+
+	public void testHtmlEscapeToWriter() throws IOException {
+		StringWriter out = new StringWriter();
+		HtmlUtils.htmlEscape("<p>\"x\" & y</p>", out);
+		assertEquals("&#60;p&#62;&#34;x&#34; &#38; y&#60;/p&#62;", out.toString());
+
+		out = new StringWriter();
+		HtmlUtils.htmlEscape("plain", out);
+		HtmlUtils.htmlEscape(null, out);
+		assertEquals("plain", out.toString());
+	}
+
 }
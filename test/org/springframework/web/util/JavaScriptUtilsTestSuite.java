@@ -0,0 +1,55 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+/**
+ * @author Juergen Hoeller
+ * @since 1.1.2
+ */
+public class JavaScriptUtilsTestSuite extends TestCase {
+
+	public void testJavaScriptEscape() throws IOException {
+		String input = "\"quoted\" 'single' back\\slash\ttab\r\nwin\nunix\rmac\fform";
+		String expected = "\\\"quoted\\\" \\'single\\' back\\\\slash\\ttab\\nwin\\nunix\\nmac\\fform";
+		assertEquals(expected, JavaScriptUtils.javaScriptEscape(input));
+
+		StringWriter out = new StringWriter();
+		JavaScriptUtils.javaScriptEscape(input, out);
+		assertEquals(expected, out.toString());
+	}
+
+	public void testJavaScriptEscapeReturnsInputIfNothingToEscape() {
+		String input = "Nothing to escape, \u00E4\u00F6\u00FC";
+		assertSame(input, JavaScriptUtils.javaScriptEscape(input));
+		assertNull(JavaScriptUtils.javaScriptEscape(null));
+	}
+
+	public void testJavaScriptEscapeToWriterWithLeadingAndTrailingCharacters() throws IOException {
+		StringWriter out = new StringWriter();
+		JavaScriptUtils.javaScriptEscape("\r\n", out);
+		JavaScriptUtils.javaScriptEscape("a'", out);
+		JavaScriptUtils.javaScriptEscape("'b", out);
+		JavaScriptUtils.javaScriptEscape(null, out);
+		assertEquals("\\na\\'\\'b", out.toString());
+	}
+
+}